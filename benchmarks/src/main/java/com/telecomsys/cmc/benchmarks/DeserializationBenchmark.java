@@ -0,0 +1,125 @@
+package com.telecomsys.cmc.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.telecomsys.cmc.http.ElementHandler;
+import com.telecomsys.cmc.http.ResponseParser;
+import com.telecomsys.cmc.http.StreamingParsers;
+import com.telecomsys.cmc.response.NotificationsResponse;
+import com.telecomsys.cmc.response.TrackingInformation;
+
+/**
+ * Deserialization of a notifications response, with the data binding used by default and with the streaming parser,
+ * either collecting the tracking information or handing them over one at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeserializationBenchmark {
+
+    /**
+     * Number of tracking entries of the response.
+     */
+    @Param({"1", "100", "1000", "10000" })
+    private int size;
+
+    /**
+     * Serialized response.
+     */
+    private byte[] body;
+
+    /**
+     * Factory of the parsers.
+     */
+    private JsonFactory jsonFactory;
+
+    /**
+     * Data binding reader of the response.
+     */
+    private ObjectReader reader;
+
+    /**
+     * Streaming parser collecting the tracking information.
+     */
+    private ResponseParser<NotificationsResponse> collectingParser;
+
+    /**
+     * Create the response and the readers.
+     */
+    @Setup
+    public void setup() {
+        body = Payloads.notifications(size).getBytes(StandardCharsets.UTF_8);
+        ObjectMapper mapper = Payloads.createMapper();
+        jsonFactory = mapper.getFactory();
+        reader = mapper.reader(NotificationsResponse.class).withRootName("response");
+        collectingParser = StreamingParsers.notifications(null);
+    }
+
+    /**
+     * Read the response with the data binding.
+     *
+     * @return the response.
+     * @throws IOException exception reading the response.
+     */
+    @Benchmark
+    public NotificationsResponse dataBinding() throws IOException {
+        return reader.readValue(body);
+    }
+
+    /**
+     * Read the response with the streaming parser, collecting the tracking information.
+     *
+     * @return the response.
+     * @throws IOException exception reading the response.
+     */
+    @Benchmark
+    public NotificationsResponse streamingCollected() throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return collectingParser.parse(parser);
+        }
+    }
+
+    /**
+     * Read the response with the streaming parser, handing over the tracking information.
+     *
+     * @param blackhole sink of the tracking information.
+     * @return the response.
+     * @throws IOException exception reading the response.
+     */
+    @Benchmark
+    public NotificationsResponse streamingHandled(final Blackhole blackhole) throws IOException {
+        ResponseParser<NotificationsResponse> parser = StreamingParsers.notifications(
+                new ElementHandler<TrackingInformation>() {
+                    @Override
+                    public void handle(TrackingInformation element) {
+                        blackhole.consume(element);
+                    }
+                });
+        try (JsonParser jsonParser = jsonFactory.createParser(body)) {
+            return parser.parse(jsonParser);
+        }
+    }
+
+}
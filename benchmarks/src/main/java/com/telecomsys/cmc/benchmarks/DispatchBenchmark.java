@@ -0,0 +1,150 @@
+package com.telecomsys.cmc.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.telecomsys.cmc.api.CmcClient;
+import com.telecomsys.cmc.api.MessagingApi;
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.model.Message;
+import com.telecomsys.cmc.response.NotificationsResponse;
+
+/**
+ * Full dispatch of a send through the client (URI building, serialization, connection pool, response handling and
+ * deserialization) against a loopback server answering immediately with a canned response. The server cost is part of
+ * the measurement, so compare runs on the same machine only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class DispatchBenchmark {
+
+    /**
+     * Number of destinations of the message.
+     */
+    @Param({"1", "100" })
+    private int size;
+
+    /**
+     * Loopback server.
+     */
+    private HttpServer server;
+
+    /**
+     * Executor of the loopback server.
+     */
+    private ExecutorService serverExecutor;
+
+    /**
+     * Client under test.
+     */
+    private CmcClient cmcClient;
+
+    /**
+     * Message sent.
+     */
+    private Message message;
+
+    /**
+     * Start the loopback server and create the client.
+     *
+     * @throws IOException exception starting the server.
+     */
+    @Setup
+    public void setup() throws IOException {
+        final byte[] response = Payloads.notifications(size).getBytes(StandardCharsets.UTF_8);
+
+        // Without it the server's headers and body wait for delayed acknowledgements, which caps the throughput.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] buffer = new byte[8192];
+                try (InputStream in = exchange.getRequestBody()) {
+                    while (in.read(buffer) != -1) {
+                        continue;
+                    }
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                }
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        cmcClient = new CmcClient("http://127.0.0.1:" + server.getAddress().getPort(), "9876", "1234");
+        message = Payloads.message(size);
+    }
+
+    /**
+     * Close the client and stop the loopback server.
+     *
+     * @throws IOException exception closing the client.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        cmcClient.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    /**
+     * Send a message on the blocking client.
+     *
+     * @return the response.
+     * @throws CMCException exception sending the message.
+     */
+    @Benchmark
+    public HttpResponseWrapper<NotificationsResponse> send() throws CMCException {
+        return cmcClient.getMessagingApi().sendMessage(message);
+    }
+
+    /**
+     * Send a message on the asynchronous client and wait for the response.
+     *
+     * @return the response.
+     * @throws InterruptedException interrupted while waiting.
+     * @throws ExecutionException exception sending the message.
+     */
+    @Benchmark
+    public HttpResponseWrapper<NotificationsResponse> sendAsync() throws InterruptedException, ExecutionException {
+        MessagingApi messagingApi = cmcClient.getMessagingApi();
+        return messagingApi.sendMessageAsync(message, null).get();
+    }
+
+}
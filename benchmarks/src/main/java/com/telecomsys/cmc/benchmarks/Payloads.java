@@ -0,0 +1,108 @@
+package com.telecomsys.cmc.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.telecomsys.cmc.model.Contact;
+import com.telecomsys.cmc.model.Message;
+
+/**
+ * Payloads shared by the benchmarks, sized by the number of destinations, contacts or tracking entries.
+ */
+final class Payloads {
+
+    /**
+     * First destination number, the following ones are consecutive.
+     */
+    private static final long FIRST_DESTINATION = 4102800000L;
+
+    /**
+     * Constructor - not to be instantiated.
+     */
+    private Payloads() {
+    }
+
+    /**
+     * Create an object mapper configured as the one of the HTTP client.
+     *
+     * @return the object mapper.
+     */
+    static ObjectMapper createMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.UNWRAP_ROOT_VALUE, true);
+        mapper.configure(SerializationFeature.WRAP_ROOT_VALUE, true);
+        mapper.setSerializationInclusion(Include.NON_NULL);
+        mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        return mapper;
+    }
+
+    /**
+     * Create a list of destination numbers.
+     *
+     * @param size number of destinations.
+     * @return the destinations.
+     */
+    static List<String> destinations(int size) {
+        List<String> destinations = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            destinations.add(Long.toString(FIRST_DESTINATION + i));
+        }
+        return destinations;
+    }
+
+    /**
+     * Create a message.
+     *
+     * @param size number of destinations.
+     * @return the message.
+     */
+    static Message message(int size) {
+        return new Message(destinations(size), "scsrest", "Your appointment is confirmed for tomorrow at 10:30.");
+    }
+
+    /**
+     * Create a list of contacts.
+     *
+     * @param size number of contacts.
+     * @return the contacts.
+     */
+    static List<Contact> contacts(int size) {
+        List<Contact> contacts = new ArrayList<Contact>(size);
+        for (int i = 0; i < size; i++) {
+            Contact contact = new Contact(Long.toString(FIRST_DESTINATION + i), "First" + i, "Last" + i);
+            contact.setEmailAddress("contact" + i + "@example.com");
+            contacts.add(contact);
+        }
+        return contacts;
+    }
+
+    /**
+     * Create a notifications response body as returned by a send.
+     *
+     * @param size number of tracking entries.
+     * @return the response body.
+     */
+    static String notifications(int size) {
+        StringBuilder sb = new StringBuilder(128 + size * 160);
+        sb.append("{\"response\":{\"status\":\"success\",\"notifications\":{\"to\":[");
+        for (int i = 0; i < size; i++) {
+            sb.append(i > 0 ? "," : "").append('"').append(FIRST_DESTINATION + i).append('"');
+        }
+        sb.append("],\"from\":\"scsrest\",\"trackinginformation\":[");
+        for (int i = 0; i < size; i++) {
+            sb.append(i > 0 ? "," : "")
+                .append("{\"destination\":\"").append(FIRST_DESTINATION + i)
+                .append("\",\"messagestatus\":\"Message Accepted\",\"messageID\":\"GW1_AVvciGlHRM32pw")
+                .append(i)
+                .append("\",\"messagetext\":\"Your appointment is confirmed for tomorrow at 10:30.\"}");
+        }
+        sb.append("]}}}");
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.telecomsys.cmc.benchmarks;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.telecomsys.cmc.model.Contact;
+import com.telecomsys.cmc.model.Message;
+
+/**
+ * Serialization of the send message and contact list request bodies, written with the same root names as the
+ * messaging and contact facades.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /**
+     * Number of destinations of the message and number of contacts.
+     */
+    @Param({"1", "100", "1000" })
+    private int size;
+
+    /**
+     * Writer of the send message body.
+     */
+    private ObjectWriter messageWriter;
+
+    /**
+     * Writer of the contact list body.
+     */
+    private ObjectWriter contactsWriter;
+
+    /**
+     * Send message body.
+     */
+    private Map<String, Message> messageBody;
+
+    /**
+     * Contact list body.
+     */
+    private Map<String, List<Contact>> contactsBody;
+
+    /**
+     * Create the writers and the bodies.
+     */
+    @Setup
+    public void setup() {
+        ObjectMapper mapper = Payloads.createMapper();
+        messageWriter = mapper.writer().withRootName("");
+        contactsWriter = mapper.writer().withRootName("contactList");
+        messageBody = Collections.singletonMap("sendmessage", Payloads.message(size));
+        contactsBody = Collections.singletonMap("contacts", Payloads.contacts(size));
+    }
+
+    /**
+     * Serialize a send message body.
+     *
+     * @return the serialized body.
+     * @throws IOException exception serializing the body.
+     */
+    @Benchmark
+    public byte[] messageSerialization() throws IOException {
+        return messageWriter.writeValueAsBytes(messageBody);
+    }
+
+    /**
+     * Serialize a contact list body.
+     *
+     * @return the serialized body.
+     * @throws IOException exception serializing the body.
+     */
+    @Benchmark
+    public byte[] contactListSerialization() throws IOException {
+        return contactsWriter.writeValueAsBytes(contactsBody);
+    }
+
+}
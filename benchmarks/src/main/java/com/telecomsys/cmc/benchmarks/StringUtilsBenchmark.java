@@ -0,0 +1,60 @@
+package com.telecomsys.cmc.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.telecomsys.cmc.utils.StringUtils;
+
+/**
+ * Joining of the message IDs and numbers sent in the path of the receipts and contacts requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringUtilsBenchmark {
+
+    /**
+     * Number of values joined.
+     */
+    @Param({"1", "10", "100", "1000" })
+    private int size;
+
+    /**
+     * Values joined.
+     */
+    private List<String> values;
+
+    /**
+     * Create the values.
+     */
+    @Setup
+    public void setup() {
+        values = Payloads.destinations(size);
+    }
+
+    /**
+     * Join the values.
+     *
+     * @return the CSV string.
+     */
+    @Benchmark
+    public String convertStringListToCSV() {
+        return StringUtils.convertStringListToCSV(values);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.telecomsys.cmc.http;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.telecomsys.cmc.utils.StringUtils;
+
+/**
+ * Escaping and building of the request URIs. The builder is internal to the HTTP client, hence this benchmark lives in
+ * its package.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlBuilderBenchmark {
+
+    /**
+     * Number of message IDs in the path of the receipts request.
+     */
+    private static final int RECEIPT_IDS = 50;
+
+    /**
+     * URI builder.
+     */
+    private UrlBuilder urlBuilder;
+
+    /**
+     * Path of a receipts request.
+     */
+    private String receiptsPath;
+
+    /**
+     * Query parameters of a program replies request, with characters to escape.
+     */
+    private Map<String, String> queryParams;
+
+    /**
+     * Create the builder and the request parts.
+     *
+     * @throws URISyntaxException never, the base URI is valid.
+     */
+    @Setup
+    public void setup() throws URISyntaxException {
+        urlBuilder = new UrlBuilder("https://www.cmcdev.net/v1");
+        StringBuilder sb = new StringBuilder("/receipts/");
+        String[] ids = new String[RECEIPT_IDS];
+        for (int i = 0; i < RECEIPT_IDS; i++) {
+            ids[i] = "GW1_AVvciGlHRM32pw" + i;
+        }
+        sb.append(StringUtils.convertStringListToCSV(Arrays.asList(ids)));
+        receiptsPath = sb.toString();
+        queryParams = new LinkedHashMap<String, String>();
+        queryParams.put("keyword", "scsrest");
+        queryParams.put("from", "2015-10-01 00:00:00");
+        queryParams.put("to", "2015-10-31 23:59:59");
+        queryParams.put("text", "Réponse & question?");
+    }
+
+    /**
+     * Build a URI without anything to escape.
+     *
+     * @return the URI.
+     */
+    @Benchmark
+    public URI plainPath() {
+        return urlBuilder.build("/notifications/f3c9b4e1", null);
+    }
+
+    /**
+     * Build the URI of a receipts request.
+     *
+     * @return the URI.
+     */
+    @Benchmark
+    public URI longPath() {
+        return urlBuilder.build(receiptsPath, null);
+    }
+
+    /**
+     * Build a URI with query parameters to escape.
+     *
+     * @return the URI.
+     */
+    @Benchmark
+    public URI escapedQuery() {
+        return urlBuilder.build("/programreplies", queryParams);
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.telecomsys.cmc.api;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.response.NotificationsResponse;
+import com.telecomsys.cmc.response.TrackingInformation;
+
+/**
+ * Aggregate result of a bulk send. The tracking information of all the chunks that were accepted is merged in the
+ * order of the destinations; the chunks that failed are reported with their destinations so they can be resent.
+ */
+public class BulkSendResult {
+
+    /**
+     * Number of chunks the send was split into.
+     */
+    private final int chunkCount;
+
+    /**
+     * Tracking information merged from the accepted chunks.
+     */
+    private final List<TrackingInformation> trackingInformation;
+
+    /**
+     * Chunks that failed.
+     */
+    private final List<FailedChunk> failedChunks;
+
+    /**
+     * Constructor.
+     *
+     * @param chunkCount number of chunks the send was split into.
+     * @param trackingInformation tracking information merged from the accepted chunks.
+     * @param failedChunks chunks that failed.
+     */
+    BulkSendResult(int chunkCount, List<TrackingInformation> trackingInformation, List<FailedChunk> failedChunks) {
+        this.chunkCount = chunkCount;
+        this.trackingInformation = Collections.unmodifiableList(trackingInformation);
+        this.failedChunks = Collections.unmodifiableList(failedChunks);
+    }
+
+    /**
+     * @return whether all the chunks were accepted
+     */
+    public boolean isSuccess() {
+        return failedChunks.isEmpty();
+    }
+
+    /**
+     * @return the number of chunks the send was split into
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * @return the tracking information merged from the accepted chunks
+     */
+    public List<TrackingInformation> getTrackingInformation() {
+        return trackingInformation;
+    }
+
+    /**
+     * @return the chunks that failed
+     */
+    public List<FailedChunk> getFailedChunks() {
+        return failedChunks;
+    }
+
+    /**
+     * A chunk of destinations that was not accepted, either because the request failed or because CMC returned an
+     * error response.
+     */
+    public static final class FailedChunk {
+
+        /**
+         * Destinations of the chunk.
+         */
+        private final List<String> destinations;
+
+        /**
+         * Error response returned by CMC, null if the request failed.
+         */
+        private final HttpResponseWrapper<NotificationsResponse> response;
+
+        /**
+         * Exception raised by the request, null if CMC returned an error response.
+         */
+        private final CMCException exception;
+
+        /**
+         * Constructor.
+         *
+         * @param destinations destinations of the chunk.
+         * @param response error response returned by CMC.
+         * @param exception exception raised by the request.
+         */
+        FailedChunk(List<String> destinations, HttpResponseWrapper<NotificationsResponse> response,
+                CMCException exception) {
+            this.destinations = Collections.unmodifiableList(destinations);
+            this.response = response;
+            this.exception = exception;
+        }
+
+        /**
+         * @return the destinations of the chunk
+         */
+        public List<String> getDestinations() {
+            return destinations;
+        }
+
+        /**
+         * @return the error response returned by CMC, null if the request failed
+         */
+        public HttpResponseWrapper<NotificationsResponse> getResponse() {
+            return response;
+        }
+
+        /**
+         * @return the exception raised by the request, null if CMC returned an error response
+         */
+        public CMCException getException() {
+            return exception;
+        }
+    }
+
+}
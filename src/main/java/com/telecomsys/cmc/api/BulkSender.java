@@ -0,0 +1,151 @@
+package com.telecomsys.cmc.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
+import com.telecomsys.cmc.model.Message;
+import com.telecomsys.cmc.response.Notifications;
+import com.telecomsys.cmc.response.NotificationsResponse;
+import com.telecomsys.cmc.response.TrackingInformation;
+
+/**
+ * Sends one message to a large list of destinations. The destinations are split into chunks that are sent
+ * concurrently over the connection pool of the messaging facade, with at most a configured number of chunks in
+ * flight, and the responses are merged into a single {@link BulkSendResult}. For example:
+ *
+ * <pre>
+ * BulkSender bulkSender = new BulkSender(cmcClient.getMessagingApi(), 500, 8);
+ * BulkSendResult result = bulkSender.send(new Message(destinations, "keyword", "Campaign message"));
+ * </pre>
+ */
+public class BulkSender {
+
+    /**
+     * Default number of destinations per request.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    /**
+     * Default number of requests in flight.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Messaging facade used to send the chunks.
+     */
+    private final MessagingApi messagingApi;
+
+    /**
+     * Number of destinations per request.
+     */
+    private final int chunkSize;
+
+    /**
+     * Maximum number of requests in flight.
+     */
+    private final int parallelism;
+
+    /**
+     * Constructor using the default chunk size and parallelism.
+     *
+     * @param messagingApi messaging facade used to send the chunks.
+     */
+    public BulkSender(MessagingApi messagingApi) {
+        this(messagingApi, DEFAULT_CHUNK_SIZE, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Constructor. The parallelism should not exceed the connections per route of the HTTP client, otherwise the
+     * extra requests wait for a pooled connection.
+     *
+     * @param messagingApi messaging facade used to send the chunks.
+     * @param chunkSize number of destinations per request.
+     * @param parallelism maximum number of requests in flight.
+     */
+    public BulkSender(MessagingApi messagingApi, int chunkSize, int parallelism) {
+        if (messagingApi == null) {
+            throw new IllegalArgumentException("Messaging API must not be null");
+        }
+        if (chunkSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Chunk size and parallelism must be positive");
+        }
+        this.messagingApi = messagingApi;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Send the message to all its destinations, blocking until every chunk has completed. A chunk that fails does
+     * not stop the other chunks; it is reported in the result.
+     *
+     * @param message the Message model that has all message details.
+     * @return the merged result of all the chunks.
+     * @throws InterruptedException if interrupted while waiting. Chunks already sent are not cancelled.
+     */
+    public BulkSendResult send(final Message message) throws InterruptedException {
+        List<String> destinations = message.getDestinations();
+        if (destinations == null || destinations.isEmpty()) {
+            throw new IllegalArgumentException("Message has no destinations");
+        }
+
+        int chunkCount = (destinations.size() + chunkSize - 1) / chunkSize;
+        final List<List<String>> chunks = new ArrayList<List<String>>(chunkCount);
+        for (int from = 0; from < destinations.size(); from += chunkSize) {
+            chunks.add(new ArrayList<String>(destinations.subList(from,
+                    Math.min(from + chunkSize, destinations.size()))));
+        }
+
+        FanOut<NotificationsResponse> fanOut = new FanOut<NotificationsResponse>(chunkCount) {
+            @Override
+            void send(int index, ResponseCallback<NotificationsResponse> callback) {
+                messagingApi.sendMessageAsync(copyWithDestinations(message, chunks.get(index)), callback);
+            }
+        };
+        fanOut.run(parallelism);
+
+        // Merge the responses in the order of the chunks.
+        List<TrackingInformation> trackingInformation = new ArrayList<TrackingInformation>(destinations.size());
+        List<BulkSendResult.FailedChunk> failedChunks = new ArrayList<BulkSendResult.FailedChunk>();
+        for (int i = 0; i < chunkCount; i++) {
+            HttpResponseWrapper<NotificationsResponse> response = fanOut.getResponse(i);
+            if (response == null || !isAccepted(response)) {
+                failedChunks.add(new BulkSendResult.FailedChunk(chunks.get(i), response, fanOut.getException(i)));
+                continue;
+            }
+            Notifications notifications = response.getResponseBody().getNotifications();
+            if (notifications != null && notifications.getTrackingInformation() != null) {
+                trackingInformation.addAll(notifications.getTrackingInformation());
+            }
+        }
+        return new BulkSendResult(chunkCount, trackingInformation, failedChunks);
+    }
+
+    /**
+     * Helper method to check whether CMC accepted a chunk.
+     *
+     * @param response the response of the chunk.
+     * @return whether the chunk was accepted.
+     */
+    private static boolean isAccepted(HttpResponseWrapper<NotificationsResponse> response) {
+        int statusCode = response.getHttpStatusCode();
+        return statusCode >= 200 && statusCode < 300 && response.getResponseBody() != null;
+    }
+
+    /**
+     * Helper method to copy a message for a chunk of its destinations.
+     *
+     * @param message the message to copy.
+     * @param destinations the destinations of the chunk.
+     * @return message for the chunk.
+     */
+    private static Message copyWithDestinations(Message message, List<String> destinations) {
+        Message chunk = new Message(destinations, message.getKeyword(), message.getMessage());
+        chunk.setSubject(message.getSubject());
+        chunk.setNotifyURL(message.getNotifyURL());
+        chunk.setReplyExpiry(message.getReplyExpiry());
+        return chunk;
+    }
+
+}
@@ -1,18 +1,43 @@
 package com.telecomsys.cmc.api;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import com.telecomsys.cmc.exception.CMCException;
 import com.telecomsys.cmc.http.ApacheHttpClientDelegate;
+import com.telecomsys.cmc.http.AsyncHttpClientDelegate;
+import com.telecomsys.cmc.http.CmcHttpRequest;
 import com.telecomsys.cmc.http.HttpClientDelegate;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
 
 /**
- * Base abstract class for all API facades.
+ * Base abstract class for all API facades. Closing a facade releases the HTTP client only if the facade created it.
  */
-public abstract class CmcBaseApi {
+public abstract class CmcBaseApi implements Closeable {
 
     /**
      * HTTP client instance.
      */
     protected HttpClientDelegate httpClient;
 
+    /**
+     * Asynchronous HTTP client instance. Null if the HTTP client does not support asynchronous requests.
+     */
+    protected AsyncHttpClientDelegate asyncHttpClient;
+
+    /**
+     * Whether this facade created the HTTP client and is responsible for closing it.
+     */
+    private final boolean ownsHttpClient;
+
+    /**
+     * Batcher of the IDs sent in the request path.
+     */
+    private volatile PathBatcher pathBatcher = new PathBatcher();
+
     /**
      * Constructor.
      *
@@ -21,7 +46,209 @@ public abstract class CmcBaseApi {
      * @param authenticationToken the authentication token.
      */
     public CmcBaseApi(String baseUri, String accountID, String authenticationToken) {
-        httpClient = new ApacheHttpClientDelegate(baseUri, accountID, authenticationToken);
+        this(new ApacheHttpClientDelegate(baseUri, accountID, authenticationToken), true);
+    }
+
+    /**
+     * Constructor using an existing HTTP client. Facades created this way share the connection pool of the client.
+     *
+     * @param httpClient the HTTP client used to send the requests.
+     */
+    public CmcBaseApi(HttpClientDelegate httpClient) {
+        this(httpClient, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param httpClient the HTTP client used to send the requests.
+     * @param ownsHttpClient whether the facade is responsible for closing the HTTP client.
+     */
+    private CmcBaseApi(HttpClientDelegate httpClient, boolean ownsHttpClient) {
+        if (httpClient == null) {
+            throw new IllegalArgumentException("HTTP client must not be null");
+        }
+        this.httpClient = httpClient;
+        this.ownsHttpClient = ownsHttpClient;
+        if (httpClient instanceof AsyncHttpClientDelegate) {
+            this.asyncHttpClient = (AsyncHttpClientDelegate) httpClient;
+        }
+    }
+
+    /**
+     * Helper method to get the asynchronous HTTP client.
+     *
+     * @return the asynchronous HTTP client.
+     * @throws UnsupportedOperationException if the HTTP client does not support asynchronous requests.
+     */
+    protected AsyncHttpClientDelegate getAsyncHttpClient() {
+        if (asyncHttpClient == null) {
+            throw new UnsupportedOperationException("HTTP client does not support asynchronous requests");
+        }
+        return asyncHttpClient;
+    }
+
+    /**
+     * Helper method to check whether the HTTP client has been closed, in which case every later request fails.
+     *
+     * @return whether the HTTP client is known to be closed.
+     */
+    boolean isHttpClientClosed() {
+        return httpClient instanceof ApacheHttpClientDelegate && ((ApacheHttpClientDelegate) httpClient).isClosed();
+    }
+
+    /**
+     * @return the batcher of the IDs sent in the request path
+     */
+    public PathBatcher getPathBatcher() {
+        return pathBatcher;
+    }
+
+    /**
+     * Set the batcher of the IDs sent in the request path. The methods taking a list of IDs, such as deleting contacts
+     * or retrieving delivery receipts, split the IDs that do not fit in one request URL into batches sent
+     * concurrently and merge their responses.
+     *
+     * @param pathBatcher the batcher of the IDs sent in the request path.
+     */
+    public void setPathBatcher(PathBatcher pathBatcher) {
+        if (pathBatcher == null) {
+            throw new IllegalArgumentException("Path batcher must not be null");
+        }
+        this.pathBatcher = pathBatcher;
+    }
+
+    /**
+     * Helper method to send a request per batch of the IDs sent in the request path and merge the responses. IDs that
+     * fit in one request URL are sent in a single request. Otherwise the first exception or error response in the
+     * order of the batches is returned once all the batches have completed, so some of the batches may have been
+     * applied; use the {@link PathBatcher} directly to get the outcome of each batch.
+     *
+     * @param <T> type of the response.
+     * @param ids the IDs.
+     * @param request the request sent for each batch.
+     * @return HttpResponseWrapper http response wrapper with the merged response.
+     * @throws CMCException CMC exception if errors.
+     */
+    protected <T> HttpResponseWrapper<T> doBatched(List<String> ids, PathRequest<T> request) throws CMCException {
+        PathBatcher batcher = pathBatcher;
+        if (ids == null || batcher.split(ids).size() <= 1) {
+            return request.execute(ids);
+        }
+
+        PathBatchResult<T> result;
+        try {
+            result = batcher.execute(ids, request);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CMCException(ex);
+        }
+        HttpResponseWrapper<T> merged = null;
+        for (PathBatchResult.Batch<T> batch : result.getBatches()) {
+            if (batch.getException() != null) {
+                throw batch.getException();
+            }
+            if (!batch.isSuccess()) {
+                return batch.getResponse();
+            }
+            if (merged == null) {
+                merged = batch.getResponse();
+            } else {
+                request.merge(merged.getResponseBody(), batch.getResponse().getResponseBody());
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Close the HTTP client if it was created by this facade. Shared HTTP clients are closed by their owner.
+     *
+     * @throws IOException IO exception closing the HTTP client.
+     */
+    @Override
+    public void close() throws IOException {
+        if (ownsHttpClient && httpClient instanceof Closeable) {
+            ((Closeable) httpClient).close();
+        }
+    }
+
+    /**
+     * GET or DELETE request sent for a batch of the IDs sent in the request path. Without an asynchronous HTTP client
+     * the batches are sent one at a time.
+     *
+     * @param <T> type of the response.
+     */
+    protected abstract class PathRequest<T> implements PathBatcher.Request<T> {
+
+        /**
+         * Class of the response.
+         */
+        private final Class<T> responseClass;
+
+        /**
+         * Whether the request is a DELETE rather than a GET.
+         */
+        private final boolean delete;
+
+        /**
+         * Constructor.
+         *
+         * @param responseClass class of the response.
+         * @param delete whether the request is a DELETE rather than a GET.
+         */
+        protected PathRequest(Class<T> responseClass, boolean delete) {
+            this.responseClass = responseClass;
+            this.delete = delete;
+        }
+
+        /**
+         * Create the request of a batch.
+         *
+         * @param batch the IDs of the batch.
+         * @return CMC request.
+         */
+        protected abstract CmcHttpRequest createRequest(List<String> batch);
+
+        /**
+         * Merge the response of a batch into the response of the first batch. The status of the first batch is kept
+         * by default.
+         *
+         * @param merged the response of the first batch.
+         * @param response the response of a following batch.
+         */
+        protected void merge(T merged, T response) {
+        }
+
+        /**
+         * Send the request of a batch and wait for the response.
+         *
+         * @param batch the IDs of the batch.
+         * @return HttpResponseWrapper http response wrapper with the response.
+         * @throws CMCException CMC exception if errors.
+         */
+        HttpResponseWrapper<T> execute(List<String> batch) throws CMCException {
+            CmcHttpRequest cmcRequest = createRequest(batch);
+            return delete ? httpClient.doDelete(cmcRequest, responseClass)
+                    : httpClient.doGet(cmcRequest, responseClass);
+        }
+
+        @Override
+        public Future<HttpResponseWrapper<T>> send(List<String> batch, ResponseCallback<T> callback) {
+            if (asyncHttpClient != null) {
+                CmcHttpRequest cmcRequest = createRequest(batch);
+                return delete ? asyncHttpClient.doDeleteAsync(cmcRequest, responseClass, callback)
+                        : asyncHttpClient.doGetAsync(cmcRequest, responseClass, callback);
+            }
+            HttpResponseWrapper<T> response;
+            try {
+                response = execute(batch);
+            } catch (CMCException ex) {
+                callback.failed(ex);
+                return null;
+            }
+            callback.completed(response);
+            return null;
+        }
     }
 
 }
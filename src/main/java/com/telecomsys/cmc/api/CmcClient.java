@@ -0,0 +1,158 @@
+package com.telecomsys.cmc.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.telecomsys.cmc.http.ApacheHttpClientDelegate;
+import com.telecomsys.cmc.http.CmcClientConfig;
+import com.telecomsys.cmc.http.CredentialsUpdatable;
+import com.telecomsys.cmc.http.HttpClientDelegate;
+
+/**
+ * Main entry point for the CMC REST API. The client owns a single HTTP client (and therefore a single connection pool)
+ * per account and hands out the API facades built on top of it. Close the client to release its connections.
+ */
+public class CmcClient implements Closeable {
+
+    /**
+     * HTTP client shared by all the facades.
+     */
+    private final HttpClientDelegate httpClient;
+
+    /**
+     * Messaging facade.
+     */
+    private final MessagingApi messagingApi;
+
+    /**
+     * Contacts facade.
+     */
+    private final ContactApi contactApi;
+
+    /**
+     * Groups facade.
+     */
+    private final GroupApi groupApi;
+
+    /**
+     * Scheduling facade.
+     */
+    private final SchedulingApi schedulingApi;
+
+    /**
+     * Whether this client created the HTTP client and is responsible for closing it.
+     */
+    private final boolean ownsHttpClient;
+
+    /**
+     * Constructor.
+     *
+     * @param baseUri base URL to connect to the CMC REST service.
+     * @param accountID the REST account identity.
+     * @param authenticationToken the authentication token.
+     */
+    public CmcClient(String baseUri, String accountID, String authenticationToken) {
+        this(baseUri, accountID, authenticationToken, CmcClientConfig.DEFAULT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param baseUri base URL to connect to the CMC REST service.
+     * @param accountID the REST account identity.
+     * @param authenticationToken the authentication token.
+     * @param config the HTTP client configuration.
+     */
+    public CmcClient(String baseUri, String accountID, String authenticationToken, CmcClientConfig config) {
+        this(new ApacheHttpClientDelegate(baseUri, accountID, authenticationToken, config), true);
+    }
+
+    /**
+     * Constructor using an existing HTTP client. The HTTP client is not closed when this client is closed.
+     *
+     * @param httpClient the HTTP client used by all the facades.
+     */
+    public CmcClient(HttpClientDelegate httpClient) {
+        this(httpClient, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param httpClient the HTTP client used by all the facades.
+     * @param ownsHttpClient whether the client is responsible for closing the HTTP client.
+     */
+    private CmcClient(HttpClientDelegate httpClient, boolean ownsHttpClient) {
+        if (httpClient == null) {
+            throw new IllegalArgumentException("HTTP client must not be null");
+        }
+        this.httpClient = httpClient;
+        this.ownsHttpClient = ownsHttpClient;
+        this.messagingApi = new MessagingApi(httpClient);
+        this.contactApi = new ContactApi(httpClient);
+        this.groupApi = new GroupApi(httpClient);
+        this.schedulingApi = new SchedulingApi(httpClient);
+    }
+
+    /**
+     * @return the HTTP client shared by the facades
+     */
+    public HttpClientDelegate getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * @return the messaging facade
+     */
+    public MessagingApi getMessagingApi() {
+        return messagingApi;
+    }
+
+    /**
+     * @return the contacts facade
+     */
+    public ContactApi getContactApi() {
+        return contactApi;
+    }
+
+    /**
+     * @return the groups facade
+     */
+    public GroupApi getGroupApi() {
+        return groupApi;
+    }
+
+    /**
+     * @return the scheduling facade
+     */
+    public SchedulingApi getSchedulingApi() {
+        return schedulingApi;
+    }
+
+    /**
+     * Replace the credentials used by all the facades. Requests started after the call use the new credentials.
+     *
+     * @param accountID the REST account identity.
+     * @param authenticationToken the authentication token.
+     * @throws UnsupportedOperationException if the HTTP client does not support updating its credentials.
+     */
+    public void updateCredentials(String accountID, String authenticationToken) {
+        if (!(httpClient instanceof CredentialsUpdatable)) {
+            throw new UnsupportedOperationException("HTTP client does not support updating its credentials");
+        }
+        ((CredentialsUpdatable) httpClient).updateCredentials(accountID, authenticationToken);
+    }
+
+    /**
+     * Close the HTTP client if it was created by this client.
+     *
+     * @throws IOException IO exception closing the HTTP client.
+     */
+    @Override
+    public void close() throws IOException {
+        if (ownsHttpClient && httpClient instanceof Closeable) {
+            ((Closeable) httpClient).close();
+        }
+    }
+
+}
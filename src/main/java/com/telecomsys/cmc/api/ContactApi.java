@@ -1,10 +1,14 @@
 package com.telecomsys.cmc.api;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import com.telecomsys.cmc.exception.CMCException;
 import com.telecomsys.cmc.http.CmcHttpRequest;
+import com.telecomsys.cmc.http.HttpClientDelegate;
 import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
 import com.telecomsys.cmc.model.Contact;
 import com.telecomsys.cmc.response.ContactsResponse;
 import com.telecomsys.cmc.response.RestResponse;
@@ -32,6 +36,15 @@ public class ContactApi extends CmcBaseApi {
         super(baseUri, accountID, authenticationToken);
     }
 
+    /**
+     * Constructor using an existing HTTP client. Use {@link CmcClient} to share one client between facades.
+     *
+     * @param httpClient the HTTP client used to send the requests.
+     */
+    public ContactApi(HttpClientDelegate httpClient) {
+        super(httpClient);
+    }
+
     /**
      * Method to add contact(s) using CMC REST API.
      *
@@ -40,14 +53,19 @@ public class ContactApi extends CmcBaseApi {
      * @throws CMCException CMC exception if errors.
      */
     public HttpResponseWrapper<StatusResponse> addContacts(List<Contact> contacts) throws CMCException {
+        return httpClient.doPost(createContactListRequest(contacts), StatusResponse.class);
+    }
 
-        // Create the request with parameters.
-        CmcHttpRequest cmcRequest = new CmcHttpRequest(CONTACTS_URL);
-        cmcRequest.addBodyParameter("contacts", contacts);
-        cmcRequest.setMessageWrapperName("contactList");
-
-        // Send the request to CMC.
-        return httpClient.doPost(cmcRequest, StatusResponse.class);
+    /**
+     * Method to add contact(s) asynchronously using CMC REST API.
+     *
+     * @param contacts List of contacts to be added.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<StatusResponse>> addContactsAsync(List<Contact> contacts,
+            ResponseCallback<StatusResponse> callback) {
+        return getAsyncHttpClient().doPostAsync(createContactListRequest(contacts), StatusResponse.class, callback);
     }
 
     /**
@@ -58,38 +76,48 @@ public class ContactApi extends CmcBaseApi {
      * @throws CMCException CMC exception if errors.
      */
     public HttpResponseWrapper<StatusResponse> updateContacts(List<Contact> contacts) throws CMCException {
+        return httpClient.doPut(createContactListRequest(contacts), StatusResponse.class);
+    }
 
-        // Create the request with parameters.
-        CmcHttpRequest cmcRequest = new CmcHttpRequest(CONTACTS_URL);
-        cmcRequest.addBodyParameter("contacts", contacts);
-        cmcRequest.setMessageWrapperName("contactList");
-
-        // Send the request to CMC.
-        return httpClient.doPut(cmcRequest, StatusResponse.class);
+    /**
+     * Method to update contact(s) asynchronously using CMC REST API.
+     *
+     * @param contacts List of contacts to be updated.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<StatusResponse>> updateContactsAsync(List<Contact> contacts,
+            ResponseCallback<StatusResponse> callback) {
+        return getAsyncHttpClient().doPutAsync(createContactListRequest(contacts), StatusResponse.class, callback);
     }
 
     /**
-     * Method to delete contact(s) using CMC REST API.
+     * Method to delete contact(s) using CMC REST API. Cell numbers that do not fit in one request URL are deleted in
+     * batches sent concurrently.
      *
      * @param mdns List of contacts to be deleted identified by their cell numbers.
      * @return HttpResponseWrapper http response wrapper with the response.
      * @throws CMCException CMC exception if errors.
      */
     public HttpResponseWrapper<RestResponse> deleteContacts(List<String> mdns) throws CMCException {
+        return doBatched(mdns, new PathRequest<RestResponse>(RestResponse.class, true) {
+            @Override
+            protected CmcHttpRequest createRequest(List<String> batch) {
+                return createContactsPathRequest(batch);
+            }
+        });
+    }
 
-        // Append the matrix parameters
-        StringBuilder sb = new StringBuilder();
-        sb.append(CONTACTS_URL).append("/");
-        String mdnStr = StringUtils.convertStringListToCSV(mdns);
-        if (mdnStr != null) {
-            sb.append(mdnStr);
-        }
-
-        // Create the request with parameters.
-        CmcHttpRequest cmcRequest = new CmcHttpRequest(sb.toString());
-
-        // Send the request to CMC.
-        return httpClient.doDelete(cmcRequest, RestResponse.class);
+    /**
+     * Method to delete contact(s) asynchronously using CMC REST API.
+     *
+     * @param mdns List of contacts to be deleted identified by their cell numbers.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<RestResponse>> deleteContactsAsync(List<String> mdns,
+            ResponseCallback<RestResponse> callback) {
+        return getAsyncHttpClient().doDeleteAsync(createContactsPathRequest(mdns), RestResponse.class, callback);
     }
 
     /**
@@ -99,23 +127,82 @@ public class ContactApi extends CmcBaseApi {
      * @throws CMCException CMC exception if errors.
      */
     public HttpResponseWrapper<RestResponse> deleteAllContacts() throws CMCException {
+        return httpClient.doDelete(createDeleteAllContactsRequest(), RestResponse.class);
+    }
 
-        // Create the request with parameters.
-        CmcHttpRequest cmcRequest = new CmcHttpRequest(CONTACTS_URL);
-        cmcRequest.addUrlParameter("all", "true");
-
-        // Send the request to CMC.
-        return httpClient.doDelete(cmcRequest, RestResponse.class);
+    /**
+     * Method to delete all the users contacts asynchronously using CMC REST API.
+     *
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<RestResponse>> deleteAllContactsAsync(ResponseCallback<RestResponse> callback) {
+        return getAsyncHttpClient().doDeleteAsync(createDeleteAllContactsRequest(), RestResponse.class, callback);
     }
 
     /**
-     * Method to retrieve contact(s) using CMC REST API.
+     * Method to retrieve contact(s) using CMC REST API. Cell numbers that do not fit in one request URL are retrieved
+     * in batches sent concurrently, and the contacts merged in the order of the batches.
      *
      * @param mdns List of contacts to be retrieved identified by their cell numbers.
      * @return HttpResponseWrapper http response wrapper with the response.
      * @throws CMCException CMC exception if errors.
      */
     public HttpResponseWrapper<ContactsResponse> retrieveContacts(List<String> mdns) throws CMCException {
+        return doBatched(mdns, new PathRequest<ContactsResponse>(ContactsResponse.class, false) {
+            @Override
+            protected CmcHttpRequest createRequest(List<String> batch) {
+                return createContactsPathRequest(batch);
+            }
+
+            @Override
+            protected void merge(ContactsResponse merged, ContactsResponse response) {
+                List<Contact> contacts = new ArrayList<Contact>();
+                if (merged.getContactsResponses() != null) {
+                    contacts.addAll(merged.getContactsResponses());
+                }
+                if (response.getContactsResponses() != null) {
+                    contacts.addAll(response.getContactsResponses());
+                }
+                merged.setContactsResponses(contacts);
+            }
+        });
+    }
+
+    /**
+     * Method to retrieve contact(s) asynchronously using CMC REST API.
+     *
+     * @param mdns List of contacts to be retrieved identified by their cell numbers.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<ContactsResponse>> retrieveContactsAsync(List<String> mdns,
+            ResponseCallback<ContactsResponse> callback) {
+        return getAsyncHttpClient().doGetAsync(createContactsPathRequest(mdns), ContactsResponse.class, callback);
+    }
+
+    /**
+     * Helper method to create the request to add or update contacts.
+     *
+     * @param contacts List of contacts to be added or updated.
+     * @return CMC request.
+     */
+    private static CmcHttpRequest createContactListRequest(List<Contact> contacts) {
+
+        // Create the request with parameters.
+        CmcHttpRequest cmcRequest = new CmcHttpRequest(CONTACTS_URL);
+        cmcRequest.addBodyParameter("contacts", contacts);
+        cmcRequest.setMessageWrapperName("contactList");
+        return cmcRequest;
+    }
+
+    /**
+     * Helper method to create the request to retrieve or delete contacts.
+     *
+     * @param mdns List of contacts identified by their cell numbers.
+     * @return CMC request.
+     */
+    private static CmcHttpRequest createContactsPathRequest(List<String> mdns) {
 
         // Append the matrix parameters
         StringBuilder sb = new StringBuilder();
@@ -127,9 +214,21 @@ public class ContactApi extends CmcBaseApi {
 
         // Create the request with parameters.
         CmcHttpRequest cmcRequest = new CmcHttpRequest(sb.toString());
+        cmcRequest.setIdempotent(true);
+        return cmcRequest;
+    }
 
-        // Send the request to CMC.
-        return httpClient.doGet(cmcRequest, ContactsResponse.class);
+    /**
+     * Helper method to create the request to delete all the contacts.
+     *
+     * @return CMC request.
+     */
+    private static CmcHttpRequest createDeleteAllContactsRequest() {
+
+        // Create the request with parameters.
+        CmcHttpRequest cmcRequest = new CmcHttpRequest(CONTACTS_URL);
+        cmcRequest.addUrlParameter("all", "true");
+        return cmcRequest;
     }
 
 }
@@ -0,0 +1,577 @@
+package com.telecomsys.cmc.api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
+import com.telecomsys.cmc.model.Contact;
+import com.telecomsys.cmc.response.ContactsResponse;
+import com.telecomsys.cmc.response.RestResponse;
+import com.telecomsys.cmc.response.StatusResponse;
+import com.telecomsys.cmc.utils.StringUtils;
+
+/**
+ * In-process mirror of the contacts retrieved from CMC, keyed by cell number. Retrieve and write the contacts through
+ * the cache instead of the contact facade so that lookups are served from memory and writes keep the mirror up to
+ * date. For example:
+ *
+ * <pre>
+ * ContactCache contactCache = new ContactCache(cmcClient.getContactApi());
+ * Contact contact = contactCache.getContact("+1 (410) 271-8101");
+ * </pre>
+ *
+ * A contact is retrieved from CMC on the first lookup and then kept until its time to live expires. A lookup of a
+ * contact older than the refresh time returns the cached copy right away and retrieves the contact again in the
+ * background, or retrieves it with the lookup if the facade has no asynchronous client. The least recently used
+ * contacts are evicted when the cache is full. Contacts written through another facade or process are seen once they
+ * expire, or right away after {@link #invalidate(String)}.
+ *
+ * Cell numbers are compared by their digits only, so "+1 (410) 271-8101" and "14102718101" are the same contact. The
+ * contacts are copied in and out of the cache, changing a returned contact does not change the mirror.
+ */
+public class ContactCache {
+
+    /**
+     * Default time to live of a contact in milliseconds.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * Default age in milliseconds after which a contact looked up is refreshed in the background.
+     */
+    public static final long DEFAULT_REFRESH_AFTER = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Default maximum number of contacts cached.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 100000;
+
+    /**
+     * Status of a contact CMC accepted.
+     */
+    private static final String SUCCESS = "success";
+
+    /**
+     * Contact facade used to retrieve and write the contacts.
+     */
+    private final ContactApi contactApi;
+
+    /**
+     * Time to live of a contact in nanoseconds.
+     */
+    private final long timeToLive;
+
+    /**
+     * Age in nanoseconds after which a contact looked up is refreshed.
+     */
+    private final long refreshAfter;
+
+    /**
+     * Cached contacts by normalized cell number, in access order. Guarded by itself.
+     */
+    private final Map<String, Entry> entries;
+
+    /**
+     * Number of writes and invalidations, guarded by the entries. A retrieval completing after a write that started
+     * before it is not cached since it may be older than the write.
+     */
+    private long writeCount;
+
+    /**
+     * Number of contacts looked up found in the cache.
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * Number of contacts looked up retrieved from CMC.
+     */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Constructor using the default time to live, refresh time and maximum size.
+     *
+     * @param contactApi contact facade used to retrieve and write the contacts.
+     */
+    public ContactCache(ContactApi contactApi) {
+        this(contactApi, DEFAULT_TIME_TO_LIVE, DEFAULT_REFRESH_AFTER, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param contactApi contact facade used to retrieve and write the contacts.
+     * @param timeToLive time in milliseconds a contact is served from the cache.
+     * @param refreshAfter age in milliseconds after which a contact looked up is refreshed in the background, not
+     *        less than the time to live to disable the refresh.
+     * @param maximumSize maximum number of contacts cached.
+     */
+    public ContactCache(ContactApi contactApi, long timeToLive, long refreshAfter, final int maximumSize) {
+        if (contactApi == null) {
+            throw new IllegalArgumentException("Contact API must not be null");
+        }
+        if (timeToLive <= 0 || refreshAfter <= 0 || maximumSize <= 0) {
+            throw new IllegalArgumentException("Time to live, refresh time and maximum size must be positive");
+        }
+        this.contactApi = contactApi;
+        this.timeToLive = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+        this.refreshAfter = TimeUnit.MILLISECONDS.toNanos(refreshAfter);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Retrieve a contact, from the cache if present.
+     *
+     * @param mdn cell number of the contact.
+     * @return the contact or null if CMC does not know it.
+     * @throws CMCException CMC exception if the contact cannot be retrieved.
+     */
+    public Contact getContact(String mdn) throws CMCException {
+        List<String> mdns = new ArrayList<String>(1);
+        mdns.add(mdn);
+        HttpResponseWrapper<ContactsResponse> response = retrieveContacts(mdns);
+        List<Contact> contacts = response.getResponseBody() != null
+                ? response.getResponseBody().getContactsResponses() : null;
+        return contacts != null && !contacts.isEmpty() ? contacts.get(0) : null;
+    }
+
+    /**
+     * Retrieve contacts, see {@link ContactApi#retrieveContacts(List)}. The contacts found in the cache are returned
+     * from memory and only the other ones are retrieved from CMC, in one request. Retrieving all the contacts (null
+     * or empty list) is not cached.
+     *
+     * @param mdns List of contacts to be retrieved identified by their cell numbers.
+     * @return HttpResponseWrapper http response wrapper with the response, the error response of CMC if some
+     *         contacts were not found.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<ContactsResponse> retrieveContacts(List<String> mdns) throws CMCException {
+        if (mdns == null || mdns.isEmpty()) {
+            return contactApi.retrieveContacts(mdns);
+        }
+
+        Contact[] contacts = new Contact[mdns.size()];
+        List<String> missing = new ArrayList<String>();
+        List<String> stale = null;
+        long now = System.nanoTime();
+        long startCount;
+        synchronized (entries) {
+            startCount = writeCount;
+            for (int i = 0; i < contacts.length; i++) {
+                String key = StringUtils.normalizeMdn(mdns.get(i));
+                Entry entry = entries.get(key);
+                if (entry != null && now - entry.loadedAt >= timeToLive) {
+                    entries.remove(key);
+                    entry = null;
+                }
+                if (entry == null) {
+                    missing.add(mdns.get(i));
+                    continue;
+                }
+                if (now - entry.loadedAt >= refreshAfter && contactApi.asyncHttpClient == null) {
+
+                    // Without an asynchronous client, the stale contacts are retrieved with the missing ones.
+                    missing.add(mdns.get(i));
+                    continue;
+                }
+                contacts[i] = entry.contact;
+                if (now - entry.loadedAt >= refreshAfter && !entry.refreshing) {
+                    entry.refreshing = true;
+                    if (stale == null) {
+                        stale = new ArrayList<String>();
+                    }
+                    stale.add(mdns.get(i));
+                }
+            }
+        }
+        hitCount.addAndGet(contacts.length - missing.size());
+        missCount.addAndGet(missing.size());
+        if (stale != null) {
+            refresh(stale);
+        }
+
+        if (!missing.isEmpty()) {
+            HttpResponseWrapper<ContactsResponse> response = contactApi.retrieveContacts(missing);
+            List<Contact> retrieved = getContacts(response);
+            if (retrieved == null) {
+                return response;
+            }
+            Map<String, Contact> byKey = put(retrieved, startCount);
+            for (int i = 0; i < contacts.length; i++) {
+                if (contacts[i] == null) {
+                    contacts[i] = byKey.get(StringUtils.normalizeMdn(mdns.get(i)));
+                }
+            }
+        }
+
+        List<Contact> result = new ArrayList<Contact>(contacts.length);
+        for (Contact contact : contacts) {
+            if (contact != null) {
+                result.add(copy(contact));
+            }
+        }
+        ContactsResponse body = new ContactsResponse();
+        body.setStatus(SUCCESS);
+        body.setContactsResponses(result);
+        return HttpResponseWrapper.create(200, body);
+    }
+
+    /**
+     * Add contacts, see {@link ContactApi#addContacts(List)}. The contacts CMC accepted are cached.
+     *
+     * @param contacts List of contacts to be added.
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<StatusResponse> addContacts(List<Contact> contacts) throws CMCException {
+        HttpResponseWrapper<StatusResponse> response = null;
+        try {
+            response = contactApi.addContacts(contacts);
+        } finally {
+            written(contacts, response, false);
+        }
+        return response;
+    }
+
+    /**
+     * Update contacts, see {@link ContactApi#updateContacts(List)}. CMC keeps the fields an update omits, so the fields
+     * set in the contacts CMC accepted are merged into the cached contacts; the other contacts are invalidated.
+     *
+     * @param contacts List of contacts to be updated.
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<StatusResponse> updateContacts(List<Contact> contacts) throws CMCException {
+        HttpResponseWrapper<StatusResponse> response = null;
+        try {
+            response = contactApi.updateContacts(contacts);
+        } finally {
+            written(contacts, response, true);
+        }
+        return response;
+    }
+
+    /**
+     * Delete contacts, see {@link ContactApi#deleteContacts(List)}. The contacts are invalidated whatever the outcome.
+     *
+     * @param mdns List of contacts to be deleted identified by their cell numbers.
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<RestResponse> deleteContacts(List<String> mdns) throws CMCException {
+        try {
+            return contactApi.deleteContacts(mdns);
+        } finally {
+            if (mdns != null) {
+                for (String mdn : mdns) {
+                    invalidate(mdn);
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete all the contacts, see {@link ContactApi#deleteAllContacts()}. The cache is cleared whatever the outcome.
+     *
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<RestResponse> deleteAllContacts() throws CMCException {
+        try {
+            return contactApi.deleteAllContacts();
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Remove a contact from the cache, typically because it was written by other means.
+     *
+     * @param mdn cell number of the contact.
+     */
+    public void invalidate(String mdn) {
+        String key = StringUtils.normalizeMdn(mdn);
+        synchronized (entries) {
+            writeCount++;
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Remove all the contacts from the cache.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            writeCount++;
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return the number of contacts cached, expired ones included until they are looked up or evicted
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the number of contacts looked up found in the cache
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of contacts looked up retrieved from CMC
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Helper method to retrieve contacts again in the background. The contacts CMC no longer knows are removed; the
+     * other ones are kept until they expire if the retrieval fails or cannot be sent.
+     *
+     * @param mdns cell numbers of the contacts.
+     */
+    private void refresh(final List<String> mdns) {
+        final long startCount;
+        synchronized (entries) {
+            startCount = writeCount;
+        }
+        try {
+            sendRefresh(mdns, startCount);
+        } catch (RuntimeException rex) {
+            refreshed(mdns);
+        }
+    }
+
+    /**
+     * Helper method to send the retrieval of a refresh.
+     *
+     * @param mdns cell numbers of the contacts.
+     * @param startCount number of writes when the refresh started.
+     */
+    private void sendRefresh(final List<String> mdns, final long startCount) {
+        contactApi.retrieveContactsAsync(mdns, new ResponseCallback<ContactsResponse>() {
+            @Override
+            public void completed(HttpResponseWrapper<ContactsResponse> response) {
+                List<Contact> retrieved = getContacts(response);
+                if (retrieved != null) {
+                    put(retrieved, startCount);
+                } else if (response.getHttpStatusCode() == 404) {
+                    for (String mdn : mdns) {
+                        invalidate(mdn);
+                    }
+                    return;
+                }
+                refreshed(mdns);
+            }
+
+            @Override
+            public void failed(CMCException exception) {
+                refreshed(mdns);
+            }
+        });
+    }
+
+    /**
+     * Helper method to allow the contacts not replaced by a refresh to be refreshed again.
+     *
+     * @param mdns cell numbers of the contacts.
+     */
+    private void refreshed(List<String> mdns) {
+        synchronized (entries) {
+            for (String mdn : mdns) {
+                Entry entry = entries.get(StringUtils.normalizeMdn(mdn));
+                if (entry != null) {
+                    entry.refreshing = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to cache the contacts retrieved, unless written since the retrieval started.
+     *
+     * @param contacts the contacts retrieved.
+     * @param startCount number of writes when the retrieval started.
+     * @return the contacts by normalized cell number.
+     */
+    private Map<String, Contact> put(List<Contact> contacts, long startCount) {
+        Map<String, Contact> byKey = new LinkedHashMap<String, Contact>();
+        long now = System.nanoTime();
+        for (Contact contact : contacts) {
+            if (contact != null && contact.getCellNumber() != null) {
+                byKey.put(StringUtils.normalizeMdn(contact.getCellNumber()), copy(contact));
+            }
+        }
+        synchronized (entries) {
+            if (writeCount == startCount) {
+                for (Map.Entry<String, Contact> contact : byKey.entrySet()) {
+                    entries.put(contact.getKey(), new Entry(contact.getValue(), now));
+                }
+            }
+        }
+        return byKey;
+    }
+
+    /**
+     * Helper method to update the cache after contacts were added or updated. The contacts CMC added are cached and
+     * the updates CMC accepted are merged into the cached contacts, keeping their retrieval time since the fields not
+     * updated are as old. The other contacts are invalidated.
+     *
+     * @param contacts the contacts written.
+     * @param response the response, null if the request failed.
+     * @param update whether the contacts were updated rather than added.
+     */
+    private void written(List<Contact> contacts, HttpResponseWrapper<StatusResponse> response, boolean update) {
+        if (contacts == null) {
+            return;
+        }
+        List<RestResponse> statuses = null;
+        if (response != null && response.getHttpStatusCode() >= 200 && response.getHttpStatusCode() < 300
+                && response.getResponseBody() != null) {
+            statuses = response.getResponseBody().getStatusResponses();
+        }
+        long now = System.nanoTime();
+        synchronized (entries) {
+            writeCount++;
+            for (int i = 0; i < contacts.size(); i++) {
+                Contact contact = contacts.get(i);
+                if (contact == null || contact.getCellNumber() == null) {
+                    continue;
+                }
+                String key = StringUtils.normalizeMdn(contact.getCellNumber());
+                RestResponse status = statuses != null && i < statuses.size() ? statuses.get(i) : null;
+                if (status == null || !SUCCESS.equalsIgnoreCase(status.getStatus())) {
+                    entries.remove(key);
+                } else if (!update) {
+                    entries.put(key, new Entry(copy(contact), now));
+                } else {
+                    Entry entry = entries.get(key);
+                    if (entry != null) {
+                        entries.put(key, new Entry(merge(entry.contact, contact), entry.loadedAt));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to get the contacts of a successful retrieval.
+     *
+     * @param response the response.
+     * @return the contacts or null if the retrieval failed.
+     */
+    private static List<Contact> getContacts(HttpResponseWrapper<ContactsResponse> response) {
+        if (response.getHttpStatusCode() != 200 || response.getResponseBody() == null) {
+            return null;
+        }
+        return response.getResponseBody().getContactsResponses();
+    }
+
+    /**
+     * Helper method to copy a contact.
+     *
+     * @param contact the contact.
+     * @return the copy.
+     */
+    private static Contact copy(Contact contact) {
+        Contact copy = new Contact(contact.getCellNumber(), contact.getFirstName(), contact.getLastName());
+        copy.setEmailAddress(contact.getEmailAddress());
+        copy.setOrganization(contact.getOrganization());
+        copy.setTitle(contact.getTitle());
+        copy.setCity(contact.getCity());
+        copy.setState(contact.getState());
+        copy.setPostalCode(contact.getPostalCode());
+        copy.setCountryCode(contact.getCountryCode());
+        return copy;
+    }
+
+    /**
+     * Helper method to merge the fields set in an update into a copy of a contact.
+     *
+     * @param contact the contact.
+     * @param update the update, its null fields are left unchanged.
+     * @return the merged copy.
+     */
+    private static Contact merge(Contact contact, Contact update) {
+        Contact merged = copy(contact);
+        if (update.getFirstName() != null) {
+            merged.setFirstName(update.getFirstName());
+        }
+        if (update.getLastName() != null) {
+            merged.setLastName(update.getLastName());
+        }
+        if (update.getEmailAddress() != null) {
+            merged.setEmailAddress(update.getEmailAddress());
+        }
+        if (update.getOrganization() != null) {
+            merged.setOrganization(update.getOrganization());
+        }
+        if (update.getTitle() != null) {
+            merged.setTitle(update.getTitle());
+        }
+        if (update.getCity() != null) {
+            merged.setCity(update.getCity());
+        }
+        if (update.getState() != null) {
+            merged.setState(update.getState());
+        }
+        if (update.getPostalCode() != null) {
+            merged.setPostalCode(update.getPostalCode());
+        }
+        if (update.getCountryCode() != null) {
+            merged.setCountryCode(update.getCountryCode());
+        }
+        return merged;
+    }
+
+    /**
+     * Cached contact.
+     */
+    private static final class Entry {
+
+        /**
+         * Copy of the contact.
+         */
+        private final Contact contact;
+
+        /**
+         * Time in nanoseconds the contact was retrieved or written.
+         */
+        private final long loadedAt;
+
+        /**
+         * Whether a refresh of the contact is in progress, guarded by the entries.
+         */
+        private boolean refreshing;
+
+        /**
+         * Constructor.
+         *
+         * @param contact copy of the contact.
+         * @param loadedAt time in nanoseconds the contact was retrieved or written.
+         */
+        Entry(Contact contact, long loadedAt) {
+            this.contact = contact;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+}
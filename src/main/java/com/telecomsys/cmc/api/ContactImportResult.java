@@ -0,0 +1,94 @@
+package com.telecomsys.cmc.api;
+
+/**
+ * Summary of a contact import. The contacts that were not imported are written to the rejects output of the import
+ * with the reason; only their number is kept here so that the summary of a large import stays small.
+ */
+public class ContactImportResult {
+
+    /**
+     * Number of records read, the header excluded.
+     */
+    private final long recordCount;
+
+    /**
+     * Number of contacts CMC accepted.
+     */
+    private final long importedCount;
+
+    /**
+     * Number of records rejected, either locally or by CMC.
+     */
+    private final long rejectedCount;
+
+    /**
+     * Number of requests sent.
+     */
+    private final int chunkCount;
+
+    /**
+     * Number of requests that failed as a whole.
+     */
+    private final int failedChunkCount;
+
+    /**
+     * Constructor.
+     *
+     * @param recordCount number of records read.
+     * @param importedCount number of contacts CMC accepted.
+     * @param rejectedCount number of records rejected.
+     * @param chunkCount number of requests sent.
+     * @param failedChunkCount number of requests that failed as a whole.
+     */
+    ContactImportResult(long recordCount, long importedCount, long rejectedCount, int chunkCount,
+            int failedChunkCount) {
+        this.recordCount = recordCount;
+        this.importedCount = importedCount;
+        this.rejectedCount = rejectedCount;
+        this.chunkCount = chunkCount;
+        this.failedChunkCount = failedChunkCount;
+    }
+
+    /**
+     * @return whether all the records were imported
+     */
+    public boolean isSuccess() {
+        return rejectedCount == 0;
+    }
+
+    /**
+     * @return the number of records read, the header excluded
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return the number of contacts CMC accepted
+     */
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    /**
+     * @return the number of records rejected, either locally or by CMC
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return the number of requests sent
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * @return the number of requests that failed as a whole, their contacts being rejected
+     */
+    public int getFailedChunkCount() {
+        return failedChunkCount;
+    }
+
+}
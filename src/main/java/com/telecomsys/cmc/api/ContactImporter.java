@@ -0,0 +1,675 @@
+package com.telecomsys.cmc.api;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.telecomsys.cmc.exception.CMCClientException;
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
+import com.telecomsys.cmc.model.Contact;
+import com.telecomsys.cmc.response.RestResponse;
+import com.telecomsys.cmc.response.StatusResponse;
+import com.telecomsys.cmc.utils.CsvReader;
+
+/**
+ * Imports contacts from a CSV or JSON lines file of any size. The contacts are read one at a time and sent in chunks
+ * that are added or updated concurrently over the connection pool of the contact facade. Reading waits while the
+ * configured number of chunks are in flight, so at most that many chunks are held in memory. The status CMC returns
+ * for each contact is aggregated into a {@link ContactImportResult} and the contacts that were not imported are
+ * written to a rejects file with the reason. For example:
+ *
+ * <pre>
+ * ContactImporter importer = new ContactImporter(cmcClient.getContactApi(), 500, 8);
+ * importer.mapColumn("Mobile", "mdn");
+ * ContactImportResult result = importer.importCsv(new File("crm.csv"), ContactImporter.Operation.ADD,
+ *         new File("rejects.csv"));
+ * </pre>
+ *
+ * The first line of a CSV file is a header naming the columns. A column is mapped to the contact property of the same
+ * name, either its JSON name (mdn, first, last, email, org, title, city, state, postalcode, country) or its field name
+ * (cellNumber, firstName, ...), unless mapped explicitly with {@link #mapColumn(String, String)}; other columns are
+ * ignored. Each line of a JSON lines file is a contact object with the JSON property names.
+ *
+ * The rejects are written as CSV with the columns record, mdn, code and message. The record is the number of the
+ * data line in a CSV file, the header excluded, and the line number in a JSON lines file.
+ */
+public class ContactImporter {
+
+    /**
+     * Default number of contacts per request.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /**
+     * Default number of requests in flight.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Status of a contact CMC accepted.
+     */
+    private static final String SUCCESS = "success";
+
+    /**
+     * Header of the rejects file.
+     */
+    private static final String REJECTS_HEADER = "record,mdn,code,message";
+
+    /**
+     * Contact properties by their JSON names and lower case field names.
+     */
+    private static final Map<String, String> PROPERTIES = new HashMap<String, String>();
+
+    static {
+        String[][] properties = {
+            {"mdn", "cellnumber" }, {"first", "firstname" }, {"last", "lastname" }, {"email", "emailaddress" },
+            {"org", "organization" }, {"title", "title" }, {"city", "city" }, {"state", "state" },
+            {"postalcode", "postalcode" }, {"country", "countrycode" },
+        };
+        for (String[] property : properties) {
+            PROPERTIES.put(property[0], property[0]);
+            PROPERTIES.put(property[1], property[0]);
+        }
+    }
+
+    /**
+     * Operation applied to the imported contacts.
+     */
+    public enum Operation {
+
+        /**
+         * Add the contacts, see {@link ContactApi#addContacts(List)}.
+         */
+        ADD,
+
+        /**
+         * Update the contacts, see {@link ContactApi#updateContacts(List)}.
+         */
+        UPDATE
+    }
+
+    /**
+     * Contact facade used to send the chunks.
+     */
+    private final ContactApi contactApi;
+
+    /**
+     * Number of contacts per request.
+     */
+    private final int chunkSize;
+
+    /**
+     * Maximum number of requests in flight.
+     */
+    private final int parallelism;
+
+    /**
+     * Contact properties by lower case CSV column name, for the columns mapped explicitly.
+     */
+    private final Map<String, String> columns = new HashMap<String, String>();
+
+    /**
+     * Reader of the contacts of a JSON lines file.
+     */
+    private final ObjectReader contactReader = new ObjectMapper().reader(Contact.class);
+
+    /**
+     * Constructor using the default chunk size and parallelism.
+     *
+     * @param contactApi contact facade used to send the chunks.
+     */
+    public ContactImporter(ContactApi contactApi) {
+        this(contactApi, DEFAULT_CHUNK_SIZE, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Constructor. The parallelism should not exceed the connections per route of the HTTP client, otherwise the
+     * extra requests wait for a pooled connection.
+     *
+     * @param contactApi contact facade used to send the chunks.
+     * @param chunkSize number of contacts per request.
+     * @param parallelism maximum number of requests in flight.
+     */
+    public ContactImporter(ContactApi contactApi, int chunkSize, int parallelism) {
+        if (contactApi == null) {
+            throw new IllegalArgumentException("Contact API must not be null");
+        }
+        if (chunkSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Chunk size and parallelism must be positive");
+        }
+        this.contactApi = contactApi;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Map a CSV column to a contact property. Configure the mapping before importing.
+     *
+     * @param column name of the column in the header, case insensitive.
+     * @param property JSON or field name of the contact property, null to ignore the column.
+     */
+    public void mapColumn(String column, String property) {
+        if (column == null) {
+            throw new IllegalArgumentException("Column must not be null");
+        }
+        String name = null;
+        if (property != null) {
+            name = PROPERTIES.get(property.toLowerCase(Locale.ROOT));
+            if (name == null) {
+                throw new IllegalArgumentException("Unknown contact property " + property);
+            }
+        }
+        columns.put(column.trim().toLowerCase(Locale.ROOT), name);
+    }
+
+    /**
+     * Import the contacts of a CSV file, blocking until every chunk has completed.
+     *
+     * @param csv CSV file in UTF-8 with a header line.
+     * @param operation operation applied to the contacts.
+     * @param rejects file the rejected contacts are written to, replaced if it exists.
+     * @return the summary of the import.
+     * @throws CMCException CMC exception if a file cannot be read or written.
+     * @throws InterruptedException if interrupted while waiting. Chunks already sent are not cancelled.
+     */
+    public ContactImportResult importCsv(File csv, Operation operation, File rejects)
+        throws CMCException, InterruptedException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(csv), StandardCharsets.UTF_8);
+                Writer writer = openRejects(rejects)) {
+            return importCsv(reader, operation, writer);
+        } catch (IOException ioex) {
+            throw new CMCException(ioex);
+        }
+    }
+
+    /**
+     * Import the contacts of a CSV input, blocking until every chunk has completed.
+     *
+     * @param csv CSV input with a header line, not closed.
+     * @param operation operation applied to the contacts.
+     * @param rejects output the rejected contacts are written to, flushed but not closed.
+     * @return the summary of the import.
+     * @throws CMCException CMC exception if the input cannot be read or the rejects cannot be written.
+     * @throws InterruptedException if interrupted while waiting. Chunks already sent are not cancelled.
+     */
+    public ContactImportResult importCsv(Reader csv, Operation operation, Writer rejects)
+        throws CMCException, InterruptedException {
+        Import contactImport = new Import(operation, rejects);
+        try {
+            CsvReader csvReader = new CsvReader(csv);
+            List<String> header = csvReader.readRecord();
+            if (header != null) {
+                String[] properties = resolveColumns(header);
+                List<String> record;
+                while ((record = csvReader.readRecord()) != null) {
+                    Contact contact = new Contact();
+                    for (int i = 0; i < properties.length && i < record.size(); i++) {
+                        if (properties[i] != null && !record.get(i).isEmpty()) {
+                            setProperty(contact, properties[i], record.get(i));
+                        }
+                    }
+                    contactImport.add(csvReader.getRecordNumber() - 1, contact);
+                }
+            }
+        } catch (IOException ioex) {
+            contactImport.drain();
+            throw new CMCException(ioex);
+        }
+        return contactImport.finish();
+    }
+
+    /**
+     * Import the contacts of a JSON lines file, blocking until every chunk has completed.
+     *
+     * @param jsonLines file in UTF-8 with one contact object per line.
+     * @param operation operation applied to the contacts.
+     * @param rejects file the rejected contacts are written to, replaced if it exists.
+     * @return the summary of the import.
+     * @throws CMCException CMC exception if a file cannot be read or written.
+     * @throws InterruptedException if interrupted while waiting. Chunks already sent are not cancelled.
+     */
+    public ContactImportResult importJsonLines(File jsonLines, Operation operation, File rejects)
+        throws CMCException, InterruptedException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(jsonLines), StandardCharsets.UTF_8);
+                Writer writer = openRejects(rejects)) {
+            return importJsonLines(reader, operation, writer);
+        } catch (IOException ioex) {
+            throw new CMCException(ioex);
+        }
+    }
+
+    /**
+     * Import the contacts of a JSON lines input, blocking until every chunk has completed. A line that is not a valid
+     * contact object is rejected.
+     *
+     * @param jsonLines input with one contact object per line, not closed.
+     * @param operation operation applied to the contacts.
+     * @param rejects output the rejected contacts are written to, flushed but not closed.
+     * @return the summary of the import.
+     * @throws CMCException CMC exception if the input cannot be read or the rejects cannot be written.
+     * @throws InterruptedException if interrupted while waiting. Chunks already sent are not cancelled.
+     */
+    public ContactImportResult importJsonLines(Reader jsonLines, Operation operation, Writer rejects)
+        throws CMCException, InterruptedException {
+        Import contactImport = new Import(operation, rejects);
+        try {
+            BufferedReader reader = new BufferedReader(jsonLines);
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                Contact contact;
+                try {
+                    contact = contactReader.readValue(line);
+                } catch (JsonProcessingException jpex) {
+                    contactImport.reject(lineNumber, null, null, "Invalid contact: " + jpex.getOriginalMessage());
+                    continue;
+                }
+                contactImport.add(lineNumber, contact);
+            }
+        } catch (IOException ioex) {
+            contactImport.drain();
+            throw new CMCException(ioex);
+        }
+        return contactImport.finish();
+    }
+
+    /**
+     * Helper method to resolve the contact property of each column of a CSV header.
+     *
+     * @param header names of the columns.
+     * @return the contact property of each column, null if the column is ignored.
+     */
+    private String[] resolveColumns(List<String> header) {
+        String[] properties = new String[header.size()];
+        boolean cellNumber = false;
+        for (int i = 0; i < properties.length; i++) {
+            String column = header.get(i).trim().toLowerCase(Locale.ROOT);
+            properties[i] = columns.containsKey(column) ? columns.get(column) : PROPERTIES.get(column);
+            cellNumber |= "mdn".equals(properties[i]);
+        }
+        if (!cellNumber) {
+            throw new IllegalArgumentException("No column mapped to the cell number (mdn) in " + header);
+        }
+        return properties;
+    }
+
+    /**
+     * Helper method to set a property of a contact.
+     *
+     * @param contact the contact.
+     * @param property JSON name of the property.
+     * @param value value of the property.
+     */
+    private static void setProperty(Contact contact, String property, String value) {
+        switch (property) {
+            case "mdn":
+                contact.setCellNumber(value);
+                break;
+            case "first":
+                contact.setFirstName(value);
+                break;
+            case "last":
+                contact.setLastName(value);
+                break;
+            case "email":
+                contact.setEmailAddress(value);
+                break;
+            case "org":
+                contact.setOrganization(value);
+                break;
+            case "title":
+                contact.setTitle(value);
+                break;
+            case "city":
+                contact.setCity(value);
+                break;
+            case "state":
+                contact.setState(value);
+                break;
+            case "postalcode":
+                contact.setPostalCode(value);
+                break;
+            default:
+                contact.setCountryCode(value);
+                break;
+        }
+    }
+
+    /**
+     * Helper method to open a rejects file.
+     *
+     * @param rejects the rejects file.
+     * @return buffered writer of the file.
+     * @throws IOException if the file cannot be created.
+     */
+    private static Writer openRejects(File rejects) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(rejects), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * State of an import in progress: the chunk being filled, the requests in flight and the counters. The counters
+     * and the rejects output are updated by the callbacks of the requests.
+     */
+    private final class Import {
+
+        /**
+         * Operation applied to the contacts.
+         */
+        private final Operation operation;
+
+        /**
+         * Output the rejected contacts are written to, guarded by itself.
+         */
+        private final Writer rejects;
+
+        /**
+         * Permits of the requests in flight.
+         */
+        private final Semaphore permits = new Semaphore(parallelism);
+
+        /**
+         * Contacts of the chunk being filled.
+         */
+        private List<Contact> contacts = new ArrayList<Contact>(chunkSize);
+
+        /**
+         * Record numbers of the contacts of the chunk being filled.
+         */
+        private long[] recordNumbers = new long[chunkSize];
+
+        /**
+         * Number of records read.
+         */
+        private long recordCount;
+
+        /**
+         * Number of contacts CMC accepted.
+         */
+        private final AtomicLong importedCount = new AtomicLong();
+
+        /**
+         * Number of records rejected.
+         */
+        private final AtomicLong rejectedCount = new AtomicLong();
+
+        /**
+         * Number of requests sent.
+         */
+        private int chunkCount;
+
+        /**
+         * Number of requests that failed as a whole.
+         */
+        private final AtomicInteger failedChunkCount = new AtomicInteger();
+
+        /**
+         * First exception writing the rejects, null if none.
+         */
+        private volatile IOException rejectsException;
+
+        /**
+         * Constructor.
+         *
+         * @param operation operation applied to the contacts.
+         * @param rejects output the rejected contacts are written to.
+         * @throws CMCException CMC exception if the header of the rejects cannot be written.
+         */
+        Import(Operation operation, Writer rejects) throws CMCException {
+            if (operation == null || rejects == null) {
+                throw new IllegalArgumentException("Operation and rejects must not be null");
+            }
+            this.operation = operation;
+            this.rejects = rejects;
+            try {
+                rejects.write(REJECTS_HEADER);
+                rejects.write('\n');
+            } catch (IOException ioex) {
+                throw new CMCException(ioex);
+            }
+        }
+
+        /**
+         * Add a contact read, sending the chunk once full. Blocks while the maximum number of requests are in flight.
+         *
+         * @param recordNumber number of the record of the contact.
+         * @param contact the contact.
+         * @throws InterruptedException if interrupted while waiting.
+         */
+        void add(long recordNumber, Contact contact) throws InterruptedException {
+            recordCount++;
+            String cellNumber = contact.getCellNumber();
+            if (cellNumber == null || cellNumber.trim().isEmpty()) {
+                rejectedCount.incrementAndGet();
+                writeReject(recordNumber, null, null, "Missing cell number");
+                return;
+            }
+            recordNumbers[contacts.size()] = recordNumber;
+            contacts.add(contact);
+            if (contacts.size() == chunkSize) {
+                send();
+            }
+        }
+
+        /**
+         * Reject a record that cannot be read as a contact.
+         *
+         * @param recordNumber number of the record.
+         * @param cellNumber cell number of the contact, null if unknown.
+         * @param code error code, null if none.
+         * @param message reason of the rejection.
+         */
+        void reject(long recordNumber, String cellNumber, String code, String message) {
+            recordCount++;
+            rejectedCount.incrementAndGet();
+            writeReject(recordNumber, cellNumber, code, message);
+        }
+
+        /**
+         * Send the last chunk and wait for all the requests to complete.
+         *
+         * @return the summary of the import.
+         * @throws CMCException CMC exception if the rejects cannot be written.
+         * @throws InterruptedException if interrupted while waiting.
+         */
+        ContactImportResult finish() throws CMCException, InterruptedException {
+            if (!contacts.isEmpty()) {
+                send();
+            }
+            drain();
+            try {
+                synchronized (rejects) {
+                    rejects.flush();
+                }
+            } catch (IOException ioex) {
+                rejectsException = ioex;
+            }
+            if (rejectsException != null) {
+                throw new CMCException(rejectsException);
+            }
+            return new ContactImportResult(recordCount, importedCount.get(), rejectedCount.get(), chunkCount,
+                    failedChunkCount.get());
+        }
+
+        /**
+         * Wait for the requests in flight to complete.
+         *
+         * @throws InterruptedException if interrupted while waiting.
+         */
+        void drain() throws InterruptedException {
+            permits.acquire(parallelism);
+            permits.release(parallelism);
+        }
+
+        /**
+         * Helper method to send the chunk being filled and start a new one.
+         *
+         * @throws InterruptedException if interrupted while waiting for a request to complete.
+         */
+        private void send() throws InterruptedException {
+            final List<Contact> chunk = contacts;
+            final long[] chunkRecordNumbers = recordNumbers;
+            contacts = new ArrayList<Contact>(chunkSize);
+            recordNumbers = new long[chunkSize];
+
+            permits.acquire();
+            chunkCount++;
+            ResponseCallback<StatusResponse> callback = new ResponseCallback<StatusResponse>() {
+                @Override
+                public void completed(HttpResponseWrapper<StatusResponse> response) {
+                    try {
+                        handleResponse(chunk, chunkRecordNumbers, response);
+                    } finally {
+                        permits.release();
+                    }
+                }
+
+                @Override
+                public void failed(CMCException exception) {
+                    try {
+                        RestResponse error = exception instanceof CMCClientException
+                                ? ((CMCClientException) exception).getError() : null;
+                        if (error != null) {
+                            rejectChunk(chunk, chunkRecordNumbers, error.getCode(), error.getMessage());
+                        } else {
+                            rejectChunk(chunk, chunkRecordNumbers, null, String.valueOf(exception.getMessage()));
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                }
+            };
+            if (operation == Operation.ADD) {
+                contactApi.addContactsAsync(chunk, callback);
+            } else {
+                contactApi.updateContactsAsync(chunk, callback);
+            }
+        }
+
+        /**
+         * Helper method to aggregate the status of each contact of a chunk. The statuses are in the order of the
+         * contacts.
+         *
+         * @param chunk contacts of the chunk.
+         * @param chunkRecordNumbers record numbers of the contacts.
+         * @param response the response of the chunk.
+         */
+        private void handleResponse(List<Contact> chunk, long[] chunkRecordNumbers,
+                HttpResponseWrapper<StatusResponse> response) {
+            int statusCode = response.getHttpStatusCode();
+            StatusResponse body = response.getResponseBody();
+            List<RestResponse> statuses = body != null ? body.getStatusResponses() : null;
+            if (statusCode < 200 || statusCode >= 300 || statuses == null) {
+                rejectChunk(chunk, chunkRecordNumbers, null, "HTTP status " + statusCode);
+                return;
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                RestResponse status = i < statuses.size() ? statuses.get(i) : null;
+                if (status != null && SUCCESS.equalsIgnoreCase(status.getStatus())) {
+                    importedCount.incrementAndGet();
+                } else {
+                    rejectedCount.incrementAndGet();
+                    writeReject(chunkRecordNumbers[i], chunk.get(i).getCellNumber(),
+                            status != null ? status.getCode() : null,
+                            status != null ? status.getMessage() : "No status returned");
+                }
+            }
+        }
+
+        /**
+         * Helper method to reject all the contacts of a chunk that failed as a whole.
+         *
+         * @param chunk contacts of the chunk.
+         * @param chunkRecordNumbers record numbers of the contacts.
+         * @param code error code, null if none.
+         * @param message reason of the failure.
+         */
+        private void rejectChunk(List<Contact> chunk, long[] chunkRecordNumbers, String code, String message) {
+            failedChunkCount.incrementAndGet();
+            rejectedCount.addAndGet(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                writeReject(chunkRecordNumbers[i], chunk.get(i).getCellNumber(), code, message);
+            }
+        }
+
+        /**
+         * Helper method to write a rejected contact. The first exception is kept and reported at the end of the
+         * import, the following rejects being dropped.
+         *
+         * @param recordNumber number of the record.
+         * @param cellNumber cell number of the contact, null if unknown.
+         * @param code error code, null if none.
+         * @param message reason of the rejection, null if none.
+         */
+        private void writeReject(long recordNumber, String cellNumber, String code, String message) {
+            if (rejectsException != null) {
+                return;
+            }
+            StringBuilder sb = new StringBuilder(64);
+            sb.append(recordNumber).append(',');
+            appendField(sb, cellNumber);
+            sb.append(',');
+            appendField(sb, code);
+            sb.append(',');
+            appendField(sb, message);
+            sb.append('\n');
+            try {
+                synchronized (rejects) {
+                    rejects.write(sb.toString());
+                }
+            } catch (IOException ioex) {
+                rejectsException = ioex;
+            }
+        }
+    }
+
+    /**
+     * Helper method to append a CSV field, quoted if needed.
+     *
+     * @param sb buffer to append to.
+     * @param value value of the field, null for an empty field.
+     */
+    private static void appendField(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            sb.append(value);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+}
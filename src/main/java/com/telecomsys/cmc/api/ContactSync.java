@@ -0,0 +1,590 @@
+package com.telecomsys.cmc.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
+import com.telecomsys.cmc.model.Contact;
+import com.telecomsys.cmc.response.ContactsResponse;
+import com.telecomsys.cmc.response.RestResponse;
+import com.telecomsys.cmc.response.StatusResponse;
+import com.telecomsys.cmc.utils.StringUtils;
+
+/**
+ * Synchronizes the contacts of CMC with a desired set of contacts, sending only the requests needed. For example:
+ *
+ * <pre>
+ * ContactSync contactSync = new ContactSync(cmcClient.getContactApi());
+ * ContactSyncResult result = contactSync.sync(crmContacts, previousMdns);
+ * </pre>
+ *
+ * The current contacts are retrieved in chunks of cell numbers. CMC fails the retrieval of a chunk if any of its
+ * contacts is unknown, so such a chunk is added as a whole: CMC adds the unknown contacts and reports the others as
+ * already existing, which are then retrieved again. This costs at most two more requests per failed chunk, whatever
+ * the number of unknown contacts in it. A contact is updated only if one of the fields set in the desired contact
+ * differs, compared by a fingerprint of these fields; fields left null are not compared and not changed. The updates
+ * are then sent in chunks. All requests are sent concurrently over the connection pool of the contact facade, with
+ * at most the configured number in flight.
+ *
+ * CMC cannot list the contacts of an account, so the contacts to delete are given: typically the cell numbers of the
+ * previous synchronization. Those that are not desired any more are deleted.
+ */
+public class ContactSync {
+
+    /**
+     * Default number of contacts per add or update request.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /**
+     * Default number of requests in flight.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Number of cell numbers per retrieve or delete request, which carry them in the URL path.
+     */
+    static final int PATH_CHUNK_SIZE = 100;
+
+    /**
+     * Status of a request or contact CMC accepted.
+     */
+    private static final String SUCCESS = "success";
+
+    /**
+     * Error code of the addition of a contact that already exists.
+     */
+    private static final String ALREADY_EXISTS = "8003";
+
+    /**
+     * HTTP status of a retrieval or deletion of unknown contacts.
+     */
+    private static final int NOT_FOUND = 404;
+
+    /**
+     * Offset basis of the FNV-1a hash.
+     */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    /**
+     * Prime of the FNV-1a hash.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Contact facade used to retrieve and write the contacts.
+     */
+    private final ContactApi contactApi;
+
+    /**
+     * Number of contacts per add or update request.
+     */
+    private final int chunkSize;
+
+    /**
+     * Maximum number of requests in flight.
+     */
+    private final int parallelism;
+
+    /**
+     * Constructor using the default chunk size and parallelism.
+     *
+     * @param contactApi contact facade used to retrieve and write the contacts.
+     */
+    public ContactSync(ContactApi contactApi) {
+        this(contactApi, DEFAULT_CHUNK_SIZE, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Constructor. The parallelism should not exceed the connections per route of the HTTP client, otherwise the
+     * extra requests wait for a pooled connection.
+     *
+     * @param contactApi contact facade used to retrieve and write the contacts.
+     * @param chunkSize number of contacts per add or update request.
+     * @param parallelism maximum number of requests in flight.
+     */
+    public ContactSync(ContactApi contactApi, int chunkSize, int parallelism) {
+        if (contactApi == null) {
+            throw new IllegalArgumentException("Contact API must not be null");
+        }
+        if (chunkSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Chunk size and parallelism must be positive");
+        }
+        this.contactApi = contactApi;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Add or update the desired contacts, blocking until done. No contact is deleted.
+     *
+     * @param desired the desired contacts. When several have the same cell number the last one is kept.
+     * @return the summary of the synchronization.
+     * @throws InterruptedException if interrupted while waiting. Requests already sent are not cancelled.
+     */
+    public ContactSyncResult sync(Collection<Contact> desired) throws InterruptedException {
+        return sync(desired, Collections.<String>emptyList());
+    }
+
+    /**
+     * Add or update the desired contacts and delete the given ones that are not desired, blocking until done.
+     *
+     * @param desired the desired contacts. When several have the same cell number the last one is kept.
+     * @param deletable cell numbers of the contacts to delete unless desired, typically those of the previous
+     *        synchronization.
+     * @return the summary of the synchronization.
+     * @throws InterruptedException if interrupted while waiting. Requests already sent are not cancelled.
+     */
+    public ContactSyncResult sync(Collection<Contact> desired, Collection<String> deletable)
+        throws InterruptedException {
+        if (desired == null || deletable == null) {
+            throw new IllegalArgumentException("Desired and deletable contacts must not be null");
+        }
+        Map<String, Contact> byKey = new LinkedHashMap<String, Contact>();
+        for (Contact contact : desired) {
+            if (contact == null || contact.getCellNumber() == null || contact.getCellNumber().trim().isEmpty()) {
+                throw new IllegalArgumentException("Desired contacts must have a cell number");
+            }
+            byKey.put(StringUtils.normalizeMdn(contact.getCellNumber()), contact);
+        }
+        List<String> deletes = new ArrayList<String>();
+        for (String mdn : deletable) {
+            if (mdn != null && !byKey.containsKey(StringUtils.normalizeMdn(mdn))) {
+                deletes.add(mdn);
+            }
+        }
+
+        Sync sync = new Sync();
+        Sync.Retrieval retrieval = sync.new Retrieval(true);
+        retrieval.run(new ArrayList<Contact>(byKey.values()), PATH_CHUNK_SIZE);
+        Sync.Write additions = sync.new Write(true);
+        additions.run(retrieval.additions, chunkSize);
+        List<Contact> updates = new ArrayList<Contact>(retrieval.updates);
+        if (!additions.existing.isEmpty()) {
+
+            // The contacts of the chunks that could not be retrieved which CMC already knows.
+            Sync.Retrieval existing = sync.new Retrieval(false);
+            existing.run(new ArrayList<Contact>(additions.existing), PATH_CHUNK_SIZE);
+            updates.addAll(existing.updates);
+        }
+        sync.new Write(false).run(updates, chunkSize);
+        sync.new Deletion().run(deletes, PATH_CHUNK_SIZE);
+
+        List<String> failedMdns;
+        synchronized (sync.failedMdns) {
+            failedMdns = new ArrayList<String>(sync.failedMdns);
+        }
+        return new ContactSyncResult(sync.addedCount.get(), sync.updatedCount.get(), sync.deletedCount.get(),
+                sync.unchangedCount.get(), sync.requestCount.get(), failedMdns);
+    }
+
+    /**
+     * Helper method to check whether the fields set in a desired contact differ from the current contact.
+     *
+     * @param desired the desired contact.
+     * @param current the current contact.
+     * @return whether the contact must be updated.
+     */
+    static boolean differs(Contact desired, Contact current) {
+        int mask = fieldMask(desired);
+        return fingerprint(desired, mask) != fingerprint(current, mask);
+    }
+
+    /**
+     * Helper method to get the fields set in a contact, the cell number excluded.
+     *
+     * @param contact the contact.
+     * @return bit mask of the fields set, in the order of {@link #fingerprint(Contact, int)}.
+     */
+    private static int fieldMask(Contact contact) {
+        String[] fields = {
+            contact.getFirstName(), contact.getLastName(), contact.getEmailAddress(), contact.getOrganization(),
+            contact.getTitle(), contact.getCity(), contact.getState(), contact.getPostalCode(),
+            contact.getCountryCode(),
+        };
+        int mask = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null && !fields[i].isEmpty()) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Helper method to compute the fingerprint of some fields of a contact.
+     *
+     * @param contact the contact.
+     * @param mask bit mask of the fields hashed.
+     * @return the fingerprint.
+     */
+    private static long fingerprint(Contact contact, int mask) {
+        long h = FNV_OFFSET;
+        h = hash(h, mask, 0, contact.getFirstName());
+        h = hash(h, mask, 1, contact.getLastName());
+        h = hash(h, mask, 2, contact.getEmailAddress());
+        h = hash(h, mask, 3, contact.getOrganization());
+        h = hash(h, mask, 4, contact.getTitle());
+        h = hash(h, mask, 5, contact.getCity());
+        h = hash(h, mask, 6, contact.getState());
+        h = hash(h, mask, 7, contact.getPostalCode());
+        return hash(h, mask, 8, contact.getCountryCode());
+    }
+
+    /**
+     * Helper method to add a field to a FNV-1a hash if selected, followed by its length so that consecutive fields
+     * cannot be confused.
+     *
+     * @param hash the hash so far.
+     * @param mask bit mask of the fields hashed.
+     * @param field index of the field.
+     * @param value value of the field, may be null.
+     * @return the hash.
+     */
+    private static long hash(long hash, int mask, int field, String value) {
+        if ((mask & (1 << field)) == 0) {
+            return hash;
+        }
+        long h = hash;
+        if (value == null) {
+            return (h ^ -1L) * FNV_PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return (h ^ value.length()) * FNV_PRIME;
+    }
+
+    /**
+     * Helper method to get the cell numbers of contacts.
+     *
+     * @param contacts the contacts.
+     * @return the cell numbers.
+     */
+    private static List<String> getMdns(List<Contact> contacts) {
+        List<String> mdns = new ArrayList<String>(contacts.size());
+        for (Contact contact : contacts) {
+            mdns.add(contact.getCellNumber());
+        }
+        return mdns;
+    }
+
+    /**
+     * State of a synchronization in progress, updated by the callbacks of the requests.
+     */
+    private final class Sync {
+
+        /**
+         * Number of contacts added.
+         */
+        private final AtomicLong addedCount = new AtomicLong();
+
+        /**
+         * Number of contacts updated.
+         */
+        private final AtomicLong updatedCount = new AtomicLong();
+
+        /**
+         * Number of contacts deleted.
+         */
+        private final AtomicLong deletedCount = new AtomicLong();
+
+        /**
+         * Number of contacts already up to date.
+         */
+        private final AtomicLong unchangedCount = new AtomicLong();
+
+        /**
+         * Number of requests sent.
+         */
+        private final AtomicLong requestCount = new AtomicLong();
+
+        /**
+         * Cell numbers of the contacts that could not be synchronized, guarded by itself.
+         */
+        private final List<String> failedMdns = new ArrayList<String>();
+
+        /**
+         * Helper method to record contacts that could not be synchronized.
+         *
+         * @param mdns cell numbers of the contacts.
+         */
+        void failed(List<String> mdns) {
+            synchronized (failedMdns) {
+                failedMdns.addAll(mdns);
+            }
+        }
+
+        /**
+         * Requests of one kind sent in chunks with at most the configured number in flight. A chunk may be split and
+         * its parts queued again by the callback of its request.
+         *
+         * @param <T> This describes the type of the items of the chunks.
+         */
+        private abstract class Stage<T> {
+
+            /**
+             * Chunks queued again by the callbacks, and an empty chunk each time a request completes.
+             */
+            private final BlockingQueue<List<T>> queue = new LinkedBlockingQueue<List<T>>();
+
+            /**
+             * Permits of the requests in flight.
+             */
+            private final Semaphore permits = new Semaphore(parallelism);
+
+            /**
+             * Number of requests in flight.
+             */
+            private final AtomicInteger inFlight = new AtomicInteger();
+
+            /**
+             * Send the items in chunks, blocking until all the requests have completed.
+             *
+             * @param items the items.
+             * @param size number of items per chunk.
+             * @throws InterruptedException if interrupted while waiting.
+             */
+            void run(List<T> items, int size) throws InterruptedException {
+                int next = 0;
+                while (next < items.size() || inFlight.get() > 0 || !queue.isEmpty()) {
+                    List<T> chunk = queue.poll();
+                    if (chunk == null) {
+                        if (next < items.size()) {
+                            chunk = new ArrayList<T>(items.subList(next, Math.min(next + size, items.size())));
+                            next += size;
+                        } else {
+                            chunk = queue.take();
+                        }
+                    }
+                    if (chunk.isEmpty()) {
+                        continue;
+                    }
+                    permits.acquire();
+                    inFlight.incrementAndGet();
+                    requestCount.incrementAndGet();
+                    send(chunk);
+                }
+            }
+
+            /**
+             * Send the request of a chunk. The callback of the request must call {@link #completed(List)}.
+             *
+             * @param chunk the chunk.
+             */
+            abstract void send(List<T> chunk);
+
+            /**
+             * Complete the request of a chunk, queuing again the halves of the chunk if it must be split.
+             *
+             * @param split the chunk to split, null if none.
+             */
+            void completed(List<T> split) {
+                if (split != null) {
+                    int half = split.size() / 2;
+                    queue.add(new ArrayList<T>(split.subList(0, half)));
+                    queue.add(new ArrayList<T>(split.subList(half, split.size())));
+                }
+                inFlight.decrementAndGet();
+                permits.release();
+                queue.add(Collections.<T>emptyList());
+            }
+        }
+
+        /**
+         * Retrieval of the current contacts, sorting the desired contacts into additions, updates and unchanged ones.
+         */
+        private final class Retrieval extends Stage<Contact> {
+
+            /**
+             * Whether the contacts may be unknown, in which case those of a chunk that cannot be retrieved are added.
+             * Otherwise CMC reported them as existing and such a chunk fails.
+             */
+            private final boolean mayBeUnknown;
+
+            /**
+             * Contacts to add, with the other contacts of their chunk if the retrieval of the chunk failed.
+             */
+            private final List<Contact> additions = Collections.synchronizedList(new ArrayList<Contact>());
+
+            /**
+             * Contacts to update.
+             */
+            private final List<Contact> updates = Collections.synchronizedList(new ArrayList<Contact>());
+
+            /**
+             * Constructor.
+             *
+             * @param mayBeUnknown whether the contacts may be unknown.
+             */
+            Retrieval(boolean mayBeUnknown) {
+                this.mayBeUnknown = mayBeUnknown;
+            }
+
+            @Override
+            void send(final List<Contact> chunk) {
+                final List<String> mdns = getMdns(chunk);
+                contactApi.retrieveContactsAsync(mdns, new ResponseCallback<ContactsResponse>() {
+                    @Override
+                    public void completed(HttpResponseWrapper<ContactsResponse> response) {
+                        ContactsResponse body = response.getResponseBody();
+                        if (response.getHttpStatusCode() == NOT_FOUND && mayBeUnknown) {
+                            additions.addAll(chunk);
+                        } else if (response.getHttpStatusCode() == 200 && body != null
+                                && body.getContactsResponses() != null) {
+                            compare(chunk, body.getContactsResponses());
+                        } else {
+                            Sync.this.failed(mdns);
+                        }
+                        Retrieval.this.completed(null);
+                    }
+
+                    @Override
+                    public void failed(CMCException exception) {
+                        Sync.this.failed(mdns);
+                        Retrieval.this.completed(null);
+                    }
+                });
+            }
+
+            /**
+             * Helper method to compare the desired contacts of a chunk to the current ones.
+             *
+             * @param chunk the desired contacts.
+             * @param current the current contacts.
+             */
+            private void compare(List<Contact> chunk, List<Contact> current) {
+                Map<String, Contact> currentByKey = new HashMap<String, Contact>();
+                for (Contact contact : current) {
+                    if (contact != null) {
+                        currentByKey.put(StringUtils.normalizeMdn(contact.getCellNumber()), contact);
+                    }
+                }
+                for (Contact contact : chunk) {
+                    Contact currentContact = currentByKey.get(StringUtils.normalizeMdn(contact.getCellNumber()));
+                    if (currentContact == null && mayBeUnknown) {
+                        additions.add(contact);
+                    } else if (currentContact == null) {
+                        Sync.this.failed(Collections.singletonList(contact.getCellNumber()));
+                    } else if (differs(contact, currentContact)) {
+                        updates.add(contact);
+                    } else {
+                        unchangedCount.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Additions or updates of contacts.
+         */
+        private final class Write extends Stage<Contact> {
+
+            /**
+             * Whether the contacts are added rather than updated.
+             */
+            private final boolean add;
+
+            /**
+             * Contacts added that already exist.
+             */
+            private final List<Contact> existing = Collections.synchronizedList(new ArrayList<Contact>());
+
+            /**
+             * Constructor.
+             *
+             * @param add whether the contacts are added rather than updated.
+             */
+            Write(boolean add) {
+                this.add = add;
+            }
+
+            @Override
+            void send(final List<Contact> chunk) {
+                ResponseCallback<StatusResponse> callback = new ResponseCallback<StatusResponse>() {
+                    @Override
+                    public void completed(HttpResponseWrapper<StatusResponse> response) {
+                        StatusResponse body = response.getResponseBody();
+                        List<RestResponse> statuses = body != null ? body.getStatusResponses() : null;
+                        int statusCode = response.getHttpStatusCode();
+                        if (statusCode < 200 || statusCode >= 300 || statuses == null) {
+                            Sync.this.failed(getMdns(chunk));
+                        } else {
+                            for (int i = 0; i < chunk.size(); i++) {
+                                RestResponse status = i < statuses.size() ? statuses.get(i) : null;
+                                if (status != null && SUCCESS.equalsIgnoreCase(status.getStatus())) {
+                                    (add ? addedCount : updatedCount).incrementAndGet();
+                                } else if (add && status != null && ALREADY_EXISTS.equals(status.getCode())) {
+                                    existing.add(chunk.get(i));
+                                } else {
+                                    Sync.this.failed(Collections.singletonList(chunk.get(i).getCellNumber()));
+                                }
+                            }
+                        }
+                        Write.this.completed(null);
+                    }
+
+                    @Override
+                    public void failed(CMCException exception) {
+                        Sync.this.failed(getMdns(chunk));
+                        Write.this.completed(null);
+                    }
+                };
+                if (add) {
+                    contactApi.addContactsAsync(chunk, callback);
+                } else {
+                    contactApi.updateContactsAsync(chunk, callback);
+                }
+            }
+        }
+
+        /**
+         * Deletions of contacts. CMC fails the deletion of a chunk if any of its contacts is unknown, so such a chunk
+         * is split until the unknown contacts, already absent, are isolated.
+         */
+        private final class Deletion extends Stage<String> {
+
+            @Override
+            void send(final List<String> chunk) {
+                contactApi.deleteContactsAsync(chunk, new ResponseCallback<RestResponse>() {
+                    @Override
+                    public void completed(HttpResponseWrapper<RestResponse> response) {
+                        List<String> split = null;
+                        RestResponse body = response.getResponseBody();
+                        int statusCode = response.getHttpStatusCode();
+                        if (statusCode == NOT_FOUND) {
+                            if (chunk.size() > 1) {
+                                split = chunk;
+                            }
+                        } else if (statusCode >= 200 && statusCode < 300 && body != null
+                                && SUCCESS.equalsIgnoreCase(body.getStatus())) {
+                            deletedCount.addAndGet(chunk.size());
+                        } else {
+                            Sync.this.failed(chunk);
+                        }
+                        Deletion.this.completed(split);
+                    }
+
+                    @Override
+                    public void failed(CMCException exception) {
+                        Sync.this.failed(chunk);
+                        Deletion.this.completed(null);
+                    }
+                });
+            }
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.telecomsys.cmc.api;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of a contact synchronization: the number of contacts added, updated, deleted and left unchanged, the number
+ * of requests it took, and the cell numbers of the contacts that could not be synchronized so they can be retried.
+ */
+public class ContactSyncResult {
+
+    /**
+     * Number of contacts added.
+     */
+    private final long addedCount;
+
+    /**
+     * Number of contacts updated.
+     */
+    private final long updatedCount;
+
+    /**
+     * Number of contacts deleted.
+     */
+    private final long deletedCount;
+
+    /**
+     * Number of contacts already up to date.
+     */
+    private final long unchangedCount;
+
+    /**
+     * Number of requests sent, retrievals included.
+     */
+    private final long requestCount;
+
+    /**
+     * Cell numbers of the contacts that could not be synchronized.
+     */
+    private final List<String> failedMdns;
+
+    /**
+     * Constructor.
+     *
+     * @param addedCount number of contacts added.
+     * @param updatedCount number of contacts updated.
+     * @param deletedCount number of contacts deleted.
+     * @param unchangedCount number of contacts already up to date.
+     * @param requestCount number of requests sent.
+     * @param failedMdns cell numbers of the contacts that could not be synchronized.
+     */
+    ContactSyncResult(long addedCount, long updatedCount, long deletedCount, long unchangedCount, long requestCount,
+            List<String> failedMdns) {
+        this.addedCount = addedCount;
+        this.updatedCount = updatedCount;
+        this.deletedCount = deletedCount;
+        this.unchangedCount = unchangedCount;
+        this.requestCount = requestCount;
+        this.failedMdns = Collections.unmodifiableList(failedMdns);
+    }
+
+    /**
+     * @return whether all the contacts were synchronized
+     */
+    public boolean isSuccess() {
+        return failedMdns.isEmpty();
+    }
+
+    /**
+     * @return the number of contacts added
+     */
+    public long getAddedCount() {
+        return addedCount;
+    }
+
+    /**
+     * @return the number of contacts updated
+     */
+    public long getUpdatedCount() {
+        return updatedCount;
+    }
+
+    /**
+     * @return the number of contacts deleted
+     */
+    public long getDeletedCount() {
+        return deletedCount;
+    }
+
+    /**
+     * @return the number of contacts already up to date
+     */
+    public long getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    /**
+     * @return the number of requests sent, retrievals included
+     */
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return the cell numbers of the contacts that could not be synchronized
+     */
+    public List<String> getFailedMdns() {
+        return failedMdns;
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.telecomsys.cmc.api;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.telecomsys.cmc.model.Message;
+
+/**
+ * Filter suppressing the sends of a message identical to one sent within a time window: same keyword, destinations
+ * (in any order), subject and text. Set it on the messaging facade to reject the repeats locally instead of paying for
+ * a second SMS. For example:
+ *
+ * <pre>
+ * cmcClient.getMessagingApi().setDuplicateFilter(new DuplicateFilter(10000));
+ * </pre>
+ *
+ * The messages are reduced to a 64 bit fingerprint kept in a fixed size table of primitive arrays, so the filter does
+ * not allocate per send. A fingerprint may be stored in a few slots only; when they are all taken the entry closest to
+ * its expiry is evicted, so under a load exceeding the capacity a repeat may go through, but a distinct message is
+ * never suppressed unless two fingerprints collide.
+ */
+public class DuplicateFilter {
+
+    /**
+     * Default number of fingerprints remembered.
+     */
+    public static final int DEFAULT_CAPACITY = 65536;
+
+    /**
+     * Number of slots a fingerprint may be stored in.
+     */
+    private static final int PROBES = 8;
+
+    /**
+     * Offset basis of the FNV-1a hash.
+     */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    /**
+     * Prime of the FNV-1a hash.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Time window in nanoseconds.
+     */
+    private final long windowNanos;
+
+    /**
+     * Fingerprint of each slot.
+     */
+    private final long[] fingerprints;
+
+    /**
+     * Expiry of each slot in nanoseconds relative to the creation of the filter, zero if empty.
+     */
+    private final long[] expiries;
+
+    /**
+     * Mask mapping a hash to a slot, the number of slots being a power of two.
+     */
+    private final int mask;
+
+    /**
+     * Time in nanoseconds the filter was created, the origin of the expiries.
+     */
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Constructor using the default capacity.
+     *
+     * @param window time window in milliseconds during which a repeat is suppressed.
+     */
+    public DuplicateFilter(long window) {
+        this(window, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param window time window in milliseconds during which a repeat is suppressed.
+     * @param capacity number of fingerprints remembered, rounded up to a power of two.
+     */
+    public DuplicateFilter(long window, int capacity) {
+        if (window <= 0 || capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Window and capacity must be positive");
+        }
+        int slots = Math.max(PROBES, Integer.highestOneBit(capacity));
+        if (slots < capacity) {
+            slots <<= 1;
+        }
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(window);
+        this.fingerprints = new long[slots];
+        this.expiries = new long[slots];
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Check a message about to be sent and remember it if it is not a duplicate.
+     *
+     * @param message the message.
+     * @return false if an identical message was accepted within the window.
+     */
+    public boolean accept(Message message) {
+        long fingerprint = fingerprint(message);
+        int first = (int) (fingerprint ^ (fingerprint >>> 32));
+        long now = System.nanoTime() - startTime;
+        synchronized (this) {
+            int victim = 0;
+            long victimExpiry = Long.MAX_VALUE;
+            for (int i = 0; i < PROBES; i++) {
+                int slot = (first + i) & mask;
+                long expiry = expiries[slot];
+                if (expiry > now && fingerprints[slot] == fingerprint) {
+                    return false;
+                }
+                if (expiry < victimExpiry) {
+                    victim = slot;
+                    victimExpiry = expiry;
+                }
+            }
+            fingerprints[victim] = fingerprint;
+            expiries[victim] = now + windowNanos;
+            return true;
+        }
+    }
+
+    /**
+     * Forget a message, typically because its send failed and may be retried.
+     *
+     * @param message the message.
+     */
+    public void forget(Message message) {
+        long fingerprint = fingerprint(message);
+        int first = (int) (fingerprint ^ (fingerprint >>> 32));
+        synchronized (this) {
+            for (int i = 0; i < PROBES; i++) {
+                int slot = (first + i) & mask;
+                if (fingerprints[slot] == fingerprint) {
+                    expiries[slot] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to compute the fingerprint of a message. The destination hashes are summed so that their order
+     * does not matter.
+     *
+     * @param message the message.
+     * @return the fingerprint.
+     */
+    private static long fingerprint(Message message) {
+        long destinations = 0;
+        List<String> destinationList = message.getDestinations();
+        if (destinationList != null) {
+            for (String destination : destinationList) {
+                destinations += mix(hash(FNV_OFFSET, destination));
+            }
+        }
+        long fingerprint = hash(FNV_OFFSET, message.getKeyword());
+        fingerprint = hash(fingerprint, message.getSubject());
+        fingerprint = hash(fingerprint, message.getMessage());
+        return mix(fingerprint ^ destinations);
+    }
+
+    /**
+     * Helper method to add a string to a FNV-1a hash, followed by its length so that consecutive strings cannot be
+     * confused.
+     *
+     * @param hash the hash so far.
+     * @param value the string, may be null.
+     * @return the hash.
+     */
+    private static long hash(long hash, String value) {
+        long h = hash;
+        if (value == null) {
+            return (h ^ -1L) * FNV_PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return (h ^ value.length()) * FNV_PRIME;
+    }
+
+    /**
+     * Helper method to spread the bits of a hash (the finalizer of MurmurHash3).
+     *
+     * @param hash the hash.
+     * @return the mixed hash.
+     */
+    private static long mix(long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
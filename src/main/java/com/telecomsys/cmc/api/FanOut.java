@@ -0,0 +1,100 @@
+package com.telecomsys.cmc.api;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
+
+/**
+ * Requests sent concurrently with at most a given number in flight, waiting for all of them to complete. The response
+ * or exception of each request is kept by index.
+ *
+ * @param <T> type of the response.
+ */
+abstract class FanOut<T> {
+
+    /**
+     * Number of requests.
+     */
+    private final int count;
+
+    /**
+     * Response of each request, null if it failed.
+     */
+    private final AtomicReferenceArray<HttpResponseWrapper<T>> responses;
+
+    /**
+     * Exception of each request, null if it completed.
+     */
+    private final AtomicReferenceArray<CMCException> exceptions;
+
+    /**
+     * Constructor.
+     *
+     * @param count number of requests.
+     */
+    FanOut(int count) {
+        this.count = count;
+        this.responses = new AtomicReferenceArray<HttpResponseWrapper<T>>(count);
+        this.exceptions = new AtomicReferenceArray<CMCException>(count);
+    }
+
+    /**
+     * Send all the requests, blocking until every request has completed.
+     *
+     * @param parallelism maximum number of requests in flight.
+     * @throws InterruptedException if interrupted while waiting. Requests already sent are not cancelled.
+     */
+    void run(int parallelism) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(count);
+        final Semaphore permits = new Semaphore(parallelism);
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            permits.acquire();
+            send(index, new ResponseCallback<T>() {
+                @Override
+                public void completed(HttpResponseWrapper<T> response) {
+                    responses.set(index, response);
+                    permits.release();
+                    latch.countDown();
+                }
+
+                @Override
+                public void failed(CMCException exception) {
+                    exceptions.set(index, exception);
+                    permits.release();
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+    }
+
+    /**
+     * Send a request. The callback must be notified once the request has completed.
+     *
+     * @param index index of the request.
+     * @param callback callback to notify on completion.
+     */
+    abstract void send(int index, ResponseCallback<T> callback);
+
+    /**
+     * @param index index of the request.
+     * @return the response of the request, null if it failed
+     */
+    HttpResponseWrapper<T> getResponse(int index) {
+        return responses.get(index);
+    }
+
+    /**
+     * @param index index of the request.
+     * @return the exception of the request, null if it completed
+     */
+    CMCException getException(int index) {
+        return exceptions.get(index);
+    }
+
+}
@@ -1,10 +1,13 @@
 package com.telecomsys.cmc.api;
 
 import java.util.List;
+import java.util.concurrent.Future;
 
 import com.telecomsys.cmc.exception.CMCException;
 import com.telecomsys.cmc.http.CmcHttpRequest;
+import com.telecomsys.cmc.http.HttpClientDelegate;
 import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
 import com.telecomsys.cmc.model.Group;
 import com.telecomsys.cmc.model.GroupMembers;
 import com.telecomsys.cmc.response.GroupResponse;
@@ -32,6 +35,15 @@ public class GroupApi extends CmcBaseApi {
         super(baseUri, accountID, authenticationToken);
     }
 
+    /**
+     * Constructor using an existing HTTP client. Use {@link CmcClient} to share one client between facades.
+     *
+     * @param httpClient the HTTP client used to send the requests.
+     */
+    public GroupApi(HttpClientDelegate httpClient) {
+        super(httpClient);
+    }
+
     /**
      * Method to add group using CMC REST API.
      *
@@ -40,23 +52,168 @@ public class GroupApi extends CmcBaseApi {
      * @throws CMCException CMC exception if errors.
      */
     public HttpResponseWrapper<RestResponse> addGroup(Group group) throws CMCException {
+        return httpClient.doPost(createAddGroupRequest(group), RestResponse.class);
+    }
 
-        // Create the request with parameters.
-        CmcHttpRequest cmcRequest = new CmcHttpRequest(GROUPS_URL);
-        cmcRequest.addBodyParameter("groups", group);
-
-        // Send the request to CMC.
-        return httpClient.doPost(cmcRequest, RestResponse.class);
+    /**
+     * Method to add group asynchronously using CMC REST API.
+     *
+     * @param group Group to be added.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<RestResponse>> addGroupAsync(Group group,
+            ResponseCallback<RestResponse> callback) {
+        return getAsyncHttpClient().doPostAsync(createAddGroupRequest(group), RestResponse.class, callback);
     }
 
     /**
-     * Method to delete group(s) using CMC REST API.
+     * Method to delete group(s) using CMC REST API. Group names that do not fit in one request URL are deleted in
+     * batches sent concurrently.
      *
      * @param groupNames List of groups to be deleted identified by their names.
      * @return HttpResponseWrapper http response wrapper with the response.
      * @throws CMCException CMC exception if errors.
      */
     public HttpResponseWrapper<RestResponse> deleteGroups(List<String> groupNames) throws CMCException {
+        return doBatched(groupNames, new PathRequest<RestResponse>(RestResponse.class, true) {
+            @Override
+            protected CmcHttpRequest createRequest(List<String> batch) {
+                return createDeleteGroupsRequest(batch);
+            }
+        });
+    }
+
+    /**
+     * Method to delete group(s) asynchronously using CMC REST API.
+     *
+     * @param groupNames List of groups to be deleted identified by their names.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<RestResponse>> deleteGroupsAsync(List<String> groupNames,
+            ResponseCallback<RestResponse> callback) {
+        return getAsyncHttpClient().doDeleteAsync(createDeleteGroupsRequest(groupNames), RestResponse.class,
+                callback);
+    }
+
+    /**
+     * Method to delete all the users from groups using CMC REST API.
+     *
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<RestResponse> deleteAllGroups() throws CMCException {
+        return httpClient.doDelete(createDeleteAllGroupsRequest(), RestResponse.class);
+    }
+
+    /**
+     * Method to delete all the users from groups asynchronously using CMC REST API.
+     *
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<RestResponse>> deleteAllGroupsAsync(ResponseCallback<RestResponse> callback) {
+        return getAsyncHttpClient().doDeleteAsync(createDeleteAllGroupsRequest(), RestResponse.class, callback);
+    }
+
+    /**
+     * Method to retrieve group using CMC REST API.
+     *
+     * @param groupName Group to be retrieved identified by their name.
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<GroupResponse> retrieveGroup(String groupName) throws CMCException {
+        return httpClient.doGet(createRetrieveGroupRequest(groupName), GroupResponse.class);
+    }
+
+    /**
+     * Method to retrieve group asynchronously using CMC REST API.
+     *
+     * @param groupName Group to be retrieved identified by their name.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<GroupResponse>> retrieveGroupAsync(String groupName,
+            ResponseCallback<GroupResponse> callback) {
+        return getAsyncHttpClient().doGetAsync(createRetrieveGroupRequest(groupName), GroupResponse.class, callback);
+    }
+
+    /**
+     * Method to add group members using CMC REST API.
+     *
+     * @param groupName name of the group to which group members would be added.
+     * @param groupMembers group members to be added to the group.
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<RestResponse> addGroupMember(GroupMembers groupMembers, String groupName)
+            throws CMCException {
+        return httpClient.doPost(createAddGroupMemberRequest(groupMembers, groupName), RestResponse.class);
+    }
+
+    /**
+     * Method to add group members asynchronously using CMC REST API.
+     *
+     * @param groupName name of the group to which group members would be added.
+     * @param groupMembers group members to be added to the group.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<RestResponse>> addGroupMemberAsync(GroupMembers groupMembers,
+            String groupName, ResponseCallback<RestResponse> callback) {
+        return getAsyncHttpClient().doPostAsync(createAddGroupMemberRequest(groupMembers, groupName),
+                RestResponse.class, callback);
+    }
+
+    /**
+     * Method to delete group members using CMC REST API.
+     *
+     * @param groupName name of the group to which group members would be added.
+     * @param members list of members to be removed which are comma separated.
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<RestResponse> deleteGroupMember(String groupName, String members) throws CMCException {
+        return httpClient.doDelete(createDeleteGroupMemberRequest(groupName, members), RestResponse.class);
+    }
+
+    /**
+     * Method to delete group members asynchronously using CMC REST API.
+     *
+     * @param groupName name of the group to which group members would be added.
+     * @param members list of members to be removed which are comma separated.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<RestResponse>> deleteGroupMemberAsync(String groupName, String members,
+            ResponseCallback<RestResponse> callback) {
+        return getAsyncHttpClient().doDeleteAsync(createDeleteGroupMemberRequest(groupName, members),
+                RestResponse.class, callback);
+    }
+
+    /**
+     * Helper method to create the add group request.
+     *
+     * @param group Group to be added.
+     * @return CMC request.
+     */
+    private static CmcHttpRequest createAddGroupRequest(Group group) {
+
+        // Create the request with parameters.
+        CmcHttpRequest cmcRequest = new CmcHttpRequest(GROUPS_URL);
+        cmcRequest.addBodyParameter("groups", group);
+        return cmcRequest;
+    }
+
+    /**
+     * Helper method to create the delete groups request.
+     *
+     * @param groupNames List of groups to be deleted identified by their names.
+     * @return CMC request.
+     */
+    private static CmcHttpRequest createDeleteGroupsRequest(List<String> groupNames) {
 
         // Append the matrix parameters
         StringBuilder sb = new StringBuilder();
@@ -68,57 +225,47 @@ public class GroupApi extends CmcBaseApi {
 
         // Create the request with parameters.
         CmcHttpRequest cmcRequest = new CmcHttpRequest(sb.toString());
-
-        // Send the request to CMC.
-        return httpClient.doDelete(cmcRequest, RestResponse.class);
+        cmcRequest.setIdempotent(true);
+        return cmcRequest;
     }
 
     /**
-     * Method to delete all the users from groups using CMC REST API.
+     * Helper method to create the delete all groups request.
      *
-     * @return HttpResponseWrapper http response wrapper with the response.
-     * @throws CMCException CMC exception if errors.
+     * @return CMC request.
      */
-    public HttpResponseWrapper<RestResponse> deleteAllGroups() throws CMCException {
+    private static CmcHttpRequest createDeleteAllGroupsRequest() {
 
         // Create the request with parameters.
         CmcHttpRequest cmcRequest = new CmcHttpRequest(GROUPS_URL);
         cmcRequest.addUrlParameter("all", "true");
-
-        // Send the request to CMC.
-        return httpClient.doDelete(cmcRequest, RestResponse.class);
+        return cmcRequest;
     }
 
     /**
-     * Method to retrieve group using CMC REST API.
+     * Helper method to create the retrieve group request.
      *
      * @param groupName Group to be retrieved identified by their name.
-     * @return HttpResponseWrapper http response wrapper with the response.
-     * @throws CMCException CMC exception if errors.
+     * @return CMC request.
      */
-    public HttpResponseWrapper<GroupResponse> retrieveGroup(String groupName) throws CMCException {
+    private static CmcHttpRequest createRetrieveGroupRequest(String groupName) {
 
         // Append the matrix parameters
         StringBuilder sb = new StringBuilder();
         sb.append(GROUPS_URL).append("/").append(groupName);
 
         // Create the request with parameters.
-        CmcHttpRequest cmcRequest = new CmcHttpRequest(sb.toString());
-
-        // Send the request to CMC.
-        return httpClient.doGet(cmcRequest, GroupResponse.class);
+        return new CmcHttpRequest(sb.toString());
     }
 
     /**
-     * Method to add group members using CMC REST API.
+     * Helper method to create the add group members request.
      *
-     * @param groupName name of the group to which group members would be added.
      * @param groupMembers group members to be added to the group.
-     * @return HttpResponseWrapper http response wrapper with the response.
-     * @throws CMCException CMC exception if errors.
+     * @param groupName name of the group to which group members would be added.
+     * @return CMC request.
      */
-    public HttpResponseWrapper<RestResponse> addGroupMember(GroupMembers groupMembers, String groupName)
-            throws CMCException {
+    private static CmcHttpRequest createAddGroupMemberRequest(GroupMembers groupMembers, String groupName) {
 
         // Append the matrix parameters
         StringBuilder sb = new StringBuilder();
@@ -128,20 +275,17 @@ public class GroupApi extends CmcBaseApi {
         // Create the request with parameters.
         CmcHttpRequest cmcRequest = new CmcHttpRequest(sb.toString());
         cmcRequest.addBodyParameter("groupmembers", groupMembers);
-
-        // Send the request to CMC.
-        return httpClient.doPost(cmcRequest, RestResponse.class);
+        return cmcRequest;
     }
 
     /**
-     * Method to delete group members using CMC REST API.
+     * Helper method to create the delete group members request.
      *
-     * @param groupName name of the group to which group members would be added.
+     * @param groupName name of the group from which group members would be removed.
      * @param members list of members to be removed which are comma separated.
-     * @return HttpResponseWrapper http response wrapper with the response.
-     * @throws CMCException CMC exception if errors.
+     * @return CMC request.
      */
-    public HttpResponseWrapper<RestResponse> deleteGroupMember(String groupName, String members) throws CMCException {
+    private static CmcHttpRequest createDeleteGroupMemberRequest(String groupName, String members) {
 
         // Append the matrix parameters
         StringBuilder sb = new StringBuilder();
@@ -151,9 +295,8 @@ public class GroupApi extends CmcBaseApi {
 
         // Create the request with parameters.
         CmcHttpRequest cmcRequest = new CmcHttpRequest(sb.toString());
-
-        // Send the request to CMC.
-        return httpClient.doDelete(cmcRequest, RestResponse.class);
+        cmcRequest.setIdempotent(true);
+        return cmcRequest;
     }
 
 }
@@ -0,0 +1,643 @@
+package com.telecomsys.cmc.api;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.model.Message;
+
+/**
+ * Durable outbox of the messages sent through a {@link MessagingApi}. Each send is appended to the journal under an
+ * idempotency key before it is dispatched and marked complete when CMC answers, so that the sends a crash left
+ * without an answer can be replayed on the next start. The journal is a directory of fixed size segments written
+ * through memory mapping; the threads appending concurrently share a single flush to the disk (group commit), and a
+ * segment is deleted once all its sends are complete. When a new segment is started, the sends still pending in the
+ * oldest segments are copied to it, so that a send left pending does not keep the following segments on the disk.
+ * For example:
+ *
+ * <pre>
+ * MessageJournal journal = new MessageJournal(new File("/var/lib/app/cmc-journal"));
+ * journal.replay(cmcClient.getMessagingApi());
+ * cmcClient.getMessagingApi().setJournal(journal);
+ * </pre>
+ *
+ * CMC has no idempotency key of its own, so a send that reached CMC just before a crash is sent again by the replay:
+ * the journal guarantees that every send is made at least once.
+ */
+public class MessageJournal implements Closeable {
+
+    /**
+     * Default size of a segment in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageJournal.class);
+
+    /**
+     * Prefix of the segment file names.
+     */
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    /**
+     * Suffix of the segment file names.
+     */
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * Record type of a send.
+     */
+    private static final byte SEND = 1;
+
+    /**
+     * Record type of a completion.
+     */
+    private static final byte COMPLETE = 2;
+
+    /**
+     * Length of the record header: the length and the checksum of the payload.
+     */
+    private static final int HEADER_LENGTH = 8;
+
+    /**
+     * Encoding of the idempotency keys.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Directory of the segments.
+     */
+    private final File directory;
+
+    /**
+     * Size of a segment in bytes.
+     */
+    private final int segmentSize;
+
+    /**
+     * JSON mapper of the messages.
+     */
+    private final ObjectMapper jsonMapper;
+
+    /**
+     * Lock guarding the segments and the pending sends.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Lock held while flushing, so that the threads waiting for a flush share the next one.
+     */
+    private final Object flushLock = new Object();
+
+    /**
+     * Segments still holding pending sends, oldest first; the last one is the segment being written.
+     */
+    private final LinkedList<Segment> segments = new LinkedList<Segment>();
+
+    /**
+     * Pending sends by idempotency key, in append order.
+     */
+    private final Map<String, Entry> pending = new LinkedHashMap<String, Entry>();
+
+    /**
+     * Number of bytes appended since the journal was opened.
+     */
+    private long appendedBytes;
+
+    /**
+     * Number of appended bytes flushed to the disk.
+     */
+    private volatile long flushedBytes;
+
+    /**
+     * Whether the journal has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Constructor using the default segment size.
+     *
+     * @param directory directory of the segments, created if needed.
+     * @throws CMCException CMC exception if the journal cannot be opened.
+     */
+    public MessageJournal(File directory) throws CMCException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructor. The existing segments are read to recover the pending sends, and appends go to a new segment.
+     *
+     * @param directory directory of the segments, created if needed.
+     * @param segmentSize size of a segment in bytes, which bounds the size of a message.
+     * @throws CMCException CMC exception if the journal cannot be opened.
+     */
+    public MessageJournal(File directory, int segmentSize) throws CMCException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Journal directory must not be null");
+        }
+        if (segmentSize <= HEADER_LENGTH) {
+            throw new IllegalArgumentException("Segment size is too small");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new CMCException("Cannot create the journal directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.jsonMapper = new ObjectMapper();
+        this.jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        synchronized (lock) {
+            long lastIndex = recover();
+            segments.add(openSegment(lastIndex + 1));
+            deleteCompletedSegments();
+        }
+    }
+
+    /**
+     * Append a send to the journal. Returns once the send is on the disk.
+     *
+     * @param message the message about to be sent.
+     * @return the idempotency key of the send.
+     * @throws CMCException CMC exception if the send cannot be written.
+     */
+    public String append(Message message) throws CMCException {
+        String key = UUID.randomUUID().toString();
+        byte[] body = serialize(message);
+        long position;
+        synchronized (lock) {
+            position = write(SEND, key, body);
+            Segment segment = segments.getLast();
+            segment.pendingCount++;
+            pending.put(key, new Entry(segment, message));
+        }
+        try {
+            flush(position);
+        } catch (CMCException cmcex) {
+            complete(key);
+            throw cmcex;
+        }
+        return key;
+    }
+
+    /**
+     * Mark a send complete. The completion is written to the disk by the next flush, so a crash right after the call
+     * may replay the send.
+     *
+     * @param key the idempotency key returned by {@link #append(Message)}.
+     * @throws CMCException CMC exception if the completion cannot be written.
+     */
+    public void complete(String key) throws CMCException {
+        synchronized (lock) {
+            Entry entry = pending.remove(key);
+            if (entry == null || closed) {
+                return;
+            }
+            entry.segment.pendingCount--;
+            write(COMPLETE, key, new byte[0]);
+            deleteCompletedSegments();
+        }
+    }
+
+    /**
+     * @return the pending sends by idempotency key, in append order
+     */
+    public Map<String, Message> getPending() {
+        Map<String, Message> messages = new LinkedHashMap<String, Message>();
+        synchronized (lock) {
+            for (Map.Entry<String, Entry> entry : pending.entrySet()) {
+                messages.put(entry.getKey(), entry.getValue().message);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Send again the pending sends, in append order, and mark them complete. Call it on startup, before new sends are
+     * journaled.
+     *
+     * @param messagingApi messaging facade used to send the messages.
+     * @return the number of sends replayed.
+     * @throws CMCException CMC exception from the first send that failed; the following sends are not replayed.
+     */
+    public int replay(MessagingApi messagingApi) throws CMCException {
+        Map<String, Message> messages = getPending();
+        for (Map.Entry<String, Message> entry : messages.entrySet()) {
+            messagingApi.sendJournaled(this, entry.getKey(), entry.getValue());
+        }
+        return messages.size();
+    }
+
+    /**
+     * Flush the journal and release the segments. The pending sends stay in the journal.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        synchronized (flushLock) {
+            for (Segment segment : segments) {
+                if (segment.buffer != null) {
+                    segment.buffer.force();
+                    segment.buffer = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to append a record to the segment being written, rolling to a new segment if it is full. Must
+     * be called holding the lock.
+     *
+     * @param type the record type.
+     * @param key the idempotency key.
+     * @param body the serialized message, empty for a completion.
+     * @return the number of appended bytes once the record is written, the position to flush.
+     * @throws CMCException CMC exception if the record cannot be written.
+     */
+    private long write(byte type, String key, byte[] body) throws CMCException {
+        if (closed) {
+            throw new CMCException("Message journal closed");
+        }
+        byte[] payload = createPayload(type, key, body);
+        int recordLength = HEADER_LENGTH + payload.length;
+        if (recordLength > segmentSize) {
+            throw new CMCException("Message too large for the journal segment size");
+        }
+
+        Segment segment = segments.getLast();
+        if (segment.buffer.remaining() < recordLength) {
+            segment = openSegment(segment.index + 1);
+            segments.add(segment);
+            relocatePending(segment, segmentSize - recordLength);
+        }
+        put(segment, payload);
+        return appendedBytes;
+    }
+
+    /**
+     * Helper method to copy the sends still pending in the oldest segments to a new segment, so that the oldest
+     * segments can be deleted. The segments are relocated in order, as long as their pending sends fit in the space
+     * left; the copies are on the disk before the segments are deleted. On recovery, the last copy of a send wins.
+     * Must be called holding the lock.
+     *
+     * @param segment the new segment.
+     * @param space the space of the new segment that can be used, in bytes.
+     * @throws CMCException CMC exception if a send cannot be copied.
+     */
+    private void relocatePending(Segment segment, int space) throws CMCException {
+        int remaining = space;
+        boolean relocated = false;
+        for (Segment oldSegment : new ArrayList<Segment>(segments.subList(0, segments.size() - 1))) {
+            if (oldSegment.pendingCount == 0) {
+                continue;
+            }
+            List<Map.Entry<String, byte[]>> records = new ArrayList<Map.Entry<String, byte[]>>();
+            int length = 0;
+            for (Map.Entry<String, Entry> entry : pending.entrySet()) {
+                if (entry.getValue().segment == oldSegment) {
+                    byte[] payload = createPayload(SEND, entry.getKey(), serialize(entry.getValue().message));
+                    records.add(new AbstractMap.SimpleEntry<String, byte[]>(entry.getKey(), payload));
+                    length += HEADER_LENGTH + payload.length;
+                }
+            }
+            if (length > remaining) {
+                break;
+            }
+            remaining -= length;
+            for (Map.Entry<String, byte[]> record : records) {
+                put(segment, record.getValue());
+                Entry entry = pending.get(record.getKey());
+                entry.segment.pendingCount--;
+                segment.pendingCount++;
+                pending.put(record.getKey(), new Entry(segment, entry.message));
+            }
+            relocated = true;
+        }
+        if (relocated) {
+            segment.buffer.force();
+            deleteCompletedSegments();
+        }
+    }
+
+    /**
+     * Helper method to create the payload of a record: the record type, the length and the bytes of the idempotency
+     * key, and the body.
+     *
+     * @param type the record type.
+     * @param key the idempotency key.
+     * @param body the serialized message, empty for a completion.
+     * @return the payload.
+     */
+    private static byte[] createPayload(byte type, String key, byte[] body) {
+        byte[] keyBytes = key.getBytes(UTF8);
+        byte[] payload = new byte[3 + keyBytes.length + body.length];
+        payload[0] = type;
+        payload[1] = (byte) (keyBytes.length >>> 8);
+        payload[2] = (byte) keyBytes.length;
+        System.arraycopy(keyBytes, 0, payload, 3, keyBytes.length);
+        System.arraycopy(body, 0, payload, 3 + keyBytes.length, body.length);
+        return payload;
+    }
+
+    /**
+     * Helper method to write a record to a segment with room for it. Must be called holding the lock.
+     *
+     * @param segment the segment.
+     * @param payload the payload of the record.
+     */
+    private void put(Segment segment, byte[] payload) {
+        CRC32 checksum = new CRC32();
+        checksum.update(payload);
+        segment.buffer.putInt(payload.length);
+        segment.buffer.putInt((int) checksum.getValue());
+        segment.buffer.put(payload);
+        segment.dirty = true;
+        appendedBytes += HEADER_LENGTH + payload.length;
+    }
+
+    /**
+     * Helper method to serialize a message.
+     *
+     * @param message the message.
+     * @return the JSON of the message.
+     * @throws CMCException CMC exception if the message cannot be serialized.
+     */
+    private byte[] serialize(Message message) throws CMCException {
+        try {
+            return jsonMapper.writeValueAsBytes(message);
+        } catch (IOException ioex) {
+            throw new CMCException(ioex);
+        }
+    }
+
+    /**
+     * Helper method to wait until the journal is on the disk up to a position. The first waiting thread flushes all
+     * the records appended so far, including those of the threads queued behind it, which then return at once.
+     *
+     * @param position the number of appended bytes to flush.
+     * @throws CMCException CMC exception if the journal is closed.
+     */
+    private void flush(long position) throws CMCException {
+        if (flushedBytes >= position) {
+            return;
+        }
+        synchronized (flushLock) {
+            if (flushedBytes >= position) {
+                return;
+            }
+            long target;
+            List<MappedByteBuffer> buffers = new ArrayList<MappedByteBuffer>();
+            synchronized (lock) {
+                if (closed) {
+                    throw new CMCException("Message journal closed");
+                }
+                target = appendedBytes;
+                for (Segment segment : segments) {
+                    if (segment.dirty) {
+                        segment.dirty = false;
+                        buffers.add(segment.buffer);
+                    }
+                }
+            }
+            for (MappedByteBuffer buffer : buffers) {
+                buffer.force();
+            }
+            flushedBytes = target;
+        }
+    }
+
+    /**
+     * Helper method to read the existing segments and rebuild the pending sends. Must be called holding the lock.
+     *
+     * @return the index of the last segment, zero if none.
+     * @throws CMCException CMC exception if a segment cannot be read.
+     */
+    private long recover() throws CMCException {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && parseIndex(file) > 0;
+            }
+        });
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                long index1 = parseIndex(file1);
+                long index2 = parseIndex(file2);
+                return index1 < index2 ? -1 : (index1 == index2 ? 0 : 1);
+            }
+        });
+
+        long lastIndex = 0;
+        for (File file : files) {
+            Segment segment = new Segment(file, parseIndex(file));
+            segments.add(segment);
+            readSegment(segment);
+            lastIndex = segment.index;
+        }
+        if (!pending.isEmpty()) {
+            LOGGER.warn("Recovered {} incomplete sends from the message journal", pending.size());
+        }
+        return lastIndex;
+    }
+
+    /**
+     * Helper method to read the records of a segment, up to the end of the written records or the first torn one.
+     *
+     * @param segment the segment to read.
+     * @throws CMCException CMC exception if the segment cannot be read.
+     */
+    private void readSegment(Segment segment) throws CMCException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile file = new RandomAccessFile(segment.file, "r")) {
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        } catch (IOException ioex) {
+            throw new CMCException(ioex);
+        }
+        while (buffer.remaining() >= HEADER_LENGTH) {
+            int length = buffer.getInt();
+            if (length < 3 || length > buffer.remaining() - 4) {
+                break;
+            }
+            int expectedChecksum = buffer.getInt();
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            CRC32 checksum = new CRC32();
+            checksum.update(payload);
+            int keyLength = ((payload[1] & 0xff) << 8) | (payload[2] & 0xff);
+            if ((int) checksum.getValue() != expectedChecksum || 3 + keyLength > length) {
+                LOGGER.warn("Torn record in message journal segment {}", segment.file);
+                break;
+            }
+
+            String key = new String(payload, 3, keyLength, UTF8);
+            if (payload[0] == SEND) {
+                try {
+                    Message message = jsonMapper.readValue(payload, 3 + keyLength, length - 3 - keyLength,
+                            Message.class);
+
+                    // A send relocated from an older segment replaces its previous copy.
+                    Entry previous = pending.put(key, new Entry(segment, message));
+                    if (previous != null) {
+                        previous.segment.pendingCount--;
+                    }
+                    segment.pendingCount++;
+                } catch (IOException ioex) {
+                    throw new CMCException(ioex);
+                }
+            } else if (payload[0] == COMPLETE) {
+                Entry entry = pending.remove(key);
+                if (entry != null) {
+                    entry.segment.pendingCount--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to create and map a new segment. Must be called holding the lock.
+     *
+     * @param index the index of the segment.
+     * @return the segment.
+     * @throws CMCException CMC exception if the segment cannot be created.
+     */
+    private Segment openSegment(long index) throws CMCException {
+        Segment segment = new Segment(new File(directory, String.format("%s%016d%s", SEGMENT_PREFIX, index,
+                SEGMENT_SUFFIX)), index);
+        try (RandomAccessFile file = new RandomAccessFile(segment.file, "rw")) {
+            segment.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException ioex) {
+            throw new CMCException(ioex);
+        }
+        return segment;
+    }
+
+    /**
+     * Helper method to delete the oldest segments once all their sends are complete. Segments are deleted in order
+     * so that the completions of a deleted segment never refer to the sends of a remaining one. Must be called
+     * holding the lock.
+     */
+    private void deleteCompletedSegments() {
+        while (segments.size() > 1 && segments.getFirst().pendingCount == 0) {
+            Segment segment = segments.removeFirst();
+            segment.buffer = null;
+            if (!segment.file.delete()) {
+                LOGGER.warn("Cannot delete message journal segment {}", segment.file);
+            }
+        }
+    }
+
+    /**
+     * Helper method to parse the index of a segment from its file name.
+     *
+     * @param file the segment file.
+     * @return the index, zero if the file is not a segment.
+     */
+    private static long parseIndex(File file) {
+        String name = file.getName();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException nfex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Segment file of the journal.
+     */
+    private static final class Segment {
+
+        /**
+         * Segment file.
+         */
+        private final File file;
+
+        /**
+         * Index of the segment, increasing with each new segment.
+         */
+        private final long index;
+
+        /**
+         * Mapped buffer, null for the recovered segments that are only read.
+         */
+        private MappedByteBuffer buffer;
+
+        /**
+         * Number of pending sends appended to the segment.
+         */
+        private int pendingCount;
+
+        /**
+         * Whether records were written since the last flush.
+         */
+        private boolean dirty;
+
+        /**
+         * Constructor.
+         *
+         * @param file segment file.
+         * @param index index of the segment.
+         */
+        private Segment(File file, long index) {
+            this.file = file;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Pending send.
+     */
+    private static final class Entry {
+
+        /**
+         * Segment holding the send.
+         */
+        private final Segment segment;
+
+        /**
+         * Message of the send.
+         */
+        private final Message message;
+
+        /**
+         * Constructor.
+         *
+         * @param segment segment holding the send.
+         * @param message message of the send.
+         */
+        private Entry(Segment segment, Message message) {
+            this.segment = segment;
+            this.message = message;
+        }
+    }
+
+}
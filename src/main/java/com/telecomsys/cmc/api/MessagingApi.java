@@ -1,15 +1,36 @@
 package com.telecomsys.cmc.api;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Future;
 
+import org.apache.http.concurrent.BasicFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.telecomsys.cmc.exception.CMCAuthenticationException;
+import com.telecomsys.cmc.exception.CMCCircuitOpenException;
+import com.telecomsys.cmc.exception.CMCClientException;
+import com.telecomsys.cmc.exception.CMCDuplicateMessageException;
 import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.exception.CMCRateLimitException;
 import com.telecomsys.cmc.http.CmcHttpRequest;
+import com.telecomsys.cmc.http.ElementHandler;
+import com.telecomsys.cmc.http.HttpClientDelegate;
 import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
+import com.telecomsys.cmc.http.StreamingParsers;
 import com.telecomsys.cmc.model.Message;
 import com.telecomsys.cmc.model.ProgramReply;
+import com.telecomsys.cmc.response.DeliveryReceipt;
 import com.telecomsys.cmc.response.DeliveryReceiptResponse;
 import com.telecomsys.cmc.response.MessageRepliesResponse;
+import com.telecomsys.cmc.response.MessageReply;
+import com.telecomsys.cmc.response.MessageStatus;
 import com.telecomsys.cmc.response.NotificationsResponse;
+import com.telecomsys.cmc.response.TrackingInformation;
 import com.telecomsys.cmc.utils.StringUtils;
 
 /**
@@ -42,6 +63,26 @@ public class MessagingApi extends CmcBaseApi {
      */
     public static final String PROGRAM_REPLIES_URL = "/programreplies";
 
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessagingApi.class);
+
+    /**
+     * Status of a send CMC refused.
+     */
+    private static final String FAIL = "fail";
+
+    /**
+     * Journal of the sends, null if the sends are not journaled.
+     */
+    private volatile MessageJournal journal;
+
+    /**
+     * Filter of the duplicate sends, null if duplicates are not suppressed.
+     */
+    private volatile DuplicateFilter duplicateFilter;
+
     /**
      * Constructor.
      *
@@ -53,6 +94,15 @@ public class MessagingApi extends CmcBaseApi {
         super(baseUri, accountID, authenticationToken);
     }
 
+    /**
+     * Constructor using an existing HTTP client. Use {@link CmcClient} to share one client between facades.
+     *
+     * @param httpClient the HTTP client used to send the requests.
+     */
+    public MessagingApi(HttpClientDelegate httpClient) {
+        super(httpClient);
+    }
+
     /**
      * Method to send a message using CMC REST API.
      *
@@ -61,13 +111,96 @@ public class MessagingApi extends CmcBaseApi {
      * @throws CMCException CMC exception if errors.
      */
     public HttpResponseWrapper<NotificationsResponse> sendMessage(Message message) throws CMCException {
+        return send(createSendMessageRequest(message), message);
+    }
 
-        // Create the request with parameters.
-        CmcHttpRequest cmcRequest = new CmcHttpRequest(MESSAGING_URL);
-        cmcRequest.addBodyParameter("sendmessage", message);
+    /**
+     * Method to send a message using CMC REST API, handing each tracking information to a handler as it is parsed
+     * instead of collecting them in the response. Use it for sends to a large number of destinations.
+     *
+     * @param message the Message model that has all message details.
+     * @param handler handler of the tracking information of each destination.
+     * @return HttpResponseWrapper http response wrapper with the response, without the tracking information.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<NotificationsResponse> sendMessage(Message message,
+            ElementHandler<TrackingInformation> handler) throws CMCException {
+        CmcHttpRequest cmcRequest = createSendMessageRequest(message);
+        cmcRequest.setResponseParser(StreamingParsers.notifications(handler));
+        return send(cmcRequest, message);
+    }
+
+    /**
+     * Method to send a message asynchronously using CMC REST API.
+     *
+     * @param message the Message model that has all message details.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<NotificationsResponse>> sendMessageAsync(Message message,
+            ResponseCallback<NotificationsResponse> callback) {
+        DuplicateFilter currentFilter = duplicateFilter;
+        MessageJournal currentJournal = journal;
+        if (currentFilter == null && currentJournal == null) {
+            return getAsyncHttpClient().doPostAsync(createSendMessageRequest(message), NotificationsResponse.class,
+                    callback);
+        }
+        String key = null;
+        try {
+            checkDuplicate(currentFilter, message);
+            if (currentJournal != null) {
+                key = currentJournal.append(message);
+            }
+        } catch (CMCException cmcex) {
+            if (currentFilter != null && !(cmcex instanceof CMCDuplicateMessageException)) {
+                currentFilter.forget(message);
+            }
+            BasicFuture<HttpResponseWrapper<NotificationsResponse>> future =
+                    new BasicFuture<HttpResponseWrapper<NotificationsResponse>>(null);
+            future.failed(cmcex);
+            if (callback != null) {
+                callback.failed(cmcex);
+            }
+            return future;
+        }
+        return getAsyncHttpClient().doPostAsync(createSendMessageRequest(message), NotificationsResponse.class,
+                new SendCallback(message, currentFilter, currentJournal, key, callback));
+    }
 
-        // Send the message to CMC.
-        return httpClient.doPost(cmcRequest, NotificationsResponse.class);
+    /**
+     * Journal the sends in a durable outbox: each send is appended to the journal before it is dispatched and marked
+     * complete when CMC answers or rejects it. Replay the journal with {@link MessageJournal#replay(MessagingApi)}
+     * before setting it.
+     *
+     * @param journal the journal, null to stop journaling the sends.
+     */
+    public void setJournal(MessageJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return the journal of the sends, null if the sends are not journaled
+     */
+    public MessageJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Suppress the sends of a message identical to one sent recently: they fail with a
+     * {@link CMCDuplicateMessageException} without reaching CMC. A message whose send fails is forgotten so that it
+     * can be retried.
+     *
+     * @param duplicateFilter the filter, null to stop suppressing the duplicates.
+     */
+    public void setDuplicateFilter(DuplicateFilter duplicateFilter) {
+        this.duplicateFilter = duplicateFilter;
+    }
+
+    /**
+     * @return the filter of the duplicate sends, null if duplicates are not suppressed
+     */
+    public DuplicateFilter getDuplicateFilter() {
+        return duplicateFilter;
     }
 
     /**
@@ -78,20 +211,41 @@ public class MessagingApi extends CmcBaseApi {
      * @throws CMCException CMC exception if errors.
      */
     public HttpResponseWrapper<NotificationsResponse> getDeliveryNotifications(String trackingID) throws CMCException {
+        return httpClient.doGet(createDeliveryNotificationsRequest(trackingID), NotificationsResponse.class);
+    }
 
-        // Append the matrix parameters
-        StringBuilder sb = new StringBuilder();
-        sb.append(NOTIFICATIONS_URL).append("/").append(trackingID);
-
-        // Create the request with parameters.
-        CmcHttpRequest cmcRequest = new CmcHttpRequest(sb.toString());
-
-        // Send the message to CMC.
+    /**
+     * Method to retrieve delivery notifications using CMC REST API, handing each tracking information to a handler as
+     * it is parsed instead of collecting them in the response.
+     *
+     * @param trackingID the unique job tracking ID returned during a send or schedule message.
+     * @param handler handler of the tracking information of each destination.
+     * @return HttpResponseWrapper http response wrapper with the response, without the tracking information.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<NotificationsResponse> getDeliveryNotifications(String trackingID,
+            ElementHandler<TrackingInformation> handler) throws CMCException {
+        CmcHttpRequest cmcRequest = createDeliveryNotificationsRequest(trackingID);
+        cmcRequest.setResponseParser(StreamingParsers.notifications(handler));
         return httpClient.doGet(cmcRequest, NotificationsResponse.class);
     }
 
     /**
-     * Method to retrieve delivery receipts using CMC REST API.
+     * Method to retrieve delivery notifications asynchronously using CMC REST API.
+     *
+     * @param trackingID the unique job tracking ID returned during a send or schedule message.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<NotificationsResponse>> getDeliveryNotificationsAsync(String trackingID,
+            ResponseCallback<NotificationsResponse> callback) {
+        return getAsyncHttpClient().doGetAsync(createDeliveryNotificationsRequest(trackingID),
+                NotificationsResponse.class, callback);
+    }
+
+    /**
+     * Method to retrieve delivery receipts using CMC REST API. Message IDs that do not fit in one request URL are
+     * retrieved in batches sent concurrently, and the message statuses merged in the order of the batches.
      *
      * @param messageIDs the message IDs for which a delivery receipt is requested.
      * @return HttpResponseWrapper http response wrapper with the response.
@@ -99,6 +253,292 @@ public class MessagingApi extends CmcBaseApi {
      */
     public HttpResponseWrapper<DeliveryReceiptResponse> getDeliveryReceipts(List<String> messageIDs)
             throws CMCException {
+        return doBatched(messageIDs, new PathRequest<DeliveryReceiptResponse>(DeliveryReceiptResponse.class, false) {
+            @Override
+            protected CmcHttpRequest createRequest(List<String> batch) {
+                return createDeliveryReceiptsRequest(batch);
+            }
+
+            @Override
+            protected void merge(DeliveryReceiptResponse merged, DeliveryReceiptResponse response) {
+                List<MessageStatus> statuses = new ArrayList<MessageStatus>();
+                for (DeliveryReceiptResponse receipts : Arrays.asList(merged, response)) {
+                    if (receipts.getDeliveryReceipt() != null
+                            && receipts.getDeliveryReceipt().getDeliverystatuslist() != null) {
+                        statuses.addAll(receipts.getDeliveryReceipt().getDeliverystatuslist());
+                    }
+                }
+                merged.setDeliveryReceipt(new DeliveryReceipt(statuses));
+            }
+        });
+    }
+
+    /**
+     * Method to retrieve delivery receipts using CMC REST API, handing each message status to a handler as it is
+     * parsed instead of collecting them in the response. Message IDs that do not fit in one request URL are retrieved
+     * in batches sent one at a time, so that the handler is not called concurrently.
+     *
+     * @param messageIDs the message IDs for which a delivery receipt is requested.
+     * @param handler handler of the status of each message.
+     * @return HttpResponseWrapper http response wrapper with the response, without the message statuses.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<DeliveryReceiptResponse> getDeliveryReceipts(List<String> messageIDs,
+            ElementHandler<MessageStatus> handler) throws CMCException {
+        List<List<String>> batches = messageIDs != null ? getPathBatcher().split(messageIDs) : null;
+        if (batches == null || batches.size() <= 1) {
+            batches = Collections.singletonList(messageIDs);
+        }
+        HttpResponseWrapper<DeliveryReceiptResponse> response = null;
+        for (List<String> batch : batches) {
+            CmcHttpRequest cmcRequest = createDeliveryReceiptsRequest(batch);
+            cmcRequest.setResponseParser(StreamingParsers.deliveryReceipts(handler));
+            response = httpClient.doGet(cmcRequest, DeliveryReceiptResponse.class);
+            if (response.getHttpStatusCode() < 200 || response.getHttpStatusCode() >= 300) {
+                return response;
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Method to retrieve delivery receipts asynchronously using CMC REST API. The message IDs are sent in one request
+     * whatever their length, since this method is what a {@link PathBatcher} sends for each batch; use
+     * {@link PathBatcher#execute(List, PathBatcher.Request)} to retrieve a long list of IDs in batches.
+     *
+     * @param messageIDs the message IDs for which a delivery receipt is requested.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<DeliveryReceiptResponse>> getDeliveryReceiptsAsync(List<String> messageIDs,
+            ResponseCallback<DeliveryReceiptResponse> callback) {
+        return getAsyncHttpClient().doGetAsync(createDeliveryReceiptsRequest(messageIDs),
+                DeliveryReceiptResponse.class, callback);
+    }
+
+    /**
+     * Method to retrieve replies using CMC REST API.
+     *
+     * @param messageID the message ID for which the replies is requested.
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<MessageRepliesResponse> getReplies(String messageID)
+            throws CMCException {
+        return httpClient.doGet(createRepliesRequest(messageID), MessageRepliesResponse.class);
+    }
+
+    /**
+     * Method to retrieve replies asynchronously using CMC REST API.
+     *
+     * @param messageID the message ID for which the replies is requested.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<MessageRepliesResponse>> getRepliesAsync(String messageID,
+            ResponseCallback<MessageRepliesResponse> callback) {
+        return getAsyncHttpClient().doGetAsync(createRepliesRequest(messageID), MessageRepliesResponse.class,
+                callback);
+    }
+
+    /**
+     * Method to retrieve program replies using CMC REST API.
+     *
+     * @param programReply the program reply model which includes options for program reply.
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<MessageRepliesResponse> getProgramReplies(ProgramReply programReply)
+            throws CMCException {
+        return httpClient.doGet(createProgramRepliesRequest(programReply), MessageRepliesResponse.class);
+    }
+
+    /**
+     * Method to retrieve program replies using CMC REST API, handing each reply to a handler as it is parsed instead
+     * of collecting them in the response.
+     *
+     * @param programReply the program reply model which includes options for program reply.
+     * @param handler handler of each reply.
+     * @return HttpResponseWrapper http response wrapper with the response, without the replies.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<MessageRepliesResponse> getProgramReplies(ProgramReply programReply,
+            ElementHandler<MessageReply> handler) throws CMCException {
+        CmcHttpRequest cmcRequest = createProgramRepliesRequest(programReply);
+        cmcRequest.setResponseParser(StreamingParsers.messageReplies(handler));
+        return httpClient.doGet(cmcRequest, MessageRepliesResponse.class);
+    }
+
+    /**
+     * Method to retrieve program replies asynchronously using CMC REST API.
+     *
+     * @param programReply the program reply model which includes options for program reply.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<MessageRepliesResponse>> getProgramRepliesAsync(ProgramReply programReply,
+            ResponseCallback<MessageRepliesResponse> callback) {
+        return getAsyncHttpClient().doGetAsync(createProgramRepliesRequest(programReply),
+                MessageRepliesResponse.class, callback);
+    }
+
+    /**
+     * Send a message recovered from a journal and mark it complete when CMC answers or rejects it.
+     *
+     * @param messageJournal the journal holding the send.
+     * @param key the idempotency key of the send.
+     * @param message the message to send.
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    HttpResponseWrapper<NotificationsResponse> sendJournaled(MessageJournal messageJournal, String key,
+            Message message) throws CMCException {
+        return send(createSendMessageRequest(message), messageJournal, key);
+    }
+
+    /**
+     * Helper method to send a message, suppressing it if it is a duplicate and journaling the send if a journal is
+     * set.
+     *
+     * @param cmcRequest the send message request.
+     * @param message the Message model that has all message details.
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    private HttpResponseWrapper<NotificationsResponse> send(CmcHttpRequest cmcRequest, Message message)
+            throws CMCException {
+        DuplicateFilter currentFilter = duplicateFilter;
+        checkDuplicate(currentFilter, message);
+        boolean sent = false;
+        try {
+            MessageJournal currentJournal = journal;
+            HttpResponseWrapper<NotificationsResponse> response;
+            if (currentJournal == null) {
+                response = httpClient.doPost(cmcRequest, NotificationsResponse.class);
+            } else {
+                response = send(cmcRequest, currentJournal, currentJournal.append(message));
+            }
+            sent = isAccepted(response);
+            return response;
+        } finally {
+            if (!sent && currentFilter != null) {
+                currentFilter.forget(message);
+            }
+        }
+    }
+
+    /**
+     * Helper method to reject a message accepted by the duplicate filter within its window.
+     *
+     * @param filter the duplicate filter, may be null.
+     * @param message the Message model that has all message details.
+     * @throws CMCDuplicateMessageException if the message is a duplicate.
+     */
+    private static void checkDuplicate(DuplicateFilter filter, Message message) throws CMCDuplicateMessageException {
+        if (filter != null && !filter.accept(message)) {
+            throw new CMCDuplicateMessageException("Duplicate message suppressed for keyword " + message.getKeyword());
+        }
+    }
+
+    /**
+     * Helper method to send a message appended to a journal and mark it complete when CMC accepts or rejects it.
+     *
+     * @param cmcRequest the send message request.
+     * @param messageJournal the journal holding the send.
+     * @param key the idempotency key of the send.
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    private HttpResponseWrapper<NotificationsResponse> send(CmcHttpRequest cmcRequest, MessageJournal messageJournal,
+            String key) throws CMCException {
+        HttpResponseWrapper<NotificationsResponse> response;
+        try {
+            response = httpClient.doPost(cmcRequest, NotificationsResponse.class);
+        } catch (CMCException cmcex) {
+            if (isRejected(cmcex)) {
+                messageJournal.complete(key);
+            }
+            throw cmcex;
+        }
+        if (isAccepted(response) || isRefused(response)) {
+            messageJournal.complete(key);
+        }
+        return response;
+    }
+
+    /**
+     * Helper method to tell whether CMC accepted a send. A server error is returned as a response, but the outcome of
+     * the send is unknown: it stays in the journal and may be sent again.
+     *
+     * @param response the response of the send.
+     * @return whether the response is successful.
+     */
+    private static boolean isAccepted(HttpResponseWrapper<NotificationsResponse> response) {
+        return response.getHttpStatusCode() >= 200 && response.getHttpStatusCode() < 300;
+    }
+
+    /**
+     * Helper method to tell whether CMC refused a send with an error response, for example a 404 for an invalid from
+     * address, in which case it must not be replayed.
+     *
+     * @param response the response of the send.
+     * @return whether the response is a client error with a fail status.
+     */
+    private static boolean isRefused(HttpResponseWrapper<NotificationsResponse> response) {
+        return response.getHttpStatusCode() >= 400 && response.getHttpStatusCode() < 500
+                && response.getResponseBody() != null && FAIL.equalsIgnoreCase(response.getResponseBody().getStatus());
+    }
+
+    /**
+     * Helper method to tell whether a failed send certainly did not reach CMC or was refused, in which case it must
+     * not be replayed. After an I/O error or a server error the outcome is unknown and the send stays in the journal.
+     *
+     * @param exception the exception of the send.
+     * @return whether the send was rejected.
+     */
+    private static boolean isRejected(CMCException exception) {
+        return exception instanceof CMCClientException || exception instanceof CMCAuthenticationException
+                || exception instanceof CMCCircuitOpenException || exception instanceof CMCRateLimitException;
+    }
+
+    /**
+     * Helper method to create the send message request.
+     *
+     * @param message the Message model that has all message details.
+     * @return CMC request.
+     */
+    private static CmcHttpRequest createSendMessageRequest(Message message) {
+
+        // Create the request with parameters.
+        CmcHttpRequest cmcRequest = new CmcHttpRequest(MESSAGING_URL);
+        cmcRequest.addBodyParameter("sendmessage", message);
+        cmcRequest.setKeyword(message.getKeyword());
+        return cmcRequest;
+    }
+
+    /**
+     * Helper method to create the delivery notifications request.
+     *
+     * @param trackingID the unique job tracking ID returned during a send or schedule message.
+     * @return CMC request.
+     */
+    private static CmcHttpRequest createDeliveryNotificationsRequest(String trackingID) {
+
+        // Append the matrix parameters
+        StringBuilder sb = new StringBuilder();
+        sb.append(NOTIFICATIONS_URL).append("/").append(trackingID);
+
+        // Create the request with parameters.
+        return new CmcHttpRequest(sb.toString());
+    }
+
+    /**
+     * Helper method to create the delivery receipts request.
+     *
+     * @param messageIDs the message IDs for which a delivery receipt is requested.
+     * @return CMC request.
+     */
+    private static CmcHttpRequest createDeliveryReceiptsRequest(List<String> messageIDs) {
 
         // Append the matrix parameters
         StringBuilder sb = new StringBuilder();
@@ -110,42 +550,32 @@ public class MessagingApi extends CmcBaseApi {
         }
 
         // Create the request with parameters.
-        CmcHttpRequest cmcRequest = new CmcHttpRequest(sb.toString());
-
-        // Send the message to CMC.
-        return httpClient.doGet(cmcRequest, DeliveryReceiptResponse.class);
+        return new CmcHttpRequest(sb.toString());
     }
 
     /**
-     * Method to retrieve replies using CMC REST API.
+     * Helper method to create the replies request.
      *
      * @param messageID the message ID for which the replies is requested.
-     * @return HttpResponseWrapper http response wrapper with the response.
-     * @throws CMCException CMC exception if errors.
+     * @return CMC request.
      */
-    public HttpResponseWrapper<MessageRepliesResponse> getReplies(String messageID)
-            throws CMCException {
+    private static CmcHttpRequest createRepliesRequest(String messageID) {
 
         // Append the matrix parameters
         StringBuilder sb = new StringBuilder();
         sb.append(REPLIES_URL).append("/").append(messageID);
 
         // Create the request with parameters.
-        CmcHttpRequest cmcRequest = new CmcHttpRequest(sb.toString());
-
-        // Send the message to CMC.
-        return httpClient.doGet(cmcRequest, MessageRepliesResponse.class);
+        return new CmcHttpRequest(sb.toString());
     }
 
     /**
-     * Method to retrieve program replies using CMC REST API.
+     * Helper method to create the program replies request.
      *
      * @param programReply the program reply model which includes options for program reply.
-     * @return HttpResponseWrapper http response wrapper with the response.
-     * @throws CMCException CMC exception if errors.
+     * @return CMC request.
      */
-    public HttpResponseWrapper<MessageRepliesResponse> getProgramReplies(ProgramReply programReply)
-            throws CMCException {
+    private static CmcHttpRequest createProgramRepliesRequest(ProgramReply programReply) {
 
         // Append the matrix parameters
         StringBuilder sb = new StringBuilder();
@@ -167,9 +597,98 @@ public class MessagingApi extends CmcBaseApi {
         if (minutes != null) {
             cmcRequest.addUrlParameter("minutes", minutes);
         }
+        return cmcRequest;
+    }
 
-        // Send the message to CMC.
-        return httpClient.doGet(cmcRequest, MessageRepliesResponse.class);
+
+    /**
+     * Callback of an asynchronous send marking it complete in the journal if accepted or refused, and forgetting it in
+     * the duplicate filter if not accepted, before notifying the caller.
+     */
+    private static final class SendCallback implements ResponseCallback<NotificationsResponse> {
+
+        /**
+         * Message of the send.
+         */
+        private final Message message;
+
+        /**
+         * Duplicate filter, may be null.
+         */
+        private final DuplicateFilter filter;
+
+        /**
+         * Journal holding the send, may be null.
+         */
+        private final MessageJournal journal;
+
+        /**
+         * Idempotency key of the send, null if not journaled.
+         */
+        private final String key;
+
+        /**
+         * Callback of the caller, may be null.
+         */
+        private final ResponseCallback<NotificationsResponse> callback;
+
+        /**
+         * Constructor.
+         *
+         * @param message message of the send.
+         * @param filter duplicate filter, may be null.
+         * @param journal journal holding the send, may be null.
+         * @param key idempotency key of the send, null if not journaled.
+         * @param callback callback of the caller, may be null.
+         */
+        private SendCallback(Message message, DuplicateFilter filter, MessageJournal journal, String key,
+                ResponseCallback<NotificationsResponse> callback) {
+            this.message = message;
+            this.filter = filter;
+            this.journal = journal;
+            this.key = key;
+            this.callback = callback;
+        }
+
+        @Override
+        public void completed(HttpResponseWrapper<NotificationsResponse> response) {
+            if (!isAccepted(response) && filter != null) {
+                filter.forget(message);
+            }
+            if (isAccepted(response) || isRefused(response)) {
+                complete();
+            }
+            if (callback != null) {
+                callback.completed(response);
+            }
+        }
+
+        @Override
+        public void failed(CMCException exception) {
+            if (filter != null) {
+                filter.forget(message);
+            }
+            if (isRejected(exception)) {
+                complete();
+            }
+            if (callback != null) {
+                callback.failed(exception);
+            }
+        }
+
+        /**
+         * Helper method to mark the send complete in the journal, logging the failures.
+         */
+        private void complete() {
+            if (journal == null) {
+                return;
+            }
+            try {
+                journal.complete(key);
+            } catch (CMCException cmcex) {
+                LOGGER.error("Cannot mark the send {} complete in the journal", key, cmcex);
+            }
+        }
     }
 
 }
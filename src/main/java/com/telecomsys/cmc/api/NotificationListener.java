@@ -0,0 +1,27 @@
+package com.telecomsys.cmc.api;
+
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.response.Notifications;
+
+/**
+ * Listener notified by the {@link NotificationTracker} when all the messages of a tracking ID reach a final state.
+ */
+public interface NotificationListener {
+
+    /**
+     * Called when the message status of every destination is final.
+     *
+     * @param trackingID the tracked tracking ID.
+     * @param notifications the delivery notifications with the final statuses.
+     */
+    void completed(String trackingID, Notifications notifications);
+
+    /**
+     * Called when the statuses did not become final before the timeout, or the tracker was closed.
+     *
+     * @param trackingID the tracked tracking ID.
+     * @param exception CMC exception describing the failure.
+     */
+    void failed(String trackingID, CMCException exception);
+
+}
@@ -0,0 +1,454 @@
+package com.telecomsys.cmc.api;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
+import com.telecomsys.cmc.response.DeliveryState;
+import com.telecomsys.cmc.response.Notifications;
+import com.telecomsys.cmc.response.NotificationsResponse;
+import com.telecomsys.cmc.response.TrackingInformation;
+import com.telecomsys.cmc.utils.HashedWheelTimer;
+
+/**
+ * Tracks the delivery notifications of sent messages until the status of every destination is final. Each tracking
+ * ID is polled on a backoff curve: shortly after the send, when the statuses change quickly, then exponentially less
+ * often up to a maximum delay. All the polls are scheduled on a single hashed wheel timer and sent with the
+ * asynchronous client, so millions of outstanding tracking IDs cost one timer entry each and no thread. For example:
+ *
+ * <pre>
+ * NotificationTracker tracker = new NotificationTracker(cmcClient.getMessagingApi());
+ * Future&lt;Notifications&gt; notifications = tracker.track(trackingID, null);
+ * </pre>
+ */
+public class NotificationTracker implements Closeable {
+
+    /**
+     * Default delay in milliseconds of the first poll.
+     */
+    public static final long DEFAULT_INITIAL_DELAY = 2000;
+
+    /**
+     * Default maximum delay in milliseconds between two polls.
+     */
+    public static final long DEFAULT_MAX_DELAY = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * Default time in milliseconds a tracking ID is tracked before giving up.
+     */
+    public static final long DEFAULT_TIMEOUT = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationTracker.class);
+
+    /**
+     * Duration in milliseconds of a tick of the timer.
+     */
+    private static final long TICK_DURATION = 100;
+
+    /**
+     * Number of buckets of the timer wheel.
+     */
+    private static final int TICKS_PER_WHEEL = 1024;
+
+    /**
+     * Messaging facade used to poll the notifications.
+     */
+    private final MessagingApi messagingApi;
+
+    /**
+     * Delay in milliseconds of the first poll.
+     */
+    private final long initialDelay;
+
+    /**
+     * Maximum delay in milliseconds between two polls.
+     */
+    private final long maxDelay;
+
+    /**
+     * Time in milliseconds a tracking ID is tracked before giving up.
+     */
+    private final long timeout;
+
+    /**
+     * Timer scheduling the polls.
+     */
+    private final HashedWheelTimer timer;
+
+    /**
+     * Tracked notifications keyed by tracking ID.
+     */
+    private final ConcurrentMap<String, TrackedNotification> pending =
+            new ConcurrentHashMap<String, TrackedNotification>();
+
+    /**
+     * Whether the tracker has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructor using the default backoff curve and timeout.
+     *
+     * @param messagingApi messaging facade used to poll the notifications.
+     */
+    public NotificationTracker(MessagingApi messagingApi) {
+        this(messagingApi, DEFAULT_INITIAL_DELAY, DEFAULT_MAX_DELAY, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Constructor. The delay between two polls of a tracking ID starts at the initial delay and doubles after every
+     * poll that does not find all the statuses final, up to the maximum delay.
+     *
+     * @param messagingApi messaging facade used to poll the notifications.
+     * @param initialDelay delay in milliseconds of the first poll.
+     * @param maxDelay maximum delay in milliseconds between two polls.
+     * @param timeout time in milliseconds a tracking ID is tracked before giving up.
+     * @throws IllegalArgumentException if the HTTP client of the messaging facade does not support asynchronous
+     *         requests.
+     */
+    public NotificationTracker(MessagingApi messagingApi, long initialDelay, long maxDelay, long timeout) {
+        if (messagingApi == null) {
+            throw new IllegalArgumentException("Messaging API must not be null");
+        }
+        if (messagingApi.asyncHttpClient == null) {
+            throw new IllegalArgumentException("HTTP client of the messaging API must support asynchronous requests");
+        }
+        if (initialDelay <= 0 || maxDelay < initialDelay || timeout <= 0) {
+            throw new IllegalArgumentException("Delays and timeout must be positive, the initial delay at most the "
+                    + "maximum delay");
+        }
+        this.messagingApi = messagingApi;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.timeout = timeout;
+        this.timer = new HashedWheelTimer("cmc-notification-tracker", Math.min(TICK_DURATION, initialDelay),
+                TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Track the delivery notifications of a send. Tracking the same tracking ID again polls it once: the future of
+     * the existing tracking is returned and both listeners are notified.
+     *
+     * @param trackingID the tracking ID returned by the send.
+     * @param listener listener notified when the statuses are final, may be null.
+     * @return future completed with the notifications once the status of every destination is final.
+     */
+    public Future<Notifications> track(String trackingID, NotificationListener listener) {
+        if (trackingID == null || trackingID.isEmpty()) {
+            throw new IllegalArgumentException("Tracking ID must not be empty");
+        }
+        if (closed) {
+            throw new IllegalStateException("Notification tracker is closed");
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        for (;;) {
+            TrackedNotification tracked = pending.get(trackingID);
+            if (tracked == null) {
+                TrackedNotification created = new TrackedNotification(trackingID, listener, deadline);
+                tracked = pending.putIfAbsent(trackingID, created);
+                if (tracked == null) {
+                    schedule(created, initialDelay);
+                    return created.future;
+                }
+            }
+            if (tracked.add(listener)) {
+                return tracked.future;
+            }
+
+            // The tracking ID was completed concurrently, track it again.
+            pending.remove(trackingID, tracked);
+        }
+    }
+
+    /**
+     * @return the number of tracking IDs being tracked
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stop polling and fail the futures of the pending tracking IDs.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        timer.close();
+        for (String trackingID : new ArrayList<String>(pending.keySet())) {
+            TrackedNotification tracked = pending.remove(trackingID);
+            if (tracked != null) {
+                try {
+                    tracked.future.failed(new CMCException("Notification tracker closed"));
+                } catch (RuntimeException rex) {
+                    LOGGER.error("Notification listener failed", rex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the status of every destination of a send is final, in which case the tracking ID is no longer polled.
+     *
+     * @param notifications the delivery notifications of a send.
+     * @return whether all the statuses are final.
+     */
+    protected boolean isFinal(Notifications notifications) {
+        List<TrackingInformation> trackingInformation = notifications.getTrackingInformation();
+        if (trackingInformation == null || trackingInformation.isEmpty()) {
+            return false;
+        }
+        for (TrackingInformation information : trackingInformation) {
+            if (!DeliveryState.isFinalText(information.getMessageStatus())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Helper method to schedule the next poll of a tracking ID.
+     *
+     * @param tracked the tracked notification.
+     * @param delay delay in milliseconds.
+     */
+    private void schedule(final TrackedNotification tracked, long delay) {
+        tracked.delay = delay;
+        try {
+            timer.newTimeout(new Runnable() {
+                @Override
+                public void run() {
+                    poll(tracked);
+                }
+            }, delay);
+        } catch (IllegalStateException isex) {
+            // Closed concurrently.
+            finish(tracked, null, new CMCException("Notification tracker closed"));
+        }
+    }
+
+    /**
+     * Helper method to poll the notifications of a tracking ID, on the timer thread.
+     *
+     * @param tracked the tracked notification.
+     */
+    private void poll(final TrackedNotification tracked) {
+        if (closed || pending.get(tracked.trackingID) != tracked) {
+            return;
+        }
+        if (tracked.future.isCancelled()) {
+            pending.remove(tracked.trackingID, tracked);
+            return;
+        }
+        try {
+            sendPoll(tracked);
+        } catch (RuntimeException rex) {
+            // For example the HTTP client was closed: the request will not complete, so neither would the tracking.
+            finish(tracked, null, new CMCException(rex));
+        }
+    }
+
+    /**
+     * Helper method to send the delivery notifications request of a tracking ID.
+     *
+     * @param tracked the tracked notification.
+     */
+    private void sendPoll(final TrackedNotification tracked) {
+        messagingApi.getDeliveryNotificationsAsync(tracked.trackingID, new ResponseCallback<NotificationsResponse>() {
+            @Override
+            public void completed(HttpResponseWrapper<NotificationsResponse> response) {
+                NotificationsResponse body = response.getResponseBody();
+                Notifications notifications = body == null ? null : body.getNotifications();
+                if (response.getHttpStatusCode() == HttpStatus.SC_OK && notifications != null
+                        && isFinal(notifications)) {
+                    finish(tracked, notifications, null);
+                } else {
+                    reschedule(tracked);
+                }
+            }
+
+            @Override
+            public void failed(CMCException exception) {
+                if (closed) {
+                    // The tracking was failed by close().
+                    return;
+                }
+                if (messagingApi.isHttpClientClosed()) {
+                    // Later polls would fail the same way.
+                    finish(tracked, null, exception);
+                    return;
+                }
+                LOGGER.warn("Delivery notification request of {} failed: {}", tracked.trackingID,
+                        exception.toString());
+                reschedule(tracked);
+            }
+        });
+    }
+
+    /**
+     * Helper method to schedule the next poll on the backoff curve, or fail the tracking past its timeout.
+     *
+     * @param tracked the tracked notification.
+     */
+    private void reschedule(TrackedNotification tracked) {
+        long remaining = tracked.deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            finish(tracked, null, new CMCException("Delivery notifications of " + tracked.trackingID
+                    + " not final after " + timeout + " ms"));
+        } else if (!closed) {
+            schedule(tracked, Math.min(Math.min(tracked.delay * 2, maxDelay), remaining));
+        }
+    }
+
+    /**
+     * Helper method to stop tracking a tracking ID and complete its future.
+     *
+     * @param tracked the tracked notification.
+     * @param notifications the final notifications, null on failure.
+     * @param exception the failure, null on success.
+     */
+    private void finish(TrackedNotification tracked, Notifications notifications, CMCException exception) {
+        if (!pending.remove(tracked.trackingID, tracked)) {
+            return;
+        }
+        try {
+            if (exception == null) {
+                tracked.future.completed(notifications);
+            } else {
+                tracked.future.failed(exception);
+            }
+        } catch (RuntimeException rex) {
+            LOGGER.error("Notification listener failed", rex);
+        }
+    }
+
+    /**
+     * State of a tracked tracking ID.
+     */
+    private static final class TrackedNotification {
+
+        /**
+         * Tracking ID.
+         */
+        private final String trackingID;
+
+        /**
+         * Future completed with the final notifications.
+         */
+        private final BasicFuture<Notifications> future;
+
+        /**
+         * Time in milliseconds after which the tracking fails.
+         */
+        private final long deadline;
+
+        /**
+         * Current delay in milliseconds between two polls. Only one poll is in flight at a time.
+         */
+        private volatile long delay;
+
+        /**
+         * Listeners of the callers tracking the tracking ID.
+         */
+        private final List<NotificationListener> listeners = new ArrayList<NotificationListener>(1);
+
+        /**
+         * Whether the listeners have been notified, after which no listener can be added.
+         */
+        private boolean done;
+
+        /**
+         * Constructor.
+         *
+         * @param trackingID tracking ID.
+         * @param listener listener notified when the statuses are final, may be null.
+         * @param deadline time in milliseconds after which the tracking fails.
+         */
+        TrackedNotification(final String trackingID, NotificationListener listener, long deadline) {
+            this.trackingID = trackingID;
+            this.deadline = deadline;
+            add(listener);
+            this.future = new BasicFuture<Notifications>(new FutureCallback<Notifications>() {
+                @Override
+                public void completed(Notifications notifications) {
+                    for (NotificationListener each : drain()) {
+                        try {
+                            each.completed(trackingID, notifications);
+                        } catch (RuntimeException rex) {
+                            LOGGER.error("Notification listener failed", rex);
+                        }
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    notifyFailed((CMCException) ex);
+                }
+
+                @Override
+                public void cancelled() {
+                    notifyFailed(new CMCException("Delivery notification tracking of " + trackingID + " cancelled"));
+                }
+            });
+        }
+
+        /**
+         * Add the listener of a caller.
+         *
+         * @param listener the listener, may be null.
+         * @return false if the listeners were already notified.
+         */
+        synchronized boolean add(NotificationListener listener) {
+            if (done) {
+                return false;
+            }
+            if (listener != null) {
+                listeners.add(listener);
+            }
+            return true;
+        }
+
+        /**
+         * Helper method to notify the listeners of a failure.
+         *
+         * @param exception the failure.
+         */
+        private void notifyFailed(CMCException exception) {
+            for (NotificationListener each : drain()) {
+                try {
+                    each.failed(trackingID, exception);
+                } catch (RuntimeException rex) {
+                    LOGGER.error("Notification listener failed", rex);
+                }
+            }
+        }
+
+        /**
+         * Mark the tracking ID as done and take its listeners, which are notified outside of the lock.
+         *
+         * @return the listeners.
+         */
+        private synchronized List<NotificationListener> drain() {
+            done = true;
+            List<NotificationListener> drained = new ArrayList<NotificationListener>(listeners);
+            listeners.clear();
+            return drained;
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.telecomsys.cmc.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+
+/**
+ * Outcome of each batch of a request batched by a {@link PathBatcher}, in the order of the IDs. A batch failed if its
+ * request raised an exception or CMC returned an error response; its IDs are reported so they can be sent again.
+ *
+ * @param <T> type of the response.
+ */
+public class PathBatchResult<T> {
+
+    /**
+     * Outcome of each batch.
+     */
+    private final List<Batch<T>> batches;
+
+    /**
+     * Constructor.
+     *
+     * @param batches outcome of each batch.
+     */
+    PathBatchResult(List<Batch<T>> batches) {
+        this.batches = Collections.unmodifiableList(batches);
+    }
+
+    /**
+     * @return whether all the batches succeeded
+     */
+    public boolean isSuccess() {
+        for (Batch<T> batch : batches) {
+            if (!batch.isSuccess()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the outcome of each batch
+     */
+    public List<Batch<T>> getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return the batches that failed
+     */
+    public List<Batch<T>> getFailedBatches() {
+        List<Batch<T>> failed = new ArrayList<Batch<T>>();
+        for (Batch<T> batch : batches) {
+            if (!batch.isSuccess()) {
+                failed.add(batch);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * @return the IDs of the batches that failed
+     */
+    public List<String> getFailedIds() {
+        List<String> failedIds = new ArrayList<String>();
+        for (Batch<T> batch : batches) {
+            if (!batch.isSuccess()) {
+                failedIds.addAll(batch.getIds());
+            }
+        }
+        return failedIds;
+    }
+
+    /**
+     * Outcome of the request of a batch of IDs.
+     *
+     * @param <T> type of the response.
+     */
+    public static final class Batch<T> {
+
+        /**
+         * IDs of the batch.
+         */
+        private final List<String> ids;
+
+        /**
+         * Response returned by CMC, null if the request failed.
+         */
+        private final HttpResponseWrapper<T> response;
+
+        /**
+         * Exception raised by the request, null if CMC returned a response.
+         */
+        private final CMCException exception;
+
+        /**
+         * Constructor.
+         *
+         * @param ids IDs of the batch.
+         * @param response response returned by CMC.
+         * @param exception exception raised by the request.
+         */
+        Batch(List<String> ids, HttpResponseWrapper<T> response, CMCException exception) {
+            this.ids = Collections.unmodifiableList(ids);
+            this.response = response;
+            this.exception = exception;
+        }
+
+        /**
+         * @return whether CMC returned a success response with a body
+         */
+        public boolean isSuccess() {
+            return response != null && response.getHttpStatusCode() >= 200 && response.getHttpStatusCode() < 300
+                    && response.getResponseBody() != null;
+        }
+
+        /**
+         * @return the IDs of the batch
+         */
+        public List<String> getIds() {
+            return ids;
+        }
+
+        /**
+         * @return the response returned by CMC, null if the request failed
+         */
+        public HttpResponseWrapper<T> getResponse() {
+            return response;
+        }
+
+        /**
+         * @return the exception raised by the request, null if CMC returned a response
+         */
+        public CMCException getException() {
+            return exception;
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.telecomsys.cmc.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
+
+/**
+ * Splits the IDs sent as comma separated matrix parameters in the request path (cell numbers, group names, message
+ * IDs) into batches whose percent-encoded length stays within the URL length limit of servers and proxies, and sends
+ * the batches concurrently with at most a configured number of requests in flight. The facades batch the requests
+ * taking a list of IDs with the batcher they are configured with; a batcher can also be used directly to get the
+ * outcome of each batch, for example to retry only the cell numbers of the batches that failed:
+ *
+ * <pre>
+ * PathBatchResult&lt;RestResponse&gt; result = new PathBatcher().execute(mdns,
+ *         new PathBatcher.Request&lt;RestResponse&gt;() {
+ *             public Future&lt;HttpResponseWrapper&lt;RestResponse&gt;&gt; send(List&lt;String&gt; batch,
+ *                     ResponseCallback&lt;RestResponse&gt; callback) {
+ *                 return contactApi.deleteContactsAsync(batch, callback);
+ *             }
+ *         });
+ * </pre>
+ *
+ * The asynchronous methods of the facades are not batched: they send the IDs they are given in one request, as the
+ * batcher does for each batch.
+ */
+public class PathBatcher {
+
+    /**
+     * Default maximum length of the comma separated IDs of one request, which keeps the request URL under the 2048
+     * characters most servers and proxies accept.
+     */
+    public static final int DEFAULT_MAX_PATH_LENGTH = 1900;
+
+    /**
+     * Default number of requests in flight.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Maximum percent-encoded length of the comma separated IDs of one request.
+     */
+    private final int maxPathLength;
+
+    /**
+     * Maximum number of requests in flight.
+     */
+    private final int parallelism;
+
+    /**
+     * Constructor using the default maximum path length and parallelism.
+     */
+    public PathBatcher() {
+        this(DEFAULT_MAX_PATH_LENGTH, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Constructor. The parallelism should not exceed the connections per route of the HTTP client, otherwise the
+     * extra requests wait for a pooled connection.
+     *
+     * @param maxPathLength maximum percent-encoded length of the comma separated IDs of one request.
+     * @param parallelism maximum number of requests in flight.
+     */
+    public PathBatcher(int maxPathLength, int parallelism) {
+        if (maxPathLength <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Maximum path length and parallelism must be positive");
+        }
+        this.maxPathLength = maxPathLength;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the maximum percent-encoded length of the comma separated IDs of one request
+     */
+    public int getMaxPathLength() {
+        return maxPathLength;
+    }
+
+    /**
+     * @return the maximum number of requests in flight
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Split IDs into batches in their order. An ID longer than the maximum path length is sent alone.
+     *
+     * @param ids the IDs.
+     * @return the batches, a single batch if the IDs fit in one request and none if there are no IDs.
+     */
+    public List<List<String>> split(List<String> ids) {
+        List<List<String>> batches = new ArrayList<List<String>>();
+        List<String> batch = new ArrayList<String>();
+        int length = 0;
+        for (String id : ids) {
+            int idLength = encodedLength(id);
+            if (!batch.isEmpty() && length + 1 + idLength > maxPathLength) {
+                batches.add(batch);
+                batch = new ArrayList<String>();
+                length = 0;
+            }
+            length += batch.isEmpty() ? idLength : idLength + 1;
+            batch.add(id);
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Send the request of each batch of IDs, blocking until every batch has completed. A batch that fails does not
+     * stop the other batches; it is reported in the result.
+     *
+     * @param <T> type of the response.
+     * @param ids the IDs.
+     * @param request the request sent for each batch.
+     * @return the outcome of each batch, in the order of the IDs.
+     * @throws InterruptedException if interrupted while waiting. Batches already sent are not cancelled.
+     */
+    public <T> PathBatchResult<T> execute(List<String> ids, final Request<T> request) throws InterruptedException {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("IDs must not be empty");
+        }
+        final List<List<String>> batches = split(ids);
+        int batchCount = batches.size();
+        FanOut<T> fanOut = new FanOut<T>(batchCount) {
+            @Override
+            void send(int index, ResponseCallback<T> callback) {
+                request.send(batches.get(index), callback);
+            }
+        };
+        fanOut.run(parallelism);
+
+        List<PathBatchResult.Batch<T>> results = new ArrayList<PathBatchResult.Batch<T>>(batchCount);
+        for (int i = 0; i < batchCount; i++) {
+            results.add(new PathBatchResult.Batch<T>(batches.get(i), fanOut.getResponse(i),
+                    fanOut.getException(i)));
+        }
+        return new PathBatchResult<T>(results);
+    }
+
+    /**
+     * Helper method to compute the length of an ID once percent-encoded in the request path, without encoding it.
+     * The characters not encoded are those of RFC 3986 that the HTTP client leaves as is in a path.
+     *
+     * @param id the ID.
+     * @return the encoded length.
+     */
+    private static int encodedLength(String id) {
+        int length = 0;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < 0x80) {
+                boolean safe = c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                        || "_-!.~'()*,;:$&+=/@".indexOf(c) >= 0;
+                length += safe ? 1 : 3;
+            } else if (c < 0x800) {
+                length += 6;
+            } else if (Character.isHighSurrogate(c)) {
+                // Four bytes for a pair, counted on the high surrogate.
+                length += 12;
+            } else if (Character.isLowSurrogate(c)) {
+                length += i > 0 && Character.isHighSurrogate(id.charAt(i - 1)) ? 0 : 3;
+            } else {
+                length += 9;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Request sent for a batch of IDs, typically the asynchronous method of a facade.
+     *
+     * @param <T> type of the response.
+     */
+    public interface Request<T> {
+
+        /**
+         * Send the request of a batch. The callback must be notified once the request has completed.
+         *
+         * @param batch the IDs of the batch.
+         * @param callback callback to notify on completion.
+         * @return future http response wrapper with the response, may be null.
+         */
+        Future<HttpResponseWrapper<T>> send(List<String> batch, ResponseCallback<T> callback);
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.telecomsys.cmc.api;
+
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.response.MessageStatus;
+
+/**
+ * Listener notified by the {@link ReceiptPoller} when the delivery receipt of a message reaches a final state.
+ */
+public interface ReceiptListener {
+
+    /**
+     * Called when the delivery status of the message is final.
+     *
+     * @param status the final delivery status of the message.
+     */
+    void completed(MessageStatus status);
+
+    /**
+     * Called when the delivery status did not become final before the timeout, or the tracking was cancelled.
+     *
+     * @param messageID the tracked message ID.
+     * @param exception CMC exception describing the failure.
+     */
+    void failed(String messageID, CMCException exception);
+
+}
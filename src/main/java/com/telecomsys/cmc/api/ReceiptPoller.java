@@ -0,0 +1,424 @@
+package com.telecomsys.cmc.api;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.response.DeliveryReceipt;
+import com.telecomsys.cmc.response.DeliveryReceiptResponse;
+import com.telecomsys.cmc.response.DeliveryState;
+import com.telecomsys.cmc.response.MessageStatus;
+import com.telecomsys.cmc.utils.DaemonThreadFactory;
+
+/**
+ * Background service polling the delivery receipts of the messages tracked by any number of threads. The tracked
+ * message IDs are coalesced into batched receipt requests that stay within the URL length limit; a message is
+ * dropped from the polling as soon as its delivery status is final, completing its future and listener. For example:
+ *
+ * <pre>
+ * ReceiptPoller receiptPoller = new ReceiptPoller(cmcClient.getMessagingApi());
+ * Future&lt;MessageStatus&gt; status = receiptPoller.track(messageID, null);
+ * </pre>
+ *
+ * <p>
+ * A receipt request that fails is repeated on the next poll. CMC rejects a whole batch when one of its message IDs is
+ * unknown, so such a batch is split in halves until the unknown IDs are isolated; their tracking fails.
+ * </p>
+ */
+public class ReceiptPoller implements Closeable {
+
+    /**
+     * Default delay in milliseconds between two polls.
+     */
+    public static final long DEFAULT_POLL_INTERVAL = 30000;
+
+    /**
+     * Default time in milliseconds a message is tracked before giving up.
+     */
+    public static final long DEFAULT_TIMEOUT = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Default maximum length of the comma separated message IDs of one request, which keeps the request URL under
+     * the 2048 characters most servers and proxies accept.
+     */
+    public static final int DEFAULT_MAX_BATCH_LENGTH = PathBatcher.DEFAULT_MAX_PATH_LENGTH;
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReceiptPoller.class);
+
+    /**
+     * Messaging facade used to poll the receipts.
+     */
+    private final MessagingApi messagingApi;
+
+    /**
+     * Time in milliseconds a message is tracked before giving up.
+     */
+    private final long timeout;
+
+    /**
+     * Batcher splitting the message IDs within the maximum length of one request.
+     */
+    private final PathBatcher pathBatcher;
+
+    /**
+     * Tracked messages keyed by message ID.
+     */
+    private final ConcurrentMap<String, TrackedMessage> pending = new ConcurrentHashMap<String, TrackedMessage>();
+
+    /**
+     * Executor running the polls.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Whether the poller has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructor using the default poll interval, timeout and batch length.
+     *
+     * @param messagingApi messaging facade used to poll the receipts.
+     */
+    public ReceiptPoller(MessagingApi messagingApi) {
+        this(messagingApi, DEFAULT_POLL_INTERVAL, DEFAULT_TIMEOUT, DEFAULT_MAX_BATCH_LENGTH);
+    }
+
+    /**
+     * Constructor. The polling starts immediately.
+     *
+     * @param messagingApi messaging facade used to poll the receipts.
+     * @param pollInterval delay in milliseconds between two polls.
+     * @param timeout time in milliseconds a message is tracked before giving up.
+     * @param maxBatchLength maximum length of the comma separated message IDs of one request.
+     */
+    public ReceiptPoller(MessagingApi messagingApi, long pollInterval, long timeout, int maxBatchLength) {
+        if (messagingApi == null) {
+            throw new IllegalArgumentException("Messaging API must not be null");
+        }
+        if (pollInterval <= 0 || timeout <= 0 || maxBatchLength <= 0) {
+            throw new IllegalArgumentException("Poll interval, timeout and batch length must be positive");
+        }
+        this.messagingApi = messagingApi;
+        this.timeout = timeout;
+        this.pathBatcher = new PathBatcher(maxBatchLength, 1);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("cmc-receipt-poller"));
+        this.executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                poll();
+            }
+        }, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Track the delivery receipt of a message. Tracking the same message ID from several threads polls it once.
+     *
+     * @param messageID the message ID returned in the tracking information of a send.
+     * @param listener listener notified when the status is final, may be null.
+     * @return future completed with the final delivery status of the message.
+     */
+    public Future<MessageStatus> track(String messageID, ReceiptListener listener) {
+        if (messageID == null || messageID.isEmpty()) {
+            throw new IllegalArgumentException("Message ID must not be empty");
+        }
+        if (closed) {
+            throw new IllegalStateException("Receipt poller is closed");
+        }
+        BasicFuture<MessageStatus> future = new BasicFuture<MessageStatus>(listener == null ? null
+                : new ListenerAdapter(messageID, listener));
+        long deadline = System.currentTimeMillis() + timeout;
+        for (;;) {
+            TrackedMessage tracked = pending.get(messageID);
+            if (tracked == null) {
+                tracked = new TrackedMessage(deadline);
+                TrackedMessage existing = pending.putIfAbsent(messageID, tracked);
+                if (existing != null) {
+                    tracked = existing;
+                }
+            }
+            if (tracked.add(future)) {
+                if (closed) {
+                    // Closed concurrently, the entry may have been missed by close().
+                    pending.remove(messageID, tracked);
+                    tracked.fail(new CMCException("Receipt poller closed"));
+                }
+                return future;
+            }
+
+            // The message was completed concurrently, track it again.
+            pending.remove(messageID, tracked);
+        }
+    }
+
+    /**
+     * @return the number of messages being tracked
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stop polling and fail the futures of the pending messages.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        for (String messageID : new ArrayList<String>(pending.keySet())) {
+            TrackedMessage tracked = pending.remove(messageID);
+            if (tracked != null) {
+                tracked.fail(new CMCException("Receipt poller closed"));
+            }
+        }
+    }
+
+    /**
+     * Whether a delivery status is final, in which case the message is no longer polled.
+     *
+     * @param status the delivery status of a message.
+     * @return whether the status is final.
+     */
+    protected boolean isFinal(MessageStatus status) {
+        return DeliveryState.isFinalText(status.getDeliveryStatus());
+    }
+
+    /**
+     * Helper method to poll the receipts of all the tracked messages and expire the messages past their timeout.
+     */
+    private void poll() {
+        try {
+            for (List<String> batch : pathBatcher.split(new ArrayList<String>(pending.keySet()))) {
+                if (closed) {
+                    return;
+                }
+                pollBatch(batch);
+            }
+
+            long now = System.currentTimeMillis();
+            for (String messageID : new ArrayList<String>(pending.keySet())) {
+                TrackedMessage tracked = pending.get(messageID);
+                if (tracked != null && tracked.deadline <= now && pending.remove(messageID, tracked)) {
+                    tracked.fail(new CMCException("Delivery receipt of " + messageID + " not final after "
+                            + timeout + " ms"));
+                }
+            }
+        } catch (RuntimeException rex) {
+            // Keep the scheduled poll alive.
+            LOGGER.error("Delivery receipt poll failed", rex);
+        }
+    }
+
+    /**
+     * Helper method to poll the receipts of a batch of messages and complete the messages with a final status.
+     *
+     * @param batch the message IDs of one request.
+     */
+    private void pollBatch(List<String> batch) {
+
+        // Skip the IDs completed by an earlier batch of the same poll.
+        List<String> messageIDs = new ArrayList<String>(batch.size());
+        for (String messageID : batch) {
+            if (pending.containsKey(messageID)) {
+                messageIDs.add(messageID);
+            }
+        }
+        if (messageIDs.isEmpty()) {
+            return;
+        }
+
+        HttpResponseWrapper<DeliveryReceiptResponse> response;
+        try {
+            response = messagingApi.getDeliveryReceipts(messageIDs);
+        } catch (CMCException cmcex) {
+            LOGGER.warn("Delivery receipt request failed, retrying on the next poll: {}", cmcex.toString());
+            return;
+        }
+        if (response.getHttpStatusCode() == HttpStatus.SC_NOT_FOUND) {
+            notFound(messageIDs);
+            return;
+        }
+        DeliveryReceiptResponse body = response.getResponseBody();
+        DeliveryReceipt deliveryReceipt = body == null ? null : body.getDeliveryReceipt();
+        if (response.getHttpStatusCode() != HttpStatus.SC_OK || deliveryReceipt == null
+                || deliveryReceipt.getDeliverystatuslist() == null) {
+            LOGGER.warn("Delivery receipt request returned {}, retrying on the next poll",
+                    response.getHttpStatusCode());
+            return;
+        }
+        for (MessageStatus status : deliveryReceipt.getDeliverystatuslist()) {
+            if (status.getMessageID() != null && isFinal(status)) {
+                TrackedMessage tracked = pending.remove(status.getMessageID());
+                if (tracked != null) {
+                    tracked.complete(status);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to handle a batch CMC rejected because some of its message IDs are unknown: the batch is split
+     * in halves polled again, and the tracking of an unknown message ID polled alone fails.
+     *
+     * @param messageIDs the message IDs of the batch.
+     */
+    private void notFound(List<String> messageIDs) {
+        if (messageIDs.size() > 1) {
+            int half = messageIDs.size() / 2;
+            pollBatch(messageIDs.subList(0, half));
+            pollBatch(messageIDs.subList(half, messageIDs.size()));
+            return;
+        }
+        String messageID = messageIDs.get(0);
+        TrackedMessage tracked = pending.remove(messageID);
+        if (tracked != null) {
+            tracked.fail(new CMCException("Delivery receipt of " + messageID + " not found"));
+        }
+    }
+
+    /**
+     * Futures of a tracked message.
+     */
+    private static final class TrackedMessage {
+
+        /**
+         * Time in milliseconds after which the tracking fails.
+         */
+        private final long deadline;
+
+        /**
+         * Futures of the callers tracking the message.
+         */
+        private final List<BasicFuture<MessageStatus>> futures = new ArrayList<BasicFuture<MessageStatus>>(1);
+
+        /**
+         * Whether the futures have been completed, after which no future can be added.
+         */
+        private boolean done;
+
+        /**
+         * Constructor.
+         *
+         * @param deadline time in milliseconds after which the tracking fails.
+         */
+        TrackedMessage(long deadline) {
+            this.deadline = deadline;
+        }
+
+        /**
+         * Add the future of a caller.
+         *
+         * @param future the future.
+         * @return false if the message was already completed.
+         */
+        synchronized boolean add(BasicFuture<MessageStatus> future) {
+            if (done) {
+                return false;
+            }
+            futures.add(future);
+            return true;
+        }
+
+        /**
+         * Complete the futures with the final status.
+         *
+         * @param status the final delivery status.
+         */
+        void complete(MessageStatus status) {
+            for (BasicFuture<MessageStatus> future : drain()) {
+                try {
+                    future.completed(status);
+                } catch (RuntimeException rex) {
+                    LOGGER.error("Receipt listener failed", rex);
+                }
+            }
+        }
+
+        /**
+         * Fail the futures.
+         *
+         * @param exception the failure.
+         */
+        void fail(CMCException exception) {
+            for (BasicFuture<MessageStatus> future : drain()) {
+                try {
+                    future.failed(exception);
+                } catch (RuntimeException rex) {
+                    LOGGER.error("Receipt listener failed", rex);
+                }
+            }
+        }
+
+        /**
+         * Mark the message as done and take its futures, which are completed outside of the lock.
+         *
+         * @return the futures.
+         */
+        private synchronized List<BasicFuture<MessageStatus>> drain() {
+            done = true;
+            List<BasicFuture<MessageStatus>> drained = new ArrayList<BasicFuture<MessageStatus>>(futures);
+            futures.clear();
+            return drained;
+        }
+    }
+
+    /**
+     * Adapter of a receipt listener to the callback of the future.
+     */
+    private static final class ListenerAdapter implements FutureCallback<MessageStatus> {
+
+        /**
+         * Tracked message ID.
+         */
+        private final String messageID;
+
+        /**
+         * Receipt listener.
+         */
+        private final ReceiptListener listener;
+
+        /**
+         * Constructor.
+         *
+         * @param messageID tracked message ID.
+         * @param listener receipt listener.
+         */
+        ListenerAdapter(String messageID, ReceiptListener listener) {
+            this.messageID = messageID;
+            this.listener = listener;
+        }
+
+        @Override
+        public void completed(MessageStatus status) {
+            listener.completed(status);
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            listener.failed(messageID, ex instanceof CMCException ? (CMCException) ex : new CMCException(ex));
+        }
+
+        @Override
+        public void cancelled() {
+            listener.failed(messageID, new CMCException("Delivery receipt tracking of " + messageID + " cancelled"));
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.telecomsys.cmc.api;
+
+import java.util.List;
+
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.response.MessageReply;
+
+/**
+ * Listener of a {@link ReplyStream} subscription, notified on the stream thread.
+ */
+public interface ReplyListener {
+
+    /**
+     * Called with the new replies of a keyword. Not called when there are no new replies.
+     *
+     * @param keyword the keyword of the program.
+     * @param replies the new replies, oldest first as returned by CMC.
+     */
+    void replies(String keyword, List<MessageReply> replies);
+
+    /**
+     * Called when fetching the replies failed. The next fetch covers the replies missed.
+     *
+     * @param keyword the keyword of the program.
+     * @param exception CMC exception describing the failure.
+     */
+    void failed(String keyword, CMCException exception);
+
+}
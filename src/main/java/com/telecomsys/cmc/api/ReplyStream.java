@@ -0,0 +1,248 @@
+package com.telecomsys.cmc.api;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.model.ProgramReply;
+import com.telecomsys.cmc.response.MessageRepliesResponse;
+import com.telecomsys.cmc.response.MessageReply;
+import com.telecomsys.cmc.utils.DaemonThreadFactory;
+
+/**
+ * Incremental fetcher of the program replies of keywords. Each keyword keeps a watermark, the time of its last
+ * successful fetch, and the next fetch only asks CMC for the replies received since then. CMC counts the window in
+ * whole minutes, so the windows overlap; the replies already returned are recognized by their sender, date and text in
+ * a bounded cache and dropped. The new replies are pulled with {@link #poll(String)} or pushed to a subscription:
+ *
+ * <pre>
+ * ReplyStream replyStream = new ReplyStream(cmcClient.getMessagingApi());
+ * for (MessageReply reply : replyStream.poll("keyword")) {
+ *     ...
+ * }
+ * replyStream.subscribe("keyword", 60000, listener);
+ * </pre>
+ */
+public class ReplyStream implements Closeable {
+
+    /**
+     * Default number of minutes of replies fetched the first time for a keyword.
+     */
+    public static final int DEFAULT_INITIAL_MINUTES = 60;
+
+    /**
+     * Default number of replies remembered to drop the duplicates.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplyStream.class);
+
+    /**
+     * Extra minute fetched to cover the clock skew between the client and CMC.
+     */
+    private static final int OVERLAP_MINUTES = 1;
+
+    /**
+     * Messaging facade used to fetch the replies.
+     */
+    private final MessagingApi messagingApi;
+
+    /**
+     * Number of minutes of replies fetched the first time for a keyword.
+     */
+    private final int initialMinutes;
+
+    /**
+     * Watermarks keyed by keyword.
+     */
+    private final ConcurrentMap<String, Watermark> watermarks = new ConcurrentHashMap<String, Watermark>();
+
+    /**
+     * Keys of the replies already returned, the eldest evicted first.
+     */
+    private final Map<String, Boolean> seenReplies;
+
+    /**
+     * Executor running the subscriptions, created on the first subscription.
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructor using the default initial window and cache size.
+     *
+     * @param messagingApi messaging facade used to fetch the replies.
+     */
+    public ReplyStream(MessagingApi messagingApi) {
+        this(messagingApi, DEFAULT_INITIAL_MINUTES, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor. The cache must hold more replies than CMC returns in the overlap of two fetches, about one
+     * minute of replies of all the keywords.
+     *
+     * @param messagingApi messaging facade used to fetch the replies.
+     * @param initialMinutes number of minutes of replies fetched the first time for a keyword.
+     * @param cacheSize number of replies remembered to drop the duplicates.
+     */
+    public ReplyStream(MessagingApi messagingApi, int initialMinutes, final int cacheSize) {
+        if (messagingApi == null) {
+            throw new IllegalArgumentException("Messaging API must not be null");
+        }
+        if (initialMinutes <= 0 || cacheSize <= 0) {
+            throw new IllegalArgumentException("Initial minutes and cache size must be positive");
+        }
+        this.messagingApi = messagingApi;
+        this.initialMinutes = initialMinutes;
+        this.seenReplies = new LinkedHashMap<String, Boolean>(16, 0.75f, false) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Fetch the replies of a keyword received since the previous fetch. The watermark only moves forward when the
+     * fetch succeeds, so the replies of a failed fetch are returned by the next one.
+     *
+     * @param keyword the keyword of the program.
+     * @return the new replies, oldest first as returned by CMC.
+     * @throws CMCException CMC exception if errors.
+     */
+    public List<MessageReply> poll(String keyword) throws CMCException {
+        if (keyword == null || keyword.isEmpty()) {
+            throw new IllegalArgumentException("Keyword must not be empty");
+        }
+        Watermark watermark = watermarks.get(keyword);
+        if (watermark == null) {
+            watermark = new Watermark();
+            Watermark existing = watermarks.putIfAbsent(keyword, watermark);
+            if (existing != null) {
+                watermark = existing;
+            }
+        }
+
+        // One fetch at a time per keyword so that the watermark only moves forward.
+        synchronized (watermark) {
+            long fetchTime = System.currentTimeMillis();
+            long minutes = initialMinutes;
+            if (watermark.time != 0) {
+                // Round the time since the last fetch up to whole minutes.
+                long minuteMillis = TimeUnit.MINUTES.toMillis(1);
+                minutes = (fetchTime - watermark.time + minuteMillis - 1) / minuteMillis + OVERLAP_MINUTES;
+            }
+            ProgramReply programReply = new ProgramReply(keyword);
+            programReply.setMinutes(Long.toString(minutes));
+            HttpResponseWrapper<MessageRepliesResponse> response = messagingApi.getProgramReplies(programReply);
+            MessageRepliesResponse body = response.getResponseBody();
+            if (response.getHttpStatusCode() != HttpStatus.SC_OK || body == null) {
+                throw new CMCException("Program replies of " + keyword + " failed with HTTP status "
+                        + response.getHttpStatusCode() + (body == null ? "" : ": " + body.getMessage()));
+            }
+            watermark.time = fetchTime;
+            if (body.getMessageReplies() == null || body.getMessageReplies().getReplies() == null) {
+                return Collections.emptyList();
+            }
+
+            List<MessageReply> replies = new ArrayList<MessageReply>();
+            synchronized (seenReplies) {
+                for (MessageReply reply : body.getMessageReplies().getReplies()) {
+                    if (seenReplies.put(createKey(keyword, reply), Boolean.TRUE) == null) {
+                        replies.add(reply);
+                    }
+                }
+            }
+            return replies;
+        }
+    }
+
+    /**
+     * Subscribe to the new replies of a keyword, fetched at a fixed delay on the stream thread.
+     *
+     * @param keyword the keyword of the program.
+     * @param interval delay in milliseconds between two fetches.
+     * @param listener listener notified of the new replies.
+     * @return future of the subscription, cancel it to unsubscribe.
+     */
+    public synchronized Future<?> subscribe(final String keyword, long interval, final ReplyListener listener) {
+        if (interval <= 0 || listener == null) {
+            throw new IllegalArgumentException("Interval must be positive and listener not null");
+        }
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("cmc-reply-stream"));
+        }
+        return executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                List<MessageReply> replies;
+                try {
+                    replies = poll(keyword);
+                } catch (CMCException cmcex) {
+                    listener.failed(keyword, cmcex);
+                    return;
+                }
+                if (!replies.isEmpty()) {
+                    try {
+                        listener.replies(keyword, replies);
+                    } catch (RuntimeException rex) {
+                        // Keep the subscription alive.
+                        LOGGER.error("Reply listener failed", rex);
+                    }
+                }
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancel the subscriptions.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Helper method to create the key identifying a reply.
+     *
+     * @param keyword the keyword of the program.
+     * @param reply the reply.
+     * @return the key.
+     */
+    private static String createKey(String keyword, MessageReply reply) {
+        return keyword + '\u0000' + reply.getMin() + '\u0000' + reply.getReplyDate() + '\u0000' + reply.getMsgText();
+    }
+
+    /**
+     * Watermark of a keyword.
+     */
+    private static final class Watermark {
+
+        /**
+         * Time in milliseconds of the last successful fetch, zero before the first one. Guarded by the watermark.
+         */
+        private long time;
+    }
+
+}
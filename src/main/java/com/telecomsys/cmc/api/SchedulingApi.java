@@ -1,10 +1,13 @@
 package com.telecomsys.cmc.api;
 
 import java.util.List;
+import java.util.concurrent.Future;
 
 import com.telecomsys.cmc.exception.CMCException;
 import com.telecomsys.cmc.http.CmcHttpRequest;
+import com.telecomsys.cmc.http.HttpClientDelegate;
 import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
 import com.telecomsys.cmc.model.ScheduleMessage;
 import com.telecomsys.cmc.response.RestResponse;
 import com.telecomsys.cmc.utils.StringUtils;
@@ -30,6 +33,15 @@ public class SchedulingApi extends CmcBaseApi {
         super(baseUri, accountID, authenticationToken);
     }
 
+    /**
+     * Constructor using an existing HTTP client. Use {@link CmcClient} to share one client between facades.
+     *
+     * @param httpClient the HTTP client used to send the requests.
+     */
+    public SchedulingApi(HttpClientDelegate httpClient) {
+        super(httpClient);
+    }
+
     /**
      * Method to schedule a message using CMC REST API.
      *
@@ -38,25 +50,97 @@ public class SchedulingApi extends CmcBaseApi {
      * @throws CMCException CMC exception if errors.
      */
     public HttpResponseWrapper<ScheduleMessage> scheduleMessage(ScheduleMessage schedule) throws CMCException {
+        return httpClient.doPost(createScheduleMessageRequest(schedule), ScheduleMessage.class);
+    }
+
+    /**
+     * Method to schedule a message asynchronously using CMC REST API.
+     *
+     * @param schedule the ScheduleMessage model that has all schedule details.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<ScheduleMessage>> scheduleMessageAsync(ScheduleMessage schedule,
+            ResponseCallback<ScheduleMessage> callback) {
+        return getAsyncHttpClient().doPostAsync(createScheduleMessageRequest(schedule), ScheduleMessage.class,
+                callback);
+    }
+
+    /**
+     * Method to delete scheduled messages(s) using CMC REST API. Message IDs that do not fit in one request URL are
+     * deleted in batches sent concurrently.
+     *
+     * @param messageIds List of scheduled messages to be deleted identified by their message ID.
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<RestResponse> deleteScheduledMessages(List<String> messageIds) throws CMCException {
+        return doBatched(messageIds, new PathRequest<RestResponse>(RestResponse.class, true) {
+            @Override
+            protected CmcHttpRequest createRequest(List<String> batch) {
+                return createDeleteScheduledMessagesRequest(batch);
+            }
+        });
+    }
+
+    /**
+     * Method to delete scheduled messages(s) asynchronously using CMC REST API.
+     *
+     * @param messageIds List of scheduled messages to be deleted identified by their message ID.
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<RestResponse>> deleteScheduledMessagesAsync(List<String> messageIds,
+            ResponseCallback<RestResponse> callback) {
+        return getAsyncHttpClient().doDeleteAsync(createDeleteScheduledMessagesRequest(messageIds),
+                RestResponse.class, callback);
+    }
+
+    /**
+     * Method to delete all the scheduled messages using CMC REST API.
+     *
+     * @return HttpResponseWrapper http response wrapper with the response.
+     * @throws CMCException CMC exception if errors.
+     */
+    public HttpResponseWrapper<RestResponse> deleteAllScheduledMessages() throws CMCException {
+        return httpClient.doDelete(createDeleteAllScheduledMessagesRequest(), RestResponse.class);
+    }
+
+    /**
+     * Method to delete all the scheduled messages asynchronously using CMC REST API.
+     *
+     * @param callback callback notified on completion, may be null.
+     * @return future http response wrapper with the response.
+     */
+    public Future<HttpResponseWrapper<RestResponse>> deleteAllScheduledMessagesAsync(
+            ResponseCallback<RestResponse> callback) {
+        return getAsyncHttpClient().doDeleteAsync(createDeleteAllScheduledMessagesRequest(), RestResponse.class,
+                callback);
+    }
+
+    /**
+     * Helper method to create the schedule message request.
+     *
+     * @param schedule the ScheduleMessage model that has all schedule details.
+     * @return CMC request.
+     */
+    private static CmcHttpRequest createScheduleMessageRequest(ScheduleMessage schedule) {
 
         // Create the request with parameters.
         CmcHttpRequest cmcRequest = new CmcHttpRequest(SCHEDULING_URL);
         cmcRequest.addBodyParameter("message", schedule.getMessage());
         cmcRequest.addBodyParameter("schedule", schedule.getSchedule());
         cmcRequest.setMessageWrapperName("schedulemessage");
-
-        // Send the message to CMC.
-        return httpClient.doPost(cmcRequest, ScheduleMessage.class);
+        return cmcRequest;
     }
 
     /**
-     * Method to delete scheduled messages(s) using CMC REST API.
+     * Helper method to create the delete scheduled messages request.
      *
      * @param messageIds List of scheduled messages to be deleted identified by their message ID.
-     * @return HttpResponseWrapper http response wrapper with the response.
-     * @throws CMCException CMC exception if errors.
+     * @return CMC request.
      */
-    public HttpResponseWrapper<RestResponse> deleteScheduledMessages(List<String> messageIds) throws CMCException {
+    private static CmcHttpRequest createDeleteScheduledMessagesRequest(List<String> messageIds) {
 
         // Append the matrix parameters
         StringBuilder sb = new StringBuilder();
@@ -68,25 +152,21 @@ public class SchedulingApi extends CmcBaseApi {
 
         // Create the request with parameters.
         CmcHttpRequest cmcRequest = new CmcHttpRequest(sb.toString());
-
-        // Send the request to CMC.
-        return httpClient.doDelete(cmcRequest, RestResponse.class);
+        cmcRequest.setIdempotent(true);
+        return cmcRequest;
     }
 
     /**
-     * Method to delete all the scheduled messages using CMC REST API.
+     * Helper method to create the delete all scheduled messages request.
      *
-     * @return HttpResponseWrapper http response wrapper with the response.
-     * @throws CMCException CMC exception if errors.
+     * @return CMC request.
      */
-    public HttpResponseWrapper<RestResponse> deleteAllScheduledMessages() throws CMCException {
+    private static CmcHttpRequest createDeleteAllScheduledMessagesRequest() {
 
         // Create the request with parameters.
         CmcHttpRequest cmcRequest = new CmcHttpRequest(SCHEDULING_URL);
         cmcRequest.addUrlParameter("all", "true");
-
-        // Send the request to CMC.
-        return httpClient.doDelete(cmcRequest, RestResponse.class);
+        return cmcRequest;
     }
 
 }
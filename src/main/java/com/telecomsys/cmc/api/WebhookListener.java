@@ -0,0 +1,26 @@
+package com.telecomsys.cmc.api;
+
+import com.telecomsys.cmc.response.MessageStatus;
+import com.telecomsys.cmc.response.TrackingInformation;
+
+/**
+ * Listener notified by the {@link WebhookReceiver} of the delivery statuses pushed by CMC to the notify URL of the
+ * messages. The methods are called on the dispatch threads of the receiver.
+ */
+public interface WebhookListener {
+
+    /**
+     * Called for each delivery receipt status of a callback.
+     *
+     * @param status the delivery status of a message.
+     */
+    void messageStatus(MessageStatus status);
+
+    /**
+     * Called for each delivery notification of a callback.
+     *
+     * @param trackingInformation the status of the message sent to a destination.
+     */
+    void trackingInformation(TrackingInformation trackingInformation);
+
+}
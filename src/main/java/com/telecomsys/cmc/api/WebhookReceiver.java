@@ -0,0 +1,333 @@
+package com.telecomsys.cmc.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.telecomsys.cmc.response.DeliveryReceipt;
+import com.telecomsys.cmc.response.MessageStatus;
+import com.telecomsys.cmc.response.Notifications;
+import com.telecomsys.cmc.response.TrackingInformation;
+import com.telecomsys.cmc.utils.DaemonThreadFactory;
+
+/**
+ * Embedded HTTP receiver of the delivery statuses CMC posts to the notify URL of the messages, replacing the polling
+ * of the notifications and receipts. The callbacks are parsed into {@link TrackingInformation} and
+ * {@link MessageStatus} models and dispatched to the registered listeners on a bounded pool of threads; when the pool
+ * is saturated the callback is refused with a 503 so that CMC delivers it again. For example:
+ *
+ * <pre>
+ * WebhookReceiver receiver = new WebhookReceiver(8080);
+ * receiver.addListener(listener);
+ * receiver.start();
+ * message.setNotifyURL("https://example.com:8080" + WebhookReceiver.DEFAULT_PATH);
+ * </pre>
+ *
+ * <p>
+ * The body of a callback is JSON, optionally wrapped in a "response" root like the REST responses, holding a
+ * "deliveryreceipt" or "notifications" object, a delivery status list or tracking information list, or a single
+ * status. The receiver does not terminate TLS nor authenticate the callbacks: expose it behind a proxy that does.
+ * </p>
+ */
+public class WebhookReceiver implements Closeable {
+
+    /**
+     * Default path of the callbacks.
+     */
+    public static final String DEFAULT_PATH = "/cmc/notify";
+
+    /**
+     * Default number of dispatch threads.
+     */
+    public static final int DEFAULT_THREADS = 2;
+
+    /**
+     * Default number of callbacks waiting for a dispatch thread.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+    /**
+     * Maximum size in bytes of a callback body.
+     */
+    public static final int MAX_BODY_SIZE = 1024 * 1024;
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebhookReceiver.class);
+
+    /**
+     * Embedded HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * Executor dispatching the callbacks to the listeners.
+     */
+    private final ThreadPoolExecutor dispatcher;
+
+    /**
+     * Registered listeners.
+     */
+    private final List<WebhookListener> listeners = new CopyOnWriteArrayList<WebhookListener>();
+
+    /**
+     * Json mapper.
+     */
+    private final ObjectMapper jsonMapper;
+
+    /**
+     * Constructor listening on all the interfaces with the default path, threads and queue capacity.
+     *
+     * @param port port to listen on, 0 for an ephemeral port.
+     * @throws IOException if the port cannot be bound.
+     */
+    public WebhookReceiver(int port) throws IOException {
+        this(new InetSocketAddress(port), DEFAULT_PATH, DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructor. The receiver binds the address but only accepts callbacks once started.
+     *
+     * @param address address to listen on.
+     * @param path path of the callbacks.
+     * @param threads number of dispatch threads.
+     * @param queueCapacity number of callbacks waiting for a dispatch thread before refusing them.
+     * @throws IOException if the address cannot be bound.
+     */
+    public WebhookReceiver(InetSocketAddress address, String path, int threads, int queueCapacity)
+            throws IOException {
+        if (path == null || !path.startsWith("/")) {
+            throw new IllegalArgumentException("Path must start with /");
+        }
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Threads and queue capacity must be positive");
+        }
+        this.jsonMapper = new ObjectMapper();
+        this.jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.dispatcher = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new DaemonThreadFactory("cmc-webhook-dispatcher"));
+        this.server = HttpServer.create(address, 0);
+        this.server.createContext(path, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleCallback(exchange);
+            }
+        });
+    }
+
+    /**
+     * Register a listener.
+     *
+     * @param listener the listener.
+     */
+    public void addListener(WebhookListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregister a listener.
+     *
+     * @param listener the listener.
+     */
+    public void removeListener(WebhookListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Start accepting callbacks.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return the port the receiver listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop the receiver. Callbacks already accepted are still dispatched.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Helper method to handle a callback: parse it on the server thread and dispatch it on the dispatch threads.
+     *
+     * @param exchange the HTTP exchange.
+     * @throws IOException IO exception reading the callback or writing the response.
+     */
+    private void handleCallback(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, HttpURLConnection.HTTP_BAD_METHOD);
+                return;
+            }
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                respond(exchange, HttpURLConnection.HTTP_ENTITY_TOO_LARGE);
+                return;
+            }
+
+            final List<MessageStatus> statuses = new ArrayList<MessageStatus>();
+            final List<TrackingInformation> trackingInformation = new ArrayList<TrackingInformation>();
+            try {
+                if (!parseCallback(body, statuses, trackingInformation)) {
+                    respond(exchange, HttpURLConnection.HTTP_BAD_REQUEST);
+                    return;
+                }
+            } catch (IOException ioex) {
+                LOGGER.warn("Invalid CMC callback: {}", ioex.toString());
+                respond(exchange, HttpURLConnection.HTTP_BAD_REQUEST);
+                return;
+            }
+
+            try {
+                dispatcher.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatch(statuses, trackingInformation);
+                    }
+                });
+            } catch (RejectedExecutionException reex) {
+                LOGGER.warn("CMC callback refused, the dispatch queue is full");
+                respond(exchange, HttpURLConnection.HTTP_UNAVAILABLE);
+                return;
+            }
+            respond(exchange, HttpURLConnection.HTTP_OK);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Helper method to parse a callback body into statuses and tracking information.
+     *
+     * @param body the callback body.
+     * @param statuses list the delivery receipt statuses are added to.
+     * @param trackingInformation list the delivery notifications are added to.
+     * @return false if the body is not a known callback.
+     * @throws IOException if the body is not valid JSON.
+     */
+    private boolean parseCallback(byte[] body, List<MessageStatus> statuses,
+            List<TrackingInformation> trackingInformation) throws IOException {
+        JsonNode node = jsonMapper.readTree(body);
+        if (node == null || !node.isObject()) {
+            return false;
+        }
+        if (node.has("response")) {
+            node = node.get("response");
+        }
+        if (node.has("deliveryreceipt")) {
+            node = node.get("deliveryreceipt");
+        } else if (node.has("notifications")) {
+            node = node.get("notifications");
+        }
+
+        if (node.has("deliverystatuslist")) {
+            DeliveryReceipt deliveryReceipt = jsonMapper.treeToValue(node, DeliveryReceipt.class);
+            addAll(statuses, deliveryReceipt.getDeliverystatuslist());
+        } else if (node.has("trackinginformation")) {
+            Notifications notifications = jsonMapper.treeToValue(node, Notifications.class);
+            addAll(trackingInformation, notifications.getTrackingInformation());
+        } else if (node.has("deliverystatus")) {
+            statuses.add(jsonMapper.treeToValue(node, MessageStatus.class));
+        } else if (node.has("messagestatus")) {
+            trackingInformation.add(jsonMapper.treeToValue(node, TrackingInformation.class));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Helper method to notify the listeners of a callback, on a dispatch thread.
+     *
+     * @param statuses the delivery receipt statuses.
+     * @param trackingInformation the delivery notifications.
+     */
+    private void dispatch(List<MessageStatus> statuses, List<TrackingInformation> trackingInformation) {
+        for (WebhookListener listener : listeners) {
+            try {
+                for (MessageStatus status : statuses) {
+                    listener.messageStatus(status);
+                }
+                for (TrackingInformation information : trackingInformation) {
+                    listener.trackingInformation(information);
+                }
+            } catch (RuntimeException rex) {
+                LOGGER.error("Webhook listener failed", rex);
+            }
+        }
+    }
+
+    /**
+     * Helper method to add the elements of a list that may be null.
+     *
+     * @param <T> the type of the elements.
+     * @param to the list to add to.
+     * @param from the list to add, may be null.
+     */
+    private static <T> void addAll(List<T> to, List<T> from) {
+        if (from != null) {
+            to.addAll(from);
+        }
+    }
+
+    /**
+     * Helper method to read a callback body.
+     *
+     * @param input the request body stream.
+     * @return the body, null if larger than the maximum size.
+     * @throws IOException IO exception reading the body.
+     */
+    private static byte[] readBody(InputStream input) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+            if (body.size() + read > MAX_BODY_SIZE) {
+                return null;
+            }
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Helper method to send a response without body.
+     *
+     * @param exchange the HTTP exchange.
+     * @param statusCode the status code.
+     * @throws IOException IO exception writing the response.
+     */
+    private static void respond(HttpExchange exchange, int statusCode) throws IOException {
+        exchange.sendResponseHeaders(statusCode, -1);
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.telecomsys.cmc.exception;
+
+/**
+ * Exception generated by the CMC SDK when a request is rejected because the circuit breaker of its endpoint group is
+ * open.
+ */
+public class CMCCircuitOpenException extends CMCException {
+
+    /**
+     * Generated serialVersionUID.
+     */
+    private static final long serialVersionUID = 5830227718846145219L;
+
+    /**
+     * Endpoint group of the open circuit.
+     */
+    private final String endpointGroup;
+
+    /**
+     * Constructor.
+     *
+     * @param endpointGroup endpoint group of the open circuit.
+     */
+    public CMCCircuitOpenException(String endpointGroup) {
+        super("Circuit breaker open for " + endpointGroup);
+        this.endpointGroup = endpointGroup;
+    }
+
+    /**
+     * @return the endpoint group of the open circuit
+     */
+    public String getEndpointGroup() {
+        return endpointGroup;
+    }
+
+}
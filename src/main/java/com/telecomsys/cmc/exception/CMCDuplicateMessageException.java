@@ -0,0 +1,22 @@
+package com.telecomsys.cmc.exception;
+
+/**
+ * Exception generated by the CMC SDK when a send is suppressed as a duplicate of a recent send.
+ */
+public class CMCDuplicateMessageException extends CMCException {
+
+    /**
+     * Generated serialVersionUID.
+     */
+    private static final long serialVersionUID = 4719302786450518837L;
+
+    /**
+     * Constructor.
+     *
+     * @param msg Error message.
+     */
+    public CMCDuplicateMessageException(String msg) {
+        super(msg);
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.telecomsys.cmc.exception;
+
+/**
+ * Exception generated by the CMC SDK when a request is rejected by the client side rate limiter.
+ */
+public class CMCRateLimitException extends CMCException {
+
+    /**
+     * Generated serialVersionUID.
+     */
+    private static final long serialVersionUID = -2870613052519640235L;
+
+    /**
+     * Constructor.
+     *
+     * @param msg Error message.
+     */
+    public CMCRateLimitException(String msg) {
+        super(msg);
+    }
+
+}
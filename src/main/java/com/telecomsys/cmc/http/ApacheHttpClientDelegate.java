@@ -1,54 +1,81 @@
 package com.telecomsys.cmc.http;
 
+import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpMessage;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
-import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
-import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
-import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonRootName;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.telecomsys.cmc.exception.CMCAuthenticationException;
+import com.telecomsys.cmc.exception.CMCCircuitOpenException;
 import com.telecomsys.cmc.exception.CMCClientException;
 import com.telecomsys.cmc.exception.CMCException;
 import com.telecomsys.cmc.exception.CMCIOException;
+import com.telecomsys.cmc.exception.CMCRateLimitException;
 import com.telecomsys.cmc.response.RestResponse;
+import com.telecomsys.cmc.utils.DaemonThreadFactory;
 
 /**
- * Implementation of the HTTP client request provider based on Apache HTTP components.
+ * Implementation of the HTTP client request provider based on Apache HTTP components. Blocking requests use the
+ * pooling HTTP client, asynchronous requests use a non-blocking HTTP client that is started on first use.
  */
-public class ApacheHttpClientDelegate implements HttpClientDelegate {
+public class ApacheHttpClientDelegate implements HttpClientDelegate, AsyncHttpClientDelegate, CredentialsUpdatable,
+        Closeable {
 
     /**
      * Logger.
@@ -61,19 +88,40 @@ public class ApacheHttpClientDelegate implements HttpClientDelegate {
     private static final String CMC_VERSION;
 
     /**
-     * The base URL to connect to the CMC REST service.
+     * Accept header sent with all requests.
      */
-    private String baseUri;
+    private static final Header ACCEPT_HEADER = new BasicHeader(HttpHeaders.ACCEPT, "application/json");
 
     /**
-     * The REST accountID used like a user name to authenticate.
+     * Content type header sent with all requests.
      */
-    private String accountID;
+    private static final Header CONTENT_TYPE_HEADER = new BasicHeader(HttpHeaders.CONTENT_TYPE, "application/json");
 
     /**
-     * REST authentication token used like a password to authenticate.
+     * Custom header for CSRF protection sent with all requests.
      */
-    private String authenticationToken;
+    private static final Header REQUESTED_BY_HEADER = new BasicHeader("X-Requested-By", "12345");
+
+    /**
+     * User agent header sent with all requests.
+     */
+    private static final Header USER_AGENT_HEADER;
+
+    /**
+     * Builder of the request URIs from the base URL to connect to the CMC REST service.
+     */
+    private final UrlBuilder urlBuilder;
+
+    /**
+     * Basic authorization header built from the REST accountID and authentication token. Replaced as a whole when
+     * the credentials are updated.
+     */
+    private volatile Header authorizationHeader;
+
+    /**
+     * HTTP client configuration.
+     */
+    private final CmcClientConfig config;
 
     /**
      * Apache implementation of a pooling HTTP client connection manager.
@@ -85,11 +133,78 @@ public class ApacheHttpClientDelegate implements HttpClientDelegate {
      */
     private CloseableHttpClient httpClient;
 
+    /**
+     * Apache non-blocking HTTP client instance, created on the first asynchronous request.
+     */
+    private volatile CloseableHttpAsyncClient asyncHttpClient;
+
+    /**
+     * Apache implementation of a pooling non-blocking HTTP client connection manager.
+     */
+    private PoolingNHttpClientConnectionManager asyncConnectionManager;
+
+    /**
+     * Executor running the idle connection evictor. Null if eviction is disabled.
+     */
+    private ScheduledExecutorService evictionExecutor;
+
+    /**
+     * Client side rate limiter. Null if the requests are not rate limited.
+     */
+    private final RateLimiter rateLimiter;
+
+    /**
+     * Retry policy of the idempotent requests. Null if requests are not retried.
+     */
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * Circuit breaker configuration. Null if there is no circuit breaker.
+     */
+    private final CircuitBreakerConfig circuitBreakerConfig;
+
+    /**
+     * Circuit breakers keyed by endpoint group, created on first use.
+     */
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers =
+            new ConcurrentHashMap<String, CircuitBreaker>();
+
+    /**
+     * Recorder of the metrics.
+     */
+    private final MetricsRecorder metrics;
+
+    /**
+     * Endpoint groups seen so far, so that the group of a request is found without allocating a string.
+     */
+    private volatile String[] endpointGroups = new String[0];
+
+    /**
+     * Executor sending the delayed asynchronous requests: requests queued by the rate limiter and retries. Null if
+     * neither is configured.
+     */
+    private ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * Whether the HTTP client has been closed.
+     */
+    private volatile boolean closed;
+
     /**
      * Json mapper.
      */
     private ObjectMapper jsonMapper;
 
+    /**
+     * Readers keyed by response class, with the root name to unwrap already resolved.
+     */
+    private final ConcurrentMap<Class<?>, ObjectReader> jsonReaders = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+    /**
+     * Writers keyed by message wrapper name.
+     */
+    private final ConcurrentMap<String, ObjectWriter> jsonWriters = new ConcurrentHashMap<String, ObjectWriter>();
+
     /**
      * Static initializer.
      */
@@ -104,6 +219,7 @@ public class ApacheHttpClientDelegate implements HttpClientDelegate {
             }
         }
         CMC_VERSION = cmcVersion;
+        USER_AGENT_HEADER = new BasicHeader(HttpHeaders.USER_AGENT, "cmc-java " + CMC_VERSION);
     }
 
     /**
@@ -114,9 +230,27 @@ public class ApacheHttpClientDelegate implements HttpClientDelegate {
      * @param authenticationToken the authentication token.
      */
     public ApacheHttpClientDelegate(String baseUri, String accountID, String authenticationToken) {
-        this.baseUri = baseUri;
-        this.accountID = accountID;
-        this.authenticationToken = authenticationToken;
+        this(baseUri, accountID, authenticationToken, CmcClientConfig.DEFAULT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param baseUri base URL to connect to the CMC REST service
+     * @param accountID the REST account identity.
+     * @param authenticationToken the authentication token.
+     * @param config the HTTP client configuration.
+     * @throws IllegalArgumentException if the base URL is not a valid absolute URI.
+     */
+    public ApacheHttpClientDelegate(String baseUri, String accountID, String authenticationToken,
+            CmcClientConfig config) {
+        try {
+            this.urlBuilder = new UrlBuilder(baseUri);
+        } catch (URISyntaxException usex) {
+            throw new IllegalArgumentException("Invalid base URI: " + baseUri, usex);
+        }
+        this.config = config;
+        this.authorizationHeader = createAuthorizationHeader(accountID, authenticationToken);
         this.jsonMapper = new ObjectMapper();
 
         // Support root name parsing by jackson.
@@ -126,13 +260,134 @@ public class ApacheHttpClientDelegate implements HttpClientDelegate {
         // Do not serialize properties that are null.
         this.jsonMapper.setSerializationInclusion(Include.NON_NULL);
 
+        // Request bodies are written straight to the connection, which is closed by the HTTP client.
+        this.jsonMapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+        // Optionally read the large responses without reflection.
+        if (config.isStreamingParsers()) {
+            this.jsonMapper.registerModule(StreamingParsers.createModule());
+        }
+
         // Usage a connection manager that pools connections.
-        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager = new PoolingHttpClientConnectionManager(config.getConnectionTimeToLive(),
+                TimeUnit.MILLISECONDS);
+
+        // Set the limits for the connections. The Apache default per route is 2 and max total is 20.
+        this.connectionManager.setMaxTotal(config.getMaxConnectionsTotal());
+        this.connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        this.connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivity());
+
+        // The retry policy is the only retry layer, as for the asynchronous client: the default retry handler of the
+        // blocking client would resend requests, POSTs included, beneath it.
+        this.httpClient = HttpClients.custom().setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(config.getKeepAliveStrategy()).disableAutomaticRetries().build();
+
+        // Throttle the requests on the client side when rate limits are configured.
+        this.rateLimiter = RateLimiter.create(config);
+        this.retryPolicy = config.getRetryPolicy();
+        this.circuitBreakerConfig = config.getCircuitBreakerConfig();
+        this.metrics = config.getMetricsRecorder();
+        this.metrics.registerConnectionPool("blocking", new PoolGauge(connectionManager));
+        if (retryPolicy != null || (rateLimiter != null && rateLimiter.getMode() == RateLimitMode.QUEUE)) {
+            // Delayed requests still run after shutdown so that they fail rather than never complete.
+            this.scheduler = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("cmc-scheduler"));
+        }
+
+        // Periodically close the expired and idle connections so that stale connections are not leased.
+        if (config.getIdleEvictionInterval() > 0) {
+            this.evictionExecutor = Executors
+                    .newSingleThreadScheduledExecutor(new DaemonThreadFactory("cmc-connection-evictor"));
+            this.evictionExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    evictConnections();
+                }
+            }, config.getIdleEvictionInterval(), config.getIdleEvictionInterval(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the HTTP client configuration
+     */
+    public CmcClientConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Get the circuit breaker of an endpoint group, for example "messages" or "receipts".
+     *
+     * @param endpointGroup the endpoint group, the first segment of the request paths.
+     * @return the circuit breaker, null if circuit breakers are not configured.
+     */
+    public CircuitBreaker getCircuitBreaker(String endpointGroup) {
+        if (circuitBreakerConfig == null) {
+            return null;
+        }
+        CircuitBreaker circuitBreaker = circuitBreakers.get(endpointGroup);
+        if (circuitBreaker == null) {
+            circuitBreaker = new CircuitBreaker(endpointGroup, circuitBreakerConfig);
+            CircuitBreaker existing = circuitBreakers.putIfAbsent(endpointGroup, circuitBreaker);
+            if (existing != null) {
+                circuitBreaker = existing;
+            }
+        }
+        return circuitBreaker;
+    }
+
+    @Override
+    public void updateCredentials(String accountID, String authenticationToken) {
+        this.authorizationHeader = createAuthorizationHeader(accountID, authenticationToken);
+    }
+
+    /**
+     * @return whether the HTTP client has been closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
 
-        // Set defaults for the connections. The default per route is 2 and max total is 20. Increasing the limits.
-        this.connectionManager.setMaxTotal(20);
-        this.connectionManager.setDefaultMaxPerRoute(10);
-        this.httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+    /**
+     * Close the HTTP clients and release the pooled connections. Requests made after closing fail.
+     *
+     * @throws IOException IO exception closing the connections.
+     */
+    @Override
+    public void close() throws IOException {
+        CloseableHttpAsyncClient client;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            client = asyncHttpClient;
+        }
+        if (evictionExecutor != null) {
+            evictionExecutor.shutdownNow();
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        try {
+            httpClient.close();
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * Helper method to close the expired and idle connections of the connection pools.
+     */
+    private void evictConnections() {
+        long idleTime = config.getIdleEvictionInterval();
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleTime, TimeUnit.MILLISECONDS);
+        PoolingNHttpClientConnectionManager asyncManager = asyncConnectionManager;
+        if (asyncManager != null) {
+            asyncManager.closeExpiredConnections();
+            asyncManager.closeIdleConnections(idleTime, TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
@@ -155,8 +410,33 @@ public class ApacheHttpClientDelegate implements HttpClientDelegate {
         return handleRequest(request, responseClass, HttpDelete.METHOD_NAME);
     }
 
+    @Override
+    public <T> Future<HttpResponseWrapper<T>> doGetAsync(CmcHttpRequest request, Class<T> responseClass,
+            ResponseCallback<T> callback) {
+        return handleAsyncRequest(request, responseClass, HttpGet.METHOD_NAME, callback);
+    }
+
+    @Override
+    public <T> Future<HttpResponseWrapper<T>> doPostAsync(CmcHttpRequest request, Class<T> responseClass,
+            ResponseCallback<T> callback) {
+        return handleAsyncRequest(request, responseClass, HttpPost.METHOD_NAME, callback);
+    }
+
+    @Override
+    public <T> Future<HttpResponseWrapper<T>> doPutAsync(CmcHttpRequest request, Class<T> responseClass,
+            ResponseCallback<T> callback) {
+        return handleAsyncRequest(request, responseClass, HttpPut.METHOD_NAME, callback);
+    }
+
+    @Override
+    public <T> Future<HttpResponseWrapper<T>> doDeleteAsync(CmcHttpRequest request, Class<T> responseClass,
+            ResponseCallback<T> callback) {
+        return handleAsyncRequest(request, responseClass, HttpDelete.METHOD_NAME, callback);
+    }
+
     /**
-     * Helper method to handle the request for all HTTP requests.
+     * Helper method to handle the request for all HTTP requests. Idempotent requests are retried according to the
+     * retry policy.
      *
      * @param request CMC request.
      * @param responseClass response class for HTTP response.
@@ -168,97 +448,592 @@ public class ApacheHttpClientDelegate implements HttpClientDelegate {
     private <T> HttpResponseWrapper<T> handleRequest(CmcHttpRequest request, Class<T> responseClass, String methodType)
             throws CMCException {
 
+        long startTime = System.currentTimeMillis();
+        String endpointGroup = getEndpointGroup(request);
+        CircuitBreaker circuitBreaker = getCircuitBreaker(endpointGroup);
+        try {
+            for (int retryCount = 0;; retryCount++) {
+                // Execute the request and handle the response.
+                HttpRequestBase httpMethod = createHttpMethod(request, methodType);
+                long waitNanos = reservePermits(request, endpointGroup);
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+
+                // Fail fast while the circuit of the endpoint group is open.
+                int generation = acquireCircuit(circuitBreaker, endpointGroup);
+                long sendTime = System.nanoTime();
+                HttpResponse response;
+                try {
+                    response = httpClient.execute(httpMethod);
+                } catch (RuntimeException rex) {
+                    releaseCircuit(circuitBreaker, generation);
+                    throw rex;
+                } catch (IOException ioex) {
+                    long duration = System.nanoTime() - sendTime;
+                    metrics.requestCompleted(endpointGroup, methodType, 0, duration);
+                    recordOutcome(circuitBreaker, generation, duration, true);
+                    long delay = getRetryDelay(request, methodType, retryCount, startTime, 0, ioex);
+                    if (delay < 0) {
+                        throw ioex;
+                    }
+                    LOGGER.debug("Retrying {} {} in {} ms: {}", methodType, request.getPath(), delay, ioex);
+                    metrics.requestRetried(endpointGroup, methodType);
+                    TimeUnit.MILLISECONDS.sleep(delay);
+                    continue;
+                }
+
+                long duration = System.nanoTime() - sendTime;
+                int statusCode = response.getStatusLine().getStatusCode();
+                metrics.requestCompleted(endpointGroup, methodType, statusCode, duration);
+                recordBytesSent(httpMethod, endpointGroup);
+                recordOutcome(circuitBreaker, generation, duration, statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR);
+                long delay = getRetryDelay(request, methodType, retryCount, startTime, statusCode, null);
+                if (delay < 0) {
+                    return handleResponse(response, responseClass, request, endpointGroup);
+                }
+                LOGGER.debug("Retrying {} {} in {} ms: HTTP {}", methodType, request.getPath(), delay, statusCode);
+                metrics.requestRetried(endpointGroup, methodType);
+                discardResponse(response);
+                TimeUnit.MILLISECONDS.sleep(delay);
+            }
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            throw new CMCException(iex);
+        } catch (Exception ex) {
+            throw toCMCException(ex);
+        }
+    }
+
+    /**
+     * Helper method to handle the request for all asynchronous HTTP requests. Failures are reported through the
+     * returned future and the callback rather than thrown.
+     *
+     * @param request CMC request.
+     * @param responseClass response class for HTTP response.
+     * @param methodType HTTP method (i.e. POST, GET, PUT or DELETE) for now.
+     * @param callback callback notified on completion, may be null.
+     * @param <T> This describes the type of response.
+     * @return future HTTP response wrapper
+     */
+    private <T> Future<HttpResponseWrapper<T>> handleAsyncRequest(CmcHttpRequest request, Class<T> responseClass,
+            String methodType, ResponseCallback<T> callback) {
+
+        BasicFuture<HttpResponseWrapper<T>> future = new BasicFuture<HttpResponseWrapper<T>>(
+                callback == null ? null : new CallbackAdapter<T>(callback));
+        sendAsync(new AsyncAttempt<T>(request, responseClass, methodType, getEndpointGroup(request), future));
+        return future;
+    }
+
+    /**
+     * Helper method to send an attempt of an asynchronous request, once the rate limiter allows it.
+     *
+     * @param attempt the asynchronous request.
+     * @param <T> This describes the type of response.
+     */
+    private <T> void sendAsync(final AsyncAttempt<T> attempt) {
         try {
-            // Generate the HTTP request based on the parameters.
-            HttpRequestBase httpMethod = null;
-
-            switch (methodType) {
-            case HttpGet.METHOD_NAME:
-                // Create the list of parameters for the request.
-                List<NameValuePair> getParams = convertToNamedValuePairs(request.getUrlParameters());
-                httpMethod = new HttpGet(escapeURI(baseUri, request.getPath(), getParams));
-                break;
-            case HttpPost.METHOD_NAME:
-                HttpPost post = new HttpPost(escapeURI(baseUri, request.getPath(), null));
-                ObjectWriter postWriter = jsonMapper.writer().withRootName(request.getMessageWrapperName());
-                String jsonPostParams = postWriter.writeValueAsString(request.getBodyParameters());
-                StringEntity postEntity = new StringEntity(jsonPostParams, ContentType.APPLICATION_JSON);
-                post.setEntity(postEntity);
-                httpMethod = post;
-                break;
-            case HttpPut.METHOD_NAME:
-                HttpPut put = new HttpPut(escapeURI(baseUri, request.getPath(), null));
-                ObjectWriter putWriter = jsonMapper.writer().withRootName(request.getMessageWrapperName());
-                String jsonPutParams = putWriter.writeValueAsString(request.getBodyParameters());
-                StringEntity putEntity = new StringEntity(jsonPutParams, ContentType.APPLICATION_JSON);
-                put.setEntity(putEntity);
-                httpMethod = put;
-                break;
-            case HttpDelete.METHOD_NAME:
-                // Create the list of parameters for the request.
-                List<NameValuePair> deleteParams = convertToNamedValuePairs(request.getUrlParameters());
-                httpMethod = new HttpDelete(escapeURI(baseUri, request.getPath(), deleteParams));
-                break;
-            default:
-                break;
+            final HttpRequestBase httpMethod = createHttpMethod(attempt.request, attempt.methodType);
+            long waitNanos = reservePermits(attempt.request, attempt.endpointGroup);
+            if (waitNanos > 0 && rateLimiter.getMode() == RateLimitMode.QUEUE) {
+                // Queue the request until the rate limiter allows it without blocking the caller.
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        executeAsync(httpMethod, attempt);
+                    }
+                }, waitNanos, TimeUnit.NANOSECONDS);
+                return;
+            } else if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
             }
+            executeAsync(httpMethod, attempt);
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            attempt.future.failed(new CMCException(iex));
+        } catch (Exception ex) {
+            attempt.future.failed(toCMCException(ex));
+        }
+    }
 
-            // Add request configuration parameters if set.
-            if (request.getTimeout() > 0) {
-                int timeout = request.getTimeout();
-                RequestConfig config = RequestConfig.custom().setConnectTimeout(timeout).setSocketTimeout(timeout)
-                        .setConnectionRequestTimeout(timeout).build();
-                httpMethod.setConfig(config);
+    /**
+     * Helper method to execute an attempt of an asynchronous request and complete its future with the response, or
+     * schedule the next attempt.
+     *
+     * @param httpMethod HTTP request.
+     * @param attempt the asynchronous request.
+     * @param <T> This describes the type of response.
+     */
+    private <T> void executeAsync(final HttpRequestBase httpMethod, final AsyncAttempt<T> attempt) {
+        final String endpointGroup = attempt.endpointGroup;
+        final CircuitBreaker circuitBreaker = getCircuitBreaker(endpointGroup);
+        int acquiredGeneration = -1;
+        try {
+            if (closed) {
+                throw new IllegalStateException("HTTP client is closed");
             }
 
-            // Add the common headers required by all CMC requests
-            addCMCHeaders(httpMethod);
+            // Fail fast while the circuit of the endpoint group is open.
+            acquiredGeneration = acquireCircuit(circuitBreaker, endpointGroup);
+            final int generation = acquiredGeneration;
+            final long sendTime = System.nanoTime();
+            getAsyncHttpClient().execute(httpMethod, new FutureCallback<HttpResponse>() {
 
-            // Execute the request and handle the response.
-            CloseableHttpResponse response = httpClient.execute(httpMethod);
-            return handleResponse(httpMethod, response, responseClass);
+                @Override
+                public void completed(HttpResponse response) {
+                    long duration = System.nanoTime() - sendTime;
+                    int statusCode = response.getStatusLine().getStatusCode();
+                    metrics.requestCompleted(endpointGroup, attempt.methodType, statusCode, duration);
+                    recordBytesSent(httpMethod, endpointGroup);
+                    recordOutcome(circuitBreaker, generation, duration,
+                            statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR);
+                    if (retryAsync(attempt, statusCode, null)) {
+                        discardResponse(response);
+                        return;
+                    }
+                    try {
+                        attempt.future.completed(handleResponse(response, attempt.responseClass, attempt.request,
+                                endpointGroup));
+                    } catch (CMCException cmcex) {
+                        attempt.future.failed(cmcex);
+                    }
+                }
 
-        } catch (CMCException cmcex) {
+                @Override
+                public void failed(Exception ex) {
+                    long duration = System.nanoTime() - sendTime;
+                    metrics.requestCompleted(endpointGroup, attempt.methodType, 0, duration);
+                    recordOutcome(circuitBreaker, generation, duration, true);
+                    if (!retryAsync(attempt, 0, ex)) {
+                        attempt.future.failed(toCMCException(ex));
+                    }
+                }
+
+                @Override
+                public void cancelled() {
+                    releaseCircuit(circuitBreaker, generation);
+                    attempt.future.cancel();
+                }
+            });
+        } catch (Exception ex) {
+            if (acquiredGeneration >= 0) {
+                releaseCircuit(circuitBreaker, acquiredGeneration);
+            }
+            attempt.future.failed(toCMCException(ex));
+        }
+    }
+
+    /**
+     * Helper method to get the endpoint group of a request, the first segment of its path. The groups are looked up
+     * among those already seen so that the same string instance is returned without allocating.
+     *
+     * @param request CMC request.
+     * @return the endpoint group.
+     */
+    private String getEndpointGroup(CmcHttpRequest request) {
+        String path = request.getPath();
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        int length = end - start;
+        String[] groups = endpointGroups;
+        for (String group : groups) {
+            if (group.length() == length && path.regionMatches(start, group, 0, length)) {
+                return group;
+            }
+        }
+
+        // A group added concurrently may be lost, it is added again on its next request.
+        String group = path.substring(start, end);
+        String[] updated = Arrays.copyOf(groups, groups.length + 1);
+        updated[groups.length] = group;
+        endpointGroups = updated;
+        return group;
+    }
+
+    /**
+     * Helper method to acquire the permission of the circuit breaker to send a request.
+     *
+     * @param circuitBreaker the circuit breaker, may be null.
+     * @param endpointGroup endpoint group of the request.
+     * @return the generation to pass back with the outcome of the request.
+     * @throws CMCCircuitOpenException if the circuit is open.
+     */
+    private int acquireCircuit(CircuitBreaker circuitBreaker, String endpointGroup) throws CMCCircuitOpenException {
+        if (circuitBreaker == null) {
+            return 0;
+        }
+        try {
+            return circuitBreaker.acquire();
+        } catch (CMCCircuitOpenException cmcex) {
+            metrics.circuitRejected(endpointGroup);
             throw cmcex;
+        }
+    }
+
+    /**
+     * Helper method to record the size of the body of a request once it is sent.
+     *
+     * @param httpMethod HTTP request.
+     * @param endpointGroup endpoint group of the request.
+     */
+    private void recordBytesSent(HttpRequestBase httpMethod, String endpointGroup) {
+        if (httpMethod instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) httpMethod).getEntity();
+            if (entity instanceof JsonStreamingEntity) {
+                metrics.bytesSent(endpointGroup, ((JsonStreamingEntity) entity).getBytesWritten());
+            }
+        }
+    }
+
+    /**
+     * Helper method to record the outcome of a request in its circuit breaker.
+     *
+     * @param circuitBreaker the circuit breaker, may be null.
+     * @param generation the generation returned when acquiring the circuit breaker.
+     * @param durationNanos duration of the request in nanoseconds.
+     * @param failed whether the request failed.
+     */
+    private static void recordOutcome(CircuitBreaker circuitBreaker, int generation, long durationNanos,
+            boolean failed) {
+        if (circuitBreaker != null) {
+            circuitBreaker.record(generation, durationNanos, failed);
+        }
+    }
+
+    /**
+     * Helper method to release a circuit breaker permission without recording an outcome.
+     *
+     * @param circuitBreaker the circuit breaker, may be null.
+     * @param generation the generation returned when acquiring the circuit breaker.
+     */
+    private static void releaseCircuit(CircuitBreaker circuitBreaker, int generation) {
+        if (circuitBreaker != null) {
+            circuitBreaker.release(generation);
+        }
+    }
+
+    /**
+     * Helper method to schedule the next attempt of an asynchronous request if the retry policy allows it.
+     *
+     * @param attempt the asynchronous request.
+     * @param statusCode HTTP status code of the response, zero if the request failed without a response.
+     * @param failure exception raised by the attempt, null if a response was received.
+     * @param <T> This describes the type of response.
+     * @return whether a retry was scheduled.
+     */
+    private <T> boolean retryAsync(final AsyncAttempt<T> attempt, int statusCode, Exception failure) {
+        long delay = getRetryDelay(attempt.request, attempt.methodType, attempt.retryCount, attempt.startTime,
+                statusCode, failure);
+        if (delay < 0 || closed) {
+            return false;
+        }
+        LOGGER.debug("Retrying {} {} in {} ms", attempt.methodType, attempt.request.getPath(), delay);
+        metrics.requestRetried(attempt.endpointGroup, attempt.methodType);
+        attempt.retryCount++;
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    sendAsync(attempt);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException reex) {
+            // Closed concurrently, report the failure of this attempt.
+            return false;
+        }
+    }
+
+    /**
+     * Helper method to get the delay before retrying a request.
+     *
+     * @param request CMC request.
+     * @param methodType HTTP method (i.e. POST, GET, PUT or DELETE) for now.
+     * @param retryCount number of retries already made.
+     * @param startTime time in milliseconds the first attempt started.
+     * @param statusCode HTTP status code of the response, zero if the request failed without a response.
+     * @param failure exception raised by the attempt, null if a response was received.
+     * @return the delay in milliseconds, negative if the request must not be retried.
+     */
+    private long getRetryDelay(CmcHttpRequest request, String methodType, int retryCount, long startTime,
+            int statusCode, Exception failure) {
+        // Only idempotent requests are retried, a send could otherwise be delivered twice.
+        if (retryPolicy == null || !(HttpGet.METHOD_NAME.equals(methodType) || request.isIdempotent())) {
+            return RetryPolicy.NO_RETRY;
+        }
+        return retryPolicy.getRetryDelay(retryCount, System.currentTimeMillis() - startTime, statusCode, failure);
+    }
+
+    /**
+     * Helper method to release the connection of a response that is not handled.
+     *
+     * @param response the HTTP response
+     */
+    private static void discardResponse(HttpResponse response) {
+        try {
+            EntityUtils.consume(response.getEntity());
+            if (response instanceof Closeable) {
+                ((Closeable) response).close();
+            }
         } catch (IOException ioex) {
-            throw new CMCIOException(ioex);
-        } catch (Exception ex) {
-            throw new CMCException(ex);
+            LOGGER.error("IO Exception: {}", ioex);
         }
     }
 
     /**
-     * Helper method to handle the responses for all HTTP requests.
+     * Helper method to reserve the rate limiter permits of a request.
+     *
+     * @param request CMC request.
+     * @param endpointGroup endpoint group of the request.
+     * @return the time in nanoseconds to wait before sending the request.
+     * @throws CMCException if the rate limit is exceeded.
+     */
+    private long reservePermits(CmcHttpRequest request, String endpointGroup) throws CMCException {
+        if (rateLimiter == null) {
+            return 0;
+        }
+        long waitNanos;
+        try {
+            waitNanos = rateLimiter.reserve(request.getKeyword());
+        } catch (CMCRateLimitException cmcex) {
+            metrics.rateLimitRejected(endpointGroup);
+            throw cmcex;
+        }
+        if (waitNanos > 0) {
+            metrics.rateLimitDelayed(endpointGroup, waitNanos);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Helper method to create the HTTP request with the CMC headers for all HTTP requests.
      *
      * @param request CMC request.
+     * @param methodType HTTP method (i.e. POST, GET, PUT or DELETE) for now.
+     * @return HTTP request.
+     * @throws IOException IO exception serializing the request body.
+     */
+    private HttpRequestBase createHttpMethod(CmcHttpRequest request, String methodType) throws IOException {
+
+        if (closed) {
+            throw new IllegalStateException("HTTP client is closed");
+        }
+
+        // Generate the HTTP request based on the parameters.
+        HttpRequestBase httpMethod = null;
+
+        switch (methodType) {
+        case HttpGet.METHOD_NAME:
+            httpMethod = new HttpGet(urlBuilder.build(request.getPath(), request.getUrlParameters()));
+            break;
+        case HttpPost.METHOD_NAME:
+            HttpPost post = new HttpPost(urlBuilder.build(request.getPath(), null));
+            post.setEntity(createJsonEntity(request));
+            httpMethod = post;
+            break;
+        case HttpPut.METHOD_NAME:
+            HttpPut put = new HttpPut(urlBuilder.build(request.getPath(), null));
+            put.setEntity(createJsonEntity(request));
+            httpMethod = put;
+            break;
+        case HttpDelete.METHOD_NAME:
+            httpMethod = new HttpDelete(urlBuilder.build(request.getPath(), request.getUrlParameters()));
+            break;
+        default:
+            throw new IllegalArgumentException("Unsupported HTTP method: " + methodType);
+        }
+
+        // Add request configuration parameters if set.
+        if (request.getTimeout() > 0) {
+            int timeout = request.getTimeout();
+            RequestConfig config = RequestConfig.custom().setConnectTimeout(timeout).setSocketTimeout(timeout)
+                    .setConnectionRequestTimeout(timeout).build();
+            httpMethod.setConfig(config);
+        }
+
+        // Add the common headers required by all CMC requests
+        addCMCHeaders(httpMethod);
+        return httpMethod;
+    }
+
+    /**
+     * Helper method to create the JSON entity for the body parameters of the request. The body is serialized straight
+     * to the connection unless it is small enough to be sent with a Content-Length.
+     *
+     * @param request CMC request.
+     * @return JSON entity.
+     * @throws IOException IO exception serializing the request body.
+     */
+    private HttpEntity createJsonEntity(CmcHttpRequest request) throws IOException {
+        ObjectWriter writer = getJsonWriter(request.getMessageWrapperName());
+        return new JsonStreamingEntity(writer, request.getBodyParameters(), config.getRequestBufferThreshold());
+    }
+
+    /**
+     * Helper method to get the cached writer for a message wrapper name, creating it on first use.
+     *
+     * @param wrapperName message wrapper name, null to use the root name of the body class.
+     * @return JSON writer.
+     */
+    private ObjectWriter getJsonWriter(String wrapperName) {
+        if (wrapperName == null) {
+            return jsonMapper.writer();
+        }
+        ObjectWriter writer = jsonWriters.get(wrapperName);
+        if (writer == null) {
+            writer = jsonMapper.writer().withRootName(wrapperName);
+            ObjectWriter existing = jsonWriters.putIfAbsent(wrapperName, writer);
+            if (existing != null) {
+                writer = existing;
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * Helper method to get the cached reader for a response class, creating it on first use. The root name is
+     * resolved once here so that reading a response does not look it up again.
+     *
+     * @param responseClass response class.
+     * @return JSON reader.
+     */
+    private ObjectReader getJsonReader(Class<?> responseClass) {
+        ObjectReader reader = jsonReaders.get(responseClass);
+        if (reader == null) {
+            String rootName = findRootName(responseClass);
+            reader = jsonMapper.reader(responseClass).withRootName(rootName);
+            ObjectReader existing = jsonReaders.putIfAbsent(responseClass, reader);
+            if (existing != null) {
+                reader = existing;
+            }
+        }
+        return reader;
+    }
+
+    /**
+     * Helper method to find the root name of a response class. The annotation is read directly because the
+     * introspection of jackson 2.5 may miss it when several threads look up the same class for the first time.
+     *
+     * @param responseClass response class.
+     * @return the root name declared on the class or a superclass, or the simple class name.
+     */
+    private static String findRootName(Class<?> responseClass) {
+        for (Class<?> type = responseClass; type != null; type = type.getSuperclass()) {
+            JsonRootName rootName = type.getAnnotation(JsonRootName.class);
+            if (rootName != null && !rootName.value().isEmpty()) {
+                return rootName.value();
+            }
+        }
+        return responseClass.getSimpleName();
+    }
+
+    /**
+     * Helper method to convert any exception raised while processing a request to a CMC exception.
+     *
+     * @param ex exception raised.
+     * @return CMC exception.
+     */
+    private static CMCException toCMCException(Exception ex) {
+        if (ex instanceof CMCException) {
+            return (CMCException) ex;
+        } else if (ex instanceof IOException) {
+            return new CMCIOException((IOException) ex);
+        } else {
+            return new CMCException(ex);
+        }
+    }
+
+    /**
+     * Helper method to start the non-blocking HTTP client on the first asynchronous request.
+     *
+     * @return the started non-blocking HTTP client.
+     * @throws IOReactorException exception creating the I/O reactor.
+     */
+    private CloseableHttpAsyncClient getAsyncHttpClient() throws IOReactorException {
+        CloseableHttpAsyncClient client = asyncHttpClient;
+        if (client == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("HTTP client is closed");
+                }
+                client = asyncHttpClient;
+                if (client == null) {
+                    DefaultConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(IOReactorConfig.DEFAULT,
+                            new DaemonThreadFactory("cmc-async-io"));
+                    Registry<SchemeIOSessionStrategy> sessionStrategies = RegistryBuilder
+                            .<SchemeIOSessionStrategy>create().register("http", NoopIOSessionStrategy.INSTANCE)
+                            .register("https", SSLIOSessionStrategy.getDefaultStrategy()).build();
+                    PoolingNHttpClientConnectionManager manager = new PoolingNHttpClientConnectionManager(ioReactor,
+                            null, sessionStrategies, null, null, config.getConnectionTimeToLive(),
+                            TimeUnit.MILLISECONDS);
+                    manager.setMaxTotal(config.getMaxConnectionsTotal());
+                    manager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+                    client = HttpAsyncClients.custom().setConnectionManager(manager)
+                            .setKeepAliveStrategy(config.getKeepAliveStrategy())
+                            .setThreadFactory(new DaemonThreadFactory("cmc-async-dispatch")).build();
+                    client.start();
+                    asyncConnectionManager = manager;
+                    asyncHttpClient = client;
+                    metrics.registerConnectionPool("async", new PoolGauge(manager));
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Helper method to handle the responses for all HTTP requests.
+     *
      * @param response the HTTP response
      * @param responseClass response class for HTTP response.
+     * @param request the CMC request, which may carry a parser of the response.
+     * @param endpointGroup endpoint group of the request.
      * @param <T> This describes the type of response.
      * @return HTTP response wrapper
      * @throws CMCException CMC exception.
      */
-    private <T> HttpResponseWrapper<T> handleResponse(HttpRequestBase request, CloseableHttpResponse response,
-            Class<T> responseClass) throws CMCException {
+    private <T> HttpResponseWrapper<T> handleResponse(HttpResponse response, Class<T> responseClass,
+            CmcHttpRequest request, String endpointGroup) throws CMCException {
 
         HttpEntity responseEntity = response.getEntity();
         if (responseEntity == null) {
             throw new CMCException("Response is empty");
         }
 
+        // Count the bytes read only when the response has no Content-Length.
+        long contentLength = responseEntity.getContentLength();
+        CountingInputStream countingStream = null;
         try {
             int statusCode = response.getStatusLine().getStatusCode();
             InputStream jsonStream = responseEntity.getContent();
+            if (contentLength < 0) {
+                countingStream = new CountingInputStream(jsonStream);
+                jsonStream = countingStream;
+            }
 
             // Parse based on the HTTP response.
             if (HttpStatus.SC_OK == statusCode || HttpStatus.SC_CREATED == statusCode
                     || statusCode == HttpStatus.SC_NOT_FOUND || statusCode == HttpStatus.SC_INTERNAL_SERVER_ERROR) {
-                T responseBody = jsonMapper.readValue(jsonStream, responseClass);
+                T responseBody;
+                if (request.getResponseParser() != null) {
+                    JsonParser parser = jsonMapper.getFactory().createParser(jsonStream);
+                    try {
+                        responseBody = responseClass.cast(request.getResponseParser().parse(parser));
+                    } finally {
+                        parser.close();
+                    }
+                } else {
+                    responseBody = getJsonReader(responseClass).readValue(jsonStream);
+                }
                 return HttpResponseWrapper.create(statusCode, responseBody);
             } else if (statusCode == HttpStatus.SC_UNAUTHORIZED) {
                 throw new CMCAuthenticationException("Authentication failed");
             } else if (statusCode >= HttpStatus.SC_BAD_REQUEST && statusCode < HttpStatus.SC_INTERNAL_SERVER_ERROR) {
                 // These are the http status code specifically related to client error.
-                RestResponse error = jsonMapper.readValue(jsonStream, RestResponse.class);
+                RestResponse error = getJsonReader(RestResponse.class).readValue(jsonStream);
                 throw new CMCClientException(error, statusCode);
             } else {
                 throw new CMCException("Invalid CMC response");
@@ -267,13 +1042,8 @@ public class ApacheHttpClientDelegate implements HttpClientDelegate {
         } catch (IllegalStateException | IOException iex) {
             throw new CMCException("Exception processing response: " + iex);
         } finally {
-            try {
-                EntityUtils.consume(responseEntity);
-                response.close();
-            } catch (IOException ioex) {
-                LOGGER.error("IO Exception: {}", ioex);
-
-            }
+            metrics.bytesReceived(endpointGroup, countingStream == null ? contentLength : countingStream.count);
+            discardResponse(response);
         }
     }
 
@@ -283,56 +1053,210 @@ public class ApacheHttpClientDelegate implements HttpClientDelegate {
      * @param httpMessage HTTP message
      */
     private void addCMCHeaders(HttpMessage httpMessage) {
-        // Set the Accepts and Content Type headers
-        httpMessage.addHeader(HttpHeaders.ACCEPT, "application/json");
-        httpMessage.addHeader(HttpHeaders.CONTENT_TYPE, "application/json");
-
-        // Custom header for CSRF protection
-        httpMessage.addHeader("X-Requested-By", "12345");
-
-        // Add a user agent header
-        httpMessage.addHeader("User-Agent", "cmc-java " + CMC_VERSION);
+        // The headers are immutable and shared by all requests.
+        httpMessage.addHeader(ACCEPT_HEADER);
+        httpMessage.addHeader(CONTENT_TYPE_HEADER);
+        httpMessage.addHeader(REQUESTED_BY_HEADER);
+        httpMessage.addHeader(USER_AGENT_HEADER);
+        httpMessage.addHeader(authorizationHeader);
+    }
 
-        // Set the basic authorization headers.
+    /**
+     * Helper method to create the basic authorization header.
+     *
+     * @param accountID the REST account identity.
+     * @param authenticationToken the authentication token.
+     * @return authorization header.
+     */
+    private static Header createAuthorizationHeader(String accountID, String authenticationToken) {
         String auth = accountID + ":" + authenticationToken;
         byte[] encodedAuth = Base64.encodeBase64(auth.getBytes(StandardCharsets.US_ASCII));
         String authHeader = "Basic " + new String(encodedAuth, StandardCharsets.US_ASCII);
-        httpMessage.addHeader(HttpHeaders.AUTHORIZATION, authHeader);
+        return new BasicHeader(HttpHeaders.AUTHORIZATION, authHeader);
     }
 
     /**
-     * Helper method to convert the map to a list of named value pairs.
+     * State of an asynchronous request across its attempts.
      *
-     * @param params map of parameters.
-     * @return List of named value pairs of the parameters.
+     * @param <T> This describes the type of response.
      */
-    private static List<NameValuePair> convertToNamedValuePairs(Map<String, String> params) {
-        List<NameValuePair> namedValueParameters = new ArrayList<NameValuePair>();
-        for (Entry<String, String> entry : params.entrySet()) {
-            namedValueParameters.add(new BasicNameValuePair(entry.getKey(), entry.getValue()));
+    private static final class AsyncAttempt<T> {
+
+        /**
+         * CMC request.
+         */
+        private final CmcHttpRequest request;
+
+        /**
+         * Response class for HTTP response.
+         */
+        private final Class<T> responseClass;
+
+        /**
+         * HTTP method.
+         */
+        private final String methodType;
+
+        /**
+         * Endpoint group of the request.
+         */
+        private final String endpointGroup;
+
+        /**
+         * Future completed with the response.
+         */
+        private final BasicFuture<HttpResponseWrapper<T>> future;
+
+        /**
+         * Time in milliseconds the first attempt started.
+         */
+        private final long startTime;
+
+        /**
+         * Number of retries already made. Only updated by the attempt in progress.
+         */
+        private volatile int retryCount;
+
+        /**
+         * Constructor.
+         *
+         * @param request CMC request.
+         * @param responseClass response class for HTTP response.
+         * @param methodType HTTP method.
+         * @param endpointGroup endpoint group of the request.
+         * @param future future completed with the response.
+         */
+        AsyncAttempt(CmcHttpRequest request, Class<T> responseClass, String methodType, String endpointGroup,
+                BasicFuture<HttpResponseWrapper<T>> future) {
+            this.request = request;
+            this.responseClass = responseClass;
+            this.methodType = methodType;
+            this.endpointGroup = endpointGroup;
+            this.future = future;
+            this.startTime = System.currentTimeMillis();
         }
-        return namedValueParameters;
     }
 
     /**
-     * Helper method to create an escaped URL.
+     * Adapter from the Apache future callback to the CMC response callback.
      *
-     * @param unescapedURI URI to escape.
-     * @param extraPath path to append to the URI
-     * @param queryParams query parameters to be added to the path.
-     * @return URI escaped URI.
-     * @throws URISyntaxException URI syntax exception.
-     */
-    private static URI escapeURI(String unescapedURI, String extraPath, List<NameValuePair> queryParams)
-            throws URISyntaxException {
-        URI uri = new URI(unescapedURI);
-
-        // Append the path in the passed in unescapedURI to the extraPath as it overwrites the path in the unescapedURI
-        // when we do a setPath.
-        if (queryParams != null && queryParams.size() > 0) {
-            return new URIBuilder(unescapedURI).setPath(uri.getPath() + extraPath).addParameters(queryParams).build();
-        } else {
-            return new URIBuilder(unescapedURI).setPath(uri.getPath() + extraPath).build();
+     * @param <T> This describes the type of response.
+     */
+    private static final class CallbackAdapter<T> implements FutureCallback<HttpResponseWrapper<T>> {
+
+        /**
+         * CMC response callback.
+         */
+        private final ResponseCallback<T> callback;
+
+        /**
+         * Constructor.
+         *
+         * @param callback CMC response callback.
+         */
+        CallbackAdapter(ResponseCallback<T> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void completed(HttpResponseWrapper<T> result) {
+            callback.completed(result);
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            callback.failed(toCMCException(ex));
+        }
+
+        @Override
+        public void cancelled() {
+            callback.failed(new CMCException("Request cancelled"));
+        }
+    }
+
+
+    /**
+     * Gauge reading the total statistics of a connection pool.
+     */
+    private static final class PoolGauge implements ConnectionPoolGauge {
+
+        /**
+         * Connection pool.
+         */
+        private final ConnPoolControl<?> pool;
+
+        /**
+         * Constructor.
+         *
+         * @param pool connection pool.
+         */
+        PoolGauge(ConnPoolControl<?> pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public int getLeased() {
+            return pool.getTotalStats().getLeased();
+        }
+
+        @Override
+        public int getAvailable() {
+            return pool.getTotalStats().getAvailable();
+        }
+
+        @Override
+        public int getPending() {
+            return pool.getTotalStats().getPending();
+        }
+
+        @Override
+        public int getMax() {
+            return pool.getTotalStats().getMax();
+        }
+    }
+
+    /**
+     * Input stream counting the bytes read from a response without a Content-Length.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        /**
+         * Number of bytes read.
+         */
+        private long count;
+
+        /**
+         * Constructor.
+         *
+         * @param in response input stream.
+         */
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
         }
     }
 
@@ -0,0 +1,60 @@
+package com.telecomsys.cmc.http;
+
+import java.util.concurrent.Future;
+
+/**
+ * Interface class for the non-blocking HTTP methods implemented for the CMC REST API. The returned futures fail with
+ * an {@link java.util.concurrent.ExecutionException} whose cause is the
+ * {@link com.telecomsys.cmc.exception.CMCException} that the blocking call would have thrown.
+ */
+public interface AsyncHttpClientDelegate {
+
+    /**
+     * Method to handle the asynchronous HTTP GET for all CMC REST API calls.
+     *
+     * @param request CMC request.
+     * @param responseClass response class for HTTP response.
+     * @param callback callback notified on completion, may be null.
+     * @param <T> This describes the type of response.
+     * @return future HTTP response wrapper
+     */
+    <T> Future<HttpResponseWrapper<T>> doGetAsync(CmcHttpRequest request, Class<T> responseClass,
+            ResponseCallback<T> callback);
+
+    /**
+     * Method to handle the asynchronous HTTP POST for all CMC REST API calls.
+     *
+     * @param request CMC request.
+     * @param responseClass response class for HTTP response.
+     * @param callback callback notified on completion, may be null.
+     * @param <T> This describes the type of response.
+     * @return future HTTP response wrapper
+     */
+    <T> Future<HttpResponseWrapper<T>> doPostAsync(CmcHttpRequest request, Class<T> responseClass,
+            ResponseCallback<T> callback);
+
+    /**
+     * Method to handle the asynchronous HTTP PUT for all CMC REST API calls.
+     *
+     * @param request CMC request.
+     * @param responseClass response class for HTTP response.
+     * @param callback callback notified on completion, may be null.
+     * @param <T> This describes the type of response.
+     * @return future HTTP response wrapper
+     */
+    <T> Future<HttpResponseWrapper<T>> doPutAsync(CmcHttpRequest request, Class<T> responseClass,
+            ResponseCallback<T> callback);
+
+    /**
+     * Method to handle the asynchronous HTTP DELETE for all CMC REST API calls.
+     *
+     * @param request CMC request.
+     * @param responseClass response class for HTTP response.
+     * @param callback callback notified on completion, may be null.
+     * @param <T> This describes the type of response.
+     * @return future HTTP response wrapper
+     */
+    <T> Future<HttpResponseWrapper<T>> doDeleteAsync(CmcHttpRequest request, Class<T> responseClass,
+            ResponseCallback<T> callback);
+
+}
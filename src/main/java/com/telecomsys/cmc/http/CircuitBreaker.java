@@ -0,0 +1,281 @@
+package com.telecomsys.cmc.http;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.telecomsys.cmc.exception.CMCCircuitOpenException;
+
+/**
+ * Circuit breaker of one endpoint group. The outcomes of the requests are counted in a rolling window of time
+ * buckets; when the failure or slow request rate reaches its threshold the circuit opens and requests fail fast. After
+ * the open duration a limited number of probe requests are let through: the circuit closes if they succeed and opens
+ * again on the first failure.
+ */
+public final class CircuitBreaker {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * Number of buckets of the rolling window.
+     */
+    private static final int WINDOW_BUCKETS = 10;
+
+    /**
+     * Endpoint group guarded by the circuit breaker.
+     */
+    private final String endpointGroup;
+
+    /**
+     * Circuit breaker configuration.
+     */
+    private final CircuitBreakerConfig config;
+
+    /**
+     * Duration of a bucket in nanoseconds.
+     */
+    private final long bucketNanos;
+
+    /**
+     * Slow request duration in nanoseconds, zero if disabled.
+     */
+    private final long slowCallNanos;
+
+    /**
+     * Index in time of each bucket, the bucket is stale if its index is out of the window.
+     */
+    private final long[] bucketEpochs = new long[WINDOW_BUCKETS];
+
+    /**
+     * Number of requests per bucket.
+     */
+    private final int[] totalCounts = new int[WINDOW_BUCKETS];
+
+    /**
+     * Number of failed requests per bucket.
+     */
+    private final int[] failureCounts = new int[WINDOW_BUCKETS];
+
+    /**
+     * Number of slow requests per bucket.
+     */
+    private final int[] slowCounts = new int[WINDOW_BUCKETS];
+
+    /**
+     * Current state.
+     */
+    private CircuitState state = CircuitState.CLOSED;
+
+    /**
+     * Incremented on every state change so that outcomes of requests started in a previous state are ignored.
+     */
+    private int generation;
+
+    /**
+     * Time in nanoseconds the circuit opened.
+     */
+    private long openedAt;
+
+    /**
+     * Number of probe requests in flight.
+     */
+    private int probesInFlight;
+
+    /**
+     * Number of successful probe requests.
+     */
+    private int probeSuccesses;
+
+    /**
+     * Constructor.
+     *
+     * @param endpointGroup endpoint group guarded by the circuit breaker.
+     * @param config circuit breaker configuration.
+     */
+    CircuitBreaker(String endpointGroup, CircuitBreakerConfig config) {
+        this.endpointGroup = endpointGroup;
+        this.config = config;
+        this.bucketNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(config.getWindowDuration()) / WINDOW_BUCKETS);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowCallDuration());
+        for (int i = 0; i < WINDOW_BUCKETS; i++) {
+            bucketEpochs[i] = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * @return the endpoint group guarded by the circuit breaker
+     */
+    public String getEndpointGroup() {
+        return endpointGroup;
+    }
+
+    /**
+     * @return the current state
+     */
+    public synchronized CircuitState getState() {
+        return state;
+    }
+
+    /**
+     * Acquire the permission to send a request.
+     *
+     * @return the generation to pass back with the outcome of the request.
+     * @throws CMCCircuitOpenException if the circuit is open.
+     */
+    int acquire() throws CMCCircuitOpenException {
+        CircuitState from;
+        CircuitState to;
+        boolean permitted;
+        int permittedGeneration;
+        synchronized (this) {
+            from = state;
+            if (state == CircuitState.OPEN
+                    && System.nanoTime() - openedAt >= TimeUnit.MILLISECONDS.toNanos(config.getOpenDuration())) {
+                transition(CircuitState.HALF_OPEN);
+            }
+            if (state == CircuitState.HALF_OPEN) {
+                permitted = probesInFlight + probeSuccesses < config.getHalfOpenProbes();
+                if (permitted) {
+                    probesInFlight++;
+                }
+            } else {
+                permitted = state == CircuitState.CLOSED;
+            }
+            to = state;
+            permittedGeneration = generation;
+        }
+        notifyListeners(from, to);
+        if (!permitted) {
+            throw new CMCCircuitOpenException(endpointGroup);
+        }
+        return permittedGeneration;
+    }
+
+    /**
+     * Record the outcome of a request.
+     *
+     * @param requestGeneration the generation returned by {@link #acquire()}.
+     * @param durationNanos duration of the request in nanoseconds.
+     * @param failed whether the request failed.
+     */
+    void record(int requestGeneration, long durationNanos, boolean failed) {
+        boolean slow = slowCallNanos > 0 && durationNanos > slowCallNanos;
+        CircuitState from;
+        CircuitState to;
+        synchronized (this) {
+            from = state;
+            if (requestGeneration != generation) {
+                return;
+            }
+            if (state == CircuitState.HALF_OPEN) {
+                probesInFlight--;
+                if (failed || slow) {
+                    transition(CircuitState.OPEN);
+                } else if (++probeSuccesses >= config.getHalfOpenProbes()) {
+                    transition(CircuitState.CLOSED);
+                }
+            } else if (state == CircuitState.CLOSED) {
+                recordInWindow(failed, slow);
+            }
+            to = state;
+        }
+        notifyListeners(from, to);
+    }
+
+    /**
+     * Release the permission of a request that was not sent or was cancelled, without recording an outcome.
+     *
+     * @param requestGeneration the generation returned by {@link #acquire()}.
+     */
+    synchronized void release(int requestGeneration) {
+        if (requestGeneration == generation && state == CircuitState.HALF_OPEN) {
+            probesInFlight--;
+        }
+    }
+
+    /**
+     * Helper method to count an outcome in the rolling window and open the circuit if a threshold is reached. Must
+     * be called holding the lock.
+     *
+     * @param failed whether the request failed.
+     * @param slow whether the request was slow.
+     */
+    private void recordInWindow(boolean failed, boolean slow) {
+        long epoch = System.nanoTime() / bucketNanos;
+        int index = (int) Math.abs(epoch % WINDOW_BUCKETS);
+        if (bucketEpochs[index] != epoch) {
+            bucketEpochs[index] = epoch;
+            totalCounts[index] = 0;
+            failureCounts[index] = 0;
+            slowCounts[index] = 0;
+        }
+        totalCounts[index]++;
+        if (failed) {
+            failureCounts[index]++;
+        }
+        if (slow) {
+            slowCounts[index]++;
+        }
+
+        // Sum the buckets that are still in the window.
+        int total = 0;
+        int failures = 0;
+        int slowCalls = 0;
+        for (int i = 0; i < WINDOW_BUCKETS; i++) {
+            if (bucketEpochs[i] > epoch - WINDOW_BUCKETS) {
+                total += totalCounts[i];
+                failures += failureCounts[i];
+                slowCalls += slowCounts[i];
+            }
+        }
+        if (total >= config.getMinimumRequests()
+                && (failures * 100L >= (long) config.getFailureRateThreshold() * total
+                || (slowCallNanos > 0 && slowCalls * 100L >= (long) config.getSlowCallRateThreshold() * total))) {
+            transition(CircuitState.OPEN);
+        }
+    }
+
+    /**
+     * Helper method to change the state. Must be called holding the lock.
+     *
+     * @param to the new state.
+     */
+    private void transition(CircuitState to) {
+        state = to;
+        generation++;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (to == CircuitState.OPEN) {
+            openedAt = System.nanoTime();
+        } else if (to == CircuitState.CLOSED) {
+            for (int i = 0; i < WINDOW_BUCKETS; i++) {
+                bucketEpochs[i] = Long.MIN_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Helper method to notify the listeners of a state change, outside of the lock.
+     *
+     * @param from the previous state.
+     * @param to the new state.
+     */
+    private void notifyListeners(CircuitState from, CircuitState to) {
+        if (from == to) {
+            return;
+        }
+        LOGGER.info("Circuit breaker for {} changed from {} to {}", endpointGroup, from, to);
+        for (CircuitBreakerListener listener : config.getListeners()) {
+            try {
+                listener.stateChanged(endpointGroup, from, to);
+            } catch (RuntimeException rex) {
+                LOGGER.error("Circuit breaker listener failed: {}", rex);
+            }
+        }
+    }
+
+}
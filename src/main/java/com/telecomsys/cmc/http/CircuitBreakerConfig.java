@@ -0,0 +1,282 @@
+package com.telecomsys.cmc.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable configuration of the circuit breakers guarding the CMC endpoint groups. Each endpoint group (messages,
+ * notifications, receipts, contacts, groups, schedules...) has its own circuit breaker. A circuit opens when, over a
+ * rolling window with enough requests, the rate of failures (I/O errors and 5xx responses) or of slow requests
+ * reaches its threshold. For example:
+ *
+ * <pre>
+ * CircuitBreakerConfig circuitBreaker = CircuitBreakerConfig.custom().setFailureRateThreshold(50)
+ *         .setSlowCallDuration(5000).setOpenDuration(30000).build();
+ * </pre>
+ */
+public final class CircuitBreakerConfig {
+
+    /**
+     * Percentage of failed requests in the window that opens the circuit.
+     */
+    private final int failureRateThreshold;
+
+    /**
+     * Duration in milliseconds above which a request is slow. Zero disables the latency threshold.
+     */
+    private final long slowCallDuration;
+
+    /**
+     * Percentage of slow requests in the window that opens the circuit.
+     */
+    private final int slowCallRateThreshold;
+
+    /**
+     * Minimum number of requests in the window before the thresholds apply.
+     */
+    private final int minimumRequests;
+
+    /**
+     * Duration in milliseconds of the rolling window.
+     */
+    private final long windowDuration;
+
+    /**
+     * Duration in milliseconds the circuit stays open before probing.
+     */
+    private final long openDuration;
+
+    /**
+     * Number of successful probe requests that close the circuit.
+     */
+    private final int halfOpenProbes;
+
+    /**
+     * Listeners notified of the state changes.
+     */
+    private final List<CircuitBreakerListener> listeners;
+
+    /**
+     * Constructor.
+     *
+     * @param builder the builder holding the configuration values.
+     */
+    private CircuitBreakerConfig(Builder builder) {
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallDuration = builder.slowCallDuration;
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.minimumRequests = builder.minimumRequests;
+        this.windowDuration = builder.windowDuration;
+        this.openDuration = builder.openDuration;
+        this.halfOpenProbes = builder.halfOpenProbes;
+        this.listeners = Collections.unmodifiableList(new ArrayList<CircuitBreakerListener>(builder.listeners));
+    }
+
+    /**
+     * Create a builder initialized with the default values.
+     *
+     * @return configuration builder.
+     */
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    /**
+     * @return the failureRateThreshold in percent
+     */
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * @return the slowCallDuration in milliseconds, zero if disabled
+     */
+    public long getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    /**
+     * @return the slowCallRateThreshold in percent
+     */
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    /**
+     * @return the minimumRequests
+     */
+    public int getMinimumRequests() {
+        return minimumRequests;
+    }
+
+    /**
+     * @return the windowDuration in milliseconds
+     */
+    public long getWindowDuration() {
+        return windowDuration;
+    }
+
+    /**
+     * @return the openDuration in milliseconds
+     */
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    /**
+     * @return the halfOpenProbes
+     */
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+
+    /**
+     * @return the listeners
+     */
+    public List<CircuitBreakerListener> getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Builder for the circuit breaker configuration.
+     */
+    public static final class Builder {
+
+        /**
+         * Percentage of failed requests in the window that opens the circuit.
+         */
+        private int failureRateThreshold = 50;
+
+        /**
+         * Duration in milliseconds above which a request is slow.
+         */
+        private long slowCallDuration;
+
+        /**
+         * Percentage of slow requests in the window that opens the circuit.
+         */
+        private int slowCallRateThreshold = 100;
+
+        /**
+         * Minimum number of requests in the window before the thresholds apply.
+         */
+        private int minimumRequests = 20;
+
+        /**
+         * Duration in milliseconds of the rolling window.
+         */
+        private long windowDuration = 10000;
+
+        /**
+         * Duration in milliseconds the circuit stays open before probing.
+         */
+        private long openDuration = 30000;
+
+        /**
+         * Number of successful probe requests that close the circuit.
+         */
+        private int halfOpenProbes = 1;
+
+        /**
+         * Listeners notified of the state changes.
+         */
+        private List<CircuitBreakerListener> listeners = new ArrayList<CircuitBreakerListener>();
+
+        /**
+         * Constructor - use {@link CircuitBreakerConfig#custom()}.
+         */
+        private Builder() {
+        }
+
+        /**
+         * @param failureRateThreshold the percentage of failed requests in the window that opens the circuit
+         * @return the builder
+         */
+        public Builder setFailureRateThreshold(int failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * @param slowCallDuration the duration in milliseconds above which a request is slow, zero to disable the
+         *            latency threshold
+         * @return the builder
+         */
+        public Builder setSlowCallDuration(long slowCallDuration) {
+            this.slowCallDuration = slowCallDuration;
+            return this;
+        }
+
+        /**
+         * @param slowCallRateThreshold the percentage of slow requests in the window that opens the circuit
+         * @return the builder
+         */
+        public Builder setSlowCallRateThreshold(int slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        /**
+         * @param minimumRequests the minimum number of requests in the window before the thresholds apply
+         * @return the builder
+         */
+        public Builder setMinimumRequests(int minimumRequests) {
+            this.minimumRequests = minimumRequests;
+            return this;
+        }
+
+        /**
+         * @param windowDuration the duration in milliseconds of the rolling window
+         * @return the builder
+         */
+        public Builder setWindowDuration(long windowDuration) {
+            this.windowDuration = windowDuration;
+            return this;
+        }
+
+        /**
+         * @param openDuration the duration in milliseconds the circuit stays open before probing
+         * @return the builder
+         */
+        public Builder setOpenDuration(long openDuration) {
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        /**
+         * @param halfOpenProbes the number of successful probe requests that close the circuit
+         * @return the builder
+         */
+        public Builder setHalfOpenProbes(int halfOpenProbes) {
+            this.halfOpenProbes = halfOpenProbes;
+            return this;
+        }
+
+        /**
+         * @param listener a listener notified of the state changes
+         * @return the builder
+         */
+        public Builder addListener(CircuitBreakerListener listener) {
+            this.listeners.add(listener);
+            return this;
+        }
+
+        /**
+         * Build the configuration.
+         *
+         * @return the circuit breaker configuration.
+         */
+        public CircuitBreakerConfig build() {
+            if (failureRateThreshold <= 0 || failureRateThreshold > 100 || slowCallRateThreshold <= 0
+                    || slowCallRateThreshold > 100) {
+                throw new IllegalArgumentException("Thresholds must be percentages");
+            }
+            if (minimumRequests <= 0 || windowDuration <= 0 || openDuration <= 0 || halfOpenProbes <= 0) {
+                throw new IllegalArgumentException("Window, durations and probes must be positive");
+            }
+            return new CircuitBreakerConfig(this);
+        }
+    }
+
+}
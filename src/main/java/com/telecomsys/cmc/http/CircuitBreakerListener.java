@@ -0,0 +1,18 @@
+package com.telecomsys.cmc.http;
+
+/**
+ * Listener notified when a circuit breaker changes state. Listeners are called on the thread that caused the change
+ * and must not block.
+ */
+public interface CircuitBreakerListener {
+
+    /**
+     * Called when a circuit breaker changes state.
+     *
+     * @param endpointGroup endpoint group of the circuit breaker, for example "messages".
+     * @param from the previous state.
+     * @param to the new state.
+     */
+    void stateChanged(String endpointGroup, CircuitState from, CircuitState to);
+
+}
@@ -0,0 +1,23 @@
+package com.telecomsys.cmc.http;
+
+/**
+ * State of a circuit breaker.
+ */
+public enum CircuitState {
+
+    /**
+     * Requests are sent and their outcome recorded.
+     */
+    CLOSED,
+
+    /**
+     * Requests fail fast without being sent.
+     */
+    OPEN,
+
+    /**
+     * A limited number of probe requests are sent to check whether the endpoints recovered.
+     */
+    HALF_OPEN
+
+}
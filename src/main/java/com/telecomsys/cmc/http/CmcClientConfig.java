@@ -0,0 +1,571 @@
+package com.telecomsys.cmc.http;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+
+/**
+ * Immutable configuration of the HTTP client used to connect to the CMC REST service. Instances are created with
+ * {@link #custom()}, for example:
+ *
+ * <pre>
+ * CmcClientConfig config = CmcClientConfig.custom().setMaxConnectionsPerRoute(50).setMaxConnectionsTotal(100)
+ *         .setIdleEvictionInterval(30000).build();
+ * </pre>
+ */
+public final class CmcClientConfig {
+
+    /**
+     * Default configuration.
+     */
+    public static final CmcClientConfig DEFAULT = custom().build();
+
+    /**
+     * Maximum number of pooled connections per route.
+     */
+    private final int maxConnectionsPerRoute;
+
+    /**
+     * Maximum number of pooled connections.
+     */
+    private final int maxConnectionsTotal;
+
+    /**
+     * Time to live of the pooled connections in milliseconds. Zero or negative means no limit.
+     */
+    private final long connectionTimeToLive;
+
+    /**
+     * Interval in milliseconds between runs of the idle connection evictor. Zero or negative disables eviction.
+     */
+    private final long idleEvictionInterval;
+
+    /**
+     * Inactivity period in milliseconds after which pooled connections are validated before being leased.
+     */
+    private final int validateAfterInactivity;
+
+    /**
+     * Keep alive strategy. Null means the Apache default strategy.
+     */
+    private final ConnectionKeepAliveStrategy keepAliveStrategy;
+
+    /**
+     * Largest request body in bytes sent with a precomputed Content-Length. Larger bodies are streamed chunked.
+     */
+    private final int requestBufferThreshold;
+
+    /**
+     * Whether the notifications, receipts and replies responses are read by the streaming parsers.
+     */
+    private final boolean streamingParsers;
+
+    /**
+     * Rate limit of all the requests of the account. Null means no limit.
+     */
+    private final RateLimit accountRateLimit;
+
+    /**
+     * Rate limit applied to each keyword without a specific limit. Null means no limit.
+     */
+    private final RateLimit keywordRateLimit;
+
+    /**
+     * Rate limits of specific keywords.
+     */
+    private final Map<String, RateLimit> keywordRateLimits;
+
+    /**
+     * Behavior when the rate limit is exceeded.
+     */
+    private final RateLimitMode rateLimitMode;
+
+    /**
+     * Maximum time in milliseconds a request waits for the rate limiter in the blocking and queueing modes.
+     */
+    private final long rateLimitMaxWait;
+
+    /**
+     * Retry policy of the idempotent requests. Null means no retry.
+     */
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * Circuit breaker configuration of the endpoint groups. Null means no circuit breaker.
+     */
+    private final CircuitBreakerConfig circuitBreakerConfig;
+
+    /**
+     * Recorder of the metrics of the HTTP client.
+     */
+    private final MetricsRecorder metricsRecorder;
+
+    /**
+     * Constructor.
+     *
+     * @param builder the builder holding the configuration values.
+     */
+    private CmcClientConfig(Builder builder) {
+        this.maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+        this.maxConnectionsTotal = builder.maxConnectionsTotal;
+        this.connectionTimeToLive = builder.connectionTimeToLive;
+        this.idleEvictionInterval = builder.idleEvictionInterval;
+        this.validateAfterInactivity = builder.validateAfterInactivity;
+        this.keepAliveStrategy = builder.keepAliveStrategy;
+        this.requestBufferThreshold = builder.requestBufferThreshold;
+        this.streamingParsers = builder.streamingParsers;
+        this.accountRateLimit = builder.accountRateLimit;
+        this.keywordRateLimit = builder.keywordRateLimit;
+        this.keywordRateLimits = Collections.unmodifiableMap(new HashMap<String, RateLimit>(builder.keywordRateLimits));
+        this.rateLimitMode = builder.rateLimitMode;
+        this.rateLimitMaxWait = builder.rateLimitMaxWait;
+        this.retryPolicy = builder.retryPolicy;
+        this.circuitBreakerConfig = builder.circuitBreakerConfig;
+        this.metricsRecorder = builder.metricsRecorder;
+    }
+
+    /**
+     * Create a builder initialized with the default values.
+     *
+     * @return configuration builder.
+     */
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    /**
+     * Create a builder initialized with the values of an existing configuration.
+     *
+     * @param config existing configuration.
+     * @return configuration builder.
+     */
+    public static Builder copy(CmcClientConfig config) {
+        return new Builder().setMaxConnectionsPerRoute(config.maxConnectionsPerRoute)
+                .setMaxConnectionsTotal(config.maxConnectionsTotal)
+                .setConnectionTimeToLive(config.connectionTimeToLive)
+                .setIdleEvictionInterval(config.idleEvictionInterval)
+                .setValidateAfterInactivity(config.validateAfterInactivity)
+                .setKeepAliveStrategy(config.keepAliveStrategy)
+                .setRequestBufferThreshold(config.requestBufferThreshold)
+                .setStreamingParsers(config.streamingParsers)
+                .setAccountRateLimit(config.accountRateLimit)
+                .setKeywordRateLimit(config.keywordRateLimit)
+                .setKeywordRateLimits(config.keywordRateLimits)
+                .setRateLimitMode(config.rateLimitMode)
+                .setRateLimitMaxWait(config.rateLimitMaxWait)
+                .setRetryPolicy(config.retryPolicy)
+                .setCircuitBreakerConfig(config.circuitBreakerConfig)
+                .setMetricsRecorder(config.metricsRecorder);
+    }
+
+    /**
+     * @return the maxConnectionsPerRoute
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * @return the maxConnectionsTotal
+     */
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    /**
+     * @return the connectionTimeToLive in milliseconds
+     */
+    public long getConnectionTimeToLive() {
+        return connectionTimeToLive;
+    }
+
+    /**
+     * @return the idleEvictionInterval in milliseconds
+     */
+    public long getIdleEvictionInterval() {
+        return idleEvictionInterval;
+    }
+
+    /**
+     * @return the validateAfterInactivity in milliseconds
+     */
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * @return the keepAliveStrategy
+     */
+    public ConnectionKeepAliveStrategy getKeepAliveStrategy() {
+        return keepAliveStrategy;
+    }
+
+    /**
+     * @return the requestBufferThreshold in bytes
+     */
+    public int getRequestBufferThreshold() {
+        return requestBufferThreshold;
+    }
+
+    /**
+     * @return whether the notifications, receipts and replies responses are read by the streaming parsers
+     */
+    public boolean isStreamingParsers() {
+        return streamingParsers;
+    }
+
+    /**
+     * @return the accountRateLimit, null if not limited
+     */
+    public RateLimit getAccountRateLimit() {
+        return accountRateLimit;
+    }
+
+    /**
+     * @return the keywordRateLimit applied to each keyword without a specific limit, null if not limited
+     */
+    public RateLimit getKeywordRateLimit() {
+        return keywordRateLimit;
+    }
+
+    /**
+     * @return the rate limits of specific keywords
+     */
+    public Map<String, RateLimit> getKeywordRateLimits() {
+        return keywordRateLimits;
+    }
+
+    /**
+     * @return the rateLimitMode
+     */
+    public RateLimitMode getRateLimitMode() {
+        return rateLimitMode;
+    }
+
+    /**
+     * @return the rateLimitMaxWait in milliseconds
+     */
+    public long getRateLimitMaxWait() {
+        return rateLimitMaxWait;
+    }
+
+    /**
+     * @return the retryPolicy, null if requests are not retried
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * @return the circuitBreakerConfig, null if there is no circuit breaker
+     */
+    public CircuitBreakerConfig getCircuitBreakerConfig() {
+        return circuitBreakerConfig;
+    }
+
+    /**
+     * @return the metricsRecorder
+     */
+    public MetricsRecorder getMetricsRecorder() {
+        return metricsRecorder;
+    }
+
+    /**
+     * Builder for the HTTP client configuration.
+     */
+    public static final class Builder {
+
+        /**
+         * Maximum number of pooled connections per route. The Apache default is 2.
+         */
+        private int maxConnectionsPerRoute = 10;
+
+        /**
+         * Maximum number of pooled connections. The Apache default is 20.
+         */
+        private int maxConnectionsTotal = 20;
+
+        /**
+         * Time to live of the pooled connections in milliseconds.
+         */
+        private long connectionTimeToLive = -1;
+
+        /**
+         * Interval in milliseconds between runs of the idle connection evictor.
+         */
+        private long idleEvictionInterval;
+
+        /**
+         * Inactivity period in milliseconds after which pooled connections are validated. Same as Apache default.
+         */
+        private int validateAfterInactivity = 2000;
+
+        /**
+         * Keep alive strategy.
+         */
+        private ConnectionKeepAliveStrategy keepAliveStrategy;
+
+        /**
+         * Largest request body in bytes sent with a precomputed Content-Length.
+         */
+        private int requestBufferThreshold = 16384;
+
+        /**
+         * Whether the notifications, receipts and replies responses are read by the streaming parsers.
+         */
+        private boolean streamingParsers;
+
+        /**
+         * Rate limit of all the requests of the account.
+         */
+        private RateLimit accountRateLimit;
+
+        /**
+         * Rate limit applied to each keyword without a specific limit.
+         */
+        private RateLimit keywordRateLimit;
+
+        /**
+         * Rate limits of specific keywords.
+         */
+        private Map<String, RateLimit> keywordRateLimits = new HashMap<String, RateLimit>();
+
+        /**
+         * Behavior when the rate limit is exceeded.
+         */
+        private RateLimitMode rateLimitMode = RateLimitMode.BLOCK;
+
+        /**
+         * Maximum time in milliseconds a request waits for the rate limiter.
+         */
+        private long rateLimitMaxWait = 30000;
+
+        /**
+         * Retry policy of the idempotent requests.
+         */
+        private RetryPolicy retryPolicy;
+
+        /**
+         * Circuit breaker configuration of the endpoint groups.
+         */
+        private CircuitBreakerConfig circuitBreakerConfig;
+
+        /**
+         * Recorder of the metrics of the HTTP client.
+         */
+        private MetricsRecorder metricsRecorder = NoopMetricsRecorder.INSTANCE;
+
+        /**
+         * Constructor - use {@link CmcClientConfig#custom()}.
+         */
+        private Builder() {
+        }
+
+        /**
+         * @param maxConnectionsPerRoute the maximum number of pooled connections per route
+         * @return the builder
+         */
+        public Builder setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        /**
+         * @param maxConnectionsTotal the maximum number of pooled connections
+         * @return the builder
+         */
+        public Builder setMaxConnectionsTotal(int maxConnectionsTotal) {
+            this.maxConnectionsTotal = maxConnectionsTotal;
+            return this;
+        }
+
+        /**
+         * @param connectionTimeToLive the time to live of pooled connections in milliseconds, zero or negative for
+         *            no limit
+         * @return the builder
+         */
+        public Builder setConnectionTimeToLive(long connectionTimeToLive) {
+            this.connectionTimeToLive = connectionTimeToLive;
+            return this;
+        }
+
+        /**
+         * Set the idle connection eviction interval. The evictor closes expired connections and connections that
+         * have been idle for longer than the interval.
+         *
+         * @param idleEvictionInterval the interval in milliseconds, zero or negative to disable eviction
+         * @return the builder
+         */
+        public Builder setIdleEvictionInterval(long idleEvictionInterval) {
+            this.idleEvictionInterval = idleEvictionInterval;
+            return this;
+        }
+
+        /**
+         * @param validateAfterInactivity the inactivity period in milliseconds after which pooled connections are
+         *            validated before being leased, zero or negative to disable validation
+         * @return the builder
+         */
+        public Builder setValidateAfterInactivity(int validateAfterInactivity) {
+            this.validateAfterInactivity = validateAfterInactivity;
+            return this;
+        }
+
+        /**
+         * @param keepAliveStrategy the keep alive strategy, null for the Apache default strategy
+         * @return the builder
+         */
+        public Builder setKeepAliveStrategy(ConnectionKeepAliveStrategy keepAliveStrategy) {
+            this.keepAliveStrategy = keepAliveStrategy;
+            return this;
+        }
+
+        /**
+         * Set the largest request body sent with a precomputed Content-Length. Larger bodies, such as big contact
+         * lists, are serialized straight to the connection with chunked transfer encoding.
+         *
+         * @param requestBufferThreshold the size in bytes, zero to always stream the request bodies
+         * @return the builder
+         */
+        public Builder setRequestBufferThreshold(int requestBufferThreshold) {
+            this.requestBufferThreshold = requestBufferThreshold;
+            return this;
+        }
+
+        /**
+         * Read the notifications, receipts and replies responses with the hand-written {@link StreamingParsers}
+         * instead of the reflective data binding.
+         *
+         * @param streamingParsers whether to use the streaming parsers
+         * @return the builder
+         */
+        public Builder setStreamingParsers(boolean streamingParsers) {
+            this.streamingParsers = streamingParsers;
+            return this;
+        }
+
+        /**
+         * Limit the rate of all the requests of the account, for example {@code new RateLimit(50, 10)} for 50
+         * requests per second with bursts of 10.
+         *
+         * @param accountRateLimit the rate limit, null for no limit
+         * @return the builder
+         */
+        public Builder setAccountRateLimit(RateLimit accountRateLimit) {
+            this.accountRateLimit = accountRateLimit;
+            return this;
+        }
+
+        /**
+         * Limit the rate of the messages sent from each keyword. Every keyword gets its own budget.
+         *
+         * @param keywordRateLimit the rate limit of each keyword without a specific limit, null for no limit
+         * @return the builder
+         */
+        public Builder setKeywordRateLimit(RateLimit keywordRateLimit) {
+            this.keywordRateLimit = keywordRateLimit;
+            return this;
+        }
+
+        /**
+         * Limit the rate of the messages sent from a specific keyword.
+         *
+         * @param keyword the keyword
+         * @param keywordRateLimit the rate limit of the keyword, null to remove its specific limit
+         * @return the builder
+         */
+        public Builder setKeywordRateLimit(String keyword, RateLimit keywordRateLimit) {
+            if (keywordRateLimit == null) {
+                this.keywordRateLimits.remove(keyword);
+            } else {
+                this.keywordRateLimits.put(keyword, keywordRateLimit);
+            }
+            return this;
+        }
+
+        /**
+         * @param keywordRateLimits the rate limits of specific keywords
+         * @return the builder
+         */
+        public Builder setKeywordRateLimits(Map<String, RateLimit> keywordRateLimits) {
+            this.keywordRateLimits = new HashMap<String, RateLimit>(keywordRateLimits);
+            return this;
+        }
+
+        /**
+         * @param rateLimitMode the behavior when the rate limit is exceeded
+         * @return the builder
+         */
+        public Builder setRateLimitMode(RateLimitMode rateLimitMode) {
+            this.rateLimitMode = rateLimitMode;
+            return this;
+        }
+
+        /**
+         * @param rateLimitMaxWait the maximum time in milliseconds a request waits for the rate limiter in the
+         *            blocking and queueing modes before failing
+         * @return the builder
+         */
+        public Builder setRateLimitMaxWait(long rateLimitMaxWait) {
+            this.rateLimitMaxWait = rateLimitMaxWait;
+            return this;
+        }
+
+        /**
+         * Set the retry policy, for example an {@link ExponentialBackoffRetryPolicy}. Only idempotent requests are
+         * retried: GET requests and the deletes of specific IDs, never the sends or the deletes of all the items.
+         *
+         * @param retryPolicy the retry policy, null to disable retries
+         * @return the builder
+         */
+        public Builder setRetryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Guard each endpoint group with a circuit breaker that fails requests fast with a
+         * {@link com.telecomsys.cmc.exception.CMCCircuitOpenException} while CMC is failing.
+         *
+         * @param circuitBreakerConfig the circuit breaker configuration, null to disable circuit breakers
+         * @return the builder
+         */
+        public Builder setCircuitBreakerConfig(CircuitBreakerConfig circuitBreakerConfig) {
+            this.circuitBreakerConfig = circuitBreakerConfig;
+            return this;
+        }
+
+        /**
+         * Set the recorder of the latencies, status codes, body sizes, retries, rate limiter and circuit breaker
+         * rejections and connection pool gauges of the HTTP client.
+         *
+         * @param metricsRecorder the metrics recorder, null to ignore the metrics
+         * @return the builder
+         */
+        public Builder setMetricsRecorder(MetricsRecorder metricsRecorder) {
+            this.metricsRecorder = metricsRecorder == null ? NoopMetricsRecorder.INSTANCE : metricsRecorder;
+            return this;
+        }
+
+        /**
+         * Build the configuration.
+         *
+         * @return the HTTP client configuration.
+         */
+        public CmcClientConfig build() {
+            if (maxConnectionsPerRoute <= 0 || maxConnectionsTotal <= 0) {
+                throw new IllegalArgumentException("Connection pool sizes must be positive");
+            }
+            if (maxConnectionsPerRoute > maxConnectionsTotal) {
+                throw new IllegalArgumentException("Connections per route must not exceed the total connections");
+            }
+            if (rateLimitMode == null || rateLimitMaxWait < 0) {
+                throw new IllegalArgumentException("Rate limit mode must be set and the maximum wait not negative");
+            }
+            return new CmcClientConfig(this);
+        }
+    }
+
+}
@@ -33,6 +33,21 @@ public class CmcHttpRequest {
      */
     private String messageWrapperName = "";
 
+    /**
+     * The keyword the message is sent from, used for the per keyword rate limit. Null if none.
+     */
+    private String keyword;
+
+    /**
+     * Whether the request can be sent more than once with the same effect. GET requests are always idempotent.
+     */
+    private boolean idempotent;
+
+    /**
+     * Parser of the response body replacing the data binding of the response class. Null if none.
+     */
+    private ResponseParser<?> responseParser;
+
     /**
      * Constructor.
      *
@@ -151,4 +166,46 @@ public class CmcHttpRequest {
         this.messageWrapperName = messageWrapperName;
     }
 
+    /**
+     * @return the keyword
+     */
+    public String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * @param keyword the keyword to set
+     */
+    public void setKeyword(String keyword) {
+        this.keyword = keyword;
+    }
+
+    /**
+     * @return whether the request is marked idempotent
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * @param idempotent whether the request can be sent more than once with the same effect
+     */
+    public void setIdempotent(boolean idempotent) {
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * @return the responseParser, null if the response is read by data binding
+     */
+    public ResponseParser<?> getResponseParser() {
+        return responseParser;
+    }
+
+    /**
+     * @param responseParser the parser of the response body, which must return the response class of the request
+     */
+    public void setResponseParser(ResponseParser<?> responseParser) {
+        this.responseParser = responseParser;
+    }
+
 }
@@ -0,0 +1,29 @@
+package com.telecomsys.cmc.http;
+
+/**
+ * Gauge reading the state of a connection pool of the HTTP client. Each call takes the lock of the pool, so read the
+ * gauge when the metrics are collected rather than on the request path.
+ */
+public interface ConnectionPoolGauge {
+
+    /**
+     * @return the number of connections leased to requests in flight
+     */
+    int getLeased();
+
+    /**
+     * @return the number of idle connections kept alive in the pool
+     */
+    int getAvailable();
+
+    /**
+     * @return the number of requests waiting for a connection
+     */
+    int getPending();
+
+    /**
+     * @return the maximum number of connections of the pool
+     */
+    int getMax();
+
+}
@@ -0,0 +1,18 @@
+package com.telecomsys.cmc.http;
+
+/**
+ * HTTP client whose credentials can be replaced while it is in use, for example after rotating the authentication
+ * token, without recreating the client and its connection pool.
+ */
+public interface CredentialsUpdatable {
+
+    /**
+     * Replace the credentials used to authenticate. Requests started after the call use the new credentials,
+     * requests already in flight keep the previous ones.
+     *
+     * @param accountID the REST account identity.
+     * @param authenticationToken the authentication token.
+     */
+    void updateCredentials(String accountID, String authenticationToken);
+
+}
@@ -0,0 +1,18 @@
+package com.telecomsys.cmc.http;
+
+/**
+ * Handler of the elements of a list in a response, called as each element is parsed so that large responses are
+ * never held in memory as a whole. Called on the thread parsing the response.
+ *
+ * @param <E> This describes the type of the elements.
+ */
+public interface ElementHandler<E> {
+
+    /**
+     * Called for each element of the list, in the order of the response.
+     *
+     * @param element the parsed element.
+     */
+    void handle(E element);
+
+}
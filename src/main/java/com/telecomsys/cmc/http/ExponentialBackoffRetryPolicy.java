@@ -0,0 +1,119 @@
+package com.telecomsys.cmc.http;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+
+/**
+ * Retry policy with exponential backoff and jitter. Connect failures, socket timeouts, dropped connections and 5xx
+ * responses are retried; the delay doubles on each retry up to a maximum, half of it randomized so that clients do
+ * not retry in lockstep, and no retry is made past the time budget. For example:
+ *
+ * <pre>
+ * CmcClientConfig config = CmcClientConfig.custom()
+ *         .setRetryPolicy(new ExponentialBackoffRetryPolicy(3, 200, 2000, 10000)).build();
+ * </pre>
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+
+    /**
+     * Maximum number of retries.
+     */
+    private final int maxRetries;
+
+    /**
+     * Delay in milliseconds before the first retry.
+     */
+    private final long initialDelay;
+
+    /**
+     * Maximum delay in milliseconds between two attempts.
+     */
+    private final long maxDelay;
+
+    /**
+     * Time budget in milliseconds for all the attempts.
+     */
+    private final long timeBudget;
+
+    /**
+     * Constructor.
+     *
+     * @param maxRetries maximum number of retries.
+     * @param initialDelay delay in milliseconds before the first retry.
+     * @param maxDelay maximum delay in milliseconds between two attempts.
+     * @param timeBudget time budget in milliseconds; no retry is started past it.
+     */
+    public ExponentialBackoffRetryPolicy(int maxRetries, long initialDelay, long maxDelay, long timeBudget) {
+        if (maxRetries < 0 || initialDelay <= 0 || maxDelay < initialDelay || timeBudget <= 0) {
+            throw new IllegalArgumentException("Invalid retry policy parameters");
+        }
+        this.maxRetries = maxRetries;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.timeBudget = timeBudget;
+    }
+
+    @Override
+    public long getRetryDelay(int retryCount, long elapsedTime, int statusCode, Exception failure) {
+        if (retryCount >= maxRetries || !isRetryable(statusCode, failure)) {
+            return NO_RETRY;
+        }
+
+        // Exponential backoff with equal jitter: half the delay is fixed, the other half random.
+        long delay = initialDelay << Math.min(retryCount, 30);
+        if (delay <= 0 || delay > maxDelay) {
+            delay = maxDelay;
+        }
+        long half = delay / 2;
+        delay = half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+        return elapsedTime + delay <= timeBudget ? delay : NO_RETRY;
+    }
+
+    /**
+     * Classify the failure of an attempt.
+     *
+     * @param statusCode HTTP status code of the response, zero if the request failed without a response.
+     * @param failure exception raised by the attempt, null if a response was received.
+     * @return whether the failure is transient.
+     */
+    protected boolean isRetryable(int statusCode, Exception failure) {
+        if (failure != null) {
+            return failure instanceof ConnectException || failure instanceof ConnectTimeoutException
+                    || failure instanceof SocketTimeoutException || failure instanceof NoHttpResponseException;
+        }
+        return statusCode >= 500;
+    }
+
+    /**
+     * @return the maxRetries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @return the initialDelay in milliseconds
+     */
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    /**
+     * @return the maxDelay in milliseconds
+     */
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * @return the timeBudget in milliseconds
+     */
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+}
@@ -3,7 +3,8 @@ package com.telecomsys.cmc.http;
 import com.telecomsys.cmc.exception.CMCException;
 
 /**
- * Interface class for all HTTP methods implemented for the CMC REST API.
+ * Interface class for all HTTP methods implemented for the CMC REST API. Implementations holding connections should
+ * also implement {@link java.io.Closeable}; the facades and the client close them through it.
  */
 public interface HttpClientDelegate {
 
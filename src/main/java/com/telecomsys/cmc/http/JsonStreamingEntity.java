@@ -0,0 +1,252 @@
+package com.telecomsys.cmc.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * HTTP entity that serializes the request body straight to the connection output stream with the Jackson generator,
+ * without materializing the JSON as a String. Bodies that serialize to at most the buffer threshold are buffered once
+ * so they are sent with a precomputed Content-Length; larger bodies are sent with chunked transfer encoding.
+ */
+final class JsonStreamingEntity extends AbstractHttpEntity {
+
+    /**
+     * Initial size of the buffer used for small bodies.
+     */
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    /**
+     * Writer used to serialize the body. The writer must not close the target stream.
+     */
+    private final ObjectWriter writer;
+
+    /**
+     * Request body.
+     */
+    private final Object body;
+
+    /**
+     * Serialized body if it fits within the buffer threshold, null if the body is streamed.
+     */
+    private final byte[] buffer;
+
+    /**
+     * Number of bytes of the body written by the last call to {@link #writeTo(OutputStream)}.
+     */
+    private volatile long bytesWritten;
+
+    /**
+     * Constructor.
+     *
+     * @param writer writer used to serialize the body.
+     * @param body request body.
+     * @param bufferThreshold maximum serialized size in bytes sent with a Content-Length, zero to always stream.
+     * @throws IOException exception serializing a small body.
+     */
+    JsonStreamingEntity(ObjectWriter writer, Object body, int bufferThreshold) throws IOException {
+        this.writer = writer;
+        this.body = body;
+        this.buffer = bufferThreshold > 0 ? serializeWithin(bufferThreshold) : null;
+        setContentType(ContentType.APPLICATION_JSON.toString());
+        setChunked(buffer == null);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return buffer != null ? buffer.length : -1;
+    }
+
+    /**
+     * Returns the serialized body. This is only used by transports that cannot write to an output stream and
+     * materializes streamed bodies in memory.
+     *
+     * @return input stream over the serialized body.
+     * @throws IOException exception serializing the body.
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        return new ByteArrayInputStream(buffer != null ? buffer : writer.writeValueAsBytes(body));
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        if (buffer != null) {
+            outstream.write(buffer);
+            bytesWritten = buffer.length;
+        } else {
+            CountingOutputStream counting = new CountingOutputStream(outstream);
+            writer.writeValue(counting, body);
+            bytesWritten = counting.count;
+        }
+        outstream.flush();
+    }
+
+    /**
+     * @return the number of bytes of the body written to the connection, zero if not written yet
+     */
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * Helper method to serialize the body if it fits within the threshold.
+     *
+     * @param threshold maximum serialized size in bytes.
+     * @return the serialized body or null if it is larger than the threshold.
+     * @throws IOException exception serializing the body.
+     */
+    private byte[] serializeWithin(int threshold) throws IOException {
+        BoundedOutputStream out = new BoundedOutputStream(threshold);
+        try {
+            writer.writeValue(out, body);
+        } catch (IOException ioex) {
+            if (out.isOverflowed()) {
+                return null;
+            }
+            throw ioex;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Output stream buffering up to a maximum number of bytes and failing once more are written.
+     */
+    private static final class BoundedOutputStream extends OutputStream {
+
+        /**
+         * Maximum number of bytes.
+         */
+        private final int limit;
+
+        /**
+         * Buffered bytes.
+         */
+        private byte[] bytes;
+
+        /**
+         * Number of buffered bytes.
+         */
+        private int count;
+
+        /**
+         * Whether the limit was exceeded.
+         */
+        private boolean overflowed;
+
+        /**
+         * Constructor.
+         *
+         * @param limit maximum number of bytes.
+         */
+        BoundedOutputStream(int limit) {
+            this.limit = limit;
+            this.bytes = new byte[Math.min(limit, INITIAL_BUFFER_SIZE)];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureCapacity(1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureCapacity(len);
+            System.arraycopy(b, off, bytes, count, len);
+            count += len;
+        }
+
+        /**
+         * @return whether the limit was exceeded
+         */
+        boolean isOverflowed() {
+            return overflowed;
+        }
+
+        /**
+         * @return the buffered bytes
+         */
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, count);
+        }
+
+        /**
+         * Helper method to grow the buffer, failing if the bytes do not fit within the limit.
+         *
+         * @param len number of bytes to write.
+         * @throws IOException if the limit is exceeded.
+         */
+        private void ensureCapacity(int len) throws IOException {
+            int required = count + len;
+            if (required > limit) {
+                overflowed = true;
+                throw new IOException("Request body exceeds the buffer threshold");
+            }
+            if (required > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.min(limit, Math.max(required, bytes.length * 2)));
+            }
+        }
+    }
+
+
+    /**
+     * Output stream counting the bytes written to the connection by a streamed body.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+
+        /**
+         * Connection output stream.
+         */
+        private final OutputStream out;
+
+        /**
+         * Number of bytes written.
+         */
+        private long count;
+
+        /**
+         * Constructor.
+         *
+         * @param out connection output stream.
+         */
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+}
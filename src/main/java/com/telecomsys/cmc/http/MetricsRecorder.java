@@ -0,0 +1,75 @@
+package com.telecomsys.cmc.http;
+
+/**
+ * Service provider interface receiving the metrics of the HTTP client, to be bridged to a metrics library. The
+ * recorder is called on the request path by the I/O threads, so its methods must be fast, thread safe and should not
+ * allocate; the endpoint groups and methods passed are shared constants that can be used as map keys. Extend
+ * {@link NoopMetricsRecorder} to implement only some of the methods.
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Called once for each connection pool of the HTTP client, so that its gauges can be registered.
+     *
+     * @param name name of the pool, "blocking" or "async".
+     * @param gauge gauge reading the state of the pool.
+     */
+    void registerConnectionPool(String name, ConnectionPoolGauge gauge);
+
+    /**
+     * Called when an attempt of a request completes, including the attempts that are retried.
+     *
+     * @param endpointGroup endpoint group of the request, for example "messages" or "receipts".
+     * @param method HTTP method.
+     * @param statusCode HTTP status code of the response, zero if the request failed without a response.
+     * @param durationNanos duration in nanoseconds from sending the request to receiving the response headers.
+     */
+    void requestCompleted(String endpointGroup, String method, int statusCode, long durationNanos);
+
+    /**
+     * Called with the size of a request body once it is sent.
+     *
+     * @param endpointGroup endpoint group of the request.
+     * @param bytes number of bytes of the body.
+     */
+    void bytesSent(String endpointGroup, long bytes);
+
+    /**
+     * Called with the size of a response body once it is read.
+     *
+     * @param endpointGroup endpoint group of the request.
+     * @param bytes number of bytes of the body.
+     */
+    void bytesReceived(String endpointGroup, long bytes);
+
+    /**
+     * Called when a failed attempt is retried according to the retry policy.
+     *
+     * @param endpointGroup endpoint group of the request.
+     * @param method HTTP method.
+     */
+    void requestRetried(String endpointGroup, String method);
+
+    /**
+     * Called when the rate limiter delays a request.
+     *
+     * @param endpointGroup endpoint group of the request.
+     * @param waitNanos delay in nanoseconds.
+     */
+    void rateLimitDelayed(String endpointGroup, long waitNanos);
+
+    /**
+     * Called when the rate limiter rejects a request.
+     *
+     * @param endpointGroup endpoint group of the request.
+     */
+    void rateLimitRejected(String endpointGroup);
+
+    /**
+     * Called when a request fails fast because the circuit of its endpoint group is open.
+     *
+     * @param endpointGroup endpoint group of the request.
+     */
+    void circuitRejected(String endpointGroup);
+
+}
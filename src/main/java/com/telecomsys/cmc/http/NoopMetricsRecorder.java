@@ -0,0 +1,45 @@
+package com.telecomsys.cmc.http;
+
+/**
+ * Metrics recorder ignoring all the metrics, used by default. Extend it to record only some of the metrics.
+ */
+public class NoopMetricsRecorder implements MetricsRecorder {
+
+    /**
+     * Shared instance.
+     */
+    public static final NoopMetricsRecorder INSTANCE = new NoopMetricsRecorder();
+
+    @Override
+    public void registerConnectionPool(String name, ConnectionPoolGauge gauge) {
+    }
+
+    @Override
+    public void requestCompleted(String endpointGroup, String method, int statusCode, long durationNanos) {
+    }
+
+    @Override
+    public void bytesSent(String endpointGroup, long bytes) {
+    }
+
+    @Override
+    public void bytesReceived(String endpointGroup, long bytes) {
+    }
+
+    @Override
+    public void requestRetried(String endpointGroup, String method) {
+    }
+
+    @Override
+    public void rateLimitDelayed(String endpointGroup, long waitNanos) {
+    }
+
+    @Override
+    public void rateLimitRejected(String endpointGroup) {
+    }
+
+    @Override
+    public void circuitRejected(String endpointGroup) {
+    }
+
+}
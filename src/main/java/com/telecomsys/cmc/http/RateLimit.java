@@ -0,0 +1,56 @@
+package com.telecomsys.cmc.http;
+
+/**
+ * Immutable token bucket rate limit: a sustained number of requests per second and a burst of requests that may be
+ * sent at once after a quiet period.
+ */
+public final class RateLimit {
+
+    /**
+     * Sustained number of requests per second.
+     */
+    private final double permitsPerSecond;
+
+    /**
+     * Maximum number of requests sent at once.
+     */
+    private final int burst;
+
+    /**
+     * Constructor with a burst of one request.
+     *
+     * @param permitsPerSecond sustained number of requests per second.
+     */
+    public RateLimit(double permitsPerSecond) {
+        this(permitsPerSecond, 1);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param permitsPerSecond sustained number of requests per second.
+     * @param burst maximum number of requests sent at once.
+     */
+    public RateLimit(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0) || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+    }
+
+    /**
+     * @return the sustained number of requests per second
+     */
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * @return the maximum number of requests sent at once
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+}
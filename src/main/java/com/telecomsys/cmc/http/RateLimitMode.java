@@ -0,0 +1,24 @@
+package com.telecomsys.cmc.http;
+
+/**
+ * Behavior of the client side rate limiter when the request budget is exhausted.
+ */
+public enum RateLimitMode {
+
+    /**
+     * The calling thread waits for its turn, up to the maximum wait.
+     */
+    BLOCK,
+
+    /**
+     * The request fails immediately with a {@link com.telecomsys.cmc.exception.CMCRateLimitException}.
+     */
+    FAIL_FAST,
+
+    /**
+     * Blocking requests wait like {@link #BLOCK}. Asynchronous requests return immediately and are sent when their
+     * turn comes, up to the maximum wait.
+     */
+    QUEUE
+
+}
@@ -0,0 +1,130 @@
+package com.telecomsys.cmc.http;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.telecomsys.cmc.exception.CMCRateLimitException;
+
+/**
+ * Client side rate limiter combining a token bucket for the account with a token bucket per keyword.
+ */
+final class RateLimiter {
+
+    /**
+     * Behavior when the budget is exhausted.
+     */
+    private final RateLimitMode mode;
+
+    /**
+     * Maximum wait in nanoseconds in the blocking and queueing modes.
+     */
+    private final long maxWaitNanos;
+
+    /**
+     * Bucket for all the requests of the account, null if not limited.
+     */
+    private final TokenBucket accountBucket;
+
+    /**
+     * Limit applied to the keywords without a specific limit, null if not limited.
+     */
+    private final RateLimit defaultKeywordLimit;
+
+    /**
+     * Buckets per keyword, created on first use.
+     */
+    private final ConcurrentMap<String, TokenBucket> keywordBuckets = new ConcurrentHashMap<String, TokenBucket>();
+
+    /**
+     * Constructor.
+     *
+     * @param config the HTTP client configuration.
+     */
+    RateLimiter(CmcClientConfig config) {
+        this.mode = config.getRateLimitMode();
+        this.maxWaitNanos = mode == RateLimitMode.FAIL_FAST ? 0
+                : TimeUnit.MILLISECONDS.toNanos(config.getRateLimitMaxWait());
+        this.accountBucket = config.getAccountRateLimit() == null ? null
+                : new TokenBucket(config.getAccountRateLimit());
+        this.defaultKeywordLimit = config.getKeywordRateLimit();
+        for (Entry<String, RateLimit> entry : config.getKeywordRateLimits().entrySet()) {
+            keywordBuckets.put(entry.getKey(), new TokenBucket(entry.getValue()));
+        }
+    }
+
+    /**
+     * Create the rate limiter of a configuration.
+     *
+     * @param config the HTTP client configuration.
+     * @return the rate limiter, null if the configuration has no rate limit.
+     */
+    static RateLimiter create(CmcClientConfig config) {
+        Map<String, RateLimit> keywordLimits = config.getKeywordRateLimits();
+        if (config.getAccountRateLimit() == null && config.getKeywordRateLimit() == null
+                && keywordLimits.isEmpty()) {
+            return null;
+        }
+        return new RateLimiter(config);
+    }
+
+    /**
+     * @return the behavior when the budget is exhausted
+     */
+    RateLimitMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Reserve the permits of a request.
+     *
+     * @param keyword keyword the request is sent from, null if none.
+     * @return the time in nanoseconds to wait before sending the request.
+     * @throws CMCRateLimitException if the permits are not available within the maximum wait.
+     */
+    long reserve(String keyword) throws CMCRateLimitException {
+        TokenBucket keywordBucket = getKeywordBucket(keyword);
+        long keywordWait = 0;
+        if (keywordBucket != null) {
+            keywordWait = keywordBucket.reserve(maxWaitNanos);
+            if (keywordWait < 0) {
+                throw new CMCRateLimitException("Rate limit exceeded for keyword " + keyword);
+            }
+        }
+        long accountWait = 0;
+        if (accountBucket != null) {
+            accountWait = accountBucket.reserve(maxWaitNanos);
+            if (accountWait < 0) {
+                if (keywordBucket != null) {
+                    keywordBucket.cancel();
+                }
+                throw new CMCRateLimitException("Rate limit exceeded for account");
+            }
+        }
+        return Math.max(keywordWait, accountWait);
+    }
+
+    /**
+     * Helper method to get the bucket of a keyword.
+     *
+     * @param keyword keyword the request is sent from, null if none.
+     * @return the bucket, null if the keyword is not limited.
+     */
+    private TokenBucket getKeywordBucket(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        TokenBucket bucket = keywordBuckets.get(keyword);
+        if (bucket == null && defaultKeywordLimit != null) {
+            bucket = new TokenBucket(defaultKeywordLimit);
+            TokenBucket existing = keywordBuckets.putIfAbsent(keyword, bucket);
+            if (existing != null) {
+                bucket = existing;
+            }
+        }
+        return bucket;
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.telecomsys.cmc.http;
+
+import com.telecomsys.cmc.exception.CMCException;
+
+/**
+ * Callback notified when an asynchronous CMC REST API call completes.
+ *
+ * @param <T> This describes the type of response.
+ */
+public interface ResponseCallback<T> {
+
+    /**
+     * Called when the request completed and the response was parsed.
+     *
+     * @param response HTTP response wrapper.
+     */
+    void completed(HttpResponseWrapper<T> response);
+
+    /**
+     * Called when the request failed or was cancelled.
+     *
+     * @param exception CMC exception describing the failure.
+     */
+    void failed(CMCException exception);
+
+}
@@ -0,0 +1,24 @@
+package com.telecomsys.cmc.http;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Parser of a response body replacing the data binding of the response class for a request, see
+ * {@link CmcHttpRequest#setResponseParser(ResponseParser)}.
+ *
+ * @param <T> This describes the type of response.
+ */
+public interface ResponseParser<T> {
+
+    /**
+     * Parse a response body, including its "response" root.
+     *
+     * @param parser JSON parser positioned before the first token of the body.
+     * @return the response.
+     * @throws IOException if the body cannot be read or is not valid.
+     */
+    T parse(JsonParser parser) throws IOException;
+
+}
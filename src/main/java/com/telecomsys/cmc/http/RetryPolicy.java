@@ -0,0 +1,25 @@
+package com.telecomsys.cmc.http;
+
+/**
+ * Policy deciding whether and when a failed request is retried. The HTTP client only consults the policy for
+ * idempotent requests: GET requests and requests marked idempotent, such as the deletes of specific IDs.
+ */
+public interface RetryPolicy {
+
+    /**
+     * Value returned when the request must not be retried.
+     */
+    long NO_RETRY = -1;
+
+    /**
+     * Decide whether a failed attempt is retried.
+     *
+     * @param retryCount number of retries already made, zero after the first attempt.
+     * @param elapsedTime time in milliseconds since the first attempt started.
+     * @param statusCode HTTP status code of the response, zero if the request failed without a response.
+     * @param failure exception raised by the attempt, null if a response was received.
+     * @return the delay in milliseconds before the next attempt, or {@link #NO_RETRY}.
+     */
+    long getRetryDelay(int retryCount, long elapsedTime, int statusCode, Exception failure);
+
+}
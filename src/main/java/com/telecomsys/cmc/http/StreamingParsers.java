@@ -0,0 +1,560 @@
+package com.telecomsys.cmc.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.telecomsys.cmc.response.DeliveryReceipt;
+import com.telecomsys.cmc.response.DeliveryReceiptResponse;
+import com.telecomsys.cmc.response.DeliveryStatusDeserializer;
+import com.telecomsys.cmc.response.MessageReplies;
+import com.telecomsys.cmc.response.MessageRepliesResponse;
+import com.telecomsys.cmc.response.MessageReply;
+import com.telecomsys.cmc.response.MessageStatus;
+import com.telecomsys.cmc.response.Notifications;
+import com.telecomsys.cmc.response.NotificationsResponse;
+import com.telecomsys.cmc.response.RestResponse;
+import com.telecomsys.cmc.response.TrackingInformation;
+
+/**
+ * Hand-written streaming parsers of the responses carrying large lists: the notifications of a send, the delivery
+ * receipts and the replies. They read the body token by token without reflection, and can hand each element of the
+ * list to an {@link ElementHandler} as soon as it is parsed instead of collecting the list, in which case the list of
+ * the response is left null. The elements are handled before the status of the response is known: check the HTTP
+ * status and response status before trusting them. For example:
+ *
+ * <pre>
+ * CmcHttpRequest request = ...;
+ * request.setResponseParser(StreamingParsers.notifications(handler));
+ * </pre>
+ */
+public final class StreamingParsers {
+
+    /**
+     * Root name of the responses.
+     */
+    private static final String ROOT_NAME = "response";
+
+    /**
+     * Constructor - not to be instantiated.
+     */
+    private StreamingParsers() {
+    }
+
+    /**
+     * Create the parser of the notifications returned by a send or a notifications request.
+     *
+     * @param handler handler of the tracking information, null to collect them in the response.
+     * @return the response parser.
+     */
+    public static ResponseParser<NotificationsResponse> notifications(
+            final ElementHandler<TrackingInformation> handler) {
+        return new BodyParser<NotificationsResponse>() {
+            @Override
+            NotificationsResponse create() {
+                return new NotificationsResponse();
+            }
+
+            @Override
+            boolean parseField(String name, JsonParser parser, NotificationsResponse response) throws IOException {
+                if (!"notifications".equals(name)) {
+                    return false;
+                }
+                response.setNotifications(parseNotifications(parser, handler));
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Create the parser of the delivery receipts.
+     *
+     * @param handler handler of the message statuses, null to collect them in the response.
+     * @return the response parser.
+     */
+    public static ResponseParser<DeliveryReceiptResponse> deliveryReceipts(
+            final ElementHandler<MessageStatus> handler) {
+        return new BodyParser<DeliveryReceiptResponse>() {
+            @Override
+            DeliveryReceiptResponse create() {
+                return new DeliveryReceiptResponse();
+            }
+
+            @Override
+            boolean parseField(String name, JsonParser parser, DeliveryReceiptResponse response) throws IOException {
+                if (!"deliveryreceipt".equals(name)) {
+                    return false;
+                }
+                response.setDeliveryReceipt(parseDeliveryReceipt(parser, handler));
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Create the parser of the replies and program replies.
+     *
+     * @param handler handler of the replies, null to collect them in the response.
+     * @return the response parser.
+     */
+    public static ResponseParser<MessageRepliesResponse> messageReplies(final ElementHandler<MessageReply> handler) {
+        return new BodyParser<MessageRepliesResponse>() {
+            @Override
+            MessageRepliesResponse create() {
+                return new MessageRepliesResponse();
+            }
+
+            @Override
+            boolean parseField(String name, JsonParser parser, MessageRepliesResponse response) throws IOException {
+                if (!"replies".equals(name)) {
+                    return false;
+                }
+                response.setMessageReplies(parseMessageReplies(parser, handler));
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Create a module replacing the data binding of the response types by the streaming parsers, collecting the
+     * lists.
+     *
+     * @return the module.
+     */
+    static SimpleModule createModule() {
+        SimpleModule module = new SimpleModule("cmc-streaming-parsers");
+        module.addDeserializer(NotificationsResponse.class, new BodyDeserializer<NotificationsResponse>(
+                NotificationsResponse.class, (BodyParser<NotificationsResponse>) notifications(null)));
+        module.addDeserializer(DeliveryReceiptResponse.class, new BodyDeserializer<DeliveryReceiptResponse>(
+                DeliveryReceiptResponse.class, (BodyParser<DeliveryReceiptResponse>) deliveryReceipts(null)));
+        module.addDeserializer(MessageRepliesResponse.class, new BodyDeserializer<MessageRepliesResponse>(
+                MessageRepliesResponse.class, (BodyParser<MessageRepliesResponse>) messageReplies(null)));
+        return module;
+    }
+
+    /**
+     * Helper method to parse the notifications object.
+     *
+     * @param parser JSON parser positioned on the start of the object.
+     * @param handler handler of the tracking information, null to collect them.
+     * @return the notifications, null if not an object.
+     * @throws IOException if the body cannot be read or is not valid.
+     */
+    private static Notifications parseNotifications(JsonParser parser, ElementHandler<TrackingInformation> handler)
+            throws IOException {
+        if (!isObject(parser)) {
+            return null;
+        }
+        Notifications notifications = new Notifications();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "to":
+                    notifications.setTo(readStringList(parser));
+                    break;
+                case "from":
+                    notifications.setFromAddress(readString(parser));
+                    break;
+                case "trackinginformation":
+                    List<TrackingInformation> trackingInformation = handler == null
+                            ? new ArrayList<TrackingInformation>() : null;
+                    if (isArray(parser)) {
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            TrackingInformation information = parseTrackingInformation(parser);
+                            if (information != null) {
+                                emit(information, handler, trackingInformation);
+                            }
+                        }
+                    }
+                    notifications.setTrackingInformation(trackingInformation);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return notifications;
+    }
+
+    /**
+     * Helper method to parse a tracking information object.
+     *
+     * @param parser JSON parser positioned on the start of the object.
+     * @return the tracking information, null if not an object.
+     * @throws IOException if the body cannot be read or is not valid.
+     */
+    private static TrackingInformation parseTrackingInformation(JsonParser parser) throws IOException {
+        if (!isObject(parser)) {
+            return null;
+        }
+        TrackingInformation information = new TrackingInformation();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "destination":
+                    information.setDestination(readString(parser));
+                    break;
+                case "messagestatus":
+                    information.setMessageStatus(DeliveryStatusDeserializer.readStatus(parser));
+                    break;
+                case "messageID":
+                    information.setMessageID(readString(parser));
+                    break;
+                case "messagetext":
+                    information.setMessageText(readString(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return information;
+    }
+
+    /**
+     * Helper method to parse the delivery receipt object.
+     *
+     * @param parser JSON parser positioned on the start of the object.
+     * @param handler handler of the message statuses, null to collect them.
+     * @return the delivery receipt, null if not an object.
+     * @throws IOException if the body cannot be read or is not valid.
+     */
+    private static DeliveryReceipt parseDeliveryReceipt(JsonParser parser, ElementHandler<MessageStatus> handler)
+            throws IOException {
+        if (!isObject(parser)) {
+            return null;
+        }
+        DeliveryReceipt deliveryReceipt = new DeliveryReceipt();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if ("deliverystatuslist".equals(name)) {
+                List<MessageStatus> statuses = handler == null ? new ArrayList<MessageStatus>() : null;
+                if (isArray(parser)) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        MessageStatus status = parseMessageStatus(parser);
+                        if (status != null) {
+                            emit(status, handler, statuses);
+                        }
+                    }
+                }
+                deliveryReceipt.setDeliverystatuslist(statuses);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return deliveryReceipt;
+    }
+
+    /**
+     * Helper method to parse a message status object.
+     *
+     * @param parser JSON parser positioned on the start of the object.
+     * @return the message status, null if not an object.
+     * @throws IOException if the body cannot be read or is not valid.
+     */
+    private static MessageStatus parseMessageStatus(JsonParser parser) throws IOException {
+        if (!isObject(parser)) {
+            return null;
+        }
+        MessageStatus status = new MessageStatus();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "to":
+                    status.setMin(readString(parser));
+                    break;
+                case "deliverystatus":
+                    status.setDeliveryStatus(DeliveryStatusDeserializer.readStatus(parser));
+                    break;
+                case "messageID":
+                    status.setMessageID(readString(parser));
+                    break;
+                case "deliverydate":
+                    status.setDeliveryDate(readString(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Helper method to parse the replies object.
+     *
+     * @param parser JSON parser positioned on the start of the object.
+     * @param handler handler of the replies, null to collect them.
+     * @return the replies, null if not an object.
+     * @throws IOException if the body cannot be read or is not valid.
+     */
+    private static MessageReplies parseMessageReplies(JsonParser parser, ElementHandler<MessageReply> handler)
+            throws IOException {
+        if (!isObject(parser)) {
+            return null;
+        }
+        MessageReplies messageReplies = new MessageReplies();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "numberofreplies":
+                    messageReplies.setNumberOfReplies(parser.getValueAsInt());
+                    parser.skipChildren();
+                    break;
+                case "replylist":
+                    List<MessageReply> replies = handler == null ? new ArrayList<MessageReply>() : null;
+                    if (isArray(parser)) {
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            MessageReply reply = parseMessageReply(parser);
+                            if (reply != null) {
+                                emit(reply, handler, replies);
+                            }
+                        }
+                    }
+                    messageReplies.setReplies(replies);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return messageReplies;
+    }
+
+    /**
+     * Helper method to parse a reply object.
+     *
+     * @param parser JSON parser positioned on the start of the object.
+     * @return the reply, null if not an object.
+     * @throws IOException if the body cannot be read or is not valid.
+     */
+    private static MessageReply parseMessageReply(JsonParser parser) throws IOException {
+        if (!isObject(parser)) {
+            return null;
+        }
+        MessageReply reply = new MessageReply();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "from":
+                    reply.setMin(readString(parser));
+                    break;
+                case "text":
+                    reply.setMsgText(readString(parser));
+                    break;
+                case "date":
+                    reply.setReplyDate(readString(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return reply;
+    }
+
+    /**
+     * Helper method to hand an element to the handler, or add it to the list without handler.
+     *
+     * @param <E> the type of the element.
+     * @param element the element.
+     * @param handler the handler, may be null.
+     * @param list the list, null if there is a handler.
+     */
+    private static <E> void emit(E element, ElementHandler<E> handler, List<E> list) {
+        if (handler != null) {
+            handler.handle(element);
+        } else {
+            list.add(element);
+        }
+    }
+
+    /**
+     * Helper method to check that the current token starts an object, skipping the value otherwise.
+     *
+     * @param parser JSON parser.
+     * @return whether the current token starts an object.
+     * @throws IOException if the body cannot be read or is not valid.
+     */
+    private static boolean isObject(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
+            return true;
+        }
+        parser.skipChildren();
+        return false;
+    }
+
+    /**
+     * Helper method to check that the current token starts an array, skipping the value otherwise.
+     *
+     * @param parser JSON parser.
+     * @return whether the current token starts an array.
+     * @throws IOException if the body cannot be read or is not valid.
+     */
+    private static boolean isArray(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.START_ARRAY) {
+            return true;
+        }
+        parser.skipChildren();
+        return false;
+    }
+
+    /**
+     * Helper method to read a scalar value as text, skipping structured values.
+     *
+     * @param parser JSON parser positioned on the value.
+     * @return the text, null for null and structured values.
+     * @throws IOException if the body cannot be read or is not valid.
+     */
+    private static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isScalarValue()) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * Helper method to read an array of scalar values as text.
+     *
+     * @param parser JSON parser positioned on the array.
+     * @return the texts, null if not an array.
+     * @throws IOException if the body cannot be read or is not valid.
+     */
+    private static List<String> readStringList(JsonParser parser) throws IOException {
+        if (!isArray(parser)) {
+            return null;
+        }
+        List<String> values = new ArrayList<String>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(readString(parser));
+        }
+        return values;
+    }
+
+    /**
+     * Parser of a response wrapped in the "response" root, reading the common status fields and delegating the
+     * other fields to the subclass.
+     *
+     * @param <T> This describes the type of response.
+     */
+    private abstract static class BodyParser<T extends RestResponse> implements ResponseParser<T> {
+
+        @Override
+        public T parse(JsonParser parser) throws IOException {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException("Expected a JSON object", parser.getCurrentLocation());
+            }
+            T response = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if (ROOT_NAME.equals(name)) {
+                    response = parseBody(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (response == null) {
+                throw new JsonParseException("Root name '" + ROOT_NAME + "' not found", parser.getCurrentLocation());
+            }
+            return response;
+        }
+
+        /**
+         * Parse the response object inside the root.
+         *
+         * @param parser JSON parser positioned on the start of the object.
+         * @return the response.
+         * @throws IOException if the body cannot be read or is not valid.
+         */
+        T parseBody(JsonParser parser) throws IOException {
+            if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException("Expected a JSON object", parser.getCurrentLocation());
+            }
+            T response = create();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                switch (name) {
+                    case "status":
+                        response.setStatus(readString(parser));
+                        break;
+                    case "code":
+                        response.setCode(readString(parser));
+                        break;
+                    case "message":
+                        response.setMessage(readString(parser));
+                        break;
+                    default:
+                        if (!parseField(name, parser, response)) {
+                            parser.skipChildren();
+                        }
+                }
+            }
+            return response;
+        }
+
+        /**
+         * @return a new empty response
+         */
+        abstract T create();
+
+        /**
+         * Parse a field specific to the response type.
+         *
+         * @param name the field name.
+         * @param parser JSON parser positioned on the value.
+         * @param response the response being parsed.
+         * @return false if the field is unknown and must be skipped.
+         * @throws IOException if the body cannot be read or is not valid.
+         */
+        abstract boolean parseField(String name, JsonParser parser, T response) throws IOException;
+    }
+
+    /**
+     * Jackson deserializer delegating to a body parser, the root being unwrapped by the object reader.
+     *
+     * @param <T> This describes the type of response.
+     */
+    private static final class BodyDeserializer<T extends RestResponse> extends StdDeserializer<T> {
+
+        /**
+         * Serial version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Body parser.
+         */
+        private final transient BodyParser<T> bodyParser;
+
+        /**
+         * Constructor.
+         *
+         * @param responseClass the response class.
+         * @param bodyParser the body parser.
+         */
+        BodyDeserializer(Class<T> responseClass, BodyParser<T> bodyParser) {
+            super(responseClass);
+            this.bodyParser = bodyParser;
+        }
+
+        @Override
+        public T deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return bodyParser.parseBody(parser);
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.telecomsys.cmc.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. The bucket keeps the theoretical arrival time of the next request (generic cell rate
+ * algorithm) in a single atomic so a permit is reserved with one compare-and-set.
+ */
+final class TokenBucket {
+
+    /**
+     * Nanoseconds between two permits at the sustained rate.
+     */
+    private final long intervalNanos;
+
+    /**
+     * Nanoseconds a request may arrive ahead of its theoretical arrival time, which allows the burst.
+     */
+    private final long toleranceNanos;
+
+    /**
+     * Theoretical arrival time in nanoseconds of the next request at the sustained rate.
+     */
+    private final AtomicLong nextArrival;
+
+    /**
+     * Constructor.
+     *
+     * @param limit the rate limit.
+     */
+    TokenBucket(RateLimit limit) {
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / limit.getPermitsPerSecond()));
+        this.toleranceNanos = intervalNanos * (limit.getBurst() - 1);
+        this.nextArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Reserve a permit if it is available within the maximum wait.
+     *
+     * @param maxWaitNanos maximum time in nanoseconds the caller accepts to wait.
+     * @return the time in nanoseconds to wait before using the permit, or -1 if no permit was reserved.
+     */
+    long reserve(long maxWaitNanos) {
+        while (true) {
+            long now = System.nanoTime();
+            long arrival = nextArrival.get();
+            long waitNanos = Math.max(0, arrival - toleranceNanos - now);
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            long start = arrival - now > 0 ? arrival : now;
+            if (nextArrival.compareAndSet(arrival, start + intervalNanos)) {
+                return waitNanos;
+            }
+        }
+    }
+
+    /**
+     * Return a permit reserved by {@link #reserve(long)} that will not be used.
+     */
+    void cancel() {
+        nextArrival.addAndGet(-intervalNanos);
+    }
+
+}
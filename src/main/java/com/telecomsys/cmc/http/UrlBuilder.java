@@ -0,0 +1,200 @@
+package com.telecomsys.cmc.http;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Builder of the request URIs for a base URI that is parsed once. The request path is percent-encoded with the same
+ * path-safe characters as the Apache URIBuilder and the query parameters are form encoded, writing into a buffer
+ * that is reused by the calling thread.
+ */
+final class UrlBuilder {
+
+    /**
+     * Largest buffer kept for reuse by a thread. Larger buffers, built for very long paths, are released.
+     */
+    private static final int MAX_REUSED_BUFFER_SIZE = 8192;
+
+    /**
+     * Upper case hexadecimal digits used for percent-encoding.
+     */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Characters that are not encoded in a path segment (RFC 3986 unreserved characters).
+     */
+    private static final BitSet UNRESERVED = new BitSet(128);
+
+    /**
+     * Characters that are not encoded in a form encoded query parameter.
+     */
+    private static final BitSet FORM_SAFE = new BitSet(128);
+
+    /**
+     * Characters that are not encoded in a path.
+     */
+    private static final BitSet PATH_SAFE = new BitSet(128);
+
+    /**
+     * Buffer reused by each thread.
+     */
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    /**
+     * Static initializer.
+     */
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNRESERVED.set(c);
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            UNRESERVED.set(c);
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            UNRESERVED.set(c);
+        }
+        FORM_SAFE.or(UNRESERVED);
+        for (char c : "_-.*".toCharArray()) {
+            FORM_SAFE.set(c);
+        }
+        for (char c : "_-!.~'()*".toCharArray()) {
+            UNRESERVED.set(c);
+        }
+        PATH_SAFE.or(UNRESERVED);
+        for (char c : ",;:$&+=/@".toCharArray()) {
+            PATH_SAFE.set(c);
+        }
+    }
+
+    /**
+     * Scheme and authority of the base URI, for example http://localhost:8080.
+     */
+    private final String prefix;
+
+    /**
+     * Unescaped path of the base URI, prepended to the request paths.
+     */
+    private final String basePath;
+
+    /**
+     * Raw query of the base URI, null if none.
+     */
+    private final String baseQuery;
+
+    /**
+     * Constructor.
+     *
+     * @param baseUri base URL to connect to the CMC REST service.
+     * @throws URISyntaxException URI syntax exception.
+     */
+    UrlBuilder(String baseUri) throws URISyntaxException {
+        URI uri = new URI(baseUri);
+        if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+            throw new URISyntaxException(baseUri, "Base URI must be absolute");
+        }
+        this.prefix = uri.getScheme() + "://" + uri.getRawAuthority();
+        this.basePath = uri.getPath() != null ? uri.getPath() : "";
+        this.baseQuery = uri.getRawQuery();
+    }
+
+    /**
+     * Build the URI of a request.
+     *
+     * @param path unescaped path appended to the base path.
+     * @param queryParams query parameters, may be null.
+     * @return escaped URI.
+     */
+    URI build(String path, Map<String, String> queryParams) {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        sb.append(prefix);
+        encode(sb, basePath, PATH_SAFE, false);
+        encode(sb, path, PATH_SAFE, false);
+
+        boolean first = true;
+        if (baseQuery != null) {
+            sb.append('?').append(baseQuery);
+            first = false;
+        }
+        if (queryParams != null) {
+            for (Entry<String, String> entry : queryParams.entrySet()) {
+                sb.append(first ? '?' : '&');
+                encode(sb, entry.getKey(), FORM_SAFE, true);
+                if (entry.getValue() != null) {
+                    sb.append('=');
+                    encode(sb, entry.getValue(), FORM_SAFE, true);
+                }
+                first = false;
+            }
+        }
+
+        URI uri = URI.create(sb.toString());
+        if (sb.capacity() > MAX_REUSED_BUFFER_SIZE) {
+            BUFFER.remove();
+        }
+        return uri;
+    }
+
+    /**
+     * Helper method to percent-encode a value as UTF-8.
+     *
+     * @param sb buffer to append to.
+     * @param value value to encode, may be null.
+     * @param safe characters that are appended as is.
+     * @param form whether a space is encoded as a plus sign.
+     */
+    private static void encode(StringBuilder sb, String value, BitSet safe, boolean form) {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (safe.get(c)) {
+                    sb.append(c);
+                } else if (form && c == ' ') {
+                    sb.append('+');
+                } else {
+                    appendEscaped(sb, c);
+                }
+            } else if (c < 0x800) {
+                appendEscaped(sb, 0xC0 | (c >> 6));
+                appendEscaped(sb, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendEscaped(sb, 0xF0 | (codePoint >> 18));
+                appendEscaped(sb, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendEscaped(sb, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendEscaped(sb, 0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates are replaced like the UTF-8 encoder does.
+                appendEscaped(sb, '?');
+            } else {
+                appendEscaped(sb, 0xE0 | (c >> 12));
+                appendEscaped(sb, 0x80 | ((c >> 6) & 0x3F));
+                appendEscaped(sb, 0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Helper method to append a percent-encoded byte.
+     *
+     * @param sb buffer to append to.
+     * @param b byte to encode.
+     */
+    private static void appendEscaped(StringBuilder sb, int b) {
+        sb.append('%').append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+    }
+
+}
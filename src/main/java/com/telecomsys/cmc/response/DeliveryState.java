@@ -0,0 +1,161 @@
+package com.telecomsys.cmc.response;
+
+import java.util.Locale;
+
+/**
+ * Delivery state of a message, parsed from the status text of the notifications and delivery receipts. A text that
+ * is not recognized maps to {@link #UNKNOWN}; the raw text remains available from the model, and
+ * {@link #isFinalText(String)} tells whether it is final.
+ */
+public enum DeliveryState {
+
+    /**
+     * Accepted by CMC, not yet sent.
+     */
+    ACCEPTED("Message Accepted", false),
+
+    /**
+     * Delivered to the handset.
+     */
+    DELIVERED_TO_HANDSET("Delivered to Handset", true),
+
+    /**
+     * Refused by the carrier gateway.
+     */
+    UNDELIVERABLE_BY_GATEWAY("Undeliverable by Gateway", true),
+
+    /**
+     * Could not be delivered to the handset.
+     */
+    UNDELIVERABLE_TO_HANDSET("Undeliverable to Handset", true),
+
+    /**
+     * Status text not recognized.
+     */
+    UNKNOWN(null, false);
+
+    /**
+     * Known states, without {@link #UNKNOWN}.
+     */
+    private static final DeliveryState[] KNOWN_STATES = {ACCEPTED, DELIVERED_TO_HANDSET, UNDELIVERABLE_BY_GATEWAY,
+        UNDELIVERABLE_TO_HANDSET};
+
+    /**
+     * Lower case prefixes of the final status texts. CMC appends details to some texts, for example
+     * "Undeliverable - invalid number", and reports final statuses that have no state of their own.
+     */
+    private static final String[] FINAL_TEXT_PREFIXES = {"delivered to handset", "undeliverable", "expired",
+        "rejected", "failed", "deleted"};
+
+    /**
+     * Status text of the state as sent by CMC, shared by all the models in this state.
+     */
+    private final String text;
+
+    /**
+     * Whether the state will not change anymore.
+     */
+    private final boolean finalState;
+
+    /**
+     * Constructor.
+     *
+     * @param text status text of the state.
+     * @param finalState whether the state will not change anymore.
+     */
+    DeliveryState(String text, boolean finalState) {
+        this.text = text;
+        this.finalState = finalState;
+    }
+
+    /**
+     * @return the status text as sent by CMC, null for {@link #UNKNOWN}
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return whether the state will not change anymore
+     */
+    public boolean isFinal() {
+        return finalState;
+    }
+
+    /**
+     * Get the state of a status text, ignoring the case and the surrounding whitespace.
+     *
+     * @param statusText the status text, may be null.
+     * @return the state, {@link #UNKNOWN} if not recognized.
+     */
+    public static DeliveryState fromText(String statusText) {
+        if (statusText == null) {
+            return UNKNOWN;
+        }
+
+        // The texts of the parsed models are usually the shared constants.
+        for (DeliveryState state : KNOWN_STATES) {
+            if (state.text == statusText) {
+                return state;
+            }
+        }
+        String trimmed = statusText.trim();
+        for (DeliveryState state : KNOWN_STATES) {
+            if (state.text.equalsIgnoreCase(trimmed)) {
+                return state;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Whether a status text is final, in which case the status will not change anymore. Unlike the state of the
+     * text, the finality is recognized by prefix, ignoring the case and the surrounding whitespace, so that the
+     * final texts with details or without a state of their own are final too.
+     *
+     * @param statusText the status text, may be null.
+     * @return whether the status is final.
+     */
+    public static boolean isFinalText(String statusText) {
+        if (statusText == null) {
+            return false;
+        }
+        if (fromText(statusText).isFinal()) {
+            return true;
+        }
+        String normalized = statusText.trim().toLowerCase(Locale.ENGLISH);
+        for (String prefix : FINAL_TEXT_PREFIXES) {
+            if (normalized.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the shared text of the state whose text is held in a character buffer, without allocating. Only an exact
+     * match is shared, so that the models hold the text as sent by CMC.
+     *
+     * @param buffer the character buffer.
+     * @param offset offset of the text in the buffer.
+     * @param length length of the text.
+     * @return the shared text, null if the text is not exactly the text of a state.
+     */
+    static String sharedText(char[] buffer, int offset, int length) {
+        for (DeliveryState state : KNOWN_STATES) {
+            String stateText = state.text;
+            if (stateText.length() != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && stateText.charAt(i) == buffer[offset + i]) {
+                i++;
+            }
+            if (i == length) {
+                return stateText;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.telecomsys.cmc.response;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * Deserializer of the status texts, read from the buffer of the parser. A text that is exactly the text of a
+ * {@link DeliveryState} is returned as the shared text of the state, without allocating a string; any other text,
+ * including case or whitespace variants, is kept as sent.
+ */
+public final class DeliveryStatusDeserializer extends StdDeserializer<String> {
+
+    /**
+     * Serial version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     */
+    public DeliveryStatusDeserializer() {
+        super(String.class);
+    }
+
+    @Override
+    public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        return readStatus(parser);
+    }
+
+    /**
+     * Read a status text as sent by CMC, returning the shared text of its state when it is exactly that text.
+     *
+     * @param parser JSON parser positioned on the value.
+     * @return the status text, null for null and structured values.
+     * @throws IOException if the body cannot be read or is not valid.
+     */
+    public static String readStatus(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            String sharedText = DeliveryState.sharedText(parser.getTextCharacters(), parser.getTextOffset(),
+                    parser.getTextLength());
+            return sharedText != null ? sharedText : parser.getText();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isScalarValue()) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.telecomsys.cmc.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 /**
  * Data model for message status type (receipt details).
@@ -16,6 +18,7 @@ public class MessageStatus {
     /**
      * Status message text.
      */
+    @JsonDeserialize(using = DeliveryStatusDeserializer.class)
     @JsonProperty("deliverystatus")
     private String deliveryStatus;
 
@@ -51,6 +54,14 @@ public class MessageStatus {
         return deliveryStatus;
     }
 
+    /**
+     * @return the state of the delivery status, {@link DeliveryState#UNKNOWN} if the text is not recognized
+     */
+    @JsonIgnore
+    public DeliveryState getDeliveryState() {
+        return DeliveryState.fromText(deliveryStatus);
+    }
+
     /**
      * @param deliveryStatus the deliveryStatus to set
      */
@@ -1,7 +1,9 @@
 package com.telecomsys.cmc.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 /**
  * Data model for a single notification.
@@ -17,6 +19,7 @@ public class TrackingInformation {
     /**
      * Status message text.
      */
+    @JsonDeserialize(using = DeliveryStatusDeserializer.class)
     @JsonProperty("messagestatus")
     private String messageStatus;
 
@@ -52,6 +55,14 @@ public class TrackingInformation {
         return messageStatus;
     }
 
+    /**
+     * @return the state of the message status, {@link DeliveryState#UNKNOWN} if the text is not recognized
+     */
+    @JsonIgnore
+    public DeliveryState getMessageState() {
+        return DeliveryState.fromText(messageStatus);
+    }
+
     /**
      * @param messageStatus the messageStatus to set
      */
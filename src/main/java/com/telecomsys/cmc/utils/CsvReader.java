@@ -0,0 +1,156 @@
+package com.telecomsys.cmc.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader of comma separated values (RFC 4180): fields may be quoted, quoted fields may contain commas, line breaks and
+ * doubled quotes. The input is read through a fixed buffer so that files of any size are streamed record by record.
+ */
+public final class CsvReader implements Closeable {
+
+    /**
+     * Size of the read buffer in characters.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Source of the values.
+     */
+    private final Reader reader;
+
+    /**
+     * Read buffer.
+     */
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    /**
+     * Buffer of the field being read.
+     */
+    private final StringBuilder field = new StringBuilder();
+
+    /**
+     * Position of the next character in the read buffer.
+     */
+    private int position;
+
+    /**
+     * Number of characters in the read buffer.
+     */
+    private int limit;
+
+    /**
+     * Number of records read so far.
+     */
+    private long recordNumber;
+
+    /**
+     * Constructor.
+     *
+     * @param reader source of the values, closed with this reader.
+     */
+    public CsvReader(Reader reader) {
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader must not be null");
+        }
+        this.reader = reader;
+    }
+
+    /**
+     * Read the next record. Blank lines are skipped.
+     *
+     * @return the fields of the record or null at the end of the input.
+     * @throws IOException if the input cannot be read or ends within a quoted field.
+     */
+    public List<String> readRecord() throws IOException {
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            c = read();
+        }
+        if (c < 0) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<String>();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("Unterminated quoted field in record " + (recordNumber + 1));
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c < 0 || c == '\n' || c == '\r') {
+                fields.add(field.toString());
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                recordNumber++;
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * @return the number of records read so far, the header included
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Helper method to read the next character.
+     *
+     * @return the character or -1 at the end of the input.
+     * @throws IOException if the input cannot be read.
+     */
+    private int read() throws IOException {
+        int c = peek();
+        if (c >= 0) {
+            position++;
+        }
+        return c;
+    }
+
+    /**
+     * Helper method to get the next character without consuming it.
+     *
+     * @return the character or -1 at the end of the input.
+     * @throws IOException if the input cannot be read.
+     */
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+}
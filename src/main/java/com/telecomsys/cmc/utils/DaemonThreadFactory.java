@@ -0,0 +1,37 @@
+package com.telecomsys.cmc.utils;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory creating named daemon threads so that the SDK background threads never keep the JVM alive.
+ */
+public final class DaemonThreadFactory implements ThreadFactory {
+
+    /**
+     * Thread name prefix.
+     */
+    private final String namePrefix;
+
+    /**
+     * Thread counter.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param namePrefix thread name prefix.
+     */
+    public DaemonThreadFactory(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, namePrefix + "-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+}
@@ -0,0 +1,283 @@
+package com.telecomsys.cmc.utils;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Timer running a large number of approximate timeouts on a single thread. The timeouts are hashed into the buckets
+ * of a wheel that advances one bucket per tick, so adding and cancelling a timeout is constant time whatever the
+ * number of pending timeouts; a timeout expires at the first tick after its delay. The tasks run on the timer thread
+ * and must be short, typically handing the work over to an asynchronous client or an executor.
+ */
+public final class HashedWheelTimer implements Closeable {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    /**
+     * Duration of a tick in nanoseconds.
+     */
+    private final long tickNanos;
+
+    /**
+     * Buckets of the wheel, only accessed by the timer thread.
+     */
+    private final List<List<Timeout>> wheel;
+
+    /**
+     * Mask mapping a tick to its bucket, the number of buckets being a power of two.
+     */
+    private final int mask;
+
+    /**
+     * Timeouts added since the last tick, moved to their bucket by the timer thread.
+     */
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<Timeout>();
+
+    /**
+     * Number of pending timeouts.
+     */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /**
+     * Time in nanoseconds the timer started, the origin of the ticks and deadlines.
+     */
+    private final long startTime;
+
+    /**
+     * Timer thread.
+     */
+    private final Thread worker;
+
+    /**
+     * Whether the timer has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructor. The timer thread starts immediately.
+     *
+     * @param name name of the timer thread.
+     * @param tickDuration duration of a tick in milliseconds, the precision of the timeouts.
+     * @param ticksPerWheel number of buckets, rounded up to a power of two.
+     */
+    public HashedWheelTimer(String name, long tickDuration, int ticksPerWheel) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+            throw new IllegalArgumentException("Tick duration and ticks per wheel must be positive");
+        }
+        int buckets = Integer.highestOneBit(ticksPerWheel);
+        if (buckets < ticksPerWheel) {
+            buckets <<= 1;
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+        this.mask = buckets - 1;
+        this.wheel = new ArrayList<List<Timeout>>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            wheel.add(new ArrayList<Timeout>());
+        }
+        this.startTime = System.nanoTime();
+        this.worker = new DaemonThreadFactory(name).newThread(new Runnable() {
+            @Override
+            public void run() {
+                runWorker();
+            }
+        });
+        this.worker.start();
+    }
+
+    /**
+     * Schedule a task.
+     *
+     * @param task the task run on the timer thread when the timeout expires.
+     * @param delay delay in milliseconds.
+     * @return the timeout, which can be cancelled.
+     */
+    public Timeout newTimeout(Runnable task, long delay) {
+        if (closed) {
+            throw new IllegalStateException("Timer is closed");
+        }
+        Timeout timeout = new Timeout(task,
+                System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay)));
+        pendingCount.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return the number of pending timeouts, including the cancelled timeouts not yet removed from the wheel
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Stop the timer. The pending timeouts never expire.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+    }
+
+    /**
+     * Helper method running the timer thread: wait for each tick, then expire the timeouts of its bucket.
+     */
+    private void runWorker() {
+        long tick = 0;
+        while (!closed) {
+            long sleepNanos = startTime + (tick + 1) * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException iex) {
+                    return;
+                }
+                continue;
+            }
+            transferAdded(tick);
+            expire(wheel.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    /**
+     * Helper method to move the added timeouts to their bucket.
+     *
+     * @param tick the current tick.
+     */
+    private void transferAdded(long tick) {
+        for (Timeout timeout = added.poll(); timeout != null; timeout = added.poll()) {
+            if (timeout.isCancelled()) {
+                pendingCount.decrementAndGet();
+                continue;
+            }
+
+            // Round up so that a timeout never expires before its delay; past deadlines expire on this tick.
+            long expiryTick = Math.max(tick, (timeout.deadline + tickNanos - 1) / tickNanos - 1);
+            timeout.remainingRounds = (expiryTick - tick) / wheel.size();
+            wheel.get((int) (expiryTick & mask)).add(timeout);
+        }
+    }
+
+    /**
+     * Helper method to expire the timeouts of a bucket whose last round has come.
+     *
+     * @param bucket the bucket of the current tick.
+     */
+    private void expire(List<Timeout> bucket) {
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Timeout timeout = bucket.get(i);
+            if (timeout.isCancelled()) {
+                pendingCount.decrementAndGet();
+            } else if (timeout.remainingRounds <= 0) {
+                pendingCount.decrementAndGet();
+                timeout.expire();
+            } else {
+                timeout.remainingRounds--;
+                bucket.set(kept++, timeout);
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class Timeout {
+
+        /**
+         * State of a pending timeout.
+         */
+        private static final int PENDING = 0;
+
+        /**
+         * State of a cancelled timeout.
+         */
+        private static final int CANCELLED = 1;
+
+        /**
+         * State of an expired timeout.
+         */
+        private static final int EXPIRED = 2;
+
+        /**
+         * Task run on expiry.
+         */
+        private final Runnable task;
+
+        /**
+         * Deadline in nanoseconds relative to the start of the timer.
+         */
+        private final long deadline;
+
+        /**
+         * Number of wheel rotations left before the timeout expires, only accessed by the timer thread.
+         */
+        private long remainingRounds;
+
+        /**
+         * State of the timeout.
+         */
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        /**
+         * Constructor.
+         *
+         * @param task task run on expiry.
+         * @param deadline deadline in nanoseconds relative to the start of the timer.
+         */
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancel the timeout. The task is not run if it has not started yet.
+         *
+         * @return false if the timeout already expired or was cancelled.
+         */
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        /**
+         * @return whether the timeout was cancelled
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * @return whether the timeout expired
+         */
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        /**
+         * Helper method to run the task unless the timeout was cancelled.
+         */
+        private void expire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException rex) {
+                LOGGER.error("Timer task failed", rex);
+            }
+        }
+    }
+
+}
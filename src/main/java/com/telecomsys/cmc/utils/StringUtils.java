@@ -32,4 +32,33 @@ public final class StringUtils {
         return sb.toString();
     }
 
+    /**
+     * Utility to normalize a cell number (MDN) to its digits, so that "+1 (410) 271-8101" and "14102718101" compare
+     * equal.
+     *
+     * @param mdn the cell number, may be null.
+     * @return the digits of the cell number, the trimmed cell number if it has none or an empty string if null.
+     */
+    public static String normalizeMdn(String mdn) {
+        if (mdn == null) {
+            return "";
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < mdn.length(); i++) {
+            char c = mdn.charAt(i);
+            if (c < '0' || c > '9') {
+                if (sb == null) {
+                    sb = new StringBuilder(mdn.length());
+                    sb.append(mdn, 0, i);
+                }
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        if (sb == null) {
+            return mdn;
+        }
+        return sb.length() > 0 ? sb.toString() : mdn.trim();
+    }
+
 }
@@ -0,0 +1,134 @@
+package com.telecomsys.cmc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.telecomsys.cmc.api.BulkSendResult;
+import com.telecomsys.cmc.api.BulkSender;
+import com.telecomsys.cmc.api.CmcClient;
+import com.telecomsys.cmc.model.Message;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.*;
+
+public class BulkSenderTest {
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String USERNAME = "9876";
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String PASSWORD = "1234";
+
+    /**
+     * CMC client instance.
+     */
+    private CmcClient cmcClient;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(18089);
+
+    @Before
+    public void setup() {
+        cmcClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cmcClient.close();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void invalidChunkSizeTest() {
+        new BulkSender(cmcClient.getMessagingApi(), 0, 4);
+    }
+
+    @Test
+    public void sendInChunks() throws Exception {
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"notifications\":{\"to\":[\"4102800000\"],\"from\":\"scsrest\",\"trackinginformation\":[{\"destination\":\"4102800000\",\"messagestatus\":\"Message Accepted\",\"messageID\":\"GW1_AVvciGlHRM32pw0Q\",\"messagetext\":\"Test message\"}]}}}")));
+
+        Message message = new Message(createDestinations(25), "scsrest", "Test message");
+        message.setSubject("Subject");
+        BulkSendResult result = new BulkSender(cmcClient.getMessagingApi(), 10, 2).send(message);
+
+        // Verify the result.
+        assertTrue(result.isSuccess());
+        assertEquals(result.getChunkCount(), 3);
+        assertEquals(result.getTrackingInformation().size(), 3);
+        assertEquals(result.getTrackingInformation().get(0).getMessageID(), "GW1_AVvciGlHRM32pw0Q");
+
+        // Verify the requests.
+        List<LoggedRequest> requests = findAll(postRequestedFor(urlEqualTo("/messages")));
+        assertEquals(requests.size(), 3);
+        int destinationCount = 0;
+        for (LoggedRequest request : requests) {
+            assertTrue(request.getBodyAsString().contains("\"subject\":\"Subject\""));
+            destinationCount += request.getBodyAsString().split("41028000").length - 1;
+        }
+        assertEquals(destinationCount, 25);
+    }
+
+    @Test
+    public void sendWithFailedChunk() throws Exception {
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"notifications\":{\"to\":[\"4102800000\"],\"from\":\"scsrest\",\"trackinginformation\":[{\"destination\":\"4102800000\",\"messagestatus\":\"Message Accepted\",\"messageID\":\"GW1_AVvciGlHRM32pw0Q\",\"messagetext\":\"Test message\"}]}}}")));
+        stubFor(post(urlEqualTo("/messages"))
+                .withRequestBody(containing("4102800024"))
+                .willReturn(aResponse()
+                    .withStatus(500)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"6000\",\"message\":\"The RMI server is down.\"}}")));
+
+        Message message = new Message(createDestinations(25), "scsrest", "Test message");
+        BulkSendResult result = new BulkSender(cmcClient.getMessagingApi(), 10, 4).send(message);
+
+        // Only the last chunk failed.
+        assertFalse(result.isSuccess());
+        assertEquals(result.getTrackingInformation().size(), 2);
+        assertEquals(result.getFailedChunks().size(), 1);
+        BulkSendResult.FailedChunk failedChunk = result.getFailedChunks().get(0);
+        assertEquals(failedChunk.getDestinations().size(), 5);
+        assertEquals(failedChunk.getDestinations().get(4), "4102800024");
+        assertEquals(failedChunk.getResponse().getHttpStatusCode(), 500);
+        assertEquals(failedChunk.getResponse().getResponseBody().getCode(), "6000");
+        assertNull(failedChunk.getException());
+    }
+
+    @Test
+    public void sendWithClosedClient() throws Exception {
+        cmcClient.close();
+        Message message = new Message(createDestinations(5), "scsrest", "Test message");
+        BulkSendResult result = new BulkSender(cmcClient.getMessagingApi(), 2, 1).send(message);
+
+        // All chunks fail without blocking the sender.
+        assertEquals(result.getFailedChunks().size(), 3);
+        assertNotNull(result.getFailedChunks().get(0).getException());
+    }
+
+    private static List<String> createDestinations(int count) {
+        List<String> destinations = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            destinations.add(String.format("41028000%02d", i));
+        }
+        return destinations;
+    }
+
+}
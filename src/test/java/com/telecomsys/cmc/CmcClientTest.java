@@ -0,0 +1,684 @@
+package com.telecomsys.cmc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.telecomsys.cmc.api.CmcClient;
+import com.telecomsys.cmc.exception.CMCCircuitOpenException;
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.exception.CMCIOException;
+import com.telecomsys.cmc.exception.CMCRateLimitException;
+import com.telecomsys.cmc.http.ApacheHttpClientDelegate;
+import com.telecomsys.cmc.http.CircuitBreakerConfig;
+import com.telecomsys.cmc.http.CircuitBreakerListener;
+import com.telecomsys.cmc.http.CircuitState;
+import com.telecomsys.cmc.http.CmcClientConfig;
+import com.telecomsys.cmc.http.CmcHttpRequest;
+import com.telecomsys.cmc.http.ConnectionPoolGauge;
+import com.telecomsys.cmc.http.ExponentialBackoffRetryPolicy;
+import com.telecomsys.cmc.http.HttpClientDelegate;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.MetricsRecorder;
+import com.telecomsys.cmc.http.NoopMetricsRecorder;
+import com.telecomsys.cmc.http.RateLimit;
+import com.telecomsys.cmc.http.RateLimitMode;
+import com.telecomsys.cmc.http.RetryPolicy;
+import com.telecomsys.cmc.model.Message;
+import com.telecomsys.cmc.response.ContactsResponse;
+import com.telecomsys.cmc.response.GroupResponse;
+import com.telecomsys.cmc.response.NotificationsResponse;
+import com.telecomsys.cmc.response.RestResponse;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.*;
+
+public class CmcClientTest {
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String USERNAME = "9876";
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String PASSWORD = "1234";
+
+    /**
+     * CMC client instance.
+     */
+    private CmcClient cmcClient;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(18089);
+
+    @Before
+    public void setup() {
+        cmcClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void nullHttpClientTest() {
+        new CmcClient(null);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void invalidBaseUriTest() {
+        new CmcClient("localhost:18089 /rest", USERNAME, PASSWORD);
+    }
+
+    @Test
+    public void facadesShareHttpClient() throws Exception {
+        stubFor(get(urlMatching("/notifications/.*"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\"}}")));
+        stubFor(delete(urlMatching("/(contacts|groups|schedules)\\?all=true"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\"}}")));
+
+        // A delegate counting the requests of all the facades.
+        final ApacheHttpClientDelegate target = new ApacheHttpClientDelegate("http://localhost:18089", USERNAME,
+                PASSWORD);
+        final AtomicInteger requests = new AtomicInteger();
+        HttpClientDelegate counting = new HttpClientDelegate() {
+            @Override
+            public <T> HttpResponseWrapper<T> doGet(CmcHttpRequest request, Class<T> responseClass)
+                    throws CMCException {
+                requests.incrementAndGet();
+                return target.doGet(request, responseClass);
+            }
+
+            @Override
+            public <T> HttpResponseWrapper<T> doPost(CmcHttpRequest request, Class<T> responseClass)
+                    throws CMCException {
+                requests.incrementAndGet();
+                return target.doPost(request, responseClass);
+            }
+
+            @Override
+            public <T> HttpResponseWrapper<T> doPut(CmcHttpRequest request, Class<T> responseClass)
+                    throws CMCException {
+                requests.incrementAndGet();
+                return target.doPut(request, responseClass);
+            }
+
+            @Override
+            public <T> HttpResponseWrapper<T> doDelete(CmcHttpRequest request, Class<T> responseClass)
+                    throws CMCException {
+                requests.incrementAndGet();
+                return target.doDelete(request, responseClass);
+            }
+        };
+        try {
+            CmcClient sharedClient = new CmcClient(counting);
+            assertSame(sharedClient.getHttpClient(), counting);
+            assertSame(sharedClient.getMessagingApi(), sharedClient.getMessagingApi());
+
+            // Each facade sends its request through the same delegate.
+            assertEquals(sharedClient.getMessagingApi().getDeliveryNotifications("17177").getHttpStatusCode(), 200);
+            assertEquals(requests.get(), 1);
+            assertEquals(sharedClient.getContactApi().deleteAllContacts().getHttpStatusCode(), 200);
+            assertEquals(requests.get(), 2);
+            assertEquals(sharedClient.getGroupApi().deleteAllGroups().getHttpStatusCode(), 200);
+            assertEquals(requests.get(), 3);
+            assertEquals(sharedClient.getSchedulingApi().deleteAllScheduledMessages().getHttpStatusCode(), 200);
+            assertEquals(requests.get(), 4);
+            sharedClient.close();
+        } finally {
+            target.close();
+        }
+    }
+
+    @Test
+    public void requestsThroughDifferentFacades() throws CMCException {
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"notifications\":{\"to\":[\"4102804827\"],\"from\":\"scsrest\",\"trackinginformation\":[{\"destination\":\"4102804827\",\"messagestatus\":\"Message Accepted\",\"messageID\":\"GW1_AVvciGlHRM32pw0Q\",\"messagetext\":\"Test message\"}]}}}")));
+        stubFor(delete(urlEqualTo("/groups?all=true"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\"}}")));
+
+        List<String> destinations = new ArrayList<String>();
+        destinations.add("4102804827");
+        Message message = new Message(destinations, "scsrest", "Test message");
+        HttpResponseWrapper<NotificationsResponse> sendResponse = cmcClient.getMessagingApi().sendMessage(message);
+        assertEquals(sendResponse.getHttpStatusCode(), 200);
+        assertEquals(sendResponse.getResponseBody().getNotifications().getTrackingInformation().size(), 1);
+
+        HttpResponseWrapper<RestResponse> deleteResponse = cmcClient.getGroupApi().deleteAllGroups();
+        assertEquals(deleteResponse.getHttpStatusCode(), 200);
+        assertEquals(deleteResponse.getResponseBody().getStatus(), "success");
+
+        // Both requests carry the same credentials.
+        verify(postRequestedFor(urlEqualTo("/messages")).withHeader("Authorization", equalTo("Basic OTg3NjoxMjM0")));
+        verify(deleteRequestedFor(urlEqualTo("/groups?all=true"))
+                .withHeader("Authorization", equalTo("Basic OTg3NjoxMjM0")));
+    }
+
+    @Test
+    public void updateCredentialsTest() throws CMCException {
+        stubFor(delete(urlEqualTo("/groups?all=true"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\"}}")));
+
+        cmcClient.getGroupApi().deleteAllGroups();
+        cmcClient.updateCredentials("1111", "2222");
+        cmcClient.getGroupApi().deleteAllGroups();
+
+        List<LoggedRequest> requests = findAll(deleteRequestedFor(urlEqualTo("/groups?all=true")));
+        assertEquals(requests.size(), 2);
+        assertEquals(requests.get(0).getHeader("Authorization"), "Basic OTg3NjoxMjM0");
+        assertEquals(requests.get(1).getHeader("Authorization"), "Basic MTExMToyMjIy");
+        assertEquals(requests.get(1).getHeader("X-Requested-By"), "12345");
+        assertEquals(requests.get(1).getHeader("Accept"), "application/json");
+    }
+
+    @Test
+    public void minimalHttpClientTest() throws Exception {
+        stubFor(delete(urlEqualTo("/groups?all=true"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\"}}")));
+
+        // A delegate implementing only the HTTP methods, neither closeable nor updating its credentials.
+        final ApacheHttpClientDelegate target = new ApacheHttpClientDelegate("http://localhost:18089", USERNAME,
+                PASSWORD);
+        HttpClientDelegate minimal = new HttpClientDelegate() {
+            @Override
+            public <T> HttpResponseWrapper<T> doGet(CmcHttpRequest request, Class<T> responseClass)
+                    throws CMCException {
+                return target.doGet(request, responseClass);
+            }
+
+            @Override
+            public <T> HttpResponseWrapper<T> doPost(CmcHttpRequest request, Class<T> responseClass)
+                    throws CMCException {
+                return target.doPost(request, responseClass);
+            }
+
+            @Override
+            public <T> HttpResponseWrapper<T> doPut(CmcHttpRequest request, Class<T> responseClass)
+                    throws CMCException {
+                return target.doPut(request, responseClass);
+            }
+
+            @Override
+            public <T> HttpResponseWrapper<T> doDelete(CmcHttpRequest request, Class<T> responseClass)
+                    throws CMCException {
+                return target.doDelete(request, responseClass);
+            }
+        };
+        try {
+            CmcClient minimalClient = new CmcClient(minimal);
+            assertEquals(minimalClient.getGroupApi().deleteAllGroups().getHttpStatusCode(), 200);
+            try {
+                minimalClient.updateCredentials("1111", "2222");
+                fail("Expected UnsupportedOperationException");
+            } catch (UnsupportedOperationException uoex) {
+                // Expected.
+            }
+            minimalClient.close();
+        } finally {
+            target.close();
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void invalidPoolSizeConfigTest() {
+        CmcClientConfig.custom().setMaxConnectionsPerRoute(50).setMaxConnectionsTotal(20).build();
+    }
+
+    @Test
+    public void customConfigTest() throws Exception {
+        stubFor(get(urlMatching("/contacts/[0-9,]+"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"contactList\":[{\"mdn\":\"14102718101\",\"first\":\"John\",\"last\":\"Doe\"}]}}")));
+
+        CmcClientConfig config = CmcClientConfig.custom().setMaxConnectionsPerRoute(50).setMaxConnectionsTotal(100)
+                .setConnectionTimeToLive(60000).setIdleEvictionInterval(100).setValidateAfterInactivity(500).build();
+        assertEquals(config.getMaxConnectionsPerRoute(), 50);
+        assertEquals(CmcClientConfig.copy(config).build().getIdleEvictionInterval(), 100);
+
+        CmcClient configuredClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD, config);
+        try {
+            List<String> mdns = new ArrayList<String>();
+            mdns.add("14102718101");
+            HttpResponseWrapper<ContactsResponse> response = configuredClient.getContactApi().retrieveContacts(mdns);
+            assertEquals(response.getHttpStatusCode(), 200);
+
+            // Let the evictor close the idle connection and send again, blocking and asynchronously.
+            Thread.sleep(300);
+            response = configuredClient.getContactApi().retrieveContacts(mdns);
+            assertEquals(response.getHttpStatusCode(), 200);
+            response = configuredClient.getContactApi().retrieveContactsAsync(mdns, null).get(5, TimeUnit.SECONDS);
+            assertEquals(response.getHttpStatusCode(), 200);
+        } finally {
+            configuredClient.close();
+        }
+    }
+
+    @Test
+    public void failFastRateLimitTest() throws Exception {
+        stubFor(delete(urlEqualTo("/groups?all=true"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\"}}")));
+
+        CmcClientConfig config = CmcClientConfig.custom().setAccountRateLimit(new RateLimit(0.1))
+                .setRateLimitMode(RateLimitMode.FAIL_FAST).build();
+        CmcClient limitedClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD, config);
+        try {
+            limitedClient.getGroupApi().deleteAllGroups();
+            try {
+                limitedClient.getGroupApi().deleteAllGroups();
+                fail("Expected rate limit failure");
+            } catch (CMCRateLimitException rlex) {
+                // Expected, the request is not sent.
+            }
+            try {
+                limitedClient.getGroupApi().deleteAllGroupsAsync(null).get(5, TimeUnit.SECONDS);
+                fail("Expected rate limit failure");
+            } catch (ExecutionException eex) {
+                assertTrue(eex.getCause() instanceof CMCRateLimitException);
+            }
+        } finally {
+            limitedClient.close();
+        }
+        assertEquals(findAll(deleteRequestedFor(urlEqualTo("/groups?all=true"))).size(), 1);
+    }
+
+    @Test
+    public void keywordRateLimitTest() throws Exception {
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\"}}")));
+
+        // The limited keyword waits for its turn, other keywords are not limited.
+        CmcClientConfig config = CmcClientConfig.custom().setKeywordRateLimit("slow", new RateLimit(10)).build();
+        CmcClient limitedClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD, config);
+        try {
+            List<String> destinations = new ArrayList<String>();
+            destinations.add("4102804827");
+            long start = System.nanoTime();
+            for (int i = 0; i < 3; i++) {
+                limitedClient.getMessagingApi().sendMessage(new Message(destinations, "slow", "Test message"));
+            }
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150);
+
+            start = System.nanoTime();
+            for (int i = 0; i < 3; i++) {
+                limitedClient.getMessagingApi().sendMessage(new Message(destinations, "fast", "Test message"));
+            }
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 150);
+        } finally {
+            limitedClient.close();
+        }
+    }
+
+    @Test
+    public void queueRateLimitTest() throws Exception {
+        stubFor(delete(urlEqualTo("/groups?all=true"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\"}}")));
+
+        CmcClientConfig config = CmcClientConfig.custom().setAccountRateLimit(new RateLimit(5))
+                .setRateLimitMode(RateLimitMode.QUEUE).build();
+        CmcClient limitedClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD, config);
+        try {
+            // Queued requests return immediately and are sent when the rate limiter allows.
+            long start = System.nanoTime();
+            Future<HttpResponseWrapper<RestResponse>> first = limitedClient.getGroupApi().deleteAllGroupsAsync(null);
+            Future<HttpResponseWrapper<RestResponse>> second = limitedClient.getGroupApi().deleteAllGroupsAsync(null);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 150);
+            assertEquals(first.get(5, TimeUnit.SECONDS).getHttpStatusCode(), 200);
+            assertEquals(second.get(5, TimeUnit.SECONDS).getHttpStatusCode(), 200);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150);
+        } finally {
+            limitedClient.close();
+        }
+    }
+
+    @Test
+    public void retryIdempotentRequestTest() throws Exception {
+        stubFor(get(urlEqualTo("/groups/sales")).inScenario("retry").whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("recovered")
+                .willReturn(aResponse()
+                    .withStatus(503)
+                    .withHeader("Content-Type", "text/html")
+                    .withBody("Service unavailable")));
+        stubFor(get(urlEqualTo("/groups/sales")).inScenario("retry").whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"group\":{\"groupname\":\"sales\"}}}")));
+        stubFor(delete(urlEqualTo("/groups?all=true"))
+                .willReturn(aResponse()
+                    .withStatus(500)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"6000\"}}")));
+
+        CmcClientConfig config = CmcClientConfig.custom()
+                .setRetryPolicy(new ExponentialBackoffRetryPolicy(3, 10, 50, 5000)).build();
+        CmcClient retryingClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD, config);
+        try {
+            // The GET is retried after the 503.
+            HttpResponseWrapper<GroupResponse> response = retryingClient.getGroupApi().retrieveGroup("sales");
+            assertEquals(response.getHttpStatusCode(), 200);
+            assertEquals(response.getResponseBody().getGroup().getName(), "sales");
+            assertEquals(findAll(getRequestedFor(urlEqualTo("/groups/sales"))).size(), 2);
+
+            // Asynchronous requests are retried as well.
+            WireMock.resetAllScenarios();
+            response = retryingClient.getGroupApi().retrieveGroupAsync("sales", null).get(5, TimeUnit.SECONDS);
+            assertEquals(response.getHttpStatusCode(), 200);
+            assertEquals(findAll(getRequestedFor(urlEqualTo("/groups/sales"))).size(), 4);
+
+            // Deleting all the groups is not idempotent and is not retried.
+            HttpResponseWrapper<RestResponse> deleteResponse = retryingClient.getGroupApi().deleteAllGroups();
+            assertEquals(deleteResponse.getHttpStatusCode(), 500);
+            assertEquals(findAll(deleteRequestedFor(urlEqualTo("/groups?all=true"))).size(), 1);
+        } finally {
+            retryingClient.close();
+        }
+    }
+
+    @Test
+    public void retryConnectFailureTest() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final RetryPolicy backoff = new ExponentialBackoffRetryPolicy(2, 10, 20, 5000);
+        CmcClientConfig config = CmcClientConfig.custom().setRetryPolicy(new RetryPolicy() {
+            @Override
+            public long getRetryDelay(int retryCount, long elapsedTime, int statusCode, Exception failure) {
+                attempts.incrementAndGet();
+                return backoff.getRetryDelay(retryCount, elapsedTime, statusCode, failure);
+            }
+        }).build();
+
+        // Nothing listens on this port.
+        CmcClient retryingClient = new CmcClient("http://localhost:18090", USERNAME, PASSWORD, config);
+        try {
+            retryingClient.getGroupApi().retrieveGroup("sales");
+            fail("Expected IO failure");
+        } catch (CMCIOException ioex) {
+            assertEquals(attempts.get(), 3);
+        } finally {
+            retryingClient.close();
+        }
+    }
+
+    @Test
+    public void emptyResponseRetriedByPolicyOnly() throws Exception {
+        stubFor(get(urlEqualTo("/groups/sales"))
+                .willReturn(aResponse()
+                    .withFault(Fault.EMPTY_RESPONSE)));
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withFault(Fault.EMPTY_RESPONSE)));
+
+        // Without a retry policy each request is sent once.
+        try {
+            cmcClient.getGroupApi().retrieveGroup("sales");
+            fail("Expected IO failure");
+        } catch (CMCException cmcex) {
+            // Expected.
+        }
+        try {
+            cmcClient.getMessagingApi().sendMessage(new Message(Arrays.asList("4102804827"), "scsrest", "Test"));
+            fail("Expected IO failure");
+        } catch (CMCException cmcex) {
+            // Expected.
+        }
+        assertEquals(findAll(getRequestedFor(urlEqualTo("/groups/sales"))).size(), 1);
+        assertEquals(findAll(postRequestedFor(urlEqualTo("/messages"))).size(), 1);
+
+        // With a retry policy the GET is sent once per attempt of the policy, and the send is not retried.
+        CmcClientConfig config = CmcClientConfig.custom()
+                .setRetryPolicy(new ExponentialBackoffRetryPolicy(2, 10, 20, 5000)).build();
+        CmcClient retryingClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD, config);
+        try {
+            try {
+                retryingClient.getGroupApi().retrieveGroup("sales");
+                fail("Expected IO failure");
+            } catch (CMCException cmcex) {
+                // Expected.
+            }
+            try {
+                retryingClient.getMessagingApi().sendMessage(new Message(Arrays.asList("4102804827"), "scsrest",
+                        "Test"));
+                fail("Expected IO failure");
+            } catch (CMCException cmcex) {
+                // Expected.
+            }
+        } finally {
+            retryingClient.close();
+        }
+        assertEquals(findAll(getRequestedFor(urlEqualTo("/groups/sales"))).size(), 4);
+        assertEquals(findAll(postRequestedFor(urlEqualTo("/messages"))).size(), 2);
+    }
+
+    @Test
+    public void circuitBreakerTest() throws Exception {
+        stubFor(get(urlEqualTo("/groups/sales"))
+                .willReturn(aResponse()
+                    .withStatus(500)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"6000\"}}")));
+        stubFor(get(urlEqualTo("/contacts/4102804827"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"contacts\":[]}}")));
+
+        final List<String> transitions = new ArrayList<String>();
+        CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom().setMinimumRequests(2)
+                .setOpenDuration(200).addListener(new CircuitBreakerListener() {
+                    @Override
+                    public void stateChanged(String endpointGroup, CircuitState from, CircuitState to) {
+                        synchronized (transitions) {
+                            transitions.add(endpointGroup + ":" + to);
+                        }
+                    }
+                }).build();
+        CmcClientConfig config = CmcClientConfig.custom().setCircuitBreakerConfig(circuitBreakerConfig).build();
+        CmcClient breakerClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD, config);
+        try {
+            // Two failures open the circuit of the groups.
+            assertEquals(breakerClient.getGroupApi().retrieveGroup("sales").getHttpStatusCode(), 500);
+            assertEquals(breakerClient.getGroupApi().retrieveGroup("sales").getHttpStatusCode(), 500);
+            try {
+                breakerClient.getGroupApi().retrieveGroup("sales");
+                fail("Expected open circuit");
+            } catch (CMCCircuitOpenException coex) {
+                assertEquals(coex.getEndpointGroup(), "groups");
+            }
+            try {
+                breakerClient.getGroupApi().retrieveGroupAsync("sales", null).get(5, TimeUnit.SECONDS);
+                fail("Expected open circuit");
+            } catch (ExecutionException eex) {
+                assertTrue(eex.getCause() instanceof CMCCircuitOpenException);
+            }
+            assertEquals(findAll(getRequestedFor(urlEqualTo("/groups/sales"))).size(), 2);
+
+            // The other endpoint groups are not affected.
+            List<String> mdns = new ArrayList<String>();
+            mdns.add("4102804827");
+            assertEquals(breakerClient.getContactApi().retrieveContacts(mdns).getHttpStatusCode(), 200);
+
+            // After the open duration a successful probe closes the circuit.
+            stubFor(get(urlEqualTo("/groups/sales"))
+                    .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"response\":{\"group\":{\"groupname\":\"sales\"}}}")));
+            Thread.sleep(250);
+            assertEquals(breakerClient.getGroupApi().retrieveGroup("sales").getHttpStatusCode(), 200);
+            ApacheHttpClientDelegate httpClient = (ApacheHttpClientDelegate) breakerClient.getHttpClient();
+            assertEquals(httpClient.getCircuitBreaker("groups").getState(), CircuitState.CLOSED);
+            synchronized (transitions) {
+                assertEquals(transitions.toString(), "[groups:OPEN, groups:HALF_OPEN, groups:CLOSED]");
+            }
+        } finally {
+            breakerClient.close();
+        }
+    }
+
+    @Test
+    public void metricsRecorderTest() throws Exception {
+        stubFor(get(urlEqualTo("/groups/sales")).inScenario("metrics").whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("recovered")
+                .willReturn(aResponse()
+                    .withStatus(503)
+                    .withHeader("Content-Type", "text/html")
+                    .withBody("Service unavailable")));
+        stubFor(get(urlEqualTo("/groups/sales")).inScenario("metrics").whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"group\":{\"groupname\":\"sales\"}}}")));
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\"}}")));
+
+        final List<String> events = new ArrayList<String>();
+        final List<String> groups = new ArrayList<String>();
+        final List<ConnectionPoolGauge> gauges = new ArrayList<ConnectionPoolGauge>();
+        MetricsRecorder recorder = new NoopMetricsRecorder() {
+            @Override
+            public void registerConnectionPool(String name, ConnectionPoolGauge gauge) {
+                synchronized (events) {
+                    events.add("pool:" + name);
+                    gauges.add(gauge);
+                }
+            }
+
+            @Override
+            public void requestCompleted(String endpointGroup, String method, int statusCode, long durationNanos) {
+                assertTrue(durationNanos > 0);
+                synchronized (events) {
+                    events.add(endpointGroup + ":" + method + ":" + statusCode);
+                    groups.add(endpointGroup);
+                }
+            }
+
+            @Override
+            public void bytesSent(String endpointGroup, long bytes) {
+                synchronized (events) {
+                    events.add(endpointGroup + ":sent:" + (bytes > 0));
+                }
+            }
+
+            @Override
+            public void bytesReceived(String endpointGroup, long bytes) {
+                synchronized (events) {
+                    events.add(endpointGroup + ":received:" + (bytes > 0));
+                }
+            }
+
+            @Override
+            public void requestRetried(String endpointGroup, String method) {
+                synchronized (events) {
+                    events.add(endpointGroup + ":" + method + ":retried");
+                }
+            }
+
+            @Override
+            public void rateLimitRejected(String endpointGroup) {
+                synchronized (events) {
+                    events.add(endpointGroup + ":rateLimited");
+                }
+            }
+        };
+        CmcClientConfig config = CmcClientConfig.custom()
+                .setRetryPolicy(new ExponentialBackoffRetryPolicy(3, 10, 50, 5000))
+                .setKeywordRateLimit("limited", new RateLimit(0.1)).setRateLimitMode(RateLimitMode.FAIL_FAST)
+                .setMetricsRecorder(recorder).build();
+        CmcClient metricsClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD, config);
+        try {
+            metricsClient.getGroupApi().retrieveGroup("sales");
+            metricsClient.getMessagingApi().sendMessage(new Message(Arrays.asList("4102804827"), "limited", "Test"));
+            try {
+                metricsClient.getMessagingApi().sendMessage(new Message(Arrays.asList("4102804827"), "limited",
+                        "Test"));
+                fail("Expected rate limit failure");
+            } catch (CMCRateLimitException rlex) {
+                // Expected, the request is not sent.
+            }
+            WireMock.resetAllScenarios();
+            metricsClient.getGroupApi().retrieveGroupAsync("sales", null).get(5, TimeUnit.SECONDS);
+        } finally {
+            metricsClient.close();
+        }
+
+        synchronized (events) {
+            assertEquals(events.toString(), "[pool:blocking, groups:GET:503, groups:GET:retried, groups:GET:200, "
+                    + "groups:received:true, messages:POST:200, messages:sent:true, messages:received:true, "
+                    + "messages:rateLimited, pool:async, groups:GET:503, groups:GET:retried, groups:GET:200, "
+                    + "groups:received:true]");
+
+            // The endpoint groups are shared strings.
+            for (String group : groups) {
+                assertSame(group, group.startsWith("g") ? groups.get(0) : groups.get(2));
+            }
+            assertEquals(gauges.get(0).getMax(), 20);
+            assertEquals(gauges.get(0).getLeased(), 0);
+        }
+    }
+
+    @Test
+    public void closedClientTest() throws IOException, InterruptedException {
+        List<String> mdns = new ArrayList<String>();
+        mdns.add("14102718101");
+        cmcClient.close();
+        cmcClient.close();
+
+        try {
+            cmcClient.getContactApi().retrieveContacts(mdns);
+            fail("Expected closed client failure");
+        } catch (CMCException cmcex) {
+            assertTrue(cmcex.getCause() instanceof IllegalStateException);
+        }
+
+        try {
+            cmcClient.getContactApi().retrieveContactsAsync(mdns, null).get();
+            fail("Expected closed client failure");
+        } catch (ExecutionException eex) {
+            assertTrue(eex.getCause() instanceof CMCException);
+        }
+    }
+
+}
@@ -2,6 +2,7 @@ package com.telecomsys.cmc;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -495,4 +496,77 @@ public class ContactApiTest {
         assertEquals(requests.get(0).getBodyAsString(), "");
     }    
     
+    @Test
+    public void retrieveContactsAsync() throws Exception {
+        stubFor(get(urlMatching("/contacts/[0-9,]+"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"contactList\":[{\"mdn\":\"14102718101\",\"first\":\"John\",\"last\":\"Doe\"}]}}")));
+
+        List<String> mdns = new ArrayList<String>();
+        mdns.add("14102718101");
+        HttpResponseWrapper<ContactsResponse> response = contactApi.retrieveContactsAsync(mdns, null)
+                .get(5, TimeUnit.SECONDS);
+
+        // Verify the response.
+        assertEquals(response.getHttpStatusCode(), 200);
+        List<Contact> contacts = response.getResponseBody().getContactsResponses();
+        assertEquals(contacts.size(), 1);
+        assertEquals(contacts.get(0).getFirstName(), "John");
+
+        // Verify the request
+        List<LoggedRequest> requests = findAll(getRequestedFor(urlMatching("/contacts/[0-9,]+")));
+        assertEquals(requests.size(), 1);
+        assertEquals(requests.get(0).getHeader("Authorization"), "Basic OTg3NjoxMjM0");
+    }
+
+    @Test
+    public void addLargeContactListIsStreamed() throws CMCException {
+        stubFor(post(urlEqualTo("/contacts"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"statusList\":[{\"status\":\"success\"}]}}")));
+
+        List<Contact> contacts = new ArrayList<Contact>();
+        StringBuilder expected = new StringBuilder("{\"contactList\":{\"contacts\":[");
+        for (int i = 0; i < 2000; i++) {
+            String mdn = String.valueOf(14102700000L + i);
+            contacts.add(new Contact(mdn, "John", "Doe"));
+            expected.append(i > 0 ? "," : "").append("{\"mdn\":\"").append(mdn)
+                    .append("\",\"first\":\"John\",\"last\":\"Doe\"}");
+        }
+        expected.append("]}}");
+        HttpResponseWrapper<StatusResponse> response = contactApi.addContacts(contacts);
+        assertEquals(response.getHttpStatusCode(), 200);
+
+        // Verify the request was sent chunked with the full body.
+        List<LoggedRequest> requests = findAll(postRequestedFor(urlMatching("/contacts")));
+        assertEquals(requests.size(), 1);
+        assertEquals(requests.get(0).getHeader("Transfer-Encoding"), "chunked");
+        assertEquals(requests.get(0).containsHeader("Content-Length"), false);
+        assertEquals(requests.get(0).getBodyAsString(), expected.toString());
+    }
+
+    @Test
+    public void addSmallContactListHasContentLength() throws CMCException {
+        stubFor(post(urlEqualTo("/contacts"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"statusList\":[{\"status\":\"success\"}]}}")));
+
+        List<Contact> contacts = new ArrayList<Contact>();
+        contacts.add(new Contact("14102718101", "John", "Doe"));
+        contactApi.addContacts(contacts);
+
+        // Verify the request
+        String body = "{\"contactList\":{\"contacts\":[{\"mdn\":\"14102718101\",\"first\":\"John\",\"last\":\"Doe\"}]}}";
+        List<LoggedRequest> requests = findAll(postRequestedFor(urlMatching("/contacts")));
+        assertEquals(requests.size(), 1);
+        assertEquals(requests.get(0).getHeader("Content-Length"), String.valueOf(body.length()));
+        assertEquals(requests.get(0).getBodyAsString(), body);
+    }
+
 }
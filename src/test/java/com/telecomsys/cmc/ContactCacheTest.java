@@ -0,0 +1,250 @@
+package com.telecomsys.cmc;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.telecomsys.cmc.api.CmcClient;
+import com.telecomsys.cmc.api.ContactApi;
+import com.telecomsys.cmc.api.ContactCache;
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.http.ApacheHttpClientDelegate;
+import com.telecomsys.cmc.http.CmcHttpRequest;
+import com.telecomsys.cmc.http.HttpClientDelegate;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.model.Contact;
+import com.telecomsys.cmc.response.ContactsResponse;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.*;
+
+public class ContactCacheTest {
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String USERNAME = "9876";
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String PASSWORD = "1234";
+
+    /**
+     * CMC client instance.
+     */
+    private CmcClient cmcClient;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(18089);
+
+    @Before
+    public void setup() {
+        cmcClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cmcClient.close();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void invalidTimeToLiveTest() {
+        new ContactCache(cmcClient.getContactApi(), 0, 1000, 10);
+    }
+
+    @Test
+    public void retrieveFromCache() throws Exception {
+        stubContact("14102718101", "John");
+        stubContact("14102718102", "Jane");
+        ContactCache contactCache = new ContactCache(cmcClient.getContactApi());
+
+        assertEquals(contactCache.getContact("14102718101").getFirstName(), "John");
+        Contact contact = contactCache.getContact("+1 (410) 271-8101");
+        assertEquals(contact.getFirstName(), "John");
+
+        // A returned contact is a copy.
+        contact.setFirstName("Changed");
+        assertEquals(contactCache.getContact("14102718101").getFirstName(), "John");
+
+        // Only the missing contact is retrieved.
+        HttpResponseWrapper<ContactsResponse> response = contactCache.retrieveContacts(
+                Arrays.asList("14102718102", "14102718101"));
+        assertEquals(response.getHttpStatusCode(), 200);
+        List<Contact> contacts = response.getResponseBody().getContactsResponses();
+        assertEquals(contacts.size(), 2);
+        assertEquals(contacts.get(0).getFirstName(), "Jane");
+        assertEquals(contacts.get(1).getFirstName(), "John");
+
+        verify(1, getRequestedFor(urlEqualTo("/contacts/14102718101")));
+        verify(1, getRequestedFor(urlEqualTo("/contacts/14102718102")));
+        assertEquals(contactCache.getHitCount(), 3);
+        assertEquals(contactCache.getMissCount(), 2);
+        assertEquals(contactCache.size(), 2);
+    }
+
+    @Test
+    public void contactNotFound() throws Exception {
+        stubFor(get(urlEqualTo("/contacts/14102718101"))
+                .willReturn(aResponse()
+                    .withStatus(404)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"8203\",\"message\":\"Contact with the mdn 14102718101 could not be found.\"}}")));
+        ContactCache contactCache = new ContactCache(cmcClient.getContactApi());
+        assertNull(contactCache.getContact("14102718101"));
+        assertNull(contactCache.getContact("14102718101"));
+        verify(2, getRequestedFor(urlEqualTo("/contacts/14102718101")));
+        assertEquals(contactCache.size(), 0);
+    }
+
+    @Test
+    public void writesUpdateCache() throws Exception {
+        stubContact("14102718101", "John");
+        stubFor(put(urlEqualTo("/contacts"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"statusList\":[{\"status\":\"success\"},{\"status\":\"success\"},{\"status\":\"fail\",\"code\":\"8203\",\"message\":\"Contact not found.\"}]}}")));
+        stubFor(delete(urlEqualTo("/contacts/14102718101"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\": {\"status\": \"success\"}}")));
+        ContactCache contactCache = new ContactCache(cmcClient.getContactApi());
+        assertEquals(contactCache.getContact("14102718101").getFirstName(), "John");
+
+        // The fields set in the update are merged into the cached contact without retrieving it, CMC keeps the other
+        // ones. A contact not cached is not cached from a partial update.
+        contactCache.updateContacts(Arrays.asList(new Contact("14102718101", "Johnny", null),
+                new Contact("14102718102", "Jane", null), new Contact("14102718103", "Jim", "Doe")));
+        Contact contact = contactCache.getContact("14102718101");
+        assertEquals(contact.getFirstName(), "Johnny");
+        assertEquals(contact.getLastName(), "Doe");
+        assertEquals(contactCache.size(), 1);
+        verify(1, getRequestedFor(urlEqualTo("/contacts/14102718101")));
+
+        // A deleted contact is retrieved again.
+        contactCache.deleteContacts(Arrays.asList("14102718101"));
+        assertEquals(contactCache.size(), 0);
+        assertEquals(contactCache.getContact("14102718101").getFirstName(), "John");
+        verify(2, getRequestedFor(urlEqualTo("/contacts/14102718101")));
+    }
+
+    @Test
+    public void expiryAndRefresh() throws Exception {
+        stubContact("14102718101", "John");
+        ContactCache contactCache = new ContactCache(cmcClient.getContactApi(), 1000, 100, 10);
+        assertEquals(contactCache.getContact("14102718101").getFirstName(), "John");
+
+        // Past the refresh time the cached contact is returned and refreshed in the background.
+        stubContact("14102718101", "Johnny");
+        Thread.sleep(150);
+        assertEquals(contactCache.getContact("14102718101").getFirstName(), "John");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"Johnny".equals(contactCache.getContact("14102718101").getFirstName())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(contactCache.getContact("14102718101").getFirstName(), "Johnny");
+        verify(2, getRequestedFor(urlEqualTo("/contacts/14102718101")));
+        assertEquals(contactCache.getMissCount(), 1);
+
+        // Past the time to live the contact is retrieved again.
+        ContactCache shortLived = new ContactCache(cmcClient.getContactApi(), 50, 1000, 10);
+        shortLived.getContact("14102718101");
+        Thread.sleep(100);
+        shortLived.getContact("14102718101");
+        assertEquals(shortLived.getMissCount(), 2);
+    }
+
+    @Test
+    public void refreshWithoutAsyncClient() throws Exception {
+        stubContact("14102718101", "John");
+
+        // A delegate implementing only the synchronous HTTP methods.
+        final ApacheHttpClientDelegate target = new ApacheHttpClientDelegate("http://localhost:18089", USERNAME,
+                PASSWORD);
+        HttpClientDelegate syncOnly = new HttpClientDelegate() {
+            @Override
+            public <T> HttpResponseWrapper<T> doGet(CmcHttpRequest request, Class<T> responseClass)
+                    throws CMCException {
+                return target.doGet(request, responseClass);
+            }
+
+            @Override
+            public <T> HttpResponseWrapper<T> doPost(CmcHttpRequest request, Class<T> responseClass)
+                    throws CMCException {
+                return target.doPost(request, responseClass);
+            }
+
+            @Override
+            public <T> HttpResponseWrapper<T> doPut(CmcHttpRequest request, Class<T> responseClass)
+                    throws CMCException {
+                return target.doPut(request, responseClass);
+            }
+
+            @Override
+            public <T> HttpResponseWrapper<T> doDelete(CmcHttpRequest request, Class<T> responseClass)
+                    throws CMCException {
+                return target.doDelete(request, responseClass);
+            }
+        };
+        try {
+            ContactCache contactCache = new ContactCache(new ContactApi(syncOnly), 60000, 100, 10);
+            assertEquals(contactCache.getContact("14102718101").getFirstName(), "John");
+
+            // Past the refresh time the contact is retrieved again with the lookup, and after each refresh.
+            stubContact("14102718101", "Johnny");
+            Thread.sleep(150);
+            assertEquals(contactCache.getContact("14102718101").getFirstName(), "Johnny");
+            stubContact("14102718101", "Jack");
+            Thread.sleep(150);
+            assertEquals(contactCache.getContact("14102718101").getFirstName(), "Jack");
+            assertEquals(contactCache.getMissCount(), 3);
+            verify(3, getRequestedFor(urlEqualTo("/contacts/14102718101")));
+        } finally {
+            target.close();
+        }
+    }
+
+    @Test
+    public void sizeBounded() throws Exception {
+        stubContact("14102718101", "John");
+        stubContact("14102718102", "Jane");
+        stubContact("14102718103", "Jim");
+        ContactCache contactCache = new ContactCache(cmcClient.getContactApi(), 60000, 60000, 2);
+        contactCache.getContact("14102718101");
+        contactCache.getContact("14102718102");
+        contactCache.getContact("14102718101");
+        contactCache.getContact("14102718103");
+        assertEquals(contactCache.size(), 2);
+
+        // The least recently used contact was evicted.
+        contactCache.getContact("14102718101");
+        contactCache.getContact("14102718102");
+        verify(1, getRequestedFor(urlEqualTo("/contacts/14102718101")));
+        verify(2, getRequestedFor(urlEqualTo("/contacts/14102718102")));
+    }
+
+    /**
+     * Helper method to stub the retrieval of a contact.
+     *
+     * @param mdn cell number of the contact.
+     * @param firstName first name of the contact.
+     */
+    private static void stubContact(String mdn, String firstName) {
+        stubFor(get(urlEqualTo("/contacts/" + mdn))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"contactList\":[{\"mdn\":\"" + mdn + "\",\"first\":\"" + firstName
+                            + "\",\"last\":\"Doe\"}]}}")));
+    }
+
+}
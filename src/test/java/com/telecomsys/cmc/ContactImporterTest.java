@@ -0,0 +1,176 @@
+package com.telecomsys.cmc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.telecomsys.cmc.api.CmcClient;
+import com.telecomsys.cmc.api.ContactImportResult;
+import com.telecomsys.cmc.api.ContactImporter;
+import com.telecomsys.cmc.api.ContactImporter.Operation;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.*;
+
+public class ContactImporterTest {
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String USERNAME = "9876";
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String PASSWORD = "1234";
+
+    /**
+     * CMC client instance.
+     */
+    private CmcClient cmcClient;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(18089);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setup() {
+        cmcClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cmcClient.close();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void invalidChunkSizeTest() {
+        new ContactImporter(cmcClient.getContactApi(), 0, 4);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void unknownPropertyTest() {
+        new ContactImporter(cmcClient.getContactApi()).mapColumn("Mobile", "phone");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void missingCellNumberColumnTest() throws Exception {
+        new ContactImporter(cmcClient.getContactApi()).importCsv(new StringReader("first,last\nJohn,Doe\n"),
+                Operation.ADD, new StringWriter());
+    }
+
+    @Test
+    public void importCsvInChunks() throws Exception {
+        stubFor(post(urlEqualTo("/contacts"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"statusList\":[{\"status\":\"success\"},{\"status\":\"success\"}]}}")));
+        stubFor(post(urlEqualTo("/contacts"))
+                .withRequestBody(containing("14102718103"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"statusList\":[{\"status\":\"success\"},{\"status\":\"fail\",\"code\":\"8003\",\"message\":\"Contact with cell number 14102718103 already exists.\"}]}}")));
+
+        String csv = "Mobile,First,Last,Notes,email\r\n"
+                + "14102718101,John,Doe,ignored,john@example.com\r\n"
+                + "14102718102,\"Smith, Jr.\",\"Say \"\"hi\"\"\",,\r\n"
+                + "\r\n"
+                + ",Missing,Number,,\r\n"
+                + "14102718104,Jane,Roe,,\r\n"
+                + "14102718103,\"Multi\nline\",Doe,,\r\n";
+        ContactImporter importer = new ContactImporter(cmcClient.getContactApi(), 2, 2);
+        importer.mapColumn("mobile", "cellNumber");
+        StringWriter rejects = new StringWriter();
+        ContactImportResult result = importer.importCsv(new StringReader(csv), Operation.ADD, rejects);
+
+        assertFalse(result.isSuccess());
+        assertEquals(result.getRecordCount(), 5);
+        assertEquals(result.getImportedCount(), 3);
+        assertEquals(result.getRejectedCount(), 2);
+        assertEquals(result.getChunkCount(), 2);
+        assertEquals(result.getFailedChunkCount(), 0);
+        assertEquals(rejects.toString(), "record,mdn,code,message\n"
+                + "3,,,Missing cell number\n"
+                + "5,14102718103,8003,Contact with cell number 14102718103 already exists.\n");
+
+        // Verify the requests.
+        List<LoggedRequest> requests = findAll(postRequestedFor(urlEqualTo("/contacts")));
+        assertEquals(requests.size(), 2);
+        String bodies = requests.get(0).getBodyAsString() + requests.get(1).getBodyAsString();
+        assertTrue(bodies.contains("{\"mdn\":\"14102718101\",\"first\":\"John\",\"last\":\"Doe\","
+                + "\"email\":\"john@example.com\"}"));
+        assertTrue(bodies.contains("{\"mdn\":\"14102718102\",\"first\":\"Smith, Jr.\",\"last\":\"Say \\\"hi\\\"\"}"));
+        assertTrue(bodies.contains("\"first\":\"Multi\\nline\""));
+        assertFalse(bodies.contains("ignored"));
+    }
+
+    @Test
+    public void importJsonLinesUpdate() throws Exception {
+        stubFor(put(urlEqualTo("/contacts"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"statusList\":[{\"status\":\"success\"},{\"status\":\"success\"},{\"status\":\"success\"}]}}")));
+
+        File input = folder.newFile("contacts.jsonl");
+        Files.write(input.toPath(), ("{\"mdn\":\"14102718101\",\"first\":\"John\"}\n"
+                + "not json\n"
+                + "\n"
+                + "{\"mdn\":\"14102718102\",\"city\":\"Annapolis\"}\n"
+                + "{\"mdn\":\"14102718103\"}\n").getBytes(StandardCharsets.UTF_8));
+        File rejects = new File(folder.getRoot(), "rejects.csv");
+
+        ContactImportResult result = new ContactImporter(cmcClient.getContactApi()).importJsonLines(input,
+                Operation.UPDATE, rejects);
+        assertEquals(result.getRecordCount(), 4);
+        assertEquals(result.getImportedCount(), 3);
+        assertEquals(result.getRejectedCount(), 1);
+        assertEquals(result.getChunkCount(), 1);
+
+        List<String> lines = Files.readAllLines(rejects.toPath(), StandardCharsets.UTF_8);
+        assertEquals(lines.size(), 2);
+        assertTrue(lines.get(1).startsWith("2,,,"));
+
+        List<LoggedRequest> requests = findAll(putRequestedFor(urlEqualTo("/contacts")));
+        assertEquals(requests.size(), 1);
+        assertEquals(requests.get(0).getBodyAsString(), "{\"contactList\":{\"contacts\":["
+                + "{\"mdn\":\"14102718101\",\"first\":\"John\"},{\"mdn\":\"14102718102\",\"city\":\"Annapolis\"},"
+                + "{\"mdn\":\"14102718103\"}]}}");
+    }
+
+    @Test
+    public void failedChunkRejected() throws Exception {
+        stubFor(post(urlEqualTo("/contacts"))
+                .willReturn(aResponse()
+                    .withStatus(400)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"1001\",\"message\":\"Invalid request\"}}")));
+
+        StringWriter rejects = new StringWriter();
+        ContactImportResult result = new ContactImporter(cmcClient.getContactApi(), 10, 1).importCsv(
+                new StringReader("mdn,first\n14102718101,John\n14102718102,Jane\n"), Operation.ADD, rejects);
+        assertEquals(result.getImportedCount(), 0);
+        assertEquals(result.getRejectedCount(), 2);
+        assertEquals(result.getFailedChunkCount(), 1);
+        assertEquals(rejects.toString(), "record,mdn,code,message\n"
+                + "1,14102718101,1001,Invalid request\n"
+                + "2,14102718102,1001,Invalid request\n");
+    }
+
+}
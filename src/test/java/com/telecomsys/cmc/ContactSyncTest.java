@@ -0,0 +1,247 @@
+package com.telecomsys.cmc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.telecomsys.cmc.api.CmcClient;
+import com.telecomsys.cmc.api.ContactSync;
+import com.telecomsys.cmc.api.ContactSyncResult;
+import com.telecomsys.cmc.model.Contact;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.*;
+
+public class ContactSyncTest {
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String USERNAME = "9876";
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String PASSWORD = "1234";
+
+    /**
+     * CMC client instance.
+     */
+    private CmcClient cmcClient;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(18089);
+
+    @Before
+    public void setup() {
+        cmcClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cmcClient.close();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void missingCellNumberTest() throws Exception {
+        new ContactSync(cmcClient.getContactApi()).sync(Arrays.asList(new Contact(null, "John", "Doe")));
+    }
+
+    @Test
+    public void syncSendsOnlyChanges() throws Exception {
+        stubFor(get(urlEqualTo("/contacts/14102718101,14102718102,14102718103,14102718104"))
+                .willReturn(aResponse()
+                    .withStatus(404)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"8203\",\"message\":\"Contact could not be found.\"}}")));
+        stubFor(get(urlEqualTo("/contacts/14102718101,14102718102,14102718104"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"contactList\":[{\"mdn\":\"14102718102\",\"first\":\"Jane\",\"last\":\"Doe\"},{\"mdn\":\"14102718101\",\"first\":\"John\",\"last\":\"Doe\"},{\"mdn\":\"14102718104\",\"first\":\"Jim\",\"last\":\"Roe\",\"email\":\"jim@example.com\"}]}}")));
+        stubFor(post(urlEqualTo("/contacts"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"statusList\":[{\"status\":\"fail\",\"code\":\"8003\",\"message\":\"Contact with cell number 14102718101 already exists.\"},{\"status\":\"fail\",\"code\":\"8003\",\"message\":\"Contact with cell number 14102718102 already exists.\"},{\"status\":\"success\"},{\"status\":\"fail\",\"code\":\"8003\",\"message\":\"Contact with cell number 14102718104 already exists.\"}]}}")));
+        stubFor(put(urlEqualTo("/contacts"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"statusList\":[{\"status\":\"success\"}]}}")));
+        stubFor(delete(urlEqualTo("/contacts/14102718105,14102718106"))
+                .willReturn(aResponse()
+                    .withStatus(404)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"8103\",\"message\":\"Some or all of the contacts with mdns 14102718105,14102718106 not found.\"}}")));
+        stubFor(delete(urlEqualTo("/contacts/14102718105"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\": {\"status\": \"success\"}}")));
+        stubFor(delete(urlEqualTo("/contacts/14102718106"))
+                .willReturn(aResponse()
+                    .withStatus(404)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"8103\",\"message\":\"Some or all of the contacts with mdns 14102718106 not found.\"}}")));
+
+        // Unchanged, changed, unknown, and unchanged for the fields set.
+        List<Contact> desired = new ArrayList<Contact>();
+        desired.add(new Contact("14102718101", "John", "Doe"));
+        desired.add(new Contact("14102718102", "Janet", "Doe"));
+        desired.add(new Contact("14102718103", "Jack", "Doe"));
+        desired.add(new Contact("14102718104", "Jim", null));
+        ContactSyncResult result = new ContactSync(cmcClient.getContactApi(), 500, 2).sync(desired,
+                Arrays.asList("14102718101", "14102718105", "14102718106"));
+
+        assertTrue(result.isSuccess());
+        assertEquals(result.getAddedCount(), 1);
+        assertEquals(result.getUpdatedCount(), 1);
+        assertEquals(result.getUnchangedCount(), 2);
+        assertEquals(result.getDeletedCount(), 1);
+
+        // The chunk that cannot be retrieved is added, then its existing contacts retrieved, and one request per
+        // change.
+        verify(1, getRequestedFor(urlEqualTo("/contacts/14102718101,14102718102,14102718103,14102718104")));
+        verify(1, getRequestedFor(urlEqualTo("/contacts/14102718101,14102718102,14102718104")));
+        verify(0, deleteRequestedFor(urlMatching("/contacts/.*14102718101.*")));
+        assertEquals(result.getRequestCount(), 7);
+
+        List<LoggedRequest> adds = findAll(postRequestedFor(urlEqualTo("/contacts")));
+        assertEquals(adds.size(), 1);
+        assertEquals(adds.get(0).getBodyAsString(), "{\"contactList\":{\"contacts\":[{\"mdn\":\"14102718101\",\"first\":\"John\",\"last\":\"Doe\"},{\"mdn\":\"14102718102\",\"first\":\"Janet\",\"last\":\"Doe\"},{\"mdn\":\"14102718103\",\"first\":\"Jack\",\"last\":\"Doe\"},{\"mdn\":\"14102718104\",\"first\":\"Jim\"}]}}");
+        List<LoggedRequest> updates = findAll(putRequestedFor(urlEqualTo("/contacts")));
+        assertEquals(updates.size(), 1);
+        assertEquals(updates.get(0).getBodyAsString(),
+                "{\"contactList\":{\"contacts\":[{\"mdn\":\"14102718102\",\"first\":\"Janet\",\"last\":\"Doe\"}]}}");
+    }
+
+    @Test
+    public void unknownContactsRequestCount() throws Exception {
+
+        // Two chunks of 100 known contacts, two of the first chunk unknown and one of the second changed.
+        List<Contact> desired = new ArrayList<Contact>();
+        for (int i = 0; i < 200; i++) {
+            desired.add(new Contact(mdn(i), i == 150 ? "Janet" : "Jane", "Doe"));
+        }
+        List<Contact> existing = new ArrayList<Contact>(desired.subList(0, 100));
+        existing.remove(70);
+        existing.remove(30);
+        stubFor(get(urlEqualTo("/contacts/" + join(desired.subList(0, 100))))
+                .willReturn(aResponse()
+                    .withStatus(404)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"8203\",\"message\":\"Contact could not be found.\"}}")));
+        stubContacts(existing, existing);
+        List<Contact> current = new ArrayList<Contact>(desired.subList(100, 200));
+        current.set(50, new Contact(mdn(150), "Jane", "Doe"));
+        stubContacts(current, current);
+        StringBuilder statuses = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            statuses.append(i > 0 ? "," : "").append(i == 30 || i == 70 ? "{\"status\":\"success\"}"
+                    : "{\"status\":\"fail\",\"code\":\"8003\",\"message\":\"Contact with cell number " + mdn(i)
+                            + " already exists.\"}");
+        }
+        stubFor(post(urlEqualTo("/contacts"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"statusList\":[" + statuses + "]}}")));
+        stubFor(put(urlEqualTo("/contacts"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"statusList\":[{\"status\":\"success\"}]}}")));
+
+        ContactSyncResult result = new ContactSync(cmcClient.getContactApi(), 500, 1).sync(desired);
+        assertTrue(result.isSuccess());
+        assertEquals(result.getAddedCount(), 2);
+        assertEquals(result.getUpdatedCount(), 1);
+        assertEquals(result.getUnchangedCount(), 197);
+
+        // Two retrievals, one addition, one retrieval of the existing contacts and one update.
+        assertEquals(result.getRequestCount(), 5);
+        verify(3, getRequestedFor(urlMatching("/contacts/.*")));
+        verify(1, postRequestedFor(urlEqualTo("/contacts")));
+        verify(1, putRequestedFor(urlEqualTo("/contacts")));
+    }
+
+    @Test
+    public void failedContactsReported() throws Exception {
+        stubFor(get(urlEqualTo("/contacts/14102718101,14102718102"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"contactList\":[{\"mdn\":\"14102718101\",\"first\":\"John\",\"last\":\"Doe\"},{\"mdn\":\"14102718102\",\"first\":\"Jane\",\"last\":\"Doe\"}]}}")));
+        stubFor(put(urlEqualTo("/contacts"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"statusList\":[{\"status\":\"success\"},{\"status\":\"fail\",\"code\":\"8001\",\"message\":\"Invalid email.\"}]}}")));
+        stubFor(delete(urlEqualTo("/contacts/14102718109"))
+                .willReturn(aResponse()
+                    .withStatus(503)));
+
+        ContactSyncResult result = new ContactSync(cmcClient.getContactApi()).sync(
+                Arrays.asList(new Contact("14102718101", "Johnny", "Doe"), new Contact("14102718102", "Janet", "Doe")),
+                Collections.singletonList("14102718109"));
+        assertFalse(result.isSuccess());
+        assertEquals(result.getUpdatedCount(), 1);
+        assertEquals(result.getDeletedCount(), 0);
+        assertEquals(result.getFailedMdns(), Arrays.asList("14102718102", "14102718109"));
+    }
+
+    /**
+     * Helper method to get a cell number.
+     *
+     * @param index index of the contact.
+     * @return the cell number.
+     */
+    private static String mdn(int index) {
+        return Long.toString(14102700000L + index);
+    }
+
+    /**
+     * Helper method to join the cell numbers of contacts.
+     *
+     * @param contacts the contacts.
+     * @return the cell numbers separated by commas.
+     */
+    private static String join(List<Contact> contacts) {
+        StringBuilder mdns = new StringBuilder();
+        for (Contact contact : contacts) {
+            mdns.append(mdns.length() > 0 ? "," : "").append(contact.getCellNumber());
+        }
+        return mdns.toString();
+    }
+
+    /**
+     * Helper method to stub the retrieval of contacts.
+     *
+     * @param requested the contacts requested.
+     * @param returned the contacts returned.
+     */
+    private static void stubContacts(List<Contact> requested, List<Contact> returned) {
+        StringBuilder contacts = new StringBuilder();
+        for (Contact contact : returned) {
+            contacts.append(contacts.length() > 0 ? "," : "").append("{\"mdn\":\"").append(contact.getCellNumber())
+                    .append("\",\"first\":\"").append(contact.getFirstName()).append("\",\"last\":\"")
+                    .append(contact.getLastName()).append("\"}");
+        }
+        stubFor(get(urlEqualTo("/contacts/" + join(requested)))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"contactList\":[" + contacts + "]}}")));
+    }
+
+}
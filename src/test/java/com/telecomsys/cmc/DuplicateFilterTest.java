@@ -0,0 +1,180 @@
+package com.telecomsys.cmc;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.telecomsys.cmc.api.CmcClient;
+import com.telecomsys.cmc.api.DuplicateFilter;
+import com.telecomsys.cmc.api.MessagingApi;
+import com.telecomsys.cmc.exception.CMCDuplicateMessageException;
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.model.Message;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.*;
+
+public class DuplicateFilterTest {
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String USERNAME = "9876";
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String PASSWORD = "1234";
+
+    /**
+     * CMC client instance.
+     */
+    private CmcClient cmcClient;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(18089);
+
+    @Before
+    public void setup() {
+        cmcClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cmcClient.close();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void invalidWindowTest() {
+        new DuplicateFilter(0);
+    }
+
+    @Test
+    public void duplicateSuppressed() throws Exception {
+        stubSend(200);
+        MessagingApi messagingApi = cmcClient.getMessagingApi();
+        messagingApi.setDuplicateFilter(new DuplicateFilter(60000));
+        try {
+            messagingApi.sendMessage(new Message(Arrays.asList("4102804827", "4102804828"), "scsrest", "Test message"));
+
+            // Same message with the destinations in another order.
+            try {
+                messagingApi.sendMessage(new Message(Arrays.asList("4102804828", "4102804827"), "scsrest",
+                        "Test message"));
+                fail("Expected a duplicate message exception");
+            } catch (CMCDuplicateMessageException cmcex) {
+                // Expected.
+            }
+            try {
+                messagingApi.sendMessageAsync(new Message(Arrays.asList("4102804827", "4102804828"), "scsrest",
+                        "Test message"), null).get(5, TimeUnit.SECONDS);
+                fail("Expected a duplicate message exception");
+            } catch (ExecutionException eex) {
+                assertTrue(eex.getCause() instanceof CMCDuplicateMessageException);
+            }
+
+            // Different text, keyword or destinations are not duplicates.
+            messagingApi.sendMessage(new Message(Arrays.asList("4102804827", "4102804828"), "scsrest", "Test message!"));
+            messagingApi.sendMessage(new Message(Arrays.asList("4102804827", "4102804828"), "other", "Test message"));
+            messagingApi.sendMessageAsync(new Message(Arrays.asList("4102804827"), "scsrest", "Test message"), null)
+                    .get(5, TimeUnit.SECONDS);
+        } finally {
+            messagingApi.setDuplicateFilter(null);
+        }
+        verify(4, postRequestedFor(urlEqualTo("/messages")));
+    }
+
+    @Test
+    public void failedSendForgotten() throws Exception {
+        stubSend(400);
+        MessagingApi messagingApi = cmcClient.getMessagingApi();
+        messagingApi.setDuplicateFilter(new DuplicateFilter(60000));
+        Message message = new Message(Arrays.asList("4102804827"), "scsrest", "Test message");
+        try {
+            try {
+                messagingApi.sendMessage(message);
+                fail("Expected a client exception");
+            } catch (CMCDuplicateMessageException cmcex) {
+                fail("Failed send must not be suppressed");
+            } catch (CMCException cmcex) {
+                // Expected.
+            }
+
+            // The retry goes through.
+            stubSend(200);
+            messagingApi.sendMessage(message);
+        } finally {
+            messagingApi.setDuplicateFilter(null);
+        }
+        verify(2, postRequestedFor(urlEqualTo("/messages")));
+    }
+
+    @Test
+    public void serverErrorForgotten() throws Exception {
+        stubSend(500);
+        MessagingApi messagingApi = cmcClient.getMessagingApi();
+        messagingApi.setDuplicateFilter(new DuplicateFilter(60000));
+        Message message = new Message(Arrays.asList("4102804827"), "scsrest", "Test message");
+        try {
+            // A server error is returned as a response, and the retries go through.
+            assertEquals(messagingApi.sendMessage(message).getHttpStatusCode(), 500);
+            assertEquals(messagingApi.sendMessageAsync(message, null).get(5, TimeUnit.SECONDS).getHttpStatusCode(),
+                    500);
+            stubSend(200);
+            assertEquals(messagingApi.sendMessage(message).getHttpStatusCode(), 200);
+        } finally {
+            messagingApi.setDuplicateFilter(null);
+        }
+        verify(3, postRequestedFor(urlEqualTo("/messages")));
+    }
+
+    @Test
+    public void windowExpires() throws Exception {
+        DuplicateFilter filter = new DuplicateFilter(50);
+        Message message = new Message(Arrays.asList("4102804827"), "scsrest", "Test message");
+        assertTrue(filter.accept(message));
+        assertFalse(filter.accept(message));
+        Thread.sleep(100);
+        assertTrue(filter.accept(message));
+        assertFalse(filter.accept(message));
+        filter.forget(message);
+        assertTrue(filter.accept(message));
+    }
+
+    @Test
+    public void capacityBounded() {
+        DuplicateFilter filter = new DuplicateFilter(60000, 16);
+        Message first = new Message(Arrays.asList("4102800000"), "scsrest", "Test message");
+        assertTrue(filter.accept(first));
+        for (int i = 1; i < 1000; i++) {
+            assertTrue(filter.accept(new Message(Arrays.asList(Long.toString(4102800000L + i)), "scsrest",
+                    "Test message")));
+        }
+
+        // The oldest fingerprints were evicted.
+        assertTrue(filter.accept(first));
+    }
+
+    /**
+     * Helper method to stub the send message endpoint.
+     *
+     * @param status the HTTP status of the response.
+     */
+    private static void stubSend(int status) {
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(status)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(status == 200
+                            ? "{\"response\":{\"status\":\"success\",\"notifications\":{\"to\":[\"4102804827\"],\"from\":\"scsrest\",\"trackinginformation\":[{\"destination\":\"4102804827\",\"messagestatus\":\"Message Accepted\",\"messageID\":\"GW1_AVvciGlHRM32pw0Q\",\"messagetext\":\"Test message\"}]}}}"
+                            : "{\"response\":{\"status\":\"fail\",\"code\":\"1001\",\"message\":\"Invalid keyword\"}}")));
+    }
+
+}
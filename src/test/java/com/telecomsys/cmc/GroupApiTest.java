@@ -959,6 +959,23 @@ public class GroupApiTest {
         List<LoggedRequest> requests = findAll(getRequestedFor(urlMatching("/groups/(.*)")));
         assertEquals(requests.size(), 1);
         assertEquals(requests.get(0).getBodyAsString(), "");
-    }   
-    
-}
\ No newline at end of file
+    }
+
+    @Test
+    public void retrieveGroupNameIsEscaped() throws CMCException {
+        stubFor(get(urlMatching("/groups/(.*)"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"group\":{\"groupname\":\"Sales & support/east\"}}}")));
+
+        HttpResponseWrapper<GroupResponse> response = groupApi.retrieveGroup("Sales & support/east \u00e9");
+        assertEquals(response.getHttpStatusCode(), 200);
+
+        // Verify the request path is percent-encoded.
+        List<LoggedRequest> requests = findAll(getRequestedFor(urlMatching("/groups/(.*)")));
+        assertEquals(requests.size(), 1);
+        assertEquals(requests.get(0).getUrl(), "/groups/Sales%20&%20support/east%20%C3%A9");
+    }
+
+}
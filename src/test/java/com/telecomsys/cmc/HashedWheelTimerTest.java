@@ -0,0 +1,69 @@
+package com.telecomsys.cmc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.telecomsys.cmc.utils.HashedWheelTimer;
+
+import static org.junit.Assert.*;
+
+public class HashedWheelTimerTest {
+
+    @Test(expected=IllegalArgumentException.class)
+    public void invalidTickDurationTest() {
+        new HashedWheelTimer("test-timer", 0, 8);
+    }
+
+    @Test
+    public void expireInOrder() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, 4);
+        try {
+            final List<Integer> expired = Collections.synchronizedList(new ArrayList<Integer>());
+            final CountDownLatch latch = new CountDownLatch(3);
+            long start = System.nanoTime();
+
+            // The wheel rotates every 40 ms, the later timeouts wait for several rounds.
+            for (final int delay : new int[] {150, 5, 60}) {
+                timer.newTimeout(new Runnable() {
+                    @Override
+                    public void run() {
+                        expired.add(delay);
+                        latch.countDown();
+                    }
+                }, delay);
+            }
+            HashedWheelTimer.Timeout cancelled = timer.newTimeout(new Runnable() {
+                @Override
+                public void run() {
+                    expired.add(-1);
+                }
+            }, 30);
+            assertTrue(cancelled.cancel());
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+            assertEquals(expired.toString(), "[5, 60, 150]");
+            assertFalse(cancelled.isExpired());
+            assertEquals(timer.getPendingCount(), 0);
+        } finally {
+            timer.close();
+        }
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void closedTimerTest() {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, 4);
+        timer.close();
+        timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, 10);
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.telecomsys.cmc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.telecomsys.cmc.api.MessagingApi;
+import com.telecomsys.cmc.http.ApacheHttpClientDelegate;
+import com.telecomsys.cmc.http.CmcHttpRequest;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.model.Message;
+import com.telecomsys.cmc.response.ContactsResponse;
+import com.telecomsys.cmc.response.DeliveryReceiptResponse;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.*;
+
+public class JsonReaderTest {
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String USERNAME = "9876";
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String PASSWORD = "1234";
+
+    /**
+     * HTTP client instance.
+     */
+    private ApacheHttpClientDelegate httpClient;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(18089);
+
+    @Before
+    public void setup() {
+        httpClient = new ApacheHttpClientDelegate("http://localhost:18089", USERNAME, PASSWORD);
+        stubFor(get(urlEqualTo("/contacts/14102718101"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"contactList\":[{\"mdn\":\"14102718101\",\"first\":\"John\",\"last\":\"Doe\"}]}}")));
+        stubFor(get(urlEqualTo("/receipts/GW1_EwGohZtGQpmh8lGB"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"deliveryreceipt\":{\"deliverystatuslist\":[{\"deliverydate\":\"2014-05-28T00:00Z\",\"deliverystatus\":\"Undeliverable by Gateway\",\"messageID\":\"GW1_EwGohZtGQpmh8lGB\",\"to\":\"14106277808\"}]}}}")));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        httpClient.close();
+    }
+
+    @Test
+    public void inheritedRootName() throws Exception {
+        HttpResponseWrapper<ExtendedContactsResponse> response = httpClient.doGet(
+                new CmcHttpRequest("/contacts/14102718101"), ExtendedContactsResponse.class);
+        assertEquals(response.getHttpStatusCode(), 200);
+        assertEquals(response.getResponseBody().getContactsResponses().get(0).getFirstName(), "John");
+    }
+
+    @Test
+    public void concurrentFirstReads() throws Exception {
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"notifications\":{\"to\":[\"4102804827\"],\"from\":\"scsrest\",\"trackinginformation\":[{\"destination\":\"4102804827\",\"messagestatus\":\"Message Accepted\",\"messageID\":\"GW1_AVvciGlHRM32pw0Q\",\"messagetext\":\"Test message\"}]}}}")));
+
+        // Each round starts with an empty reader cache, filled by blocking and asynchronous sends at once while
+        // other threads read other response classes.
+        for (int round = 0; round < 20; round++) {
+            final ApacheHttpClientDelegate client = new ApacheHttpClientDelegate("http://localhost:18089", USERNAME,
+                    PASSWORD);
+            final MessagingApi messagingApi = new MessagingApi(client);
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int i = 0; i < 12; i++) {
+                final int index = i;
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            Message message = new Message(Arrays.asList("4102804827"), "keyword", "Test message");
+                            switch (index % 4) {
+                            case 0:
+                                assertNotNull(messagingApi.sendMessage(message).getResponseBody().getNotifications());
+                                break;
+                            case 1:
+                                assertNotNull(messagingApi.sendMessageAsync(message, null).get().getResponseBody()
+                                        .getNotifications());
+                                break;
+                            case 2:
+                                assertNotNull(client.doGet(new CmcHttpRequest("/contacts/14102718101"),
+                                        ContactsResponse.class).getResponseBody().getContactsResponses());
+                                break;
+                            default:
+                                assertNotNull(client.doGet(new CmcHttpRequest("/receipts/GW1_EwGohZtGQpmh8lGB"),
+                                        DeliveryReceiptResponse.class).getResponseBody().getDeliveryReceipt());
+                            }
+                        } catch (Throwable t) {
+                            failures.add(t);
+                        }
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            client.close();
+            assertEquals(failures, Collections.emptyList());
+        }
+    }
+
+    /**
+     * Response class inheriting its root name.
+     */
+    public static class ExtendedContactsResponse extends ContactsResponse {
+    }
+
+}
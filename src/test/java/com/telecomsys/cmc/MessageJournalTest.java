@@ -0,0 +1,384 @@
+package com.telecomsys.cmc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.telecomsys.cmc.api.CmcClient;
+import com.telecomsys.cmc.api.MessageJournal;
+import com.telecomsys.cmc.api.MessagingApi;
+import com.telecomsys.cmc.exception.CMCClientException;
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
+import com.telecomsys.cmc.model.Message;
+import com.telecomsys.cmc.response.NotificationsResponse;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.*;
+
+public class MessageJournalTest {
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String USERNAME = "9876";
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String PASSWORD = "1234";
+
+    /**
+     * Successful send response.
+     */
+    private static final String SEND_RESPONSE = "{\"response\":{\"status\":\"success\",\"notifications\":{\"to\":[\"4102804827\"],\"from\":\"scsrest\",\"trackinginformation\":[{\"destination\":\"4102804827\",\"messagestatus\":\"Message Accepted\",\"messageID\":\"GW1_AVvciGlHRM32pw0Q\",\"messagetext\":\"Test message\"}]}}}";
+
+    /**
+     * CMC client instance.
+     */
+    private CmcClient cmcClient;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(18089);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setup() {
+        cmcClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cmcClient.close();
+    }
+
+    @Test
+    public void journaledSendCompletes() throws Exception {
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(SEND_RESPONSE)));
+
+        MessageJournal journal = new MessageJournal(folder.getRoot());
+        MessagingApi messagingApi = cmcClient.getMessagingApi();
+        messagingApi.setJournal(journal);
+        try {
+            HttpResponseWrapper<NotificationsResponse> response = messagingApi.sendMessage(createMessage("1"));
+            assertEquals(response.getHttpStatusCode(), 200);
+            assertTrue(journal.getPending().isEmpty());
+
+            final CountDownLatch latch = new CountDownLatch(1);
+            messagingApi.sendMessageAsync(createMessage("2"), new ResponseCallback<NotificationsResponse>() {
+                @Override
+                public void completed(HttpResponseWrapper<NotificationsResponse> response) {
+                    latch.countDown();
+                }
+
+                @Override
+                public void failed(CMCException exception) {
+                }
+            }).get(5, TimeUnit.SECONDS);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(journal.getPending().isEmpty());
+        } finally {
+            messagingApi.setJournal(null);
+            journal.close();
+        }
+
+        // Nothing to replay after a restart.
+        journal = new MessageJournal(folder.getRoot());
+        assertTrue(journal.getPending().isEmpty());
+        journal.close();
+    }
+
+    @Test
+    public void pendingSendReplayed() throws Exception {
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(SEND_RESPONSE)));
+
+        // The process dies between the append and the answer.
+        MessageJournal journal = new MessageJournal(folder.getRoot());
+        String key = journal.append(createMessage("1"));
+        journal.close();
+
+        journal = new MessageJournal(folder.getRoot());
+        Map<String, Message> pending = journal.getPending();
+        assertEquals(pending.size(), 1);
+        Message message = pending.get(key);
+        assertEquals(message.getDestinations(), Arrays.asList("4102804827"));
+        assertEquals(message.getKeyword(), "scsrest");
+        assertEquals(message.getMessage(), "Test message 1");
+
+        assertEquals(journal.replay(cmcClient.getMessagingApi()), 1);
+        assertTrue(journal.getPending().isEmpty());
+        journal.close();
+
+        List<LoggedRequest> requests = findAll(postRequestedFor(urlEqualTo("/messages")));
+        assertEquals(requests.size(), 1);
+        assertTrue(requests.get(0).getBodyAsString().contains("Test message 1"));
+
+        journal = new MessageJournal(folder.getRoot());
+        assertTrue(journal.getPending().isEmpty());
+        journal.close();
+    }
+
+    @Test
+    public void failedSends() throws Exception {
+        MessageJournal journal = new MessageJournal(folder.getRoot());
+        MessagingApi messagingApi = cmcClient.getMessagingApi();
+        messagingApi.setJournal(journal);
+        try {
+            // A rejected send is not replayed.
+            stubFor(post(urlEqualTo("/messages"))
+                    .willReturn(aResponse()
+                        .withStatus(400)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"1001\",\"message\":\"Invalid keyword\"}}")));
+            try {
+                messagingApi.sendMessage(createMessage("1"));
+                fail("Expected a client exception");
+            } catch (CMCClientException cmcex) {
+                assertTrue(journal.getPending().isEmpty());
+            }
+
+            // The outcome of a send is unknown after a server error.
+            stubFor(post(urlEqualTo("/messages"))
+                    .willReturn(aResponse()
+                        .withStatus(503)));
+            final AtomicReference<CMCException> failure = new AtomicReference<CMCException>();
+            final CountDownLatch latch = new CountDownLatch(1);
+            messagingApi.sendMessageAsync(createMessage("2"), new ResponseCallback<NotificationsResponse>() {
+                @Override
+                public void completed(HttpResponseWrapper<NotificationsResponse> response) {
+                }
+
+                @Override
+                public void failed(CMCException exception) {
+                    failure.set(exception);
+                    latch.countDown();
+                }
+            });
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertNotNull(failure.get());
+            assertEquals(journal.getPending().size(), 1);
+        } finally {
+            messagingApi.setJournal(null);
+            journal.close();
+        }
+    }
+
+    @Test
+    public void serverErrorReplayed() throws Exception {
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(500)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"1000\",\"message\":\"Internal server error\"}}")));
+        MessageJournal journal = new MessageJournal(folder.getRoot());
+        MessagingApi messagingApi = cmcClient.getMessagingApi();
+        messagingApi.setJournal(journal);
+        try {
+            // A server error is returned as a response, but the outcome of the send is unknown.
+            assertEquals(messagingApi.sendMessage(createMessage("1")).getHttpStatusCode(), 500);
+            final CountDownLatch latch = new CountDownLatch(1);
+            messagingApi.sendMessageAsync(createMessage("2"), new ResponseCallback<NotificationsResponse>() {
+                @Override
+                public void completed(HttpResponseWrapper<NotificationsResponse> response) {
+                    latch.countDown();
+                }
+
+                @Override
+                public void failed(CMCException exception) {
+                }
+            });
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(journal.getPending().size(), 2);
+        } finally {
+            messagingApi.setJournal(null);
+        }
+
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(SEND_RESPONSE)));
+        assertEquals(journal.replay(messagingApi), 2);
+        assertTrue(journal.getPending().isEmpty());
+        journal.close();
+        verify(4, postRequestedFor(urlEqualTo("/messages")));
+    }
+
+    @Test
+    public void segmentsRolledAndDeleted() throws Exception {
+        MessageJournal journal = new MessageJournal(folder.getRoot(), 512);
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            keys.add(journal.append(createMessage(Integer.toString(i))));
+        }
+        assertTrue(folder.getRoot().list().length > 5);
+
+        // Completing all but the last send deletes all the segments but the ones holding it.
+        for (int i = 0; i < 19; i++) {
+            journal.complete(keys.get(i));
+        }
+        assertTrue(folder.getRoot().list().length <= 3);
+        journal.close();
+
+        journal = new MessageJournal(folder.getRoot(), 512);
+        assertEquals(journal.getPending().keySet(), new HashSet<String>(keys.subList(19, 20)));
+        journal.close();
+    }
+
+    @Test
+    public void refusedAndPendingSendsDoNotKeepSegments() throws Exception {
+        MessageJournal journal = new MessageJournal(folder.getRoot(), 512);
+        MessagingApi messagingApi = cmcClient.getMessagingApi();
+        messagingApi.setJournal(journal);
+        Set<String> pendingKeys;
+        try {
+            // A send CMC refuses is complete; a send after a server error stays pending.
+            stubFor(post(urlEqualTo("/messages"))
+                    .willReturn(aResponse()
+                        .withStatus(404)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"1010\",\"message\":\"Your message failed: Invalid from address.\"}}")));
+            assertEquals(messagingApi.sendMessage(createMessage("1")).getHttpStatusCode(), 404);
+            assertTrue(journal.getPending().isEmpty());
+            stubFor(post(urlEqualTo("/messages"))
+                    .willReturn(aResponse()
+                        .withStatus(500)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"1000\",\"message\":\"Internal server error\"}}")));
+            assertEquals(messagingApi.sendMessage(createMessage("2")).getHttpStatusCode(), 500);
+            pendingKeys = journal.getPending().keySet();
+            assertEquals(pendingKeys.size(), 1);
+
+            // The pending send is copied to the new segments, so the old ones are deleted as the segments roll.
+            stubFor(post(urlEqualTo("/messages"))
+                    .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(SEND_RESPONSE)));
+            for (int i = 3; i < 40; i++) {
+                messagingApi.sendMessage(createMessage(Integer.toString(i)));
+            }
+            assertTrue(folder.getRoot().list().length <= 2);
+            assertEquals(journal.getPending().keySet(), pendingKeys);
+        } finally {
+            messagingApi.setJournal(null);
+            journal.close();
+        }
+
+        journal = new MessageJournal(folder.getRoot(), 512);
+        assertEquals(journal.getPending().keySet(), pendingKeys);
+        assertEquals(journal.getPending().values().iterator().next().getMessage(), "Test message 2");
+        assertEquals(journal.replay(messagingApi), 1);
+        assertTrue(journal.getPending().isEmpty());
+        journal.close();
+    }
+
+    @Test
+    public void tornRecordIgnored() throws Exception {
+        MessageJournal journal = new MessageJournal(folder.getRoot());
+        String key = journal.append(createMessage("1"));
+        journal.append(createMessage("2"));
+        journal.close();
+
+        // Corrupt the last byte of the second record, as if the process died while writing it.
+        File segment = folder.getRoot().listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            long position = 0;
+            long end = 0;
+            while (true) {
+                file.seek(position);
+                int length = file.readInt();
+                if (length == 0) {
+                    break;
+                }
+                end = position + 8 + length;
+                position = end;
+            }
+            file.seek(end - 1);
+            int last = file.read();
+            file.seek(end - 1);
+            file.write(last ^ 0xff);
+        }
+
+        journal = new MessageJournal(folder.getRoot());
+        assertEquals(journal.getPending().keySet(), new HashSet<String>(Arrays.asList(key)));
+        journal.close();
+    }
+
+    @Test
+    public void concurrentAppends() throws Exception {
+        final MessageJournal journal = new MessageJournal(folder.getRoot(), 4096);
+        final Set<String> keys = new HashSet<String>();
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            final int thread = t;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 50; i++) {
+                            String key = journal.append(createMessage(thread + "-" + i));
+                            synchronized (keys) {
+                                keys.add(key);
+                            }
+                        }
+                    } catch (CMCException cmcex) {
+                        failure.set(cmcex);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        journal.close();
+
+        MessageJournal reopened = new MessageJournal(folder.getRoot(), 4096);
+        assertEquals(reopened.getPending().keySet(), keys);
+        reopened.close();
+    }
+
+    /**
+     * Helper method to create a message.
+     *
+     * @param suffix suffix of the message text.
+     * @return the message.
+     */
+    private static Message createMessage(String suffix) {
+        return new Message(Arrays.asList("4102804827"), "scsrest", "Test message " + suffix);
+    }
+
+}
@@ -1,7 +1,12 @@
 package com.telecomsys.cmc;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -9,16 +14,21 @@ import org.junit.Test;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.telecomsys.cmc.api.CmcClient;
 import com.telecomsys.cmc.api.MessagingApi;
 import com.telecomsys.cmc.exception.CMCAuthenticationException;
 import com.telecomsys.cmc.exception.CMCException;
 import com.telecomsys.cmc.exception.CMCIOException;
 import com.telecomsys.cmc.exception.CMCClientException;
+import com.telecomsys.cmc.http.CmcClientConfig;
+import com.telecomsys.cmc.http.ElementHandler;
 import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
 import com.telecomsys.cmc.model.Message;
 import com.telecomsys.cmc.model.ProgramReply;
 import com.telecomsys.cmc.response.DeliveryReceipt;
 import com.telecomsys.cmc.response.DeliveryReceiptResponse;
+import com.telecomsys.cmc.response.DeliveryState;
 import com.telecomsys.cmc.response.MessageReplies;
 import com.telecomsys.cmc.response.MessageRepliesResponse;
 import com.telecomsys.cmc.response.MessageReply;
@@ -590,4 +600,263 @@ public class MessagingApiTest {
         assertEquals(requests.get(0).getBodyAsString(), "");          
     }    
     
+    @Test
+    public void sendMessageAsync() throws Exception {
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"notifications\":{\"to\":[\"4102804827\"],\"from\":\"scsrest\",\"trackinginformation\":[{\"destination\":\"4102804827\",\"messagestatus\":\"Message Accepted\",\"messageID\":\"GW1_AVvciGlHRM32pw0Q\",\"messagetext\":\"Test message\"}]}}}")));
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<HttpResponseWrapper<NotificationsResponse>> callbackResponse =
+                new AtomicReference<HttpResponseWrapper<NotificationsResponse>>();
+        List<String> destinations = new ArrayList<String>();
+        destinations.add("4102804827");
+        Message message = new Message(destinations, REST_CONNECTION_KEYWORD, "Test message");
+        HttpResponseWrapper<NotificationsResponse> response = messagingApi.sendMessageAsync(message,
+                new ResponseCallback<NotificationsResponse>() {
+                    @Override
+                    public void completed(HttpResponseWrapper<NotificationsResponse> response) {
+                        callbackResponse.set(response);
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void failed(CMCException exception) {
+                        latch.countDown();
+                    }
+                }).get(5, TimeUnit.SECONDS);
+
+        // Verify the response
+        assertEquals(response.getHttpStatusCode(), 200);
+        List<TrackingInformation> trackingInformation = response.getResponseBody().getNotifications().getTrackingInformation();
+        assertEquals(trackingInformation.size(),1);
+        assertEquals(trackingInformation.get(0).getMessageID(),"GW1_AVvciGlHRM32pw0Q");
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertSame(callbackResponse.get(), response);
+
+        // Verify the request
+        List<LoggedRequest> requests = findAll(postRequestedFor(urlMatching("/messages")));
+        assertEquals(requests.size(), 1);
+        assertEquals(requests.get(0).getBodyAsString(), "{\"sendmessage\":{\"message\":\"Test message\",\"to\":[\"4102804827\"],\"from\":\"scsrest\"}}");
+    }
+
+    @Test
+    public void sendMessageAsyncInvalidCredentials() throws Exception {
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(401)
+                    .withHeader("Content-Type", "text/html")
+                    .withBody("This request requires HTTP authentication.")));
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<CMCException> callbackException = new AtomicReference<CMCException>();
+        List<String> destinations = new ArrayList<String>();
+        destinations.add("4102804827");
+        Message message = new Message(destinations, REST_CONNECTION_KEYWORD, "Test message");
+        try {
+            messagingApi.sendMessageAsync(message, new ResponseCallback<NotificationsResponse>() {
+                @Override
+                public void completed(HttpResponseWrapper<NotificationsResponse> response) {
+                    latch.countDown();
+                }
+
+                @Override
+                public void failed(CMCException exception) {
+                    callbackException.set(exception);
+                    latch.countDown();
+                }
+            }).get(5, TimeUnit.SECONDS);
+            fail("Expected authentication failure");
+        } catch (ExecutionException eex) {
+            assertTrue(eex.getCause() instanceof CMCAuthenticationException);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(callbackException.get() instanceof CMCAuthenticationException);
+    }
+
+    @Test
+    public void getDeliveryReceiptsAsyncInvalidHost() throws Exception {
+        MessagingApi invalidMessagingApi = new MessagingApi("http://invalidHost:1234", USERNAME, PASSWORD);
+        List<String> messageIds = new ArrayList<String>();
+        messageIds.add("AewVvciGlHRM31jg0K");
+        try {
+            invalidMessagingApi.getDeliveryReceiptsAsync(messageIds, null).get(30, TimeUnit.SECONDS);
+            fail("Expected IO failure");
+        } catch (ExecutionException eex) {
+            assertTrue(eex.getCause() instanceof CMCIOException);
+        }
+    }
+
+    @Test
+    public void sendMessageWithElementHandler() throws CMCException {
+        stubFor(post(urlEqualTo("/messages"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"notifications\":{\"to\":[\"4102804827\",\"4102804828\"],\"from\":\"scsrest\",\"unknown\":{\"nested\":[1,2]},\"trackinginformation\":[{\"destination\":\"4102804827\",\"messagestatus\":\"Message Accepted\",\"messageID\":\"GW1_AVvciGlHRM32pw0Q\",\"messagetext\":\"Test message\"},{\"destination\":\"4102804828\",\"messagestatus\":\"Message Accepted\",\"messageID\":\"GW1_AVvciGlHRM32Rg0O\",\"messagetext\":null}]}}}")));
+
+        List<String> destinations = new ArrayList<String>();
+        destinations.add("4102804827");
+        destinations.add("4102804828");
+        Message message = new Message(destinations, REST_CONNECTION_KEYWORD, "Test message");
+        final List<TrackingInformation> handled = new ArrayList<TrackingInformation>();
+        HttpResponseWrapper<NotificationsResponse> response = messagingApi.sendMessage(message,
+                new ElementHandler<TrackingInformation>() {
+                    @Override
+                    public void handle(TrackingInformation element) {
+                        handled.add(element);
+                    }
+                });
+
+        // Verify the response.
+        assertEquals(response.getHttpStatusCode(), 200);
+        assertEquals(response.getResponseBody().getStatus(), "success");
+        Notifications notifications = response.getResponseBody().getNotifications();
+        assertEquals(notifications.getFromAddress(), "scsrest");
+        assertEquals(notifications.getTo().get(1), "4102804828");
+        assertNull(notifications.getTrackingInformation());
+
+        // Verify the handled tracking information.
+        assertEquals(handled.size(), 2);
+        assertEquals(handled.get(0).getMessageID(), "GW1_AVvciGlHRM32pw0Q");
+        assertEquals(handled.get(0).getMessageText(), "Test message");
+        assertEquals(handled.get(1).getDestination(), "4102804828");
+        assertNull(handled.get(1).getMessageText());
+    }
+
+    @Test
+    public void getDeliveryReceiptsWithElementHandler() throws CMCException {
+        stubFor(get(urlMatching("/receipts/[0-9A-Za-z,_]+"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"deliveryreceipt\":{\"deliverystatuslist\":[{\"deliverydate\":\"2014-05-28T00:00Z\",\"deliverystatus\":\"Undeliverable by Gateway\",\"messageID\":\"GW1_EwGohZtGQpmh8lGB\",\"to\":\"14106277808\"}]}}}")));
+
+        List<String> messageIds = new ArrayList<String>();
+        messageIds.add("GW1_EwGohZtGQpmh8lGB");
+        final List<MessageStatus> handled = new ArrayList<MessageStatus>();
+        HttpResponseWrapper<DeliveryReceiptResponse> response = messagingApi.getDeliveryReceipts(messageIds,
+                new ElementHandler<MessageStatus>() {
+                    @Override
+                    public void handle(MessageStatus element) {
+                        handled.add(element);
+                    }
+                });
+
+        // Verify the response.
+        assertEquals(response.getHttpStatusCode(), 200);
+        assertNull(response.getResponseBody().getDeliveryReceipt().getDeliverystatuslist());
+        assertEquals(handled.size(), 1);
+        assertEquals(handled.get(0).getMin(), "14106277808");
+        assertEquals(handled.get(0).getDeliveryStatus(), "Undeliverable by Gateway");
+        assertEquals(handled.get(0).getMessageID(), "GW1_EwGohZtGQpmh8lGB");
+        assertEquals(handled.get(0).getDeliveryDate(), "2014-05-28T00:00Z");
+    }
+
+    @Test
+    public void getDeliveryReceiptsDeliveryState() throws CMCException {
+        stubFor(get(urlMatching("/receipts/[0-9A-Za-z,_]+"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"deliveryreceipt\":{\"deliverystatuslist\":[{\"deliverystatus\":\"delivered to HANDSET\",\"messageID\":\"GW1_EwGohZtGQpmh8lGB\"},{\"deliverystatus\":\"Queued at Carrier\",\"messageID\":\"GW1_EwBpkTJGkGVEsZ1U\"},{\"deliverystatus\":\"Message Accepted\",\"messageID\":\"GW1_EwBpkTJGkGVEsZ1V\"}]}}}")));
+
+        List<String> messageIds = new ArrayList<String>();
+        messageIds.add("GW1_EwGohZtGQpmh8lGB");
+        messageIds.add("GW1_EwBpkTJGkGVEsZ1U");
+        messageIds.add("GW1_EwBpkTJGkGVEsZ1V");
+        List<MessageStatus> statuses = messagingApi.getDeliveryReceipts(messageIds).getResponseBody()
+                .getDeliveryReceipt().getDeliverystatuslist();
+        final List<MessageStatus> handled = new ArrayList<MessageStatus>();
+        messagingApi.getDeliveryReceipts(messageIds, new ElementHandler<MessageStatus>() {
+            @Override
+            public void handle(MessageStatus element) {
+                handled.add(element);
+            }
+        });
+
+        // Both the data binding and the streaming parser keep the texts as sent, sharing the exact known texts.
+        for (List<MessageStatus> list : Arrays.asList(statuses, handled)) {
+            assertEquals(list.size(), 3);
+            assertEquals(list.get(0).getDeliveryStatus(), "delivered to HANDSET");
+            assertEquals(list.get(0).getDeliveryState(), DeliveryState.DELIVERED_TO_HANDSET);
+            assertTrue(list.get(0).getDeliveryState().isFinal());
+            assertEquals(list.get(1).getDeliveryStatus(), "Queued at Carrier");
+            assertEquals(list.get(1).getDeliveryState(), DeliveryState.UNKNOWN);
+            assertFalse(list.get(1).getDeliveryState().isFinal());
+            assertSame(list.get(2).getDeliveryStatus(), DeliveryState.ACCEPTED.getText());
+            assertFalse(list.get(2).getDeliveryState().isFinal());
+        }
+        assertEquals(DeliveryState.fromText("Undeliverable to Handset"), DeliveryState.UNDELIVERABLE_TO_HANDSET);
+        assertEquals(DeliveryState.fromText((String) null), DeliveryState.UNKNOWN);
+        assertEquals(DeliveryState.fromText(" Delivered to Handset "), DeliveryState.DELIVERED_TO_HANDSET);
+
+        // A final text with details has no state of its own but is still final.
+        assertEquals(DeliveryState.fromText("Undeliverable - invalid number"), DeliveryState.UNKNOWN);
+        assertTrue(DeliveryState.isFinalText("Undeliverable - invalid number"));
+        assertTrue(DeliveryState.isFinalText(" expired"));
+        assertFalse(DeliveryState.isFinalText("Queued at Carrier"));
+        assertFalse(DeliveryState.isFinalText(null));
+    }
+
+    @Test
+    public void getProgramRepliesWithElementHandler() throws CMCException {
+        stubFor(get(urlMatching("/programreplies/[0-9A-Za-z]+"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\": \"success\",\"replies\":{\"numberofreplies\": 2,\"replylist\":[{\"from\": \"14106277808\",\"text\": \"Reply back\",\"date\": \"2015-07-13T00:00Z\"},{\"from\": \"14106277809\",\"text\":\"Reply back again\",\"date\":\"2015-09-13T00:00Z\"}]}}}")));
+
+        final List<MessageReply> handled = new ArrayList<MessageReply>();
+        HttpResponseWrapper<MessageRepliesResponse> response = messagingApi.getProgramReplies(
+                new ProgramReply("GW1EwGohZtGQpmh8lGB"), new ElementHandler<MessageReply>() {
+                    @Override
+                    public void handle(MessageReply element) {
+                        handled.add(element);
+                    }
+                });
+
+        // Verify the response.
+        assertEquals(response.getResponseBody().getMessageReplies().getNumberOfReplies(), 2);
+        assertNull(response.getResponseBody().getMessageReplies().getReplies());
+        assertEquals(handled.size(), 2);
+        assertEquals(handled.get(1).getMin(), "14106277809");
+        assertEquals(handled.get(1).getMsgText(), "Reply back again");
+        assertEquals(handled.get(1).getReplyDate(), "2015-09-13T00:00Z");
+    }
+
+    @Test
+    public void streamingParsersConfig() throws Exception {
+        stubFor(get(urlMatching("/programreplies/[0-9A-Za-z]+"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\": \"success\",\"replies\":{\"numberofreplies\": 1,\"replylist\":[{\"from\": \"14106277808\",\"text\": \"Reply back\",\"date\": \"2015-07-13T00:00Z\"}]}}}")));
+        stubFor(get(urlMatching("/notifications/[0-9]+"))
+                .willReturn(aResponse()
+                    .withStatus(404)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"2003\",\"message\":\"Tracking ID Not Found.\"}}")));
+
+        CmcClientConfig config = CmcClientConfig.custom().setStreamingParsers(true).build();
+        CmcClient streamingClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD, config);
+        try {
+            // The streaming parsers collect the lists when there is no handler.
+            HttpResponseWrapper<MessageRepliesResponse> response = streamingClient.getMessagingApi()
+                    .getProgramReplies(new ProgramReply("GW1EwGohZtGQpmh8lGB"));
+            assertEquals(response.getResponseBody().getMessageReplies().getReplies().get(0).getMsgText(),
+                    "Reply back");
+
+            HttpResponseWrapper<NotificationsResponse> notFound = streamingClient.getMessagingApi()
+                    .getDeliveryNotifications("17177");
+            assertEquals(notFound.getHttpStatusCode(), 404);
+            assertEquals(notFound.getResponseBody().getCode(), "2003");
+            assertNull(notFound.getResponseBody().getNotifications());
+        } finally {
+            streamingClient.close();
+        }
+    }
+
 }
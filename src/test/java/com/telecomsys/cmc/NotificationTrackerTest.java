@@ -0,0 +1,200 @@
+package com.telecomsys.cmc;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.telecomsys.cmc.api.CmcClient;
+import com.telecomsys.cmc.api.NotificationListener;
+import com.telecomsys.cmc.api.NotificationTracker;
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.response.Notifications;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.*;
+
+public class NotificationTrackerTest {
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String USERNAME = "9876";
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String PASSWORD = "1234";
+
+    /**
+     * Notifications with a pending status.
+     */
+    private static final String ACCEPTED = "{\"response\":{\"status\":\"success\",\"notifications\":{\"to\":[\"4102804827\",\"4102804828\"],\"from\":\"scsrest\",\"trackinginformation\":[{\"destination\":\"4102804827\",\"messagestatus\":\"Delivered to Handset\",\"messageID\":\"GW1_AVvciGlHRM32pw0Q\",\"messagetext\":\"Test message\"},{\"destination\":\"4102804828\",\"messagestatus\":\"Message Accepted\",\"messageID\":\"GW1_AVvciGlHRM32Rg0O\",\"messagetext\":\"Test message\"}]}}}";
+
+    /**
+     * Notifications with final statuses.
+     */
+    private static final String DELIVERED = "{\"response\":{\"status\":\"success\",\"notifications\":{\"to\":[\"4102804827\",\"4102804828\"],\"from\":\"scsrest\",\"trackinginformation\":[{\"destination\":\"4102804827\",\"messagestatus\":\"Delivered to Handset\",\"messageID\":\"GW1_AVvciGlHRM32pw0Q\",\"messagetext\":\"Test message\"},{\"destination\":\"4102804828\",\"messagestatus\":\"Undeliverable to Handset\",\"messageID\":\"GW1_AVvciGlHRM32Rg0O\",\"messagetext\":\"Test message\"}]}}}";
+
+    /**
+     * CMC client instance.
+     */
+    private CmcClient cmcClient;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(18089);
+
+    @Before
+    public void setup() {
+        cmcClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cmcClient.close();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void invalidDelaysTest() {
+        new NotificationTracker(cmcClient.getMessagingApi(), 1000, 100, 5000);
+    }
+
+    @Test
+    public void pollWithBackoffUntilFinal() throws Exception {
+        stubFor(get(urlEqualTo("/notifications/17177")).inScenario("notifications")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("second")
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(ACCEPTED)));
+        stubFor(get(urlEqualTo("/notifications/17177")).inScenario("notifications")
+                .whenScenarioStateIs("second")
+                .willSetStateTo("delivered")
+                .willReturn(aResponse()
+                    .withStatus(500)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"6000\",\"message\":\"The RMI server is down.\"}}")));
+        stubFor(get(urlEqualTo("/notifications/17177")).inScenario("notifications")
+                .whenScenarioStateIs("delivered")
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(DELIVERED)));
+
+        NotificationTracker tracker = new NotificationTracker(cmcClient.getMessagingApi(), 50, 1000, 5000);
+        try {
+            long start = System.currentTimeMillis();
+            Future<Notifications> future = tracker.track("17177", null);
+            Notifications notifications = future.get(5, TimeUnit.SECONDS);
+
+            // Polled after 50, 100 and 200 ms.
+            assertTrue(System.currentTimeMillis() - start >= 350);
+            assertEquals(notifications.getTrackingInformation().get(1).getMessageStatus(), "Undeliverable to Handset");
+            assertEquals(findAll(getRequestedFor(urlEqualTo("/notifications/17177"))).size(), 3);
+            assertEquals(tracker.getPendingCount(), 0);
+        } finally {
+            tracker.close();
+        }
+    }
+
+    @Test
+    public void duplicateTrackingID() throws Exception {
+        stubFor(get(urlEqualTo("/notifications/17177"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(DELIVERED)));
+
+        final CountDownLatch latch = new CountDownLatch(2);
+        NotificationListener listener = new NotificationListener() {
+            @Override
+            public void completed(String trackingID, Notifications notifications) {
+                latch.countDown();
+            }
+
+            @Override
+            public void failed(String trackingID, CMCException exception) {
+            }
+        };
+        NotificationTracker tracker = new NotificationTracker(cmcClient.getMessagingApi(), 50, 1000, 5000);
+        try {
+            Future<Notifications> first = tracker.track("17177", listener);
+            Future<Notifications> duplicate = tracker.track("17177", listener);
+
+            // Both callers share one tracking and both listeners are notified.
+            assertSame(duplicate, first);
+            assertEquals(tracker.getPendingCount(), 1);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertNotNull(first.get(5, TimeUnit.SECONDS));
+            assertEquals(findAll(getRequestedFor(urlEqualTo("/notifications/17177"))).size(), 1);
+            assertEquals(tracker.getPendingCount(), 0);
+        } finally {
+            tracker.close();
+        }
+    }
+
+    @Test
+    public void timeoutAndClose() throws Exception {
+        stubFor(get(urlMatching("/notifications/.*"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(ACCEPTED)));
+
+        final AtomicReference<String> failedID = new AtomicReference<String>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        NotificationTracker tracker = new NotificationTracker(cmcClient.getMessagingApi(), 20, 50, 200);
+        tracker.track("17177", new NotificationListener() {
+            @Override
+            public void completed(String trackingID, Notifications notifications) {
+            }
+
+            @Override
+            public void failed(String trackingID, CMCException exception) {
+                failedID.set(trackingID);
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(failedID.get(), "17177");
+
+        // Closing fails the pending tracking IDs.
+        Future<Notifications> pending = tracker.track("17178", null);
+        tracker.close();
+        try {
+            pending.get(5, TimeUnit.SECONDS);
+            fail("Expected closed tracker failure");
+        } catch (ExecutionException eex) {
+            assertTrue(eex.getCause() instanceof CMCException);
+        }
+    }
+
+    @Test
+    public void closedClientFailsTracking() throws Exception {
+        NotificationTracker tracker = new NotificationTracker(cmcClient.getMessagingApi(), 20, 50, 60000);
+        try {
+            cmcClient.close();
+            Future<Notifications> notifications = tracker.track("17177", null);
+            try {
+                notifications.get(5, TimeUnit.SECONDS);
+                fail("Expected closed client failure");
+            } catch (ExecutionException eex) {
+                assertTrue(eex.getCause() instanceof CMCException);
+            }
+            assertEquals(tracker.getPendingCount(), 0);
+        } finally {
+            tracker.close();
+        }
+    }
+
+}
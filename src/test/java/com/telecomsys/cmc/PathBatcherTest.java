@@ -0,0 +1,210 @@
+package com.telecomsys.cmc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.telecomsys.cmc.api.CmcClient;
+import com.telecomsys.cmc.api.ContactApi;
+import com.telecomsys.cmc.api.PathBatchResult;
+import com.telecomsys.cmc.api.PathBatcher;
+import com.telecomsys.cmc.http.ElementHandler;
+import com.telecomsys.cmc.http.HttpResponseWrapper;
+import com.telecomsys.cmc.http.ResponseCallback;
+import com.telecomsys.cmc.model.Contact;
+import com.telecomsys.cmc.response.ContactsResponse;
+import com.telecomsys.cmc.response.DeliveryReceiptResponse;
+import com.telecomsys.cmc.response.MessageStatus;
+import com.telecomsys.cmc.response.RestResponse;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.*;
+
+public class PathBatcherTest {
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String USERNAME = "9876";
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String PASSWORD = "1234";
+
+    /**
+     * CMC client instance.
+     */
+    private CmcClient cmcClient;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(18089);
+
+    @Before
+    public void setup() {
+        cmcClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cmcClient.close();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void invalidMaxPathLengthTest() {
+        new PathBatcher(0, 4);
+    }
+
+    @Test
+    public void splitByEncodedLength() {
+        PathBatcher pathBatcher = new PathBatcher(23, 2);
+        assertEquals(pathBatcher.split(Arrays.asList("14102718101", "14102718102", "14102718103")),
+                Arrays.asList(Arrays.asList("14102718101", "14102718102"), Arrays.asList("14102718103")));
+
+        // A space is encoded as three characters and an ID longer than the maximum is sent alone.
+        List<String> groupNames = Arrays.asList("group one", "group two", "a very long group name here", "x");
+        assertEquals(new PathBatcher(22, 2).split(groupNames),
+                Arrays.asList(Arrays.asList("group one"), Arrays.asList("group two"),
+                        Arrays.asList("a very long group name here"), Arrays.asList("x")));
+        assertTrue(pathBatcher.split(Arrays.<String>asList()).isEmpty());
+    }
+
+    @Test
+    public void retrieveContactsMerged() throws Exception {
+        stubContacts("14102718101", "14102718102");
+        stubContacts("14102718103", "14102718104");
+        ContactApi contactApi = cmcClient.getContactApi();
+        contactApi.setPathBatcher(new PathBatcher(23, 2));
+
+        HttpResponseWrapper<ContactsResponse> response = contactApi.retrieveContacts(
+                Arrays.asList("14102718101", "14102718102", "14102718103", "14102718104"));
+        assertEquals(response.getHttpStatusCode(), 200);
+        List<Contact> contacts = response.getResponseBody().getContactsResponses();
+        assertEquals(contacts.size(), 4);
+        assertEquals(contacts.get(0).getCellNumber(), "14102718101");
+        assertEquals(contacts.get(3).getCellNumber(), "14102718104");
+        verify(2, getRequestedFor(urlMatching("/contacts/.*")));
+    }
+
+    @Test
+    public void deleteContactsErrorReturned() throws Exception {
+        stubFor(delete(urlEqualTo("/contacts/14102718101,14102718102"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\": {\"status\": \"success\"}}")));
+        stubFor(delete(urlEqualTo("/contacts/14102718103"))
+                .willReturn(aResponse()
+                    .withStatus(404)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"8103\",\"message\":\"Some or all of the contacts with mdns 14102718103 not found.\"}}")));
+        ContactApi contactApi = cmcClient.getContactApi();
+        contactApi.setPathBatcher(new PathBatcher(23, 2));
+
+        HttpResponseWrapper<RestResponse> response = contactApi.deleteContacts(
+                Arrays.asList("14102718101", "14102718102", "14102718103"));
+        assertEquals(response.getHttpStatusCode(), 404);
+        assertEquals(response.getResponseBody().getCode(), "8103");
+        verify(1, deleteRequestedFor(urlEqualTo("/contacts/14102718101,14102718102")));
+    }
+
+    @Test
+    public void deliveryReceiptsMerged() throws Exception {
+        stubFor(get(urlEqualTo("/receipts/GW1_EwGohZtGQpmh8lGB"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"deliveryreceipt\":{\"deliverystatuslist\":[{\"deliverydate\":\"2014-05-28T00:00Z\",\"deliverystatus\":\"Undeliverable by Gateway\",\"messageID\":\"GW1_EwGohZtGQpmh8lGB\",\"to\":\"14106277808\"}]}}}")));
+        stubFor(get(urlEqualTo("/receipts/GW1_EwBpkTJGkGVEsZ1U"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"deliveryreceipt\":{\"deliverystatuslist\":[{\"deliverydate\":\"2014-06-12T00:00Z\",\"deliverystatus\":\"Delivered to Handset\",\"messageID\":\"GW1_EwBpkTJGkGVEsZ1U\",\"to\":\"14103334444\"}]}}}")));
+        cmcClient.getMessagingApi().setPathBatcher(new PathBatcher(30, 2));
+
+        HttpResponseWrapper<DeliveryReceiptResponse> response = cmcClient.getMessagingApi().getDeliveryReceipts(
+                Arrays.asList("GW1_EwGohZtGQpmh8lGB", "GW1_EwBpkTJGkGVEsZ1U"));
+        assertEquals(response.getHttpStatusCode(), 200);
+        assertEquals(response.getResponseBody().getDeliveryReceipt().getDeliverystatuslist().size(), 2);
+        assertEquals(response.getResponseBody().getDeliveryReceipt().getDeliverystatuslist().get(1).getMin(),
+                "14103334444");
+    }
+
+    @Test
+    public void deliveryReceiptsHandlerUnsplit() throws Exception {
+        stubFor(get(urlEqualTo("/receipts/"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"deliveryreceipt\":{\"deliverystatuslist\":[]}}}")));
+        final List<MessageStatus> handled = new ArrayList<MessageStatus>();
+        ElementHandler<MessageStatus> handler = new ElementHandler<MessageStatus>() {
+            @Override
+            public void handle(MessageStatus element) {
+                handled.add(element);
+            }
+        };
+
+        // An empty list is sent as is, like without a handler.
+        HttpResponseWrapper<DeliveryReceiptResponse> response = cmcClient.getMessagingApi().getDeliveryReceipts(
+                Collections.<String>emptyList(), handler);
+        assertNotNull(response);
+        assertEquals(response.getHttpStatusCode(), 200);
+        assertEquals(cmcClient.getMessagingApi().getDeliveryReceipts(Collections.<String>emptyList())
+                .getHttpStatusCode(), 200);
+        assertTrue(handled.isEmpty());
+        verify(2, getRequestedFor(urlEqualTo("/receipts/")));
+    }
+
+    @Test
+    public void failedBatchesReported() throws Exception {
+        stubFor(delete(urlEqualTo("/contacts/14102718101,14102718102"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\": {\"status\": \"success\"}}")));
+        stubFor(delete(urlEqualTo("/contacts/14102718103"))
+                .willReturn(aResponse()
+                    .withStatus(503)));
+        final ContactApi contactApi = cmcClient.getContactApi();
+
+        PathBatchResult<RestResponse> result = new PathBatcher(23, 2).execute(
+                Arrays.asList("14102718101", "14102718102", "14102718103"), new PathBatcher.Request<RestResponse>() {
+                    @Override
+                    public Future<HttpResponseWrapper<RestResponse>> send(List<String> batch,
+                            ResponseCallback<RestResponse> callback) {
+                        return contactApi.deleteContactsAsync(batch, callback);
+                    }
+                });
+        assertFalse(result.isSuccess());
+        assertEquals(result.getBatches().size(), 2);
+        assertTrue(result.getBatches().get(0).isSuccess());
+        assertNotNull(result.getFailedBatches().get(0).getException());
+        assertEquals(result.getFailedIds(), Arrays.asList("14102718103"));
+    }
+
+    /**
+     * Helper method to stub the retrieval of two contacts.
+     *
+     * @param first cell number of the first contact.
+     * @param second cell number of the second contact.
+     */
+    private static void stubContacts(String first, String second) {
+        stubFor(get(urlEqualTo("/contacts/" + first + "," + second))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"contactList\":[{\"mdn\":\"" + first + "\",\"first\":\"John\",\"last\":\"Doe\"},{\"mdn\":\""
+                            + second + "\",\"first\":\"Jane\",\"last\":\"Doe\"}]}}")));
+    }
+
+}
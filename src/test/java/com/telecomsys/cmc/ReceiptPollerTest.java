@@ -0,0 +1,268 @@
+package com.telecomsys.cmc;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.telecomsys.cmc.api.CmcClient;
+import com.telecomsys.cmc.api.ReceiptListener;
+import com.telecomsys.cmc.api.ReceiptPoller;
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.response.MessageStatus;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.*;
+
+public class ReceiptPollerTest {
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String USERNAME = "9876";
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String PASSWORD = "1234";
+
+    /**
+     * CMC client instance.
+     */
+    private CmcClient cmcClient;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(18089);
+
+    @Before
+    public void setup() {
+        cmcClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cmcClient.close();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void invalidPollIntervalTest() {
+        new ReceiptPoller(cmcClient.getMessagingApi(), 0, 1000, 100);
+    }
+
+    @Test
+    public void batchedReceipts() throws Exception {
+        stubFor(get(urlMatching("/receipts/.*"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"deliveryreceipt\":{\"deliverystatuslist\":[{\"deliverydate\":\"2014-05-28T00:00Z\",\"deliverystatus\":\"Undeliverable by Gateway\",\"messageID\":\"GW1_EwGohZtGQpmh8lGB\",\"to\":\"14106277808\"},{\"deliverydate\":\"2014-06-12T00:00Z\",\"deliverystatus\":\"Delivered to Handset\",\"messageID\":\"GW1_EwBpkTJGkGVEsZ1U\",\"to\":\"14103334444\"},{\"deliverydate\":\"2014-06-12T00:00Z\",\"deliverystatus\":\"Delivered to Handset\",\"messageID\":\"GW1_AVvciGlHRM32pw0Q\",\"to\":\"14103334445\"}]}}}")));
+
+        // Two message IDs fit in one request.
+        ReceiptPoller receiptPoller = new ReceiptPoller(cmcClient.getMessagingApi(), 50, 5000, 41);
+        try {
+            Future<MessageStatus> first = receiptPoller.track("GW1_EwGohZtGQpmh8lGB", null);
+            Future<MessageStatus> second = receiptPoller.track("GW1_EwBpkTJGkGVEsZ1U", null);
+            Future<MessageStatus> third = receiptPoller.track("GW1_AVvciGlHRM32pw0Q", null);
+            Future<MessageStatus> duplicate = receiptPoller.track("GW1_EwGohZtGQpmh8lGB", null);
+
+            // Verify the statuses.
+            assertEquals(first.get(5, TimeUnit.SECONDS).getDeliveryStatus(), "Undeliverable by Gateway");
+            assertEquals(second.get(5, TimeUnit.SECONDS).getMin(), "14103334444");
+            assertEquals(third.get(5, TimeUnit.SECONDS).getMin(), "14103334445");
+            assertSame(duplicate.get(5, TimeUnit.SECONDS), first.get());
+            assertEquals(receiptPoller.getPendingCount(), 0);
+        } finally {
+            receiptPoller.close();
+        }
+
+        // Verify the requests: at most two IDs per request and no ID polled once final.
+        List<LoggedRequest> requests = findAll(getRequestedFor(urlMatching("/receipts/.*")));
+        assertTrue(requests.size() <= 2);
+        Set<String> polledIDs = new HashSet<String>();
+        for (LoggedRequest request : requests) {
+            String[] ids = request.getUrl().substring("/receipts/".length()).split(",");
+            assertTrue(ids.length <= 2);
+            for (String id : ids) {
+                assertTrue(polledIDs.add(id));
+            }
+        }
+    }
+
+    @Test
+    public void unknownMessageID() throws Exception {
+        stubFor(get(urlMatching("/receipts/.*"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"deliveryreceipt\":{\"deliverystatuslist\":[{\"deliverydate\":\"2014-05-28T00:00Z\",\"deliverystatus\":\"Undeliverable by Gateway\",\"messageID\":\"GW1_EwGohZtGQpmh8lGB\",\"to\":\"14106277808\"},{\"deliverydate\":\"2014-06-12T00:00Z\",\"deliverystatus\":\"Delivered to Handset\",\"messageID\":\"GW1_EwBpkTJGkGVEsZ1U\",\"to\":\"14103334444\"},{\"deliverydate\":\"2014-06-12T00:00Z\",\"deliverystatus\":\"Delivered to Handset\",\"messageID\":\"GW1_AVvciGlHRM32pw0Q\",\"to\":\"14103334445\"}]}}}")));
+        stubFor(get(urlMatching("/receipts/.*AewVvciGlHRM31jg0K.*"))
+                .willReturn(aResponse()
+                    .withStatus(404)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"2003\",\"message\":\"Message ID Not Found -- Receipts AewVvciGlHRM31jg0K.\"}}")));
+
+        final AtomicReference<String> failedID = new AtomicReference<String>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        ReceiptPoller receiptPoller = new ReceiptPoller(cmcClient.getMessagingApi(), 50, 5000, 1900);
+        try {
+            Future<MessageStatus> first = receiptPoller.track("GW1_EwGohZtGQpmh8lGB", null);
+            Future<MessageStatus> unknown = receiptPoller.track("AewVvciGlHRM31jg0K", new ReceiptListener() {
+                @Override
+                public void completed(MessageStatus status) {
+                    latch.countDown();
+                }
+
+                @Override
+                public void failed(String messageID, CMCException exception) {
+                    failedID.set(messageID);
+                    latch.countDown();
+                }
+            });
+            Future<MessageStatus> second = receiptPoller.track("GW1_EwBpkTJGkGVEsZ1U", null);
+            Future<MessageStatus> third = receiptPoller.track("GW1_AVvciGlHRM32pw0Q", null);
+
+            // The valid message IDs complete despite the unknown one.
+            assertEquals(first.get(5, TimeUnit.SECONDS).getDeliveryStatus(), "Undeliverable by Gateway");
+            assertEquals(second.get(5, TimeUnit.SECONDS).getMin(), "14103334444");
+            assertEquals(third.get(5, TimeUnit.SECONDS).getMin(), "14103334445");
+
+            // The unknown message ID fails.
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(failedID.get(), "AewVvciGlHRM31jg0K");
+            try {
+                unknown.get(5, TimeUnit.SECONDS);
+                fail("Expected unknown message ID failure");
+            } catch (ExecutionException eex) {
+                assertTrue(eex.getCause() instanceof CMCException);
+            }
+            assertEquals(receiptPoller.getPendingCount(), 0);
+        } finally {
+            receiptPoller.close();
+        }
+    }
+
+    @Test
+    public void pollUntilFinal() throws Exception {
+        stubFor(get(urlEqualTo("/receipts/GW1_EwBpkTJGkGVEsZ1U")).inScenario("receipt")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("delivered")
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"deliveryreceipt\":{\"deliverystatuslist\":[{\"deliverystatus\":\"Message Accepted\",\"messageID\":\"GW1_EwBpkTJGkGVEsZ1U\",\"to\":\"14103334444\"}]}}}")));
+        stubFor(get(urlEqualTo("/receipts/GW1_EwBpkTJGkGVEsZ1U")).inScenario("receipt")
+                .whenScenarioStateIs("delivered")
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"deliveryreceipt\":{\"deliverystatuslist\":[{\"deliverydate\":\"2014-06-12T00:00Z\",\"deliverystatus\":\"Delivered to Handset\",\"messageID\":\"GW1_EwBpkTJGkGVEsZ1U\",\"to\":\"14103334444\"}]}}}")));
+
+        final AtomicReference<MessageStatus> received = new AtomicReference<MessageStatus>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        ReceiptPoller receiptPoller = new ReceiptPoller(cmcClient.getMessagingApi(), 50, 5000, 1900);
+        try {
+            receiptPoller.track("GW1_EwBpkTJGkGVEsZ1U", new ReceiptListener() {
+                @Override
+                public void completed(MessageStatus status) {
+                    received.set(status);
+                    latch.countDown();
+                }
+
+                @Override
+                public void failed(String messageID, CMCException exception) {
+                    latch.countDown();
+                }
+            });
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(received.get().getDeliveryStatus(), "Delivered to Handset");
+        } finally {
+            receiptPoller.close();
+        }
+        assertEquals(findAll(getRequestedFor(urlEqualTo("/receipts/GW1_EwBpkTJGkGVEsZ1U"))).size(), 2);
+    }
+
+    @Test
+    public void suffixedFinalStatus() throws Exception {
+        stubFor(get(urlEqualTo("/receipts/GW1_EwBpkTJGkGVEsZ1U"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"success\",\"deliveryreceipt\":{\"deliverystatuslist\":[{\"deliverydate\":\"2014-06-12T00:00Z\",\"deliverystatus\":\"Undeliverable - invalid number\",\"messageID\":\"GW1_EwBpkTJGkGVEsZ1U\",\"to\":\"14103334444\"}]}}}")));
+
+        final AtomicReference<MessageStatus> received = new AtomicReference<MessageStatus>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        ReceiptPoller receiptPoller = new ReceiptPoller(cmcClient.getMessagingApi(), 50, 5000, 1900);
+        try {
+            receiptPoller.track("GW1_EwBpkTJGkGVEsZ1U", new ReceiptListener() {
+                @Override
+                public void completed(MessageStatus status) {
+                    received.set(status);
+                    latch.countDown();
+                }
+
+                @Override
+                public void failed(String messageID, CMCException exception) {
+                    latch.countDown();
+                }
+            });
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(received.get().getDeliveryStatus(), "Undeliverable - invalid number");
+        } finally {
+            receiptPoller.close();
+        }
+        assertEquals(findAll(getRequestedFor(urlEqualTo("/receipts/GW1_EwBpkTJGkGVEsZ1U"))).size(), 1);
+    }
+
+    @Test
+    public void timeoutAndClose() throws Exception {
+        stubFor(get(urlMatching("/receipts/.*"))
+                .willReturn(aResponse()
+                    .withStatus(500)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"6000\",\"message\":\"The RMI server is down.\"}}")));
+
+        ReceiptPoller receiptPoller = new ReceiptPoller(cmcClient.getMessagingApi(), 50, 200, 1900);
+        Future<MessageStatus> expired = receiptPoller.track("GW1_EwGohZtGQpmh8lGB", null);
+        try {
+            expired.get(5, TimeUnit.SECONDS);
+            fail("Expected timeout");
+        } catch (ExecutionException eex) {
+            assertTrue(eex.getCause() instanceof CMCException);
+        }
+
+        // Closing fails the pending messages.
+        final AtomicReference<String> failedID = new AtomicReference<String>();
+        Future<MessageStatus> cancelled = receiptPoller.track("GW1_EwBpkTJGkGVEsZ1U", new ReceiptListener() {
+            @Override
+            public void completed(MessageStatus status) {
+            }
+
+            @Override
+            public void failed(String messageID, CMCException exception) {
+                failedID.set(messageID);
+            }
+        });
+        receiptPoller.close();
+        try {
+            cancelled.get(5, TimeUnit.SECONDS);
+            fail("Expected closed poller failure");
+        } catch (ExecutionException eex) {
+            assertEquals(failedID.get(), "GW1_EwBpkTJGkGVEsZ1U");
+        }
+        assertEquals(receiptPoller.getPendingCount(), 0);
+    }
+
+}
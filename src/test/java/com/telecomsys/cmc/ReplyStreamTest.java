@@ -0,0 +1,173 @@
+package com.telecomsys.cmc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestListener;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.telecomsys.cmc.api.CmcClient;
+import com.telecomsys.cmc.api.ReplyListener;
+import com.telecomsys.cmc.api.ReplyStream;
+import com.telecomsys.cmc.exception.CMCException;
+import com.telecomsys.cmc.response.MessageReply;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.*;
+
+public class ReplyStreamTest {
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String USERNAME = "9876";
+
+    /**
+     * CMC REST user name (account ID).
+     */
+    private static final String PASSWORD = "1234";
+
+    /**
+     * Two replies.
+     */
+    private static final String TWO_REPLIES = "{\"response\":{\"status\": \"success\",\"replies\":{\"numberofreplies\": 2,\"replylist\":[{\"from\": \"14106277808\",\"text\": \"Reply back\",\"date\": \"2015-07-13T00:00Z\"},{\"from\": \"14106277809\",\"text\":\"Reply back again\",\"date\":\"2015-07-13T00:01Z\"}]}}}";
+
+    /**
+     * The same replies and a new one.
+     */
+    private static final String THREE_REPLIES = "{\"response\":{\"status\": \"success\",\"replies\":{\"numberofreplies\": 3,\"replylist\":[{\"from\": \"14106277808\",\"text\": \"Reply back\",\"date\": \"2015-07-13T00:00Z\"},{\"from\": \"14106277809\",\"text\":\"Reply back again\",\"date\":\"2015-07-13T00:01Z\"},{\"from\": \"14106277808\",\"text\":\"Reply back\",\"date\":\"2015-07-13T00:02Z\"}]}}}";
+
+    /**
+     * CMC client instance.
+     */
+    private CmcClient cmcClient;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(18089);
+
+    @Before
+    public void setup() {
+        cmcClient = new CmcClient("http://localhost:18089", USERNAME, PASSWORD);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cmcClient.close();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void invalidCacheSizeTest() {
+        new ReplyStream(cmcClient.getMessagingApi(), 30, 0);
+    }
+
+    @Test
+    public void pollOnlyNewReplies() throws Exception {
+        stubFor(get(urlMatching("/programreplies/sales/since\\?minutes=[0-9]+")).inScenario("replies")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("more")
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(TWO_REPLIES)));
+        stubFor(get(urlMatching("/programreplies/sales/since\\?minutes=[0-9]+")).inScenario("replies")
+                .whenScenarioStateIs("more")
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(THREE_REPLIES)));
+
+        ReplyStream replyStream = new ReplyStream(cmcClient.getMessagingApi(), 30, 100);
+        try {
+            List<MessageReply> replies = replyStream.poll("sales");
+            assertEquals(replies.size(), 2);
+            assertEquals(replies.get(1).getMsgText(), "Reply back again");
+
+            // The overlapping replies are dropped.
+            replies = replyStream.poll("sales");
+            assertEquals(replies.size(), 1);
+            assertEquals(replies.get(0).getReplyDate(), "2015-07-13T00:02Z");
+            assertTrue(replyStream.poll("sales").isEmpty());
+        } finally {
+            replyStream.close();
+        }
+
+        // The first request covers the initial window, the next ones the time since the previous fetch.
+        List<LoggedRequest> requests = findAll(getRequestedFor(urlMatching("/programreplies/sales/since.*")));
+        assertEquals(requests.size(), 3);
+        assertEquals(requests.get(0).getUrl(), "/programreplies/sales/since?minutes=30");
+        assertTrue(requests.get(1).getUrl().matches("/programreplies/sales/since\\?minutes=[12]"));
+    }
+
+    @Test
+    public void failedPollKeepsWatermark() throws Exception {
+        stubFor(get(urlMatching("/programreplies/sales/since\\?minutes=[0-9]+"))
+                .willReturn(aResponse()
+                    .withStatus(404)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"response\":{\"status\":\"fail\",\"code\":\"4003\",\"message\":\"Program not found 1.\"}}")));
+
+        ReplyStream replyStream = new ReplyStream(cmcClient.getMessagingApi(), 30, 100);
+        for (int i = 0; i < 2; i++) {
+            try {
+                replyStream.poll("sales");
+                fail("Expected CMC exception");
+            } catch (CMCException cmcex) {
+                assertTrue(cmcex.getMessage().contains("Program not found"));
+            }
+        }
+        assertEquals(findAll(getRequestedFor(urlEqualTo("/programreplies/sales/since?minutes=30"))).size(), 2);
+    }
+
+    @Test
+    public void subscribeToReplies() throws Exception {
+        stubFor(get(urlMatching("/programreplies/sales/since\\?minutes=[0-9]+"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(TWO_REPLIES)));
+
+        final List<MessageReply> received = Collections.synchronizedList(new ArrayList<MessageReply>());
+        final CountDownLatch latch = new CountDownLatch(3);
+        ReplyStream replyStream = new ReplyStream(cmcClient.getMessagingApi());
+        try {
+            Future<?> subscription = replyStream.subscribe("sales", 20, new ReplyListener() {
+                @Override
+                public void replies(String keyword, List<MessageReply> replies) {
+                    received.addAll(replies);
+                }
+
+                @Override
+                public void failed(String keyword, CMCException exception) {
+                }
+            });
+
+            // Wait for a few fetches, the replies are only pushed once.
+            wireMockRule.addMockServiceRequestListener(new RequestListener() {
+                @Override
+                public void requestReceived(Request request, Response response) {
+                    latch.countDown();
+                }
+            });
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            subscription.cancel(false);
+            assertEquals(received.size(), 2);
+            assertEquals(received.get(0).getMin(), "14106277808");
+        } finally {
+            replyStream.close();
+        }
+    }
+
+}
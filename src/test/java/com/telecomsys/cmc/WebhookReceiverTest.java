@@ -0,0 +1,137 @@
+package com.telecomsys.cmc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.telecomsys.cmc.api.WebhookListener;
+import com.telecomsys.cmc.api.WebhookReceiver;
+import com.telecomsys.cmc.response.MessageStatus;
+import com.telecomsys.cmc.response.TrackingInformation;
+
+import static org.junit.Assert.*;
+
+public class WebhookReceiverTest {
+
+    /**
+     * Webhook receiver on an ephemeral port.
+     */
+    private WebhookReceiver receiver;
+
+    /**
+     * HTTP client posting the callbacks.
+     */
+    private CloseableHttpClient httpClient;
+
+    /**
+     * Statuses received by the listener.
+     */
+    private final List<MessageStatus> statuses = Collections.synchronizedList(new ArrayList<MessageStatus>());
+
+    /**
+     * Tracking information received by the listener.
+     */
+    private final List<TrackingInformation> trackingInformation =
+            Collections.synchronizedList(new ArrayList<TrackingInformation>());
+
+    /**
+     * Counted down for each callback entry received.
+     */
+    private CountDownLatch latch;
+
+    @Before
+    public void setup() throws IOException {
+        receiver = new WebhookReceiver(new InetSocketAddress("localhost", 0), WebhookReceiver.DEFAULT_PATH, 1, 10);
+        receiver.addListener(new WebhookListener() {
+            @Override
+            public void messageStatus(MessageStatus status) {
+                statuses.add(status);
+                latch.countDown();
+            }
+
+            @Override
+            public void trackingInformation(TrackingInformation information) {
+                trackingInformation.add(information);
+                latch.countDown();
+            }
+        });
+        receiver.start();
+        httpClient = HttpClients.createDefault();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        httpClient.close();
+        receiver.close();
+    }
+
+    @Test
+    public void deliveryReceiptCallback() throws Exception {
+        latch = new CountDownLatch(2);
+        assertEquals(post("{\"response\":{\"status\":\"success\",\"deliveryreceipt\":{\"deliverystatuslist\":[{\"deliverydate\":\"2014-05-28T00:00Z\",\"deliverystatus\":\"Undeliverable by Gateway\",\"messageID\":\"GW1_EwGohZtGQpmh8lGB\",\"to\":\"14106277808\"},{\"deliverydate\":\"2014-06-12T00:00Z\",\"deliverystatus\":\"Delivered to Handset\",\"messageID\":\"GW1_EwBpkTJGkGVEsZ1U\",\"to\":\"14103334444\"}]}}}"), 200);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        // Verify the statuses.
+        assertEquals(statuses.get(0).getMessageID(), "GW1_EwGohZtGQpmh8lGB");
+        assertEquals(statuses.get(0).getDeliveryStatus(), "Undeliverable by Gateway");
+        assertEquals(statuses.get(1).getMin(), "14103334444");
+        assertEquals(statuses.get(1).getDeliveryDate(), "2014-06-12T00:00Z");
+    }
+
+    @Test
+    public void notificationCallbacks() throws Exception {
+        latch = new CountDownLatch(2);
+        assertEquals(post("{\"notifications\":{\"to\":[\"4102804827\"],\"from\":\"scsrest\",\"trackinginformation\":[{\"destination\":\"4102804827\",\"messagestatus\":\"Delivered to Handset\",\"messageID\":\"GW1_AVvciGlHRM32pw0Q\",\"messagetext\":\"Test message\"}]}}"), 200);
+        assertEquals(post("{\"destination\":\"4102804828\",\"messagestatus\":\"Message Accepted\",\"messageID\":\"GW1_AVvciGlHRM32Rg0O\",\"carrier\":\"unknown\"}"), 200);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        // Verify the tracking information.
+        assertEquals(trackingInformation.get(0).getMessageID(), "GW1_AVvciGlHRM32pw0Q");
+        assertEquals(trackingInformation.get(0).getMessageStatus(), "Delivered to Handset");
+        assertEquals(trackingInformation.get(1).getDestination(), "4102804828");
+        assertTrue(statuses.isEmpty());
+    }
+
+    @Test
+    public void invalidCallbacks() throws Exception {
+        latch = new CountDownLatch(1);
+        assertEquals(post("not json"), 400);
+        assertEquals(post("{\"response\":{\"status\":\"success\"}}"), 400);
+        assertEquals(execute(new HttpGet("http://localhost:" + receiver.getPort() + WebhookReceiver.DEFAULT_PATH)),
+                405);
+        assertTrue(statuses.isEmpty());
+        assertTrue(trackingInformation.isEmpty());
+    }
+
+    private int post(String body) throws IOException {
+        HttpPost post = new HttpPost("http://localhost:" + receiver.getPort() + WebhookReceiver.DEFAULT_PATH);
+        post.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        return execute(post);
+    }
+
+    private int execute(HttpUriRequest request) throws IOException {
+        CloseableHttpResponse response = httpClient.execute(request);
+        try {
+            return response.getStatusLine().getStatusCode();
+        } finally {
+            response.close();
+        }
+    }
+
+}